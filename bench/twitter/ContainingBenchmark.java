@@ -0,0 +1,101 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares Filter.containing(), which scans text with WordMatcher, against
+ * the original split/toLowerCase/HashSet implementation.
+ *
+ * Run main() (with JMH annotation processing enabled) to get time per call
+ * and, from the GC profiler, bytes allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainingBenchmark {
+
+    @Param({ "1", "10", "1000" })
+    public int searchWords;
+
+    private List<Tweet> tweets;
+    private List<String> words;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(6005);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = (random.nextBoolean() ? "Word" : "word") + i;
+        }
+        tweets = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 12; w++) {
+                text.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            tweets.add(new Tweet(i, "user" + (i % 100), text.toString(), Instant.ofEpochSecond(i)));
+        }
+        words = new ArrayList<>();
+        for (int i = 0; i < searchWords; i++) {
+            words.add(vocabulary[random.nextInt(vocabulary.length)].toUpperCase());
+        }
+    }
+
+    @Benchmark
+    public List<Tweet> scanMode() {
+        return Filter.containing(tweets, words);
+    }
+
+    @Benchmark
+    public List<Tweet> splitMode() {
+        List<Tweet> result = new ArrayList<>();
+        Set<String> searchWords = new HashSet<>();
+        for (String word : words) {
+            searchWords.add(word.toLowerCase());
+        }
+        for (Tweet tweet : tweets) {
+            for (String tweetWord : tweet.getText().split("\\s+")) {
+                if (searchWords.contains(tweetWord.toLowerCase())) {
+                    result.add(tweet);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ContainingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,53 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Generated corpus shared by the benchmarks, made by TweetGenerator with:
+ * - size: number of tweets, 10^3 to 10^7
+ * - mentionDensity: average number of @-mentions per tweet
+ * - skew: Zipf exponent for authors and mentioned users; 0 is uniform,
+ *   around 1 is typical of real follower counts
+ * - vocabularySkew: Zipf exponent for words; 0 is uniform, 1 is Zipf's law
+ *   as in natural language, where a few words recur in most tweets
+ * and one tweet per second on average and size/10 users (at least 100).
+ *
+ * The corpus depends only on the parameters, so every fork and every
+ * benchmark sees the same tweets. The largest size needs several GB of heap;
+ * the benchmarks fork with -Xmx8g.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "0.1", "2" })
+    public double mentionDensity;
+
+    @Param({ "0", "1.1" })
+    public double skew;
+
+    @Param({ "0", "1" })
+    public double vocabularySkew;
+
+    /** the generator of the corpus, for its vocabulary */
+    public TweetGenerator generator;
+    /** the tweets, with ids 0..size-1 and nondecreasing timestamps within about size seconds of TweetGenerator.START */
+    public List<Tweet> tweets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new TweetGenerator(6005, Math.max(100, size / 10), mentionDensity, skew, vocabularySkew, 1);
+        tweets = generator.generate(size);
+    }
+}
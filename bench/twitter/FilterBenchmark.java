@@ -0,0 +1,83 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks Filter.writtenBy(), Filter.inTimespan() and Filter.containing()
+ * over the corpora of CorpusState.
+ *
+ * The queries are fixed per corpus: the most frequent author under skew, a
+ * timespan covering the middle tenth of the corpus, and three words of
+ * high, middle and low frequency rank (equally frequent when
+ * vocabularySkew is 0).
+ *
+ * Run main() as for ExtractBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilterBenchmark {
+
+    private String author;
+    private Timespan timespan;
+    private List<String> words;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState corpus) {
+        author = "USER0";
+        timespan = new Timespan(TweetGenerator.START.plusSeconds(corpus.size * 45L / 100),
+                TweetGenerator.START.plusSeconds(corpus.size * 55L / 100));
+        int vocabulary = corpus.generator.getVocabularySize();
+        words = Arrays.asList(corpus.generator.getWord(0).toUpperCase(), corpus.generator.getWord(vocabulary / 100),
+                corpus.generator.getWord(vocabulary - 1));
+    }
+
+    @Benchmark
+    public List<Tweet> writtenBy(CorpusState corpus) {
+        return Filter.writtenBy(corpus.tweets, author);
+    }
+
+    @Benchmark
+    public List<Tweet> inTimespan(CorpusState corpus) {
+        return Filter.inTimespan(corpus.tweets, timespan);
+    }
+
+    @Benchmark
+    public List<Tweet> containing(CorpusState corpus) {
+        return Filter.containing(corpus.tweets, words);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(FilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmarks parsing the corpora of CorpusState from JSON, with
+ * TweetReader.readTweetsFromWeb() on a file: URL (the whole-tree parser) and
+ * with TweetParser.parse() (the streaming parser).
+ *
+ * The JSON is written to a temporary file once per trial, so both parsers
+ * read from the page cache rather than the network.
+ *
+ * Run main() as for ExtractBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class JsonParsingBenchmark {
+
+    private static final DateTimeFormatter CREATED_AT_FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss Z yyyy", Locale.US).withZone(ZoneOffset.UTC);
+
+    private Path file;
+    private URL url;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState corpus) throws IOException {
+        file = Files.createTempFile("tweets", ".json");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write('[');
+            boolean first = true;
+            for (Tweet tweet : corpus.tweets) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                // generated authors and texts need no escaping
+                out.write("{\"id\":" + tweet.getId()
+                        + ",\"user.screen_name\":\"" + tweet.getAuthor()
+                        + "\",\"text\":\"" + tweet.getText()
+                        + "\",\"created_at\":\"" + CREATED_AT_FORMAT.format(tweet.getTimestamp()) + "\"}\n");
+            }
+            out.write(']');
+        }
+        url = file.toUri().toURL();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<Tweet> tweetReader() throws IOException {
+        return TweetReader.readTweetsFromWeb(url);
+    }
+
+    @Benchmark
+    public List<Tweet> tweetParser() throws IOException {
+        Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return TweetParser.parse(reader);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(JsonParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
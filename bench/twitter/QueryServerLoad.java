@@ -0,0 +1,148 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for QueryServer: starts a server on a generated corpus, runs
+ * closed-loop clients against a mix of endpoints while another thread keeps
+ * ingesting batches of tweets, and reports requests/sec and p50/p99 latency per
+ * endpoint.
+ *
+ * Usage: QueryServerLoad [tweets] [clients] [seconds]
+ * (defaults 100000 tweets, 64 clients, 10 seconds).
+ */
+public class QueryServerLoad {
+
+    // ingest runs alongside the queries: a batch of tweets every interval
+    private static final int INGEST_BATCH = 100;
+    private static final long INGEST_INTERVAL_MILLIS = 1000;
+
+    private static final String[] ENDPOINTS = {
+        "/writtenBy?username=user7",
+        "/inTimespan?start=2016-02-17T10:00:00Z&end=2016-02-17T10:05:00Z",
+        "/containing?word=rivest&word=hype",
+        "/timespan",
+        "/mentionedUsers",
+        "/influencers?n=10",
+    };
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // see QueryServer: without TCP_NODELAY every small response waits ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int tweetCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Random random = new Random(6005);
+        String[] words = { "rivest", "talk", "hype", "minutes", "about", "reasonable", "mit", "lecture" };
+        Instant start = Instant.parse("2016-02-17T10:00:00Z");
+        List<Tweet> corpus = new ArrayList<>();
+        for (int i = 0; i < tweetCount; i++) {
+            corpus.add(new Tweet(i, "user" + random.nextInt(1000),
+                    words[random.nextInt(words.length)] + " @user" + random.nextInt(1000) + " " + words[random.nextInt(words.length)],
+                    start.plusSeconds(random.nextInt(3600))));
+        }
+
+        try (QueryServer server = new QueryServer(new InetSocketAddress("127.0.0.1", 0))) {
+            server.setCorpus(corpus);
+            server.start();
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            String base = "http://127.0.0.1:" + server.getPort();
+
+            // one latency list per endpoint, per client to avoid contention
+            List<List<long[]>> latencies = new ArrayList<>();
+            AtomicLong errors = new AtomicLong();
+            AtomicLong ingested = new AtomicLong();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            long began = System.nanoTime();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                executor.submit(() -> {
+                    long id = tweetCount;
+                    while (System.nanoTime() < deadline) {
+                        List<Tweet> batch = new ArrayList<>();
+                        for (int i = 0; i < INGEST_BATCH; i++) {
+                            batch.add(new Tweet(id++, "ingest", "rivest talk @user1", start));
+                        }
+                        server.addTweets(batch);
+                        ingested.incrementAndGet();
+                        Thread.sleep(INGEST_INTERVAL_MILLIS);
+                    }
+                    return null;
+                });
+                for (int c = 0; c < clients; c++) {
+                    List<long[]> mine = new ArrayList<>();
+                    latencies.add(mine);
+                    final int seed = c;
+                    executor.submit(() -> {
+                        Random choice = new Random(seed);
+                        while (System.nanoTime() < deadline) {
+                            int endpoint = choice.nextInt(ENDPOINTS.length);
+                            HttpRequest request = HttpRequest.newBuilder(URI.create(base + ENDPOINTS[endpoint])).build();
+                            long t0 = System.nanoTime();
+                            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            long elapsed = System.nanoTime() - t0;
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                            mine.add(new long[] { endpoint, elapsed });
+                        }
+                        return null;
+                    });
+                }
+            }
+            double elapsedSeconds = (System.nanoTime() - began) / 1e9;
+
+            List<List<Long>> byEndpoint = new ArrayList<>();
+            for (int e = 0; e < ENDPOINTS.length; e++) {
+                byEndpoint.add(new ArrayList<>());
+            }
+            List<Long> all = new ArrayList<>();
+            for (List<long[]> mine : latencies) {
+                for (long[] sample : mine) {
+                    byEndpoint.get((int) sample[0]).add(sample[1]);
+                    all.add(sample[1]);
+                }
+            }
+
+            System.out.printf("%d tweets, %d clients, %.1f s, %d ingest updates, %d errors%n",
+                    tweetCount, clients, elapsedSeconds, ingested.get(), errors.get());
+            System.out.printf("%-70s %10s %10s %10s%n", "endpoint", "req/s", "p50 ms", "p99 ms");
+            for (int e = 0; e < ENDPOINTS.length; e++) {
+                report(ENDPOINTS[e], byEndpoint.get(e), elapsedSeconds);
+            }
+            report("all", all, elapsedSeconds);
+        }
+    }
+
+    private static void report(String name, List<Long> nanos, double seconds) {
+        if (nanos.isEmpty()) {
+            System.out.printf("%-70s %10s%n", name, "no requests");
+            return;
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-70s %10.0f %10.2f %10.2f%n", name, sorted.length / seconds,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,244 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.json.JsonException;
+
+/**
+ * AsyncTweetReader fetches tweets from several servers at once and merges
+ * them, instead of calling TweetReader.readTweetsFromWeb() on one URL after
+ * another.
+ *
+ * Each source is fetched on its own virtual thread, with at most a fixed
+ * number of sources in flight at a time. Each body is parsed with TweetParser
+ * as it arrives rather than after it has been fully downloaded. Each source
+ * has its own deadline, counted from when its request starts; a source that
+ * misses it is abandoned and reported as an HttpTimeoutException, without
+ * holding up the others.
+ *
+ * Sources that fail are reported in the result rather than failing the whole
+ * read. Tweets from the sources that succeeded are merged in source order,
+ * keeping only the first tweet with each id.
+ *
+ * An AsyncTweetReader is immutable and safe for concurrent use.
+ */
+public class AsyncTweetReader {
+
+    private final HttpClient client;
+    private final int maxConcurrency;
+    private final Duration timeout;
+    /* Rep invariant:
+     *    maxConcurrency > 0, timeout is positive
+     */
+
+    /**
+     * The outcome of reading several sources.
+     */
+    public static class Result {
+        private final List<Tweet> tweets;
+        private final Map<URI, Exception> failures;
+        private final int duplicateCount;
+
+        private Result(List<Tweet> tweets, Map<URI, Exception> failures, int duplicateCount) {
+            this.tweets = Collections.unmodifiableList(tweets);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.duplicateCount = duplicateCount;
+        }
+
+        /**
+         * @return the tweets from all sources that succeeded, in source order
+         *         and then server order, with only the first tweet of each id
+         */
+        public List<Tweet> getTweets() {
+            return tweets;
+        }
+
+        /**
+         * @return map from each source that failed to its failure, in source
+         *         order; an HttpTimeoutException if it missed its deadline
+         */
+        public Map<URI, Exception> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return number of tweets dropped because an earlier source (or the
+         *         same source) already had their id
+         */
+        public int getDuplicateCount() {
+            return duplicateCount;
+        }
+    }
+
+    /**
+     * Make a reader using a new HttpClient, fetching at most 4 sources at a
+     * time with a 60 second deadline each.
+     */
+    public AsyncTweetReader() {
+        this(HttpClient.newHttpClient(), 4, Duration.ofSeconds(60));
+    }
+
+    /**
+     * Make a reader.
+     *
+     * @param client
+     *            HTTP client to send requests with
+     * @param maxConcurrency
+     *            most sources fetched at a time, requires maxConcurrency > 0
+     * @param timeout
+     *            deadline for each source to respond and deliver its whole
+     *            body, requires a positive duration
+     */
+    public AsyncTweetReader(HttpClient client, int maxConcurrency, Duration timeout) {
+        if (maxConcurrency <= 0 || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("requires maxConcurrency > 0 and positive timeout");
+        }
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Start reading tweets from several sources without waiting.
+     *
+     * @param sources
+     *            URIs of servers producing JSON arrays of tweets in the
+     *            format read by TweetReader
+     * @return a future completed with the result of read(sources)
+     */
+    public CompletableFuture<Result> readAsync(List<URI> sources) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Thread.ofVirtual().name("AsyncTweetReader").start(() -> {
+            try {
+                future.complete(read(sources));
+            } catch (InterruptedException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Read tweets from several sources concurrently, waiting for all of them
+     * to finish, fail or time out.
+     *
+     * @param sources
+     *            URIs of servers producing JSON arrays of tweets in the
+     *            format read by TweetReader
+     * @return merged tweets and failures of the sources
+     * @throws InterruptedException if interrupted while waiting; sources in
+     *         flight are abandoned
+     */
+    public Result read(List<URI> sources) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AsyncTweetReader watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<List<Tweet>>> fetches = new ArrayList<>();
+        Map<URI, Exception> failures = new LinkedHashMap<>();
+        List<List<Tweet>> bodies = new ArrayList<>();
+
+        // closing the executor waits for the fetches, or interrupts them if
+        // this thread is interrupted while waiting
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (URI source : sources) {
+                fetches.add(executor.submit(() -> fetch(source, permits, watchdog)));
+            }
+            for (int i = 0; i < sources.size(); i++) {
+                try {
+                    bodies.add(fetches.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(sources.get(i), cause instanceof Exception ? (Exception) cause : e);
+                    bodies.add(Collections.emptyList());
+                }
+            }
+        } finally {
+            watchdog.shutdownNow();
+        }
+
+        int total = 0;
+        for (List<Tweet> body : bodies) {
+            total += body.size();
+        }
+        TweetDeduplicator merged = new TweetDeduplicator(total);
+        for (List<Tweet> body : bodies) {
+            merged.addBatch(body);
+        }
+        return new Result(new ArrayList<>(merged.getTweets()), failures, total - merged.size());
+    }
+
+    /*
+     * Fetch and parse one source once a permit is free, interrupting the
+     * fetch if it outlives its deadline.
+     */
+    private List<Tweet> fetch(URI source, Semaphore permits, ScheduledExecutorService watchdog)
+            throws IOException, InterruptedException {
+        permits.acquire();
+        Thread fetcher = Thread.currentThread();
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> deadline = watchdog.schedule(() -> {
+            timedOut.set(true);
+            fetcher.interrupt();
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            HttpRequest request = HttpRequest.newBuilder(source).timeout(timeout).GET().build();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("unexpected status " + response.statusCode() + " from " + source);
+                }
+                List<Tweet> tweets = new ArrayList<>();
+                try (TweetParser parser = new TweetParser(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    while (parser.hasNext()) {
+                        tweets.add(parser.next());
+                    }
+                }
+                return tweets;
+            }
+        } catch (IOException | InterruptedException | JsonException e) {
+            if (timedOut.get()) {
+                HttpTimeoutException timeoutException = new HttpTimeoutException(
+                        "no complete response from " + source + " within " + timeout);
+                timeoutException.initCause(e);
+                throw timeoutException;
+            }
+            if (e instanceof JsonException) {
+                throw new IOException("malformed tweets from " + source, e);
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+            permits.release();
+        }
+    }
+}
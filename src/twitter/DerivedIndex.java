@@ -0,0 +1,98 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A DerivedIndex computes a value from the tweets of a VersionedCorpus
+ * snapshot, such as its timespan or a count per author, and keeps it up to
+ * date incrementally as tweets are appended.
+ *
+ * Values are attached to snapshots, which are immutable and may be read by
+ * other threads at any time, so update() must return a new value and leave
+ * the previous one unchanged; values must be immutable or never modified
+ * after being returned.
+ *
+ * @param <T> type of the derived value
+ */
+public interface DerivedIndex<T> {
+
+    /**
+     * Compute the value for a list of tweets from scratch.
+     *
+     * @param tweets
+     *            all tweets of a snapshot, not modified by this method
+     * @return the derived value
+     */
+    T create(List<Tweet> tweets);
+
+    /**
+     * Compute the value after appending tweets, from the value before.
+     *
+     * @param previous
+     *            value for the snapshot before the append, not modified by
+     *            this method
+     * @param added
+     *            tweets appended, not modified by this method
+     * @return a value equal to create(tweets before the append + added)
+     */
+    T update(T previous, List<Tweet> added);
+
+    /**
+     * @return index of Extract.getTimespan() of a snapshot, or null for an
+     *         empty snapshot; each update costs O(appended tweets)
+     */
+    static DerivedIndex<Timespan> timespan() {
+        return new DerivedIndex<Timespan>() {
+            @Override public Timespan create(List<Tweet> tweets) {
+                return tweets.isEmpty() ? null : Extract.getTimespan(tweets);
+            }
+
+            @Override public Timespan update(Timespan previous, List<Tweet> added) {
+                if (added.isEmpty()) {
+                    return previous;
+                }
+                Timespan span = Extract.getTimespan(added);
+                if (previous == null) {
+                    return span;
+                }
+                Instant start = previous.getStart().isBefore(span.getStart()) ? previous.getStart() : span.getStart();
+                Instant end = previous.getEnd().isAfter(span.getEnd()) ? previous.getEnd() : span.getEnd();
+                return new Timespan(start, end);
+            }
+        };
+    }
+
+    /**
+     * @return index of the number of tweets by each author (lowercase) of a
+     *         snapshot, as an unmodifiable map; each update shares all but
+     *         the changed entries with the previous map, costing
+     *         O(appended tweets + appended authors * log(authors))
+     */
+    static DerivedIndex<Map<String, Integer>> authorCounts() {
+        return new DerivedIndex<Map<String, Integer>>() {
+            @Override public Map<String, Integer> create(List<Tweet> tweets) {
+                return update(HashTrieMap.empty(), tweets);
+            }
+
+            @Override public Map<String, Integer> update(Map<String, Integer> previous, List<Tweet> added) {
+                Map<String, Integer> batch = new HashMap<>();
+                for (Tweet tweet : added) {
+                    batch.merge(tweet.getAuthor().toLowerCase(), 1, Integer::sum);
+                }
+                // previous came from create() or update(), so is a HashTrieMap
+                HashTrieMap<String, Integer> counts = previous instanceof HashTrieMap
+                        ? (HashTrieMap<String, Integer>) previous : HashTrieMap.copyOf(previous);
+                for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                    counts = counts.with(entry.getKey(), counts.getOrDefault(entry.getKey(), 0) + entry.getValue());
+                }
+                return counts;
+            }
+        };
+    }
+}
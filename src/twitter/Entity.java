@@ -0,0 +1,131 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+/**
+ * Immutable datatype representing an entity found in the text of a tweet,
+ * such as a username-mention, a hashtag, a cashtag or a URL.
+ */
+public class Entity {
+
+    /**
+     * Kinds of entity recognized by EntityExtractor.
+     */
+    public enum Type {
+        /** "@" followed by a Twitter username, e.g. @bitdiddle */
+        MENTION,
+        /** "#" followed by letters, digits or underscores, e.g. #hype */
+        HASHTAG,
+        /** "$" followed by one to six letters, e.g. $GOOG */
+        CASHTAG,
+        /** "http://" or "https://" followed by nonspace characters */
+        URL
+    }
+
+    private final Type type;
+    private final String value;
+    private final int start;
+    private final int end;
+    /* Rep invariant:
+     *    value.length() > 0
+     *    0 <= start < end
+     */
+
+    /**
+     * Make an Entity.
+     *
+     * @param type
+     *            kind of entity
+     * @param value
+     *            entity text without its leading "@", "#" or "$"; for a URL, the
+     *            whole URL. Required to be nonempty.
+     * @param start
+     *            index in the tweet text of the first character of the entity,
+     *            including any leading "@", "#" or "$"
+     * @param end
+     *            index in the tweet text just past the last character of the
+     *            entity. Requires end > start.
+     */
+    public Entity(Type type, String value, int start, int end) {
+        if (value.isEmpty() || start < 0 || end <= start) {
+            throw new IllegalArgumentException("requires nonempty value and 0 <= start < end");
+        }
+        this.type = type;
+        this.value = value;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return kind of this entity
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return text of this entity as it appears in the tweet, without its
+     *         leading "@", "#" or "$"
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return case-folded form of getValue() for mentions, hashtags and
+     *         cashtags, which are case-insensitive; getValue() for URLs
+     */
+    public String getNormalizedValue() {
+        return type == Type.URL ? value : value.toLowerCase();
+    }
+
+    /**
+     * @return index in the tweet text where this entity starts
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return index in the tweet text just past the end of this entity
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /*
+     * @see Object.toString()
+     */
+    @Override public String toString() {
+        return type + "(" + value + ")[" + start + "," + end + ")";
+    }
+
+    /*
+     * @see Object.equals()
+     */
+    @Override public boolean equals(Object thatObject) {
+        if (!(thatObject instanceof Entity)) {
+            return false;
+        }
+
+        Entity that = (Entity) thatObject;
+        return this.type == that.type
+                && this.value.equals(that.value)
+                && this.start == that.start
+                && this.end == that.end;
+    }
+
+    /*
+     * @see Object.hashCode()
+     */
+    @Override public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + type.hashCode();
+        result = prime * result + value.hashCode();
+        result = prime * result + start;
+        result = prime * result + end;
+        return result;
+    }
+}
@@ -0,0 +1,238 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EntityExtractor finds username-mentions, hashtags, cashtags and URLs in
+ * tweets, walking the text of each tweet only once for all entity types.
+ *
+ * The entity rules are:
+ *  - a mention is "@" followed by one or more characters valid in a Twitter
+ *    username other than hyphen (A-Z, a-z, 0-9, _), as in
+ *    Extract.getMentionedUsers();
+ *  - a hashtag is "#" followed by one or more of the same characters;
+ *  - a cashtag is "$" followed by one to six letters;
+ *  - a URL is "http://" or "https://" (in any case) followed by nonspace
+ *    characters, not counting trailing punctuation such as ".", "," or ")".
+ * No entity may be immediately preceded or followed by a username character,
+ * so bitdiddle@mit.edu, abc#def and US$100 contain no entities.
+ * Entities never overlap: the text of a URL is not searched for mentions or
+ * hashtags, so "http://example.com/#top" is a single URL entity.
+ */
+public class EntityExtractor {
+
+    private static final int MAX_CASHTAG_LENGTH = 6;
+    private static final String URL_TRAILING_PUNCTUATION = ".,;:!?)]}'\"";
+
+    /**
+     * Find the entities in a piece of tweet text.
+     *
+     * @param text
+     *            tweet text
+     * @return the entities in text, in order of their start index
+     */
+    public static List<Entity> extract(String text) {
+        List<Entity> entities = new ArrayList<>();
+        final int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            if (i > 0 && isUsernameChar(text.charAt(i - 1))) {
+                i++;
+                continue;
+            }
+
+            int end = -1;
+            Entity.Type type = null;
+            if (c == '@' || c == '#') {
+                end = scanUsernameChars(text, i + 1);
+                type = c == '@' ? Entity.Type.MENTION : Entity.Type.HASHTAG;
+            } else if (c == '$') {
+                end = scanCashtag(text, i + 1);
+                type = Entity.Type.CASHTAG;
+            } else if (c == 'h' || c == 'H') {
+                end = scanUrl(text, i);
+                type = Entity.Type.URL;
+            }
+
+            if (end > i + 1) {
+                int valueStart = type == Entity.Type.URL ? i : i + 1;
+                entities.add(new Entity(type, text.substring(valueStart, end), i, end));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+
+        return entities;
+    }
+
+    /**
+     * Get the hashtags used in a list of tweets.
+     *
+     * @param tweets
+     *            list of tweets, not modified by this method.
+     * @return the set of hashtags, in lowercase and without the leading "#",
+     *         that appear in the text of the tweets.
+     */
+    public static Set<String> getHashtags(List<Tweet> tweets) {
+        Set<String> hashtags = new HashSet<>();
+        for (Tweet tweet : tweets) {
+            for (Entity entity : extract(tweet.getText())) {
+                if (entity.getType() == Entity.Type.HASHTAG) {
+                    hashtags.add(entity.getNormalizedValue());
+                }
+            }
+        }
+        return hashtags;
+    }
+
+    /**
+     * Count how many tweets use each hashtag.
+     *
+     * @param tweets
+     *            list of tweets, not modified by this method.
+     * @return map from each hashtag in getHashtags(tweets) to the number of
+     *         tweets whose text contains it at least once.
+     */
+    public static Map<String, Integer> getHashtagCounts(List<Tweet> tweets) {
+        return getEntityCounts(tweets).get(Entity.Type.HASHTAG);
+    }
+
+    /**
+     * Count how many tweets use each entity, for every entity type at once.
+     *
+     * @param tweets
+     *            list of tweets, not modified by this method.
+     * @return map with a key for every Entity.Type, whose value maps each
+     *         normalized entity value (see Entity.getNormalizedValue()) of that
+     *         type to the number of tweets containing it at least once.
+     */
+    public static Map<Entity.Type, Map<String, Integer>> getEntityCounts(List<Tweet> tweets) {
+        EntityCounts counts = new EntityCounts();
+        for (Tweet tweet : tweets) {
+            counts.add(tweet);
+        }
+        return counts.counts;
+    }
+
+    /**
+     * Same as getEntityCounts(), but splits the work across the common
+     * fork-join pool. Worth using only for large lists of tweets.
+     *
+     * @param tweets
+     *            list of tweets, not modified by this method or concurrently
+     *            by any other thread.
+     * @return the same map as getEntityCounts(tweets)
+     */
+    public static Map<Entity.Type, Map<String, Integer>> getEntityCountsParallel(List<Tweet> tweets) {
+        return tweets.parallelStream()
+                .collect(EntityCounts::new, EntityCounts::add, EntityCounts::addAll)
+                .counts;
+    }
+
+    /*
+     * Mutable per-type entity counts, used as a reduction container.
+     */
+    private static class EntityCounts {
+        private final Map<Entity.Type, Map<String, Integer>> counts = new EnumMap<>(Entity.Type.class);
+        private final Set<String> seenInTweet = new HashSet<>();
+
+        EntityCounts() {
+            for (Entity.Type type : Entity.Type.values()) {
+                counts.put(type, new HashMap<>());
+            }
+        }
+
+        void add(Tweet tweet) {
+            seenInTweet.clear();
+            for (Entity entity : extract(tweet.getText())) {
+                String value = entity.getNormalizedValue();
+                // count each entity once per tweet; the type prefix keeps
+                // #foo and @foo apart
+                if (seenInTweet.add(entity.getType().ordinal() + ":" + value)) {
+                    counts.get(entity.getType()).merge(value, 1, Integer::sum);
+                }
+            }
+        }
+
+        void addAll(EntityCounts that) {
+            for (Map.Entry<Entity.Type, Map<String, Integer>> entry : that.counts.entrySet()) {
+                Map<String, Integer> into = counts.get(entry.getKey());
+                entry.getValue().forEach((value, count) -> into.merge(value, count, Integer::sum));
+            }
+        }
+    }
+
+    /*
+     * @return true if c is valid in a username-mention: A-Z, a-z, 0-9 or _
+     */
+    private static boolean isUsernameChar(char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '_';
+    }
+
+    /*
+     * @return index just past the run of username characters starting at from
+     */
+    private static int scanUsernameChars(String text, int from) {
+        int i = from;
+        while (i < text.length() && isUsernameChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /*
+     * @return index just past the cashtag letters starting at from, or -1 if
+     *         there is no valid cashtag there
+     */
+    private static int scanCashtag(String text, int from) {
+        int i = from;
+        while (i < text.length() && i - from < MAX_CASHTAG_LENGTH && isAsciiLetter(text.charAt(i))) {
+            i++;
+        }
+        if (i == from || (i < text.length() && isUsernameChar(text.charAt(i)))) {
+            return -1;
+        }
+        return i;
+    }
+
+    /*
+     * @return index just past a URL starting at from, or -1 if there is no URL there
+     */
+    private static int scanUrl(String text, int from) {
+        int i;
+        if (text.regionMatches(true, from, "http://", 0, "http://".length())) {
+            i = from + "http://".length();
+        } else if (text.regionMatches(true, from, "https://", 0, "https://".length())) {
+            i = from + "https://".length();
+        } else {
+            return -1;
+        }
+        int hostStart = i;
+        while (i < text.length() && !Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        while (i > hostStart && URL_TRAILING_PUNCTUATION.indexOf(text.charAt(i - 1)) >= 0) {
+            i--;
+        }
+        return i > hostStart ? i : -1;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
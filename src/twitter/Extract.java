@@ -19,6 +19,13 @@ import java.util.regex.Pattern;
  */
 public class Extract {
 
+    // Pattern explanation:
+    // (?<![A-Za-z0-9_]) - negative lookbehind: not preceded by valid username char
+    // @ - literal @ symbol
+    // ([A-Za-z0-9_]+) - capturing group: one or more valid username chars
+    // (?![A-Za-z0-9_]) - negative lookahead: not followed by valid username char
+    private static final Pattern MENTION_PATTERN = Pattern.compile("(?<![A-Za-z0-9_])@([A-Za-z0-9_]+)(?![A-Za-z0-9_])");
+
     /**
      * Get the time period spanned by tweets.
      *
@@ -31,6 +38,7 @@ public class Extract {
         if (tweets.isEmpty()) {
             throw new IllegalArgumentException("tweets list cannot be empty");
         }
+        Metrics.Span span = Metrics.start(Metrics.Operation.GET_TIMESPAN);
 
         Instant start = tweets.get(0).getTimestamp();
         Instant end = tweets.get(0).getTimestamp();
@@ -45,6 +53,7 @@ public class Extract {
             }
         }
 
+        Metrics.finish(span, tweets.size(), 1);
         return new Timespan(start, end);
     }
 
@@ -64,26 +73,35 @@ public class Extract {
      *         include a username at most once.
      */
     public static Set<String> getMentionedUsers(List<Tweet> tweets) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.GET_MENTIONED_USERS);
         Set<String> mentionedUsers = new HashSet<>();
-
-        // Pattern explanation:
-        // (?<![A-Za-z0-9_]) - negative lookbehind: not preceded by valid username char
-        // @ - literal @ symbol
-        // ([A-Za-z0-9_]+) - capturing group: one or more valid username chars
-        // (?![A-Za-z0-9_]) - negative lookahead: not followed by valid username char
-        Pattern mentionPattern = Pattern.compile("(?<![A-Za-z0-9_])@([A-Za-z0-9_]+)(?![A-Za-z0-9_])");
+        long mentions = 0;
 
         for (Tweet tweet : tweets) {
-            String text = tweet.getText();
-            Matcher matcher = mentionPattern.matcher(text);
-
-            while (matcher.find()) {
-                String username = matcher.group(1).toLowerCase();
-                mentionedUsers.add(username);
-            }
+            mentions += addMentionedUsers(tweet.getText(), mentionedUsers);
         }
 
+        Metrics.count(Metrics.Counter.MENTIONS_EXTRACTED, mentions);
+        Metrics.finish(span, tweets.size(), mentionedUsers.size());
         return mentionedUsers;
     }
 
+    /*
+     * Add the usernames mentioned in a single piece of tweet text to a set,
+     * using the same rules as getMentionedUsers(List<Tweet>). Usernames are
+     * added in lowercase. Returns the number of mentions in the text,
+     * counting repeats.
+     */
+    static int addMentionedUsers(String text, Set<String> mentionedUsers) {
+        Matcher matcher = MENTION_PATTERN.matcher(text);
+        int mentions = 0;
+
+        while (matcher.find()) {
+            String username = matcher.group(1).toLowerCase();
+            mentionedUsers.add(username);
+            mentions++;
+        }
+        return mentions;
+    }
+
 }
\ No newline at end of file
@@ -6,8 +6,6 @@ package twitter;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Filter consists of methods that filter a list of tweets for those matching a
@@ -31,6 +29,7 @@ public class Filter {
      *         in the same order as in the input list.
      */
     public static List<Tweet> writtenBy(List<Tweet> tweets, String username) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.WRITTEN_BY);
         List<Tweet> result = new ArrayList<>();
         String lowerUsername = username.toLowerCase();
 
@@ -40,6 +39,8 @@ public class Filter {
             }
         }
 
+        Metrics.count(Metrics.Counter.FILTER_HITS, result.size());
+        Metrics.finish(span, tweets.size(), result.size());
         return result;
     }
 
@@ -54,6 +55,7 @@ public class Filter {
      *         in the same order as in the input list.
      */
     public static List<Tweet> inTimespan(List<Tweet> tweets, Timespan timespan) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.IN_TIMESPAN);
         List<Tweet> result = new ArrayList<>();
         Instant start = timespan.getStart();
         Instant end = timespan.getEnd();
@@ -66,6 +68,8 @@ public class Filter {
             }
         }
 
+        Metrics.count(Metrics.Counter.FILTER_HITS, result.size());
+        Metrics.finish(span, tweets.size(), result.size());
         return result;
     }
 
@@ -85,36 +89,26 @@ public class Filter {
      *         same order as in the input list.
      */
     public static List<Tweet> containing(List<Tweet> tweets, List<String> words) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.CONTAINING);
         List<Tweet> result = new ArrayList<>();
 
         if (words.isEmpty()) {
+            Metrics.finish(span, tweets.size(), 0);
             return result;
         }
 
-        // Convert search words to lowercase for case-insensitive comparison
-        Set<String> searchWords = new HashSet<>();
-        for (String word : words) {
-            searchWords.add(word.toLowerCase());
-        }
+        // Scan each text once, matching words in place against a hash table
+        // of the lowercased search words
+        WordMatcher matcher = new WordMatcher(words);
 
         for (Tweet tweet : tweets) {
-            String text = tweet.getText();
-            // Split by spaces to get words
-            String[] tweetWords = text.split("\\s+");
-
-            boolean foundMatch = false;
-            for (String tweetWord : tweetWords) {
-                if (searchWords.contains(tweetWord.toLowerCase())) {
-                    foundMatch = true;
-                    break;
-                }
-            }
-
-            if (foundMatch) {
+            if (matcher.matchesAny(tweet.getText())) {
                 result.add(tweet);
             }
         }
 
+        Metrics.count(Metrics.Counter.FILTER_HITS, result.size());
+        Metrics.finish(span, tweets.size(), result.size());
         return result;
     }
 
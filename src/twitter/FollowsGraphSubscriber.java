@@ -0,0 +1,102 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * FollowsGraphSubscriber builds the social network guessed by
+ * SocialNetwork.guessFollowsGraph() from a stream of tweets, a batch at a
+ * time, so the tweets never have to be held in memory together.
+ *
+ * It requests a fixed number of tweets, adds their evidence to the graph once
+ * they have all arrived, and then requests the next batch. Memory is bounded
+ * by the batch size plus the graph itself.
+ *
+ * When the stream completes, getResult() is completed with a graph equal to
+ * SocialNetwork.guessFollowsGraph() of all the tweets received; if the
+ * stream fails, it is completed exceptionally.
+ */
+public class FollowsGraphSubscriber implements Flow.Subscriber<Tweet> {
+
+    private final int batchSize;
+    private final List<Tweet> batch;
+    private final Map<String, Set<String>> followsGraph = new HashMap<>();
+    private final CompletableFuture<Map<String, Set<String>>> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    /* Rep invariant:
+     *    batchSize > 0, batch.size() < batchSize between calls
+     *    followsGraph is a social network as defined by SocialNetwork
+     */
+
+    /**
+     * Make a subscriber that requests 256 tweets at a time.
+     */
+    public FollowsGraphSubscriber() {
+        this(256);
+    }
+
+    /**
+     * Make a subscriber.
+     *
+     * @param batchSize
+     *            tweets requested at a time, requires batchSize > 0
+     */
+    public FollowsGraphSubscriber(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("requires batchSize > 0");
+        }
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * @return future completed with the follows graph of all tweets received
+     *         when the stream completes
+     */
+    public CompletableFuture<Map<String, Set<String>>> getResult() {
+        return result;
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(batchSize);
+    }
+
+    @Override public void onNext(Tweet tweet) {
+        batch.add(tweet);
+        if (batch.size() == batchSize) {
+            flush();
+            subscription.request(batchSize);
+        }
+    }
+
+    @Override public void onError(Throwable throwable) {
+        batch.clear();
+        result.completeExceptionally(throwable);
+    }
+
+    @Override public void onComplete() {
+        flush();
+        result.complete(followsGraph);
+    }
+
+    private void flush() {
+        for (Map.Entry<String, Set<String>> entry : SocialNetwork.guessFollowsGraph(batch).entrySet()) {
+            followsGraph.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,265 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * HashTrieMap is an immutable map stored as a hash array mapped trie: a
+ * 32-way tree indexed by successive 5-bit pieces of the keys' hash codes,
+ * whose nodes hold only their present children, packed in order and located
+ * by a bitmap. with() returns a new map that shares every node with this one
+ * except the O(log32 n) on the path to the key, so an index over a growing
+ * corpus can be updated without copying it, and earlier versions stay valid.
+ *
+ * Keys and values must not be null. Operations that would modify the map,
+ * such as put(), throw UnsupportedOperationException.
+ *
+ * A HashTrieMap is immutable, so it is safe for concurrent use.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+final class HashTrieMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Node EMPTY_ROOT = new Node(0, new Object[0]);
+
+    private final Node root;
+    private final int size;
+    /* Rep invariant:
+     *    size is the number of leaves in the trie
+     *    each slot of a node is a Leaf, a Node or a Collision; a node at
+     *      depth d (root at 0) holds, at the slot for bit b of its bitmap,
+     *      the leaves below it whose hash has b in bits 5d..5d+4, and its
+     *      slots are ordered by b
+     *    a Collision holds 2 or more leaves with equal hashes, and appears
+     *      only where every bit of the hash has been used (at depth 7)
+     *    keys are distinct and not null, values not null
+     * Abstraction function:
+     *    represents the map from the key to the value of each leaf
+     */
+
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private static final class Collision {
+        final Leaf[] leaves;
+
+        Collision(Leaf[] leaves) {
+            this.leaves = leaves;
+        }
+    }
+
+    private HashTrieMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return an empty map
+     */
+    static <K, V> HashTrieMap<K, V> empty() {
+        return new HashTrieMap<>(EMPTY_ROOT, 0);
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @param map
+     *            a map without null keys or values
+     * @return a map with the same entries
+     */
+    static <K, V> HashTrieMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        HashTrieMap<K, V> copy = empty();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            copy = copy.with(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
+    /*
+     * Spread the high bits of the hash code down, as HashMap does, since the
+     * first levels of the trie use the low bits.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @param key
+     *            key to map, not null
+     * @param value
+     *            value to map it to, not null
+     * @return a map equal to this one except that key maps to value; this
+     *         map is unchanged
+     */
+    HashTrieMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        boolean present = find(key) != null;
+        return new HashTrieMap<>(put(root, 0, new Leaf(hash(key), key, value)), present ? size : size + 1);
+    }
+
+    /*
+     * @return a copy of node, at depth shift / BITS, with leaf added or
+     *         replacing the leaf of the same key
+     */
+    private static Node put(Node node, int shift, Leaf leaf) {
+        int bit = 1 << ((leaf.hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object[] slots = node.slots.clone();
+        Object slot = slots[index];
+        if (slot instanceof Node) {
+            slots[index] = put((Node) slot, shift + BITS, leaf);
+        } else if (slot instanceof Collision) {
+            slots[index] = put((Collision) slot, leaf);
+        } else {
+            Leaf old = (Leaf) slot;
+            slots[index] = old.hash == leaf.hash && old.key.equals(leaf.key) ? leaf : pair(shift + BITS, old, leaf);
+        }
+        return new Node(node.bitmap, slots);
+    }
+
+    private static Collision put(Collision collision, Leaf leaf) {
+        Leaf[] leaves = collision.leaves;
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].key.equals(leaf.key)) {
+                Leaf[] replaced = leaves.clone();
+                replaced[i] = leaf;
+                return new Collision(replaced);
+            }
+        }
+        Leaf[] added = new Leaf[leaves.length + 1];
+        System.arraycopy(leaves, 0, added, 0, leaves.length);
+        added[leaves.length] = leaf;
+        return new Collision(added);
+    }
+
+    /*
+     * @return the subtrie, at depth shift / BITS, holding two leaves of
+     *         different keys
+     */
+    private static Object pair(int shift, Leaf a, Leaf b) {
+        if (shift >= Integer.SIZE) {
+            return new Collision(new Leaf[] { a, b });
+        }
+        int indexA = (a.hash >>> shift) & MASK;
+        int indexB = (b.hash >>> shift) & MASK;
+        if (indexA == indexB) {
+            return new Node(1 << indexA, new Object[] { pair(shift + BITS, a, b) });
+        }
+        return new Node((1 << indexA) | (1 << indexB), indexA < indexB ? new Object[] { a, b } : new Object[] { b, a });
+    }
+
+    /*
+     * @return the leaf of key, or null if none
+     */
+    private Leaf find(Object key) {
+        int hash = hash(key);
+        Object slot = root;
+        int shift = 0;
+        while (slot instanceof Node) {
+            Node node = (Node) slot;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        if (slot instanceof Collision) {
+            for (Leaf leaf : ((Collision) slot).leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+        Leaf leaf = (Leaf) slot;
+        return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public boolean containsKey(Object key) {
+        return key != null && find(key) != null;
+    }
+
+    @SuppressWarnings("unchecked") // only with() adds leaves, with a value of type V
+    @Override public V get(Object key) {
+        Leaf leaf = key == null ? null : find(key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    @Override public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override public int size() {
+                return size;
+            }
+
+            @Override public Iterator<Map.Entry<K, V>> iterator() {
+                List<Map.Entry<K, V>> entries = new ArrayList<>(size);
+                collect(root, entries);
+                return Collections.unmodifiableList(entries).iterator();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked") // only with() adds leaves, with a key of type K and value of type V
+    private void collect(Object slot, List<Map.Entry<K, V>> entries) {
+        if (slot instanceof Node) {
+            for (Object child : ((Node) slot).slots) {
+                collect(child, entries);
+            }
+        } else if (slot instanceof Collision) {
+            for (Leaf leaf : ((Collision) slot).leaves) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>((K) leaf.key, (V) leaf.value));
+            }
+        } else {
+            Leaf leaf = (Leaf) slot;
+            entries.add(new AbstractMap.SimpleImmutableEntry<>((K) leaf.key, (V) leaf.value));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+/**
+ * Hashing holds the 64-bit hash functions shared by the sketches, filters
+ * and partitioners of this package: FNV-1a over the UTF-16 code units of a
+ * string, and MurmurHash3's 64-bit finalizer to spread its bits.
+ *
+ * Values of hash() are stored in segment files (SplitBlockBloomFilter), so
+ * these functions must not change.
+ */
+class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * @param s
+     *            string to hash
+     * @param start
+     *            index of the first char to hash
+     * @param end
+     *            index after the last char to hash
+     * @param seed
+     *            seed, xored into the offset basis
+     * @return FNV-1a hash of s[start..end); poorly mixed in its high bits
+     */
+    static long fnv1a(String s, int start, int end, long seed) {
+        long h = FNV_OFFSET_BASIS ^ seed;
+        for (int i = start; i < end; i++) {
+            h ^= s.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * @param h
+     *            a value
+     * @return MurmurHash3's fmix64 of h, a bijection in which every input bit
+     *         affects every output bit
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * @param s
+     *            string to hash
+     * @param seed
+     *            seed, so that different kinds of strings can hash differently
+     * @return well-mixed 64-bit hash of s with seed
+     */
+    static long hash(String s, long seed) {
+        return mix(fnv1a(s, 0, s.length(), seed));
+    }
+}
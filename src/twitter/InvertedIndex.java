@@ -0,0 +1,533 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * InvertedIndex is an immutable positional index over a list of tweets that
+ * answers word, phrase and boolean queries without scanning the tweets.
+ *
+ * Tweet text is split into words exactly as in Filter.containing(): a word is
+ * a nonempty sequence of nonspace characters, and word comparison is not
+ * case-sensitive. For every word the index keeps a postings list of the
+ * tweets containing it and the word positions within each tweet. Boolean
+ * queries are answered by merging postings lists, intersecting with
+ * galloping (exponential) search so that a rare word intersected with a
+ * common one costs time proportional to the rare one. The indexed words are
+ * kept in a Vocabulary, so prefix and wildcard patterns such as "rivest*" or
+ * "*coin" are expanded to words without scanning the tweets either.
+ *
+ * All query methods return tweets in the same order as in the indexed list.
+ */
+public class InvertedIndex {
+
+    private final List<Tweet> tweets;
+    private final Vocabulary vocabulary;
+    private final Postings[] postings;
+    /* Rep invariant:
+     *    postings.length == vocabulary.size()
+     *    for every word w in vocabulary: w is lowercase and has no space characters,
+     *    and postings[vocabulary.id(w)] lists exactly the indexes of tweets containing w
+     *
+     * Abstraction function:
+     *    represents the tweets list, with each tweet identified by its index in it
+     */
+
+    /*
+     * Immutable postings list for one word. The tweets containing the word are
+     * docs[0..docs.length), ascending; the positions of the word in tweet
+     * docs[i] are positions[positionStart[i]..positionStart[i+1]), ascending.
+     */
+    private static class Postings {
+        final int[] docs;
+        final int[] positionStart;
+        final int[] positions;
+
+        Postings(int[] docs, int[] positionStart, int[] positions) {
+            this.docs = docs;
+            this.positionStart = positionStart;
+            this.positions = positions;
+        }
+    }
+
+    /*
+     * Growable postings list used while building the index.
+     */
+    private static class PostingsBuilder {
+        int[] docs = new int[2];
+        int[] positionStart = new int[3];
+        int[] positions = new int[2];
+        int docCount = 0;
+        int positionCount = 0;
+
+        void add(int doc, int position) {
+            if (docCount == 0 || docs[docCount - 1] != doc) {
+                if (docCount == docs.length) {
+                    docs = Arrays.copyOf(docs, docCount * 2);
+                    positionStart = Arrays.copyOf(positionStart, docCount * 2 + 1);
+                }
+                docs[docCount] = doc;
+                positionStart[docCount] = positionCount;
+                docCount++;
+            }
+            if (positionCount == positions.length) {
+                positions = Arrays.copyOf(positions, positionCount * 2);
+            }
+            positions[positionCount++] = position;
+        }
+
+        Postings build() {
+            int[] starts = Arrays.copyOf(positionStart, docCount + 1);
+            starts[docCount] = positionCount;
+            return new Postings(Arrays.copyOf(docs, docCount), starts, Arrays.copyOf(positions, positionCount));
+        }
+    }
+
+    /**
+     * Build an index over a list of tweets.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method. The index keeps
+     *            its own copy of the list.
+     */
+    public InvertedIndex(List<Tweet> tweets) {
+        this.tweets = Collections.unmodifiableList(new ArrayList<>(tweets));
+
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (int doc = 0; doc < this.tweets.size(); doc++) {
+            int position = 0;
+            for (String word : this.tweets.get(doc).getText().split("\\s+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                builders.computeIfAbsent(word.toLowerCase(), w -> new PostingsBuilder()).add(doc, position);
+                position++;
+            }
+        }
+
+        this.vocabulary = new Vocabulary(builders.keySet());
+        this.postings = new Postings[vocabulary.size()];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = builders.get(vocabulary.term(id)).build();
+        }
+    }
+
+    /**
+     * @return the indexed tweets, in their original order
+     */
+    public List<Tweet> getTweets() {
+        return tweets;
+    }
+
+    /**
+     * @return the distinct lowercase words of the indexed tweets
+     */
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Find tweets containing a word that matches a pattern.
+     *
+     * @param pattern
+     *            word pattern, not case-sensitive, in which each
+     *            Vocabulary.WILDCARD matches any sequence of characters,
+     *            e.g. "rivest*" or "*coin"
+     * @return all and only the indexed tweets containing at least one word
+     *         matching pattern, in the same order as the indexed list.
+     */
+    public List<Tweet> matching(String pattern) {
+        return toTweets(docsForPattern(pattern));
+    }
+
+    /**
+     * Find tweets containing every one of some words.
+     *
+     * @param words
+     *            words to search for, not case-sensitive. Requires nonempty.
+     * @return all and only the indexed tweets that contain all of the words,
+     *         in the same order as the indexed list.
+     */
+    public List<Tweet> allOf(List<String> words) {
+        return toTweets(and(docsForWords(words)));
+    }
+
+    /**
+     * Find tweets containing at least one of some words. Equivalent to
+     * Filter.containing(getTweets(), words).
+     *
+     * @param words
+     *            words to search for, not case-sensitive.
+     * @return all and only the indexed tweets that contain at least one of
+     *         the words, in the same order as the indexed list.
+     */
+    public List<Tweet> anyOf(List<String> words) {
+        return toTweets(or(docsForWords(words)));
+    }
+
+    /**
+     * Find tweets containing a sequence of consecutive words.
+     *
+     * @param words
+     *            the phrase, as a list of words, not case-sensitive.
+     *            Requires nonempty.
+     * @return all and only the indexed tweets in which the words appear next
+     *         to each other in the given order, in the same order as the
+     *         indexed list.
+     */
+    public List<Tweet> phrase(List<String> words) {
+        return toTweets(phraseDocs(words));
+    }
+
+    /**
+     * Find tweets matching a query string.
+     *
+     * The query syntax is:
+     * <pre>
+     *   query  ::= clause ("OR" clause)*
+     *   clause ::= item+                  all items must match
+     *   item   ::= "-" atom | "NOT" atom | atom
+     *   atom   ::= word | '"' word+ '"'   a word or an exact phrase
+     * </pre>
+     * Items and words are separated by spaces. An unquoted word containing
+     * Vocabulary.WILDCARD is a pattern, as in matching(). OR and NOT are
+     * operators only when written in uppercase; to search for the word "OR",
+     * a word starting with "-", or a word containing the wildcard character
+     * itself, put it in quotes. A clause made only of negated
+     * items matches every tweet that matches none of them.
+     *
+     * @param query
+     *            query string, e.g. <code>rivest "talk in" -#hype OR obama</code>
+     * @return all and only the indexed tweets matching the query, in the same
+     *         order as the indexed list.
+     * @throws IllegalArgumentException if the query is empty or malformed
+     */
+    public List<Tweet> search(String query) {
+        List<String> tokens = tokenizeQuery(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("empty query");
+        }
+
+        List<int[]> clauses = new ArrayList<>();
+        List<int[]> included = new ArrayList<>();
+        List<int[]> excluded = new ArrayList<>();
+        boolean negateNext = false;
+        for (int i = 0; i <= tokens.size(); i++) {
+            String token = i < tokens.size() ? tokens.get(i) : null;
+            if (token == null || token.equals("OR")) {
+                if (negateNext || (included.isEmpty() && excluded.isEmpty())) {
+                    throw new IllegalArgumentException("malformed query: " + query);
+                }
+                int[] positive = included.isEmpty() ? allDocs() : and(included);
+                clauses.add(difference(positive, or(excluded)));
+                included.clear();
+                excluded.clear();
+            } else if (token.equals("NOT")) {
+                if (negateNext) {
+                    throw new IllegalArgumentException("malformed query: " + query);
+                }
+                negateNext = true;
+            } else {
+                boolean negated = negateNext;
+                negateNext = false;
+                if (token.startsWith("-") && token.length() > 1) {
+                    negated = !negated;
+                    token = token.substring(1);
+                }
+                int[] docs = token.startsWith("\"")
+                        ? phraseDocs(Arrays.asList(token.substring(1).split(" ")))
+                        : docsForPattern(token);
+                (negated ? excluded : included).add(docs);
+            }
+        }
+        return toTweets(or(clauses));
+    }
+
+    /*
+     * Split a query into tokens. A quoted phrase becomes a single token made
+     * of '"' followed by its words joined by single spaces.
+     */
+    private static List<String> tokenizeQuery(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        final int length = query.length();
+        while (i < length) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            String prefix = "";
+            if (c == '-' && i + 1 < length && query.charAt(i + 1) == '"') {
+                prefix = "-";
+                i++;
+                c = '"';
+            }
+            if (c == '"') {
+                int close = query.indexOf('"', i + 1);
+                if (close < 0) {
+                    throw new IllegalArgumentException("unterminated phrase in query: " + query);
+                }
+                String phrase = query.substring(i + 1, close).trim();
+                if (phrase.isEmpty()) {
+                    throw new IllegalArgumentException("empty phrase in query: " + query);
+                }
+                tokens.add(prefix + "\"" + String.join(" ", phrase.split("\\s+")));
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < length && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                tokens.add(query.substring(i, end));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private List<int[]> docsForWords(List<String> words) {
+        List<int[]> lists = new ArrayList<>();
+        for (String word : words) {
+            lists.add(docsForWord(word));
+        }
+        return lists;
+    }
+
+    private int[] docsForWord(String word) {
+        Postings p = postingsFor(word);
+        return p == null ? new int[0] : p.docs;
+    }
+
+    private int[] docsForPattern(String pattern) {
+        int[] ids = vocabulary.expand(pattern.toLowerCase());
+        if (ids.length == 1) {
+            return postings[ids[0]].docs;
+        }
+        List<int[]> lists = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            lists.add(postings[id].docs);
+        }
+        return or(lists);
+    }
+
+    private Postings postingsFor(String word) {
+        int id = vocabulary.id(word.toLowerCase());
+        return id < 0 ? null : postings[id];
+    }
+
+    private int[] allDocs() {
+        int[] docs = new int[tweets.size()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = i;
+        }
+        return docs;
+    }
+
+    private List<Tweet> toTweets(int[] docs) {
+        List<Tweet> result = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            result.add(tweets.get(doc));
+        }
+        return result;
+    }
+
+    /*
+     * @return the tweets in which words occur consecutively, ascending
+     */
+    private int[] phraseDocs(List<String> words) {
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("empty phrase");
+        }
+        Postings[] lists = new Postings[words.size()];
+        for (int k = 0; k < lists.length; k++) {
+            lists[k] = postingsFor(words.get(k));
+            if (lists[k] == null) {
+                return new int[0];
+            }
+        }
+
+        List<int[]> docLists = new ArrayList<>();
+        for (Postings p : lists) {
+            docLists.add(p.docs);
+        }
+        int[] candidates = and(docLists);
+
+        int[] cursors = new int[lists.length];
+        int[] result = new int[candidates.length];
+        int count = 0;
+        for (int doc : candidates) {
+            for (int k = 0; k < lists.length; k++) {
+                cursors[k] = gallop(lists[k].docs, cursors[k], doc);
+            }
+            if (hasPhraseAt(lists, cursors)) {
+                result[count++] = doc;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /*
+     * @return true if, within the document at cursors[k] of each lists[k],
+     *         some position p of the first word has word k at position p + k
+     */
+    private static boolean hasPhraseAt(Postings[] lists, int[] cursors) {
+        Postings first = lists[0];
+        for (int i = first.positionStart[cursors[0]]; i < first.positionStart[cursors[0] + 1]; i++) {
+            int start = first.positions[i];
+            boolean all = true;
+            for (int k = 1; k < lists.length && all; k++) {
+                Postings p = lists[k];
+                int from = p.positionStart[cursors[k]];
+                int to = p.positionStart[cursors[k] + 1];
+                all = Arrays.binarySearch(p.positions, from, to, start + k) >= 0;
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Intersect sorted lists, smallest first.
+     */
+    private static int[] and(List<int[]> lists) {
+        if (lists.isEmpty()) {
+            throw new IllegalArgumentException("requires at least one word");
+        }
+        List<int[]> bySize = new ArrayList<>(lists);
+        bySize.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = bySize.get(0);
+        for (int k = 1; k < bySize.size() && result.length > 0; k++) {
+            result = intersect(result, bySize.get(k));
+        }
+        return result;
+    }
+
+    /*
+     * Union of sorted lists: pairwise merges for a few lists, otherwise a
+     * bitmap over the tweets.
+     */
+    private static int[] or(List<int[]> lists) {
+        if (lists.size() > 2) {
+            BitSet bits = new BitSet();
+            for (int[] list : lists) {
+                for (int doc : list) {
+                    bits.set(doc);
+                }
+            }
+            return bits.stream().toArray();
+        }
+        int[] result = new int[0];
+        for (int[] list : lists) {
+            result = union(result, list);
+        }
+        return result;
+    }
+
+    /*
+     * @return elements of sorted small that are also in sorted large, using
+     *         galloping search in large
+     */
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int j = 0;
+        for (int x : small) {
+            j = gallop(large, j, x);
+            if (j == large.length) {
+                break;
+            }
+            if (large[j] == x) {
+                result[count++] = x;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /*
+     * @return elements of sorted a that are not in sorted b
+     */
+    private static int[] difference(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length];
+        int count = 0;
+        int j = 0;
+        for (int x : a) {
+            j = gallop(b, j, x);
+            if (j == b.length || b[j] != x) {
+                result[count++] = x;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /*
+     * Galloping search.
+     *
+     * @return the smallest index i >= from such that sorted[i] >= target, or
+     *         sorted.length if there is none
+     */
+    private static int gallop(int[] sorted, int from, int target) {
+        if (from >= sorted.length || sorted[from] >= target) {
+            return from;
+        }
+        // sorted[lo] < target throughout
+        int lo = from;
+        int step = 1;
+        while (lo + step < sorted.length && sorted[lo + step] < target) {
+            lo += step;
+            step <<= 1;
+        }
+        int hi = Math.min(lo + step, sorted.length);
+        // binary search in (lo, hi]
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < target) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+}
@@ -0,0 +1,367 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * KeywordMatcher finds which of a large, fixed list of terms occur in tweets.
+ *
+ * The terms are compiled once into an Aho-Corasick automaton, so each tweet is
+ * scanned in a single pass no matter how many terms there are. Matching is not
+ * case-sensitive, and runs of space characters in terms and in tweet text are
+ * treated as a single space, so a term may be a phrase such as "new york".
+ *
+ * In WHOLE_WORD mode a term matches only a whole sequence of words in the
+ * text, as with Filter.containing(): with single-word terms, a tweet matches
+ * exactly when Filter.containing() would return it (case folding is done a
+ * character at a time, so the few characters whose lowercase form depends on
+ * context, like the Greek final sigma, may fold differently). In SUBSTRING mode a term
+ * matches anywhere in the text, so "talk" matches "talking".
+ *
+ * A KeywordMatcher is immutable and safe to share between threads.
+ */
+public class KeywordMatcher {
+
+    /**
+     * How terms are matched against tweet text.
+     */
+    public enum Mode {
+        /** a term must start and end at word boundaries */
+        WHOLE_WORD,
+        /** a term may match any part of the text */
+        SUBSTRING
+    }
+
+    private static final char SPACE = ' ';
+
+    private final Mode mode;
+    private final List<String> terms;
+
+    // The automaton, one entry per state; state 0 is the root.
+    // Outgoing edges of state s are edgeChars/edgeTargets[edgeStart[s]..edgeStart[s+1]),
+    // sorted by char.
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] failure;
+    // index into terms of the term ending at each state, or -1
+    private final int[] termAt;
+    // nearest proper suffix state (through failure links) that ends a term, or -1
+    private final int[] outputLink;
+    /* Rep invariant:
+     *    all arrays indexed by state have the same length, the number of states
+     *    failure[s] is the longest proper suffix of s's string that is a state
+     *    termAt[s] != -1 iff the normalized form of terms[termAt[s]] is the string of state s
+     *
+     * Abstraction function:
+     *    represents the set of terms, matched according to mode
+     */
+
+    /**
+     * Compile a matcher for a list of terms.
+     *
+     * @param terms
+     *            terms to search for; each must contain a nonspace character.
+     *            Terms that differ only in case or spacing are treated as one.
+     * @param mode
+     *            how terms are matched
+     */
+    public KeywordMatcher(List<String> terms, Mode mode) {
+        this.mode = mode;
+
+        // Build the trie with a map per state, then flatten it.
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> termIndex = new ArrayList<>();
+        children.add(new HashMap<>());
+        termIndex.add(-1);
+        List<String> distinctTerms = new ArrayList<>();
+        for (String term : terms) {
+            String key = normalize(term);
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("term must contain a nonspace character: '" + term + "'");
+            }
+            if (mode == Mode.WHOLE_WORD) {
+                // word boundaries become explicit spaces, matched against the
+                // virtual spaces fed at both ends of the text
+                key = SPACE + key + SPACE;
+            }
+            int state = 0;
+            for (int i = 0; i < key.length(); i++) {
+                Integer next = children.get(state).get(key.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(key.charAt(i), next);
+                    children.add(new HashMap<>());
+                    termIndex.add(-1);
+                }
+                state = next;
+            }
+            if (termIndex.get(state) == -1) {
+                termIndex.set(state, distinctTerms.size());
+                distinctTerms.add(term);
+            }
+        }
+        this.terms = Collections.unmodifiableList(distinctTerms);
+
+        final int states = children.size();
+        this.edgeStart = new int[states + 1];
+        int edges = 0;
+        for (int s = 0; s < states; s++) {
+            edgeStart[s] = edges;
+            edges += children.get(s).size();
+        }
+        edgeStart[states] = edges;
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        for (int s = 0; s < states; s++) {
+            char[] chars = new char[children.get(s).size()];
+            int k = 0;
+            for (char c : children.get(s).keySet()) {
+                chars[k++] = c;
+            }
+            Arrays.sort(chars);
+            for (int j = 0; j < chars.length; j++) {
+                edgeChars[edgeStart[s] + j] = chars[j];
+                edgeTargets[edgeStart[s] + j] = children.get(s).get(chars[j]);
+            }
+        }
+        this.termAt = new int[states];
+        for (int s = 0; s < states; s++) {
+            termAt[s] = termIndex.get(s);
+        }
+
+        // Breadth-first computation of failure and output links.
+        this.failure = new int[states];
+        this.outputLink = new int[states];
+        outputLink[0] = -1;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            int child = edgeTargets[e];
+            failure[child] = 0;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                int child = edgeTargets[e];
+                char c = edgeChars[e];
+                int fallback = failure[state];
+                int target = next(fallback, c);
+                while (target < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                    target = next(fallback, c);
+                }
+                failure[child] = target < 0 ? 0 : target;
+                int f = failure[child];
+                outputLink[child] = termAt[f] >= 0 ? f : outputLink[f];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return the mode this matcher was compiled with
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the distinct terms this matcher searches for, in the order they
+     *         were first given to the constructor
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * Test whether a piece of text contains any of the terms.
+     *
+     * @param text
+     *            text to scan
+     * @return true if and only if at least one term matches text
+     */
+    public boolean matches(String text) {
+        return scan(text, null);
+    }
+
+    /**
+     * Find the terms that occur in a piece of text.
+     *
+     * @param text
+     *            text to scan
+     * @return the terms (as given to the constructor) that match text, in
+     *         order of their first match
+     */
+    public Set<String> matchingTerms(String text) {
+        Set<String> found = new LinkedHashSet<>();
+        scan(text, found);
+        return found;
+    }
+
+    /**
+     * Find tweets that contain any of the terms.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method.
+     * @return all and only the tweets in the list whose text matches at least
+     *         one term, in the same order as in the input list.
+     */
+    public List<Tweet> filter(List<Tweet> tweets) {
+        List<Tweet> result = new ArrayList<>();
+        for (Tweet tweet : tweets) {
+            if (matches(tweet.getText())) {
+                result.add(tweet);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the terms matched by each tweet.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method.
+     * @return map from each tweet that matches at least one term to the terms
+     *         it matches, iterating in the same order as the input list.
+     */
+    public Map<Tweet, Set<String>> matchingTermsByTweet(List<Tweet> tweets) {
+        Map<Tweet, Set<String>> result = new LinkedHashMap<>();
+        for (Tweet tweet : tweets) {
+            Set<String> found = matchingTerms(tweet.getText());
+            if (!found.isEmpty()) {
+                result.put(tweet, found);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Run the automaton over text.
+     *
+     * @param found if null, stop at the first match; otherwise add every
+     *              matched term to it and scan the whole text
+     * @return true if any term matched
+     */
+    private boolean scan(String text, Set<String> found) {
+        int state = 0;
+        boolean any = false;
+        boolean lastWasSpace = false;
+        if (mode == Mode.WHOLE_WORD) {
+            state = step(state, SPACE);
+            lastWasSpace = true;
+        }
+
+        final int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c;
+            if (i < length) {
+                c = fold(text.charAt(i));
+                if (c == SPACE) {
+                    if (lastWasSpace) {
+                        continue;
+                    }
+                    lastWasSpace = true;
+                } else {
+                    lastWasSpace = false;
+                }
+            } else if (mode == Mode.WHOLE_WORD && !lastWasSpace) {
+                c = SPACE;
+            } else {
+                break;
+            }
+
+            state = step(state, c);
+            for (int s = termAt[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                any = true;
+                if (found == null) {
+                    return true;
+                }
+                found.add(terms.get(termAt[s]));
+            }
+        }
+        return any;
+    }
+
+    /*
+     * @return the state reached from state on c, following failure links
+     */
+    private int step(int state, char c) {
+        while (true) {
+            int target = next(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    /*
+     * @return the trie child of state on c, or -1 if there is none
+     */
+    private int next(int state, char c) {
+        int lo = edgeStart[state];
+        int hi = edgeStart[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Fold a character for matching: lowercase, with all space characters
+     * (as in the regex \s) mapped to SPACE.
+     */
+    private static char fold(char c) {
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+            return SPACE;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /*
+     * @return term folded, with runs of spaces collapsed and no leading or
+     *         trailing space
+     */
+    private static String normalize(String term) {
+        StringBuilder key = new StringBuilder(term.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < term.length(); i++) {
+            char c = fold(term.charAt(i));
+            if (c == SPACE) {
+                pendingSpace = key.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    key.append(SPACE);
+                    pendingSpace = false;
+                }
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+}
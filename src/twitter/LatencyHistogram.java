@@ -0,0 +1,159 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records nonnegative values, such as latencies in
+ * nanoseconds, and reports their count, mean, maximum and percentiles.
+ *
+ * Like HdrHistogram, it keeps a count per bucket with log-linear bucket
+ * boundaries: values below 256 are exact, and larger values share a bucket
+ * with values that have the same top 8 bits, so a reported percentile is at
+ * most 1/128 above the true value. The buckets cover every long value in a
+ * fixed array of about 7300 counters, so recording never allocates.
+ *
+ * A LatencyHistogram is safe for concurrent use. record() is lock-free. A
+ * report taken while values are being recorded may or may not include them.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 63 - 1 - SUB_BUCKET_BITS;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    /* Rep invariant:
+     *    counts.get(i) >= 0
+     *    the counts sum to the number of values recorded since the last
+     *      reset, sum to their total and max to their maximum (0 if none),
+     *      once concurrent record() calls complete
+     */
+
+    /**
+     * @param value
+     *            a value >= 0
+     * @return index of value's bucket
+     */
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket
+     *            a bucket index
+     * @return largest value in the bucket
+     */
+    static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = bucket - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value
+     *            value to record, requires value >= 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("requires value >= 0");
+        }
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the values recorded, or 0 if none
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.sum() / (double) count;
+    }
+
+    /**
+     * @return largest value recorded, or 0 if none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile
+     *            requires 0 <= percentile <= 100
+     * @return smallest value v such that at least percentile% of the values
+     *         recorded are <= v, within the precision of the buckets, but
+     *         never above getMax(); 0 if no values were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("requires 0 <= percentile <= 100");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forget all values recorded. Values recorded concurrently with reset()
+     * may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @return summary of the values, with count, mean, p50, p99, p99.9 and max
+     */
+    @Override public String toString() {
+        return String.format("count=%d mean=%.0f p50=%d p99=%d p99.9=%d max=%d",
+                getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(99),
+                getValueAtPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,211 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * LazyFilter provides lazy counterparts of the methods of Filter, which select
+ * the same tweets without copying them into a new list.
+ *
+ * Each condition is available as a Predicate<Tweet>, so conditions compose
+ * with and()/or()/negate() and apply to any stream; as a Stream<Tweet> over a
+ * list, which evaluates the condition only as far as the stream is consumed
+ * (so limit() and findFirst() short-circuit); as an Iterable view; and as a
+ * count that never materializes the matching tweets.
+ *
+ * The streams are ordered: they produce tweets in the same order as the input
+ * list, as Filter does. Calling parallel() on one splits the work across the
+ * common fork-join pool while keeping that order for order-sensitive
+ * operations such as collect(Collectors.toList()), limit() and forEachOrdered().
+ *
+ * The input list must not be modified while a stream, view or count over it
+ * is in use.
+ */
+public class LazyFilter {
+
+    /**
+     * Condition of Filter.writtenBy().
+     *
+     * @param username
+     *            Twitter username, required to be a valid Twitter username as
+     *            defined by Tweet.getAuthor()'s spec.
+     * @return predicate that is true for exactly the tweets whose author is
+     *         username, ignoring case
+     */
+    public static Predicate<Tweet> writtenBy(String username) {
+        return tweet -> tweet.getAuthor().equalsIgnoreCase(username);
+    }
+
+    /**
+     * Condition of Filter.inTimespan().
+     *
+     * @param timespan
+     *            timespan
+     * @return predicate that is true for exactly the tweets sent during
+     *         timespan, endpoints included
+     */
+    public static Predicate<Tweet> inTimespan(Timespan timespan) {
+        final Instant start = timespan.getStart();
+        final Instant end = timespan.getEnd();
+        return tweet -> !tweet.getTimestamp().isBefore(start) && !tweet.getTimestamp().isAfter(end);
+    }
+
+    /**
+     * Condition of Filter.containing().
+     *
+     * @param words
+     *            a list of words to search for, as for Filter.containing()
+     * @return predicate that is true for exactly the tweets whose text
+     *         includes at least one of the words, ignoring case
+     */
+    public static Predicate<Tweet> containing(List<String> words) {
+        if (words.isEmpty()) {
+            return tweet -> false;
+        }
+        final WordMatcher matcher = new WordMatcher(words);
+        return tweet -> matcher.matchesAny(tweet.getText());
+    }
+
+    /**
+     * Lazy Filter.writtenBy().
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this method.
+     * @param username
+     *            Twitter username, as for Filter.writtenBy()
+     * @return ordered stream of the tweets Filter.writtenBy(tweets, username)
+     *         would return
+     */
+    public static Stream<Tweet> writtenBy(List<Tweet> tweets, String username) {
+        return tweets.stream().filter(writtenBy(username));
+    }
+
+    /**
+     * Lazy Filter.inTimespan().
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this method.
+     * @param timespan
+     *            timespan
+     * @return ordered stream of the tweets Filter.inTimespan(tweets, timespan)
+     *         would return
+     */
+    public static Stream<Tweet> inTimespan(List<Tweet> tweets, Timespan timespan) {
+        return tweets.stream().filter(inTimespan(timespan));
+    }
+
+    /**
+     * Lazy Filter.containing().
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this method.
+     * @param words
+     *            a list of words to search for, as for Filter.containing()
+     * @return ordered stream of the tweets Filter.containing(tweets, words)
+     *         would return
+     */
+    public static Stream<Tweet> containing(List<Tweet> tweets, List<String> words) {
+        return tweets.stream().filter(containing(words));
+    }
+
+    /**
+     * Iterable view of the tweets in a list that satisfy a condition. Each
+     * iterator tests tweets only as it advances.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method.
+     * @param condition
+     *            condition to test, e.g. writtenBy("alyssa").and(containing(words))
+     * @return view whose iterators produce the tweets of the list satisfying
+     *         condition, in list order
+     */
+    public static Iterable<Tweet> view(List<Tweet> tweets, Predicate<Tweet> condition) {
+        return () -> new Iterator<Tweet>() {
+            private final Iterator<Tweet> source = tweets.iterator();
+            private Tweet next = null;
+
+            @Override public boolean hasNext() {
+                while (next == null && source.hasNext()) {
+                    Tweet candidate = source.next();
+                    if (condition.test(candidate)) {
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override public Tweet next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Tweet result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Count the tweets in a list that satisfy a condition, without
+     * collecting them.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method.
+     * @param condition
+     *            condition to test
+     * @return number of tweets in the list satisfying condition
+     */
+    public static int count(List<Tweet> tweets, Predicate<Tweet> condition) {
+        int count = 0;
+        for (Tweet tweet : tweets) {
+            if (condition.test(tweet)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Same as count(), but splits the work across the common fork-join pool.
+     * Worth using only for large lists of tweets.
+     *
+     * @param tweets
+     *            a list of tweets, not modified by this method or
+     *            concurrently by any other thread.
+     * @param condition
+     *            condition to test; must be safe to call from several
+     *            threads at once, as all the conditions of this class are
+     * @return number of tweets in the list satisfying condition
+     */
+    public static int countParallel(List<Tweet> tweets, Predicate<Tweet> condition) {
+        return (int) tweets.parallelStream().filter(condition).count();
+    }
+
+    /**
+     * @return Filter.writtenBy(tweets, username).size(), without building the list
+     */
+    public static int countWrittenBy(List<Tweet> tweets, String username) {
+        return count(tweets, writtenBy(username));
+    }
+
+    /**
+     * @return Filter.inTimespan(tweets, timespan).size(), without building the list
+     */
+    public static int countInTimespan(List<Tweet> tweets, Timespan timespan) {
+        return count(tweets, inTimespan(timespan));
+    }
+
+    /**
+     * @return Filter.containing(tweets, words).size(), without building the list
+     */
+    public static int countContaining(List<Tweet> tweets, List<String> words) {
+        return count(tweets, containing(words));
+    }
+}
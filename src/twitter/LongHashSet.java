@@ -0,0 +1,159 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.Arrays;
+
+/**
+ * LongHashSet is a mutable set of long values, such as tweet ids, stored in
+ * an open-addressing table of primitive longs. Unlike HashSet<Long> it does
+ * not box its elements or allocate a node per element, so it costs 16 to 32
+ * bytes per element and adding or testing a value allocates nothing (except
+ * when the table grows).
+ *
+ * A LongHashSet is not safe for concurrent use.
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // slots hold values; 0 marks an empty slot, so 0 itself is kept in hasZero
+    private long[] table;
+    private int mask;
+    private int size = 0;
+    private boolean hasZero = false;
+    /* Rep invariant:
+     *    table.length is a power of 2 >= MIN_CAPACITY, and mask == table.length - 1
+     *    size == number of nonzero slots + (hasZero ? 1 : 0)
+     *    number of nonzero slots <= table.length / 2
+     *    every nonzero value v is found by linear probing from slot(v)
+     *    before reaching an empty slot
+     */
+
+    /**
+     * Make an empty set.
+     */
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Make an empty set with room for some values before growing.
+     *
+     * @param expectedSize
+     *            number of values expected, requires expectedSize >= 0
+     */
+    public LongHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("requires expectedSize >= 0");
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param value
+     *            value to add
+     * @return true if the set did not already contain value
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(value);
+        while (table[i] != 0) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        if (2 * (size - (hasZero ? 1 : 0)) > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @param value
+     *            value to look for
+     * @return true if the set contains value
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        int i = slot(value);
+        while (table[i] != 0) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of values in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set has no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all values, keeping the table allocated for reuse.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    /**
+     * @return bytes allocated for the table, 16 to 32 times the largest
+     *         size since the set was made
+     */
+    public long getTableBytes() {
+        return 8L * table.length;
+    }
+
+    private int slot(long value) {
+        long h = value * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int i = slot(value);
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+}
@@ -34,7 +34,8 @@ public class Main {
     
     /**
      * Main method of the program. Fetches a sample of tweets and prints some
-     * facts about it.
+     * facts about it. Run with -Dtwitter.metrics=true to also print the
+     * latency of each step and counts of what it found (see Metrics).
      * 
      * @param args command-line arguments (not used)
      */
@@ -45,11 +46,14 @@ public class Main {
         } catch (AssertionError ae) { }
         
         final List<Tweet> tweets;
+        final Metrics.Span fetch = Metrics.start(Metrics.Operation.FETCH);
         try {
             tweets = TweetReader.readTweetsFromWeb(SAMPLE_SERVER);
         } catch (IOException ioe) {
             throw new RuntimeException(ioe);
         }
+        Metrics.finish(fetch, 0, tweets.size());
+        Metrics.count(Metrics.Counter.TWEETS_PARSED, tweets.size());
         
         // display some characteristics about the tweets
         System.err.println("fetched " + tweets.size() + " tweets");
@@ -70,6 +74,10 @@ public class Main {
         for (String username : influencers.subList(0, Math.min(count, influencers.size()))) {
             System.out.println(username);
         }
+
+        if (Metrics.isEnabled()) {
+            System.err.print(Metrics.dump());
+        }
     }
     
 }
@@ -0,0 +1,79 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * MentionProcessor is a Flow stage that turns a stream of tweets into a
+ * stream of the usernames they mention, as found by
+ * Extract.getMentionedUsers(): for each tweet it publishes the distinct
+ * usernames mentioned in it, in lowercase. The union of everything it
+ * publishes equals Extract.getMentionedUsers() of the tweets it received.
+ *
+ * It requests one tweet at a time and requests the next only after the
+ * mentions of the previous one have been accepted by every subscriber's
+ * buffer, whose size is bounded. A slow subscriber therefore slows the
+ * upstream publisher rather than making buffers grow.
+ */
+public class MentionProcessor extends SubmissionPublisher<String> implements Flow.Processor<Tweet, String> {
+
+    private Flow.Subscription upstream;
+    private final Set<String> mentions = new HashSet<>();
+    /* Rep invariant:
+     *    mentions is empty between calls to onNext
+     */
+
+    /**
+     * Make a processor delivering to subscribers on the common pool, with
+     * buffers of Flow.defaultBufferSize() usernames.
+     */
+    public MentionProcessor() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * Make a processor.
+     *
+     * @param executor
+     *            delivers usernames to subscribers
+     * @param maxBufferCapacity
+     *            most usernames buffered for each subscriber, requires
+     *            maxBufferCapacity > 0
+     */
+    public MentionProcessor(Executor executor, int maxBufferCapacity) {
+        super(executor, maxBufferCapacity);
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        subscription.request(1);
+    }
+
+    @Override public void onNext(Tweet tweet) {
+        Extract.addMentionedUsers(tweet.getText(), mentions);
+        for (String username : mentions) {
+            submit(username);
+        }
+        mentions.clear();
+        upstream.request(1);
+    }
+
+    @Override public void onError(Throwable throwable) {
+        closeExceptionally(throwable);
+    }
+
+    @Override public void onComplete() {
+        close();
+    }
+}
@@ -0,0 +1,355 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MentionTracker finds the most-mentioned users in a stream of tweets using a
+ * bounded amount of memory.
+ *
+ * It implements the Space-Saving algorithm: at most capacity usernames are
+ * monitored at once, and when a new username arrives while the tracker is
+ * full, it takes over the counter of the least-mentioned monitored username.
+ * Every counter therefore overestimates its user's true mention count by at
+ * most its recorded error, and the error of any counter is at most N/capacity,
+ * where N is the total number of mentions seen. Any user mentioned more than
+ * N/capacity times is guaranteed to be monitored.
+ *
+ * Mentions are recognized exactly as in Extract.getMentionedUsers(), and a
+ * tweet mentioning the same user several times counts as one mention of that
+ * user.
+ *
+ * A MentionTracker is not safe for concurrent use. To track a stream from
+ * several threads, give each thread its own tracker and combine them with
+ * merge().
+ */
+public class MentionTracker {
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final Counter[] heap;
+    private int size = 0;
+    private long totalMentions = 0;
+    private final Set<String> scratch = new HashSet<>();
+    /* Rep invariant:
+     *    capacity > 0
+     *    size == counters.size() <= capacity
+     *    heap[0..size) is a binary min-heap on count, and heap[i].heapIndex == i
+     *    counters.get(c.username) == c for every counter c in heap[0..size)
+     *    for every counter c: 0 <= c.error <= c.count
+     */
+
+    /*
+     * A monitored username with its estimated count and the maximum amount by
+     * which that estimate exceeds the true count.
+     */
+    private static class Counter {
+        String username;
+        long count;
+        long error;
+        int heapIndex;
+
+        Counter(String username, long count, long error) {
+            this.username = username;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Immutable estimate of how often a user was mentioned.
+     */
+    public static class Estimate {
+
+        private final String username;
+        private final long count;
+        private final long error;
+        private final boolean guaranteed;
+
+        private Estimate(String username, long count, long error, boolean guaranteed) {
+            this.username = username;
+            this.count = count;
+            this.error = error;
+            this.guaranteed = guaranteed;
+        }
+
+        /**
+         * @return the mentioned username, in lowercase
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * @return an upper bound on the number of tweets mentioning the user
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the maximum amount by which getCount() may exceed the true
+         *         number of tweets mentioning the user
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * @return a lower bound on the number of tweets mentioning the user
+         */
+        public long getLowerBound() {
+            return count - error;
+        }
+
+        /**
+         * @return true if the user is certainly among the top-k users of the
+         *         topK(k) call that produced this estimate, regardless of the
+         *         error in the counts
+         */
+        public boolean isGuaranteed() {
+            return guaranteed;
+        }
+
+        @Override public String toString() {
+            return username + "=" + count + "(+-" + error + ")";
+        }
+    }
+
+    /**
+     * Make an empty tracker.
+     *
+     * @param capacity
+     *            maximum number of usernames monitored at once. Requires
+     *            capacity > 0. Larger capacities give smaller errors.
+     */
+    public MentionTracker(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("requires capacity > 0");
+        }
+        this.capacity = capacity;
+        this.heap = new Counter[capacity];
+    }
+
+    /**
+     * Count the mentions in one tweet.
+     *
+     * @param tweet
+     *            tweet whose text is scanned for username-mentions
+     */
+    public void add(Tweet tweet) {
+        scratch.clear();
+        Extract.addMentionedUsers(tweet.getText(), scratch);
+        for (String username : scratch) {
+            offer(username);
+        }
+    }
+
+    /**
+     * Count the mentions in every tweet of a list, in order.
+     *
+     * @param tweets
+     *            tweets to count, not modified by this method
+     */
+    public void addAll(List<Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * Add the counts of another tracker to this one, as if every tweet added
+     * to that tracker had also been added to this one. The error guarantees
+     * of this tracker still hold afterwards. The other tracker is not modified.
+     *
+     * @param that
+     *            tracker to merge into this one; must not be concurrently
+     *            modified while merging
+     */
+    public void merge(MentionTracker that) {
+        // Users missing from a full tracker may have been mentioned up to its
+        // minimum count times, so they are charged that much as both count and error.
+        long thisMissing = minCount();
+        long thatMissing = that.minCount();
+
+        Map<String, Counter> merged = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Counter c = heap[i];
+            merged.put(c.username, new Counter(c.username, c.count + thatMissing, c.error + thatMissing));
+        }
+        for (int i = 0; i < that.size; i++) {
+            Counter c = that.heap[i];
+            Counter existing = merged.get(c.username);
+            if (existing != null) {
+                existing.count += c.count - thatMissing;
+                existing.error += c.error - thatMissing;
+            } else {
+                merged.put(c.username, new Counter(c.username, c.count + thisMissing, c.error + thisMissing));
+            }
+        }
+
+        List<Counter> candidates = new ArrayList<>(merged.values());
+        candidates.sort((c1, c2) -> Long.compare(c2.count, c1.count));
+
+        counters.clear();
+        size = Math.min(capacity, candidates.size());
+        for (int i = 0; i < size; i++) {
+            Counter c = candidates.get(i);
+            heap[i] = c;
+            c.heapIndex = i;
+            counters.put(c.username, c);
+        }
+        for (int i = size; i < capacity; i++) {
+            heap[i] = null;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        totalMentions += that.totalMentions;
+    }
+
+    /**
+     * Get the most-mentioned users seen so far.
+     *
+     * @param k
+     *            number of users wanted, requires k >= 0
+     * @return at most k estimates, in descending order of count, with ties
+     *         broken by username. An estimate is marked guaranteed if its lower
+     *         bound is at least the count of every user outside the result.
+     */
+    public List<Estimate> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("requires k >= 0");
+        }
+        List<Counter> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(heap[i]);
+        }
+        sorted.sort((c1, c2) -> {
+            int byCount = Long.compare(c2.count, c1.count);
+            return byCount != 0 ? byCount : c1.username.compareTo(c2.username);
+        });
+
+        // the best any user outside the result could have done
+        long threshold = k < sorted.size() ? sorted.get(k).count : minCount();
+
+        List<Estimate> result = new ArrayList<>();
+        for (Counter c : sorted.subList(0, Math.min(k, sorted.size()))) {
+            result.add(new Estimate(c.username, c.count, c.error, c.count - c.error >= threshold));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Estimate how often one user was mentioned.
+     *
+     * @param username
+     *            Twitter username, case-insensitive
+     * @return an upper bound on the number of tweets seen so far that mention
+     *         username
+     */
+    public long getCount(String username) {
+        Counter c = counters.get(username.toLowerCase());
+        return c != null ? c.count : minCount();
+    }
+
+    /**
+     * @return the total number of mentions seen so far, counting each
+     *         mentioned user once per tweet
+     */
+    public long getTotalMentions() {
+        return totalMentions;
+    }
+
+    /**
+     * @return the maximum number of usernames monitored at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /*
+     * @return the count that an unmonitored user may have reached: 0 while the
+     *         tracker has room, otherwise the smallest monitored count.
+     */
+    private long minCount() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    /*
+     * Count one mention of a lowercased username.
+     */
+    private void offer(String username) {
+        totalMentions++;
+        Counter c = counters.get(username);
+        if (c != null) {
+            c.count++;
+            siftDown(c.heapIndex);
+        } else if (size < capacity) {
+            c = new Counter(username, 1, 0);
+            heap[size] = c;
+            c.heapIndex = size;
+            size++;
+            counters.put(username, c);
+            siftUp(c.heapIndex);
+        } else {
+            // evict the least-mentioned user and inherit its count as error
+            c = heap[0];
+            counters.remove(c.username);
+            c.username = username;
+            c.error = c.count;
+            c.count++;
+            counters.put(username, c);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        Counter c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].count <= c.count) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(c, i);
+    }
+
+    private void siftDown(int i) {
+        Counter c = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (c.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(c, i);
+    }
+
+    private void place(Counter c, int i) {
+        heap[i] = c;
+        c.heapIndex = i;
+    }
+
+    @Override public String toString() {
+        return "MentionTracker" + topK(size);
+    }
+}
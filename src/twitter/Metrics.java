@@ -0,0 +1,242 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Metrics instruments the hot paths of a run: a latency histogram per
+ * Operation, counters of tweets parsed, mentions extracted, follows edges
+ * created and filter hits, and a JFR event (OperationEvent, named
+ * "twitter.Operation") per operation.
+ *
+ * Instrumentation is off unless the system property twitter.metrics is true
+ * or setEnabled(true) is called. While off, an instrumented operation costs
+ * one volatile read at its start and a null check at its end. While on, JFR
+ * events are committed only if a recording enables twitter.Operation.
+ *
+ * An instrumented operation looks like:
+ *     Metrics.Span span = Metrics.start(Metrics.Operation.WRITTEN_BY);
+ *     ... the operation ...
+ *     Metrics.finish(span, tweets.size(), result.size());
+ *
+ * Metrics is safe for concurrent use: histograms and counters record
+ * without locks.
+ */
+public class Metrics {
+
+    /**
+     * Instrumented operations.
+     */
+    public enum Operation {
+        FETCH("fetch"),
+        PARSE("parse"),
+        GET_TIMESPAN("Extract.getTimespan"),
+        GET_MENTIONED_USERS("Extract.getMentionedUsers"),
+        WRITTEN_BY("Filter.writtenBy"),
+        IN_TIMESPAN("Filter.inTimespan"),
+        CONTAINING("Filter.containing"),
+        GUESS_FOLLOWS_GRAPH("SocialNetwork.guessFollowsGraph"),
+        INFLUENCERS("SocialNetwork.influencers");
+
+        private final String label;
+
+        private Operation(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return the name of the operation in dumps and JFR events
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Counted events.
+     */
+    public enum Counter {
+        TWEETS_PARSED,
+        /** @-mentions matched by Extract.getMentionedUsers, counting repeats */
+        MENTIONS_EXTRACTED,
+        EDGES_CREATED,
+        FILTER_HITS,
+    }
+
+    /**
+     * An operation in progress, from start() to finish().
+     */
+    public static final class Span {
+        private final Operation operation;
+        private final long startNanos;
+        private final OperationEvent event = new OperationEvent();
+
+        private Span(Operation operation) {
+            this.operation = operation;
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("twitter.metrics");
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private static final LongAdder[] counters = new LongAdder[Counter.values().length];
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return true iff instrumentation is on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn instrumentation on or off. Operations in progress when it is
+     * turned off are still recorded.
+     *
+     * @param enabled
+     *            true to turn instrumentation on
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @param operation
+     *            the operation starting
+     * @return the span to pass to finish(), or null if instrumentation is off
+     */
+    public static Span start(Operation operation) {
+        return enabled ? new Span(operation) : null;
+    }
+
+    /**
+     * Finish timing an operation: record its latency in nanoseconds and commit
+     * its JFR event.
+     *
+     * @param span
+     *            result of start() for the operation, or null to do nothing
+     * @param inputSize
+     *            size of the operation's input, such as a number of tweets
+     * @param resultSize
+     *            size of the operation's result
+     */
+    public static void finish(Span span, long inputSize, long resultSize) {
+        if (span == null) {
+            return;
+        }
+        histograms[span.operation.ordinal()].record(Math.max(0, System.nanoTime() - span.startNanos));
+        OperationEvent event = span.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = span.operation.getLabel();
+            event.inputSize = inputSize;
+            event.resultSize = resultSize;
+            event.commit();
+        }
+    }
+
+    /**
+     * Add to a counter, if instrumentation is on.
+     *
+     * @param counter
+     *            the counter
+     * @param amount
+     *            amount to add
+     */
+    public static void count(Counter counter, long amount) {
+        if (enabled) {
+            counters[counter.ordinal()].add(amount);
+        }
+    }
+
+    /**
+     * @param operation
+     *            an operation
+     * @return histogram of the operation's latencies in nanoseconds
+     */
+    public static LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * @param counter
+     *            a counter
+     * @return the counter's value
+     */
+    public static long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Reset all histograms and counters.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+
+    /**
+     * @return a report of the counters and of the latencies, in microseconds,
+     *         of every operation recorded at least once
+     */
+    public static String dump() {
+        StringBuilder report = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            report.append(counter.name().toLowerCase()).append(' ').append(getCount(counter)).append('\n');
+        }
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = getHistogram(operation);
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            report.append(String.format("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    operation.getLabel(), count, histogram.getMean() / 1e3,
+                    histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getMax() / 1e3));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Start passing dump() to a consumer at a fixed rate, from a daemon thread.
+     *
+     * @param interval
+     *            time between dumps, requires interval > 0
+     * @param out
+     *            consumer of the dumps, such as System.err::print
+     * @return handle whose close() stops the dumps
+     */
+    public static Closeable startPeriodicDump(Duration interval, Consumer<String> out) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Metrics dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> out.accept(dump()),
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return scheduler::shutdownNow;
+    }
+}
@@ -0,0 +1,287 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * NearDuplicates finds groups of tweets with nearly the same text, such as
+ * retweets ("RT @bbitdiddle: rivest talk...") and copy-pasted tweets, so that
+ * they can be removed before Filter.containing() or
+ * SocialNetwork.guessFollowsGraph() counts them more than once.
+ *
+ * Tweet text is normalized (leading "RT @user:" prefixes removed, lowercased,
+ * whitespace collapsed) and cut into overlapping character shingles. Each
+ * tweet gets a MinHash signature whose entries agree between two tweets with
+ * probability equal to the Jaccard similarity of their shingle sets. The
+ * signature is split into bands; tweets sharing any band are candidates, and
+ * a candidate is joined to a cluster only if the fraction of agreeing
+ * signature entries is at least the similarity threshold. This takes time
+ * linear in the number of tweets (times the signature length), with no
+ * pairwise comparison of all tweets. Signatures are computed in parallel.
+ *
+ * With b bands of r rows, two tweets with similarity s become candidates with
+ * probability 1 - (1 - s^r)^b; the defaults (16 bands of 4 rows) make
+ * tweets with similarity 0.8 candidates with probability over 0.999.
+ *
+ * Results are deterministic for a given seed. NearDuplicates is immutable.
+ */
+public class NearDuplicates {
+
+    /** Default shingle length in characters. */
+    public static final int DEFAULT_SHINGLE_LENGTH = 5;
+    /** Default number of LSH bands. */
+    public static final int DEFAULT_BANDS = 16;
+    /** Default number of signature rows per band. */
+    public static final int DEFAULT_ROWS = 4;
+    /** Default minimum estimated Jaccard similarity of near-duplicates. */
+    public static final double DEFAULT_THRESHOLD = 0.7;
+
+    private static final Pattern RETWEET_PREFIX = Pattern.compile("^(?:rt\\s+@[a-z0-9_]+:?\\s*)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int shingleLength;
+    private final int bands;
+    private final int rows;
+    private final double threshold;
+    // multipliers and offsets of the signature's hash functions
+    private final long[] multipliers;
+    private final long[] offsets;
+    /* Rep invariant:
+     *    shingleLength, bands, rows > 0
+     *    0 <= threshold <= 1
+     *    multipliers.length == offsets.length == bands * rows,
+     *    and every multiplier is odd
+     */
+
+    /**
+     * Make a near-duplicate detector with the default parameters.
+     */
+    public NearDuplicates() {
+        this(DEFAULT_SHINGLE_LENGTH, DEFAULT_BANDS, DEFAULT_ROWS, DEFAULT_THRESHOLD, 6005);
+    }
+
+    /**
+     * Make a near-duplicate detector.
+     *
+     * @param shingleLength
+     *            length of character shingles, requires shingleLength > 0
+     * @param bands
+     *            number of LSH bands, requires bands > 0
+     * @param rows
+     *            signature rows per band, requires rows > 0
+     * @param threshold
+     *            minimum estimated Jaccard similarity for two tweets to be
+     *            near-duplicates, requires 0 <= threshold <= 1
+     * @param seed
+     *            seed for the hash functions
+     */
+    public NearDuplicates(int shingleLength, int bands, int rows, double threshold, long seed) {
+        if (shingleLength <= 0 || bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("requires shingleLength, bands, rows > 0");
+        }
+        if (!(threshold >= 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("requires 0 <= threshold <= 1");
+        }
+        this.shingleLength = shingleLength;
+        this.bands = bands;
+        this.rows = rows;
+        this.threshold = threshold;
+        Random random = new Random(seed);
+        this.multipliers = new long[bands * rows];
+        this.offsets = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            offsets[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Find clusters of near-duplicate tweets.
+     *
+     * @param tweets
+     *            tweets to cluster, not modified by this method
+     * @return clusters of two or more tweets whose normalized texts are
+     *         near-duplicates of one another (directly or through other
+     *         members); each cluster is in the same order as tweets, and the
+     *         clusters are ordered by their first member. Tweets with no
+     *         near-duplicate appear in no cluster.
+     */
+    public List<List<Tweet>> clusters(List<Tweet> tweets) {
+        int[] root = cluster(tweets);
+        Map<Integer, List<Tweet>> byRoot = new HashMap<>();
+        List<List<Tweet>> clusters = new ArrayList<>();
+        for (int i = 0; i < root.length; i++) {
+            List<Tweet> cluster = byRoot.get(root[i]);
+            if (cluster == null) {
+                cluster = new ArrayList<>();
+                byRoot.put(root[i], cluster);
+                clusters.add(cluster);
+            }
+            cluster.add(tweets.get(i));
+        }
+        clusters.removeIf(cluster -> cluster.size() < 2);
+        return clusters;
+    }
+
+    /**
+     * Remove near-duplicates from a list of tweets.
+     *
+     * @param tweets
+     *            tweets, not modified by this method
+     * @return the first tweet of each near-duplicate cluster together with
+     *         every tweet that has no near-duplicate, in the same order as
+     *         tweets
+     */
+    public List<Tweet> deduplicate(List<Tweet> tweets) {
+        int[] root = cluster(tweets);
+        List<Tweet> result = new ArrayList<>();
+        for (int i = 0; i < root.length; i++) {
+            if (root[i] == i) {
+                result.add(tweets.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimate the Jaccard similarity of the shingles of two texts.
+     *
+     * @param text1
+     *            tweet text
+     * @param text2
+     *            tweet text
+     * @return fraction of agreeing MinHash signature entries of the
+     *         normalized texts, in [0, 1]
+     */
+    public double similarity(String text1, String text2) {
+        return agreement(signature(text1), 0, signature(text2), 0, multipliers.length);
+    }
+
+    /**
+     * Normalize tweet text before shingling.
+     *
+     * @param text
+     *            tweet text
+     * @return text lowercased, with leading retweet prefixes "RT @user:"
+     *         removed and each run of whitespace replaced by one space,
+     *         trimmed
+     */
+    static String normalize(String text) {
+        String collapsed = WHITESPACE.matcher(text.toLowerCase()).replaceAll(" ").trim();
+        return RETWEET_PREFIX.matcher(collapsed).replaceFirst("");
+    }
+
+    /*
+     * Union-find over tweets: returns for each tweet the index of the first
+     * tweet in its cluster.
+     */
+    private int[] cluster(List<Tweet> tweets) {
+        final int n = tweets.size();
+        final int k = multipliers.length;
+        final int[] signatures = new int[n * k];
+        IntStream.range(0, n).parallel().forEach(i ->
+                fillSignature(tweets.get(i).getText(), signatures, i * k));
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int band = 0; band < bands; band++) {
+            Map<Long, Integer> buckets = new HashMap<>();
+            int from = band * rows;
+            for (int i = 0; i < n; i++) {
+                long key = bandKey(signatures, i * k + from);
+                Integer first = buckets.putIfAbsent(key, i);
+                if (first != null
+                        && agreement(signatures, first * k, signatures, i * k, k) >= threshold) {
+                    union(parent, first, i);
+                }
+            }
+        }
+
+        int[] root = new int[n];
+        for (int i = 0; i < n; i++) {
+            root[i] = find(parent, i);
+        }
+        return root;
+    }
+
+    private int[] signature(String text) {
+        int[] signature = new int[multipliers.length];
+        fillSignature(text, signature, 0);
+        return signature;
+    }
+
+    /*
+     * Write the MinHash signature of text's shingles into
+     * signatures[offset..offset + bands * rows).
+     */
+    private void fillSignature(String text, int[] signatures, int offset) {
+        final int k = multipliers.length;
+        String normalized = normalize(text);
+        long[] minimums = new long[k];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        int count = Math.max(1, normalized.length() - shingleLength + 1);
+        for (int start = 0; start < count; start++) {
+            long shingle = Hashing.fnv1a(normalized, start, Math.min(normalized.length(), start + shingleLength), 0);
+            for (int j = 0; j < k; j++) {
+                long h = Hashing.mix(shingle * multipliers[j] + offsets[j]) & Long.MAX_VALUE;
+                if (h < minimums[j]) {
+                    minimums[j] = h;
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            signatures[offset + j] = (int) (minimums[j] >>> 32);
+        }
+    }
+
+    private long bandKey(int[] signatures, int offset) {
+        long key = 0x9e3779b97f4a7c15L;
+        for (int r = 0; r < rows; r++) {
+            key = (key ^ signatures[offset + r]) * 0x100000001b3L;
+        }
+        return key;
+    }
+
+    private static double agreement(int[] a, int offsetA, int[] b, int offsetB, int length) {
+        int same = 0;
+        for (int j = 0; j < length; j++) {
+            if (a[offsetA + j] == b[offsetB + j]) {
+                same++;
+            }
+        }
+        return (double) same / length;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /*
+     * Join two sets, keeping the smaller index as the root so that each
+     * cluster's root is its first tweet.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
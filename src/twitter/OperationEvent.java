@@ -0,0 +1,32 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one instrumented operation, committed by Metrics.finish().
+ * Its duration is the operation's latency.
+ */
+@Name("twitter.Operation")
+@Label("Tweet Operation")
+@Category("Twitter")
+@Description("A fetch, parse, Extract, Filter or SocialNetwork operation")
+final class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Input Size")
+    @Description("Number of tweets, graph entries or bytes the operation was given")
+    long inputSize;
+
+    @Label("Result Size")
+    @Description("Number of tweets, usernames or graph entries the operation returned")
+    long resultSize;
+}
@@ -0,0 +1,452 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * OutOfCore runs the analyses of Extract, Filter and SocialNetwork over
+ * corpora too large for the heap, reading tweets once from an iterator (such
+ * as a TweetParser) and spilling intermediate data to temporary files.
+ *
+ * - sortByTimestamp() is an external merge sort: runs that fit the memory
+ *   budget are sorted in memory and written to spill files, then merged.
+ * - guessFollowsGraph() partitions the follows edges by follower hash into
+ *   spill files, then builds each partition's part of the graph separately.
+ * - mentionCounts() and followerCounts() keep partial counts in memory,
+ *   spill them partitioned by username when they outgrow the budget, and
+ *   merge each partition's partial counts separately.
+ *
+ * Results are given to a sink as they are produced rather than collected,
+ * since they may be as large as the input.
+ *
+ * The memory budget bounds the estimated heap used for tweets, graph edges
+ * and counts held at once, plus I/O buffers. One follower's followees (or
+ * one user's followers) must fit in the budget.
+ *
+ * An OutOfCore instance is safe for concurrent use; each call uses its own
+ * spill files, and deletes them before it returns.
+ */
+public class OutOfCore {
+
+    private static final int DEFAULT_PARTITIONS = 16;
+    private static final int MERGE_BUFFER_BYTES = 1 << 16;
+    // per-element heap estimate of a HashSet<String>: node, slot and String
+    private static final int SET_ELEMENT_OVERHEAD = 88;
+    private static final int COUNT_BYTES = 24;
+
+    private final Path spillDirectory;
+    private final long memoryBudget;
+    private final int partitions;
+    private final SpillingAggregator.Stats stats = new SpillingAggregator.Stats();
+    /* Rep invariant:
+     *    memoryBudget > 0, partitions >= 2
+     * Thread safety argument:
+     *    the fields are final and stats is thread-safe; all other state is
+     *    confined to the call that creates it
+     */
+
+    /**
+     * Make an out-of-core executor that spills to 16 partitions.
+     *
+     * @param spillDirectory
+     *            existing directory for temporary spill files
+     * @param memoryBudget
+     *            approximate bytes of heap each call may use, > 0
+     */
+    public OutOfCore(Path spillDirectory, long memoryBudget) {
+        this(spillDirectory, memoryBudget, DEFAULT_PARTITIONS);
+    }
+
+    /**
+     * Make an out-of-core executor.
+     *
+     * @param spillDirectory
+     *            existing directory for temporary spill files
+     * @param memoryBudget
+     *            approximate bytes of heap each call may use, > 0
+     * @param partitions
+     *            number of partitions to hash-partition spilled data into,
+     *            >= 2
+     */
+    public OutOfCore(Path spillDirectory, long memoryBudget, int partitions) {
+        if (memoryBudget <= 0 || partitions < 2) {
+            throw new IllegalArgumentException("requires memoryBudget > 0 and partitions >= 2");
+        }
+        this.spillDirectory = spillDirectory;
+        this.memoryBudget = memoryBudget;
+        this.partitions = partitions;
+    }
+
+    /**
+     * @return number of spill files written so far
+     */
+    public long getSpillFileCount() {
+        return stats.files.get();
+    }
+
+    /**
+     * @return number of bytes written to spill files so far
+     */
+    public long getSpilledBytes() {
+        return stats.bytes.get();
+    }
+
+    /**
+     * Sort tweets by timestamp.
+     *
+     * @param tweets
+     *            tweets to sort, consumed by this method
+     * @param sink
+     *            receives the tweets in nondecreasing order of timestamp;
+     *            tweets with equal timestamps keep their order in tweets
+     * @throws IOException if a spill file cannot be written or read
+     */
+    public void sortByTimestamp(Iterator<Tweet> tweets, Consumer<? super Tweet> sink) throws IOException {
+        Comparator<Tweet> byTimestamp = Comparator.comparing(Tweet::getTimestamp);
+        List<Path> runs = new ArrayList<>();
+        List<Path> spillFiles = new ArrayList<>(); // every file created, to delete
+        try {
+            List<Tweet> run = new ArrayList<>();
+            long runBytes = 0;
+            while (tweets.hasNext()) {
+                Tweet tweet = tweets.next();
+                run.add(tweet);
+                runBytes += TweetCodec.estimateBytes(tweet) + 8;
+                if (runBytes > memoryBudget) {
+                    run.sort(byTimestamp); // stable
+                    runs.add(writeRun(run, spillFiles));
+                    run.clear();
+                    runBytes = 0;
+                }
+            }
+            run.sort(byTimestamp);
+            if (runs.isEmpty()) {
+                run.forEach(sink);
+                return;
+            }
+            if (!run.isEmpty()) {
+                runs.add(writeRun(run, spillFiles));
+            }
+            run = null; // release the last run's tweets before merging
+
+            // each merged run needs a read buffer; merge in passes if the
+            // buffers of all runs would not fit the budget
+            int fanIn = (int) Math.max(2, Math.min(1024, memoryBudget / MERGE_BUFFER_BYTES / 2));
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int start = 0; start < runs.size(); start += fanIn) {
+                    List<Path> group = runs.subList(start, Math.min(runs.size(), start + fanIn));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path output = createSpillFile("run-");
+                    spillFiles.add(output);
+                    try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(output), MERGE_BUFFER_BYTES))) {
+                        mergeRuns(group, byTimestamp, tweet -> TweetCodec.write(out, tweet));
+                    }
+                    countSpillFile(output);
+                    for (Path path : group) {
+                        Files.delete(path);
+                    }
+                    merged.add(output);
+                }
+                runs = merged;
+            }
+            mergeRuns(runs, byTimestamp, sink::accept);
+        } finally {
+            for (Path path : spillFiles) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /*
+     * A Consumer that may fail with IOException.
+     */
+    private interface TweetSink {
+        void accept(Tweet tweet) throws IOException;
+    }
+
+    private Path writeRun(List<Tweet> run, List<Path> spillFiles) throws IOException {
+        Path path = createSpillFile("run-");
+        spillFiles.add(path);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), MERGE_BUFFER_BYTES))) {
+            for (Tweet tweet : run) {
+                TweetCodec.write(out, tweet);
+            }
+        }
+        countSpillFile(path);
+        return path;
+    }
+
+    /*
+     * Merge sorted runs, breaking ties by run order so the merge is stable.
+     */
+    private static void mergeRuns(List<Path> runs, Comparator<Tweet> order, TweetSink sink) throws IOException {
+        List<DataInputStream> inputs = new ArrayList<>();
+        try {
+            PriorityQueue<RunHead> heads = new PriorityQueue<>(
+                    Comparator.comparing((RunHead head) -> head.tweet, order).thenComparingInt(head -> head.run));
+            for (int r = 0; r < runs.size(); r++) {
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(runs.get(r)), MERGE_BUFFER_BYTES));
+                inputs.add(in);
+                Tweet first = readOrNull(in);
+                if (first != null) {
+                    heads.add(new RunHead(first, r));
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunHead head = heads.poll();
+                sink.accept(head.tweet);
+                Tweet next = readOrNull(inputs.get(head.run));
+                if (next != null) {
+                    heads.add(new RunHead(next, head.run));
+                }
+            }
+        } finally {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+
+    private static final class RunHead {
+        final Tweet tweet;
+        final int run;
+
+        RunHead(Tweet tweet, int run) {
+            this.tweet = tweet;
+            this.run = run;
+        }
+    }
+
+    private static Tweet readOrNull(DataInputStream in) throws IOException {
+        try {
+            return TweetCodec.read(in);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Guess who might follow whom, as SocialNetwork.guessFollowsGraph() does.
+     *
+     * @param tweets
+     *            tweets providing the evidence, consumed by this method
+     * @param sink
+     *            receives, once for each key of
+     *            SocialNetwork.guessFollowsGraph() of the tweets, in no
+     *            particular order, that key and its set of followed users
+     * @throws IOException if a spill file cannot be written or read
+     */
+    public void guessFollowsGraph(Iterator<Tweet> tweets, Consumer<Map.Entry<String, Set<String>>> sink)
+            throws IOException {
+        SpillingAggregator<Set<String>> graph = new SpillingAggregator<>(spillDirectory, memoryBudget, partitions,
+                SET_CODEC, stats);
+        while (tweets.hasNext()) {
+            Tweet tweet = tweets.next();
+            String author = tweet.getAuthor().toLowerCase();
+            Set<String> followed = new HashSet<>();
+            SocialNetwork.addFollowed(author, tweet.getText(), followed);
+            if (!followed.isEmpty()) {
+                graph.add(author, followed);
+            }
+        }
+        graph.finish((follower, followed) -> sink.accept(Map.entry(follower, Collections.unmodifiableSet(followed))));
+    }
+
+    /**
+     * Count the followers of each user in the graph guessed by
+     * SocialNetwork.guessFollowsGraph(), as SocialNetwork.influencers() ranks
+     * them.
+     *
+     * @param tweets
+     *            tweets providing the evidence, consumed by this method
+     * @param sink
+     *            receives, once for each distinct username in the guessed
+     *            graph, in no particular order, that username and the number
+     *            of users that follow it
+     * @throws IOException if a spill file cannot be written or read
+     */
+    public void followerCounts(Iterator<Tweet> tweets, ObjLongConsumer<String> sink) throws IOException {
+        // partition edges by followee; a follower with no edge into a
+        // partition appears there as a key with no followers
+        SpillingAggregator<Set<String>> followers = new SpillingAggregator<>(spillDirectory, memoryBudget, partitions,
+                SET_CODEC, stats);
+        while (tweets.hasNext()) {
+            Tweet tweet = tweets.next();
+            String author = tweet.getAuthor().toLowerCase();
+            Set<String> followed = new HashSet<>();
+            SocialNetwork.addFollowed(author, tweet.getText(), followed);
+            if (followed.isEmpty()) {
+                continue;
+            }
+            followers.add(author, new HashSet<>());
+            for (String user : followed) {
+                Set<String> follower = new HashSet<>();
+                follower.add(author);
+                followers.add(user, follower);
+            }
+        }
+        followers.finish((user, users) -> sink.accept(user, users.size()));
+    }
+
+    /**
+     * Find the users with the most followers in the graph guessed by
+     * SocialNetwork.guessFollowsGraph().
+     *
+     * @param tweets
+     *            tweets providing the evidence, consumed by this method
+     * @param k
+     *            maximum number of users to return, >= 0
+     * @return the k users (or all, if fewer) with the most followers, in
+     *         descending order of follower count; ties are broken by
+     *         username, so users with equal counts are in alphabetical order
+     * @throws IOException if a spill file cannot be written or read
+     */
+    public List<String> influencers(Iterator<Tweet> tweets, int k) throws IOException {
+        if (k < 0) {
+            throw new IllegalArgumentException("requires k >= 0");
+        }
+        // the k best so far, worst at the head
+        Comparator<Map.Entry<String, Long>> rank = Map.Entry.<String, Long>comparingByValue()
+                .thenComparing(Map.Entry.<String, Long>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Long>> best = new PriorityQueue<>(rank);
+        followerCounts(tweets, (user, count) -> {
+            if (k == 0) {
+                return;
+            }
+            Map.Entry<String, Long> entry = Map.entry(user, count);
+            if (best.size() < k) {
+                best.add(entry);
+            } else if (rank.compare(entry, best.peek()) > 0) {
+                best.poll();
+                best.add(entry);
+            }
+        });
+        List<String> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Count mentions of each user, as recognized by
+     * Extract.getMentionedUsers(). A tweet that mentions a user several times
+     * counts once.
+     *
+     * @param tweets
+     *            tweets to count, consumed by this method
+     * @param sink
+     *            receives, once for each user in
+     *            Extract.getMentionedUsers() of the tweets, in no particular
+     *            order, that user (lowercase) and the number of tweets
+     *            mentioning them
+     * @throws IOException if a spill file cannot be written or read
+     */
+    public void mentionCounts(Iterator<Tweet> tweets, ObjLongConsumer<String> sink) throws IOException {
+        SpillingAggregator<long[]> counts = new SpillingAggregator<>(spillDirectory, memoryBudget, partitions,
+                COUNT_CODEC, stats);
+        Set<String> mentioned = new HashSet<>();
+        while (tweets.hasNext()) {
+            mentioned.clear();
+            Extract.addMentionedUsers(tweets.next().getText(), mentioned);
+            for (String user : mentioned) {
+                counts.add(user.toLowerCase(), new long[] { 1 });
+            }
+        }
+        counts.finish((user, count) -> sink.accept(user, count[0]));
+    }
+
+    private Path createSpillFile(String prefix) throws IOException {
+        return Files.createTempFile(spillDirectory, prefix, ".spill");
+    }
+
+    private void countSpillFile(Path path) throws IOException {
+        stats.files.incrementAndGet();
+        stats.bytes.addAndGet(Files.size(path));
+    }
+
+    private static final SpillingAggregator.Codec<Set<String>> SET_CODEC = new SpillingAggregator.Codec<Set<String>>() {
+        @Override public long estimateBytes(Set<String> value) {
+            long bytes = 64;
+            for (String s : value) {
+                bytes += SET_ELEMENT_OVERHEAD + 2L * s.length();
+            }
+            return bytes;
+        }
+
+        @Override public long merge(Set<String> aggregate, Set<String> value) {
+            long grown = 0;
+            for (String s : value) {
+                if (aggregate.add(s)) {
+                    grown += SET_ELEMENT_OVERHEAD + 2L * s.length();
+                }
+            }
+            return grown;
+        }
+
+        @Override public void write(DataOutput out, Set<String> value) throws IOException {
+            out.writeInt(value.size());
+            for (String s : value) {
+                out.writeUTF(s);
+            }
+        }
+
+        @Override public Set<String> read(DataInput in) throws IOException {
+            int size = in.readInt();
+            Set<String> value = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                value.add(in.readUTF());
+            }
+            return value;
+        }
+    };
+
+    private static final SpillingAggregator.Codec<long[]> COUNT_CODEC = new SpillingAggregator.Codec<long[]>() {
+        @Override public long estimateBytes(long[] value) {
+            return COUNT_BYTES;
+        }
+
+        @Override public long merge(long[] aggregate, long[] value) {
+            aggregate[0] += value[0];
+            return 0;
+        }
+
+        @Override public void write(DataOutput out, long[] value) throws IOException {
+            out.writeLong(value[0]);
+        }
+
+        @Override public long[] read(DataInput in) throws IOException {
+            return new long[] { in.readLong() };
+        }
+    };
+}
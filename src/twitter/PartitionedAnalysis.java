@@ -0,0 +1,408 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PartitionedAnalysis computes SocialNetwork.guessFollowsGraph() and the
+ * follower counts behind SocialNetwork.influencers() with several worker
+ * processes, so that no single JVM has to hold the whole corpus.
+ *
+ * The coordinator (run()) streams the tweets into one input file per
+ * worker, choosing the file by a hash of the lowercased author. Each worker
+ * is a separate JVM running main() on its file: it builds the partial
+ * follows graph of its tweets and the in-degree each followed user gets
+ * from them, and writes both to an output file. Since the graph's keys are
+ * authors, the partial graphs have disjoint keys, so the coordinator merges
+ * them by union and sums the in-degrees to get exactly the single-process
+ * graph and follower counts.
+ *
+ * Workers and coordinator communicate through files in a work directory;
+ * a worker's standard error goes to a log file there, kept if it fails,
+ * and the last few KB of it are reported in the exception.
+ */
+public class PartitionedAnalysis {
+
+    private static final int MAGIC = 0x54575041; // "TWPA"
+    private static final int BUFFER_BYTES = 1 << 16;
+    // how much of a failed worker's log goes in the exception message
+    private static final int LOG_TAIL_BYTES = 4096;
+    // how long to wait for a killed worker to exit before cleaning up
+    private static final long KILL_WAIT_SECONDS = 10;
+
+    private final int workers;
+    private final Path workDirectory;
+    private final List<String> jvmOptions;
+    /* Rep invariant:
+     *    workers > 0
+     */
+
+    /**
+     * The merged result of a partitioned run.
+     */
+    public static final class Result {
+        private final Map<String, Set<String>> followsGraph;
+        private final Map<String, Long> followerCounts;
+        private final List<String> influencers;
+
+        private Result(Map<String, Set<String>> followsGraph, Map<String, Long> followerCounts) {
+            this.followsGraph = Collections.unmodifiableMap(followsGraph);
+            this.followerCounts = Collections.unmodifiableMap(followerCounts);
+            List<String> ranked = new ArrayList<>(followerCounts.keySet());
+            ranked.sort(Comparator.comparing((String user) -> followerCounts.get(user)).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+            this.influencers = Collections.unmodifiableList(ranked);
+        }
+
+        /**
+         * @return SocialNetwork.guessFollowsGraph() of all the tweets;
+         *         unmodifiable
+         */
+        public Map<String, Set<String>> getFollowsGraph() {
+            return followsGraph;
+        }
+
+        /**
+         * @return the number of followers of every username in the follows
+         *         graph; unmodifiable
+         */
+        public Map<String, Long> getFollowerCounts() {
+            return followerCounts;
+        }
+
+        /**
+         * @return every username in the follows graph, in descending order of
+         *         follower count, as by SocialNetwork.influencers(), with ties
+         *         in alphabetical order; unmodifiable
+         */
+        public List<String> getInfluencers() {
+            return influencers;
+        }
+    }
+
+    /**
+     * Make a coordinator whose workers run with default JVM options.
+     *
+     * @param workers
+     *            number of worker processes, > 0
+     * @param workDirectory
+     *            existing directory for input, output and log files
+     */
+    public PartitionedAnalysis(int workers, Path workDirectory) {
+        this(workers, workDirectory, Collections.emptyList());
+    }
+
+    /**
+     * Make a coordinator.
+     *
+     * @param workers
+     *            number of worker processes, > 0
+     * @param workDirectory
+     *            existing directory for input, output and log files
+     * @param jvmOptions
+     *            options for each worker JVM, such as a heap size "-Xmx2g"
+     */
+    public PartitionedAnalysis(int workers, Path workDirectory, List<String> jvmOptions) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("requires workers > 0");
+        }
+        this.workers = workers;
+        this.workDirectory = workDirectory;
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+    }
+
+    /**
+     * Partition tweets among the workers, run them, and merge their results.
+     *
+     * @param tweets
+     *            tweets to analyze, consumed by this method
+     * @return the merged result
+     * @throws IOException if a file cannot be written or read, or a worker
+     *         fails
+     * @throws InterruptedException if interrupted while waiting for the
+     *         workers, which are then killed
+     */
+    public Result run(Iterator<Tweet> tweets) throws IOException, InterruptedException {
+        Path[] inputs = new Path[workers];
+        Path[] outputs = new Path[workers];
+        Path[] logs = new Path[workers];
+        for (int w = 0; w < workers; w++) {
+            inputs[w] = workDirectory.resolve("input-" + w + ".bin");
+            outputs[w] = workDirectory.resolve("output-" + w + ".bin");
+            logs[w] = workDirectory.resolve("worker-" + w + ".log");
+        }
+        List<Process> processes = new ArrayList<>();
+        boolean succeeded = false;
+        try {
+            partition(tweets, inputs);
+            for (int w = 0; w < workers; w++) {
+                processes.add(startWorker(inputs[w], outputs[w], logs[w]));
+            }
+            for (int w = 0; w < workers; w++) {
+                int exit = processes.get(w).waitFor();
+                if (exit != 0) {
+                    throw new IOException("worker " + w + " exited with status " + exit + ": "
+                            + tail(logs[w], LOG_TAIL_BYTES).trim());
+                }
+            }
+
+            Map<String, Set<String>> followsGraph = new HashMap<>();
+            Map<String, Long> followerCounts = new HashMap<>();
+            for (Path output : outputs) {
+                readPartial(output, followsGraph, followerCounts);
+            }
+            succeeded = true;
+            return new Result(followsGraph, followerCounts);
+        } finally {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            awaitExit(processes);
+            for (int w = 0; w < workers; w++) {
+                Files.deleteIfExists(inputs[w]);
+                Files.deleteIfExists(outputs[w]);
+                Files.deleteIfExists(temporary(outputs[w]));
+                if (succeeded) {
+                    Files.deleteIfExists(logs[w]);
+                }
+            }
+        }
+    }
+
+    /*
+     * Wait a while for killed workers to exit, so they stop writing files
+     * before those are deleted, keeping any interrupt for the caller.
+     */
+    private static void awaitExit(List<Process> processes) {
+        boolean interrupted = false;
+        for (Process process : processes) {
+            while (true) {
+                try {
+                    process.waitFor(KILL_WAIT_SECONDS, TimeUnit.SECONDS);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param output
+     *            a worker's output file
+     * @return the file the worker writes before renaming it to output
+     */
+    static Path temporary(Path output) {
+        return output.resolveSibling(output.getFileName() + ".tmp");
+    }
+
+    /**
+     * @param file
+     *            a text file
+     * @param bytes
+     *            maximum number of bytes to read, > 0
+     * @return the last bytes of file, decoded as UTF-8
+     * @throws IOException if the file cannot be read
+     */
+    static String tail(Path file, int bytes) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            long start = Math.max(0, channel.size() - bytes);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - start));
+            channel.position(start);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+
+    /*
+     * Write each tweet to the input file of its author's partition.
+     */
+    private void partition(Iterator<Tweet> tweets, Path[] inputs) throws IOException {
+        DataOutputStream[] outs = new DataOutputStream[workers];
+        try {
+            for (int w = 0; w < workers; w++) {
+                outs[w] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(inputs[w]), BUFFER_BYTES));
+            }
+            while (tweets.hasNext()) {
+                Tweet tweet = tweets.next();
+                TweetCodec.write(outs[partition(tweet.getAuthor(), workers)], tweet);
+            }
+        } finally {
+            IOException failure = null;
+            for (DataOutputStream out : outs) {
+                if (out == null) {
+                    continue;
+                }
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * @param author
+     *            a tweet author
+     * @param workers
+     *            number of workers, > 0
+     * @return the worker whose partition holds tweets by author, independent
+     *         of the author's case
+     */
+    static int partition(String author, int workers) {
+        int h = author.toLowerCase().hashCode() * 0x9e3779b9;
+        return Math.floorMod(h ^ (h >>> 16), workers);
+    }
+
+    private Process startWorker(Path input, Path output, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionedAnalysis.class.getName());
+        command.add(input.toString());
+        command.add(output.toString());
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(log.toFile())
+                .start();
+    }
+
+    /**
+     * Worker entry point: read a partition's tweets, and write its partial
+     * follows graph and in-degree counts.
+     *
+     * Usage: PartitionedAnalysis input-file output-file
+     *
+     * @param args
+     *            the input file written by the coordinator and the output
+     *            file to write
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("usage: PartitionedAnalysis input-file output-file");
+            System.exit(2);
+        }
+        try {
+            runWorker(Paths.get(args[0]), Paths.get(args[1]));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Build the partial results of one partition.
+     *
+     * @param input
+     *            file of tweets written by the coordinator
+     * @param output
+     *            file to write the partial follows graph and in-degrees to;
+     *            it appears only once complete
+     * @throws IOException if a file cannot be read or written
+     */
+    static void runWorker(Path input, Path output) throws IOException {
+        List<Tweet> tweets = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input), BUFFER_BYTES))) {
+            while (true) {
+                try {
+                    tweets.add(TweetCodec.read(in));
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        Map<String, Set<String>> followsGraph = SocialNetwork.guessFollowsGraph(tweets);
+        tweets = null; // the graph is usually much smaller than the tweets
+
+        Map<String, Long> inDegrees = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : followsGraph.entrySet()) {
+            inDegrees.putIfAbsent(entry.getKey(), 0L);
+            for (String followed : entry.getValue()) {
+                inDegrees.merge(followed, 1L, Long::sum);
+            }
+        }
+
+        Path temporary = temporary(output);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(followsGraph.size());
+            for (Map.Entry<String, Set<String>> entry : followsGraph.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String followed : entry.getValue()) {
+                    out.writeUTF(followed);
+                }
+            }
+            out.writeInt(inDegrees.size());
+            for (Map.Entry<String, Long> entry : inDegrees.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * Merge a worker's output into the global graph and follower counts.
+     */
+    private static void readPartial(Path output, Map<String, Set<String>> followsGraph,
+            Map<String, Long> followerCounts) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(output), BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a worker output file: " + output);
+            }
+            int followers = in.readInt();
+            for (int f = 0; f < followers; f++) {
+                String follower = in.readUTF();
+                int size = in.readInt();
+                Set<String> followed = new HashSet<>();
+                for (int i = 0; i < size; i++) {
+                    followed.add(in.readUTF());
+                }
+                if (followsGraph.put(follower, followed) != null) {
+                    throw new IOException("follower " + follower + " in more than one partition");
+                }
+            }
+            int users = in.readInt();
+            for (int u = 0; u < users; u++) {
+                followerCounts.merge(in.readUTF(), in.readLong(), Long::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.json.JsonException;
+
+/**
+ * PollingIngestor repeatedly fetches a tweet endpoint, such as
+ * Main.SAMPLE_SERVER, and hands each batch of new tweets to its consumers.
+ *
+ * It remembers the highest tweet id it has forwarded (the since-id) and
+ * forwards only tweets with higher ids; tweets at or below the since-id are
+ * skipped by TweetParser without being built. This relies on tweet ids
+ * increasing over time, as Twitter's do.
+ *
+ * Requests are conditional: the ETag and Last-Modified headers of the last
+ * successful response are sent back as If-None-Match and If-Modified-Since,
+ * and a 304 Not Modified response skips the poll without reading a body.
+ *
+ * Polling can be driven by the caller with pollOnce(), or on a schedule with
+ * start(). Scheduled polls that fail are counted and the latest failure is
+ * kept in getLastError(); polling continues.
+ *
+ * A PollingIngestor is safe for concurrent use, but polls are serialized.
+ * Its statistics can be read at any time without waiting for a poll.
+ */
+public class PollingIngestor implements Closeable {
+
+    private final URI endpoint;
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final List<Consumer<List<Tweet>>> consumers = new CopyOnWriteArrayList<>();
+
+    // held for the whole of a poll; guards etag and lastModified, and
+    // serializes writes to sinceId
+    private final Object pollLock = new Object();
+    private volatile long sinceId;
+    private String etag = null;
+    private String lastModified = null;
+    private final AtomicLong pollCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong tweetCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private volatile Exception lastError = null;
+
+    // guarded by lifecycleLock, separate so that close() need not wait for a poll
+    private final Object lifecycleLock = new Object();
+    private ScheduledExecutorService scheduler = null;
+    private boolean closed = false;
+    /* Rep invariant:
+     *    pollCount >= notModifiedCount + errorCount, once concurrent polls
+     *      complete
+     *    sinceId >= the id of every tweet forwarded
+     * Thread safety argument:
+     *    pollOnce() holds pollLock for the whole poll, so polls never overlap,
+     *    consumers see batches in order, and etag, lastModified and sinceId
+     *    are updated by one poll at a time. sinceId and lastError are
+     *    volatile and the counters atomic, so the getters read them without
+     *    waiting for a poll. scheduler and closed are guarded by
+     *    lifecycleLock.
+     */
+
+    /**
+     * Make an ingestor for an endpoint, using a new HttpClient and a 60 second
+     * request timeout.
+     *
+     * @param endpoint
+     *            URI of a server producing a JSON array of tweets in the
+     *            format read by TweetReader
+     */
+    public PollingIngestor(URI endpoint) {
+        this(endpoint, HttpClient.newHttpClient(), Duration.ofSeconds(60), Long.MIN_VALUE);
+    }
+
+    /**
+     * Make an ingestor for an endpoint.
+     *
+     * @param endpoint
+     *            URI of a server producing a JSON array of tweets in the
+     *            format read by TweetReader
+     * @param client
+     *            HTTP client to send requests with
+     * @param requestTimeout
+     *            how long to wait for each response
+     * @param sinceId
+     *            only tweets with higher ids are forwarded, e.g. the since-id
+     *            of an earlier run, or Long.MIN_VALUE for all tweets
+     */
+    public PollingIngestor(URI endpoint, HttpClient client, Duration requestTimeout, long sinceId) {
+        this.endpoint = endpoint;
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+        this.sinceId = sinceId;
+    }
+
+    /**
+     * Add a consumer of new tweets.
+     *
+     * @param consumer
+     *            called with each nonempty batch of new tweets, in the order
+     *            the server listed them, on the thread doing the poll
+     */
+    public void addConsumer(Consumer<List<Tweet>> consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Fetch the endpoint once and forward any new tweets to the consumers.
+     *
+     * @return number of new tweets forwarded; 0 if the server reported the
+     *         sample unchanged or it had no new tweets
+     * @throws IOException if the request fails, the server responds with a
+     *         status other than 200 or 304, or the body is malformed
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    public int pollOnce() throws IOException, InterruptedException {
+        synchronized (pollLock) {
+            return poll();
+        }
+    }
+
+    /*
+     * Do one poll, as pollOnce(). Requires pollLock to be held.
+     */
+    private int poll() throws IOException, InterruptedException {
+        pollCount.incrementAndGet();
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint).timeout(requestTimeout).GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        List<Tweet> batch = new ArrayList<>();
+        long newSinceId = sinceId;
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) {
+                notModifiedCount.incrementAndGet();
+                return 0;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("unexpected status " + response.statusCode() + " from " + endpoint);
+            }
+            try (TweetParser parser = new TweetParser(new InputStreamReader(body, StandardCharsets.UTF_8), sinceId)) {
+                while (parser.hasNext()) {
+                    Tweet tweet = parser.next();
+                    batch.add(tweet);
+                    newSinceId = Math.max(newSinceId, tweet.getId());
+                }
+            } catch (JsonException e) {
+                throw new IOException("malformed tweets from " + endpoint, e);
+            }
+        }
+
+        etag = response.headers().firstValue("ETag").orElse(null);
+        lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        sinceId = newSinceId;
+        tweetCount.addAndGet(batch.size());
+        if (!batch.isEmpty()) {
+            List<Tweet> unmodifiable = Collections.unmodifiableList(batch);
+            for (Consumer<List<Tweet>> consumer : consumers) {
+                consumer.accept(unmodifiable);
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Start polling on a background thread, with a fixed delay between the
+     * end of one poll and the start of the next. Requires that polling has
+     * not been started and the ingestor is not closed.
+     *
+     * @param interval
+     *            delay between polls
+     */
+    public void start(Duration interval) {
+        synchronized (lifecycleLock) {
+            if (scheduler != null || closed) {
+                throw new IllegalStateException("already started or closed");
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PollingIngestor " + endpoint);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::scheduledPoll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop polling, waiting briefly for a poll in progress to finish. The
+     * ingestor cannot be started again.
+     */
+    @Override public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (lifecycleLock) {
+            stopping = scheduler;
+            closed = true;
+        }
+        if (stopping != null) {
+            stopping.shutdownNow();
+            try {
+                stopping.awaitTermination(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void scheduledPoll() {
+        try {
+            pollOnce();
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+            errorCount.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the highest tweet id forwarded so far, or the since-id given
+     *         to the constructor if none
+     */
+    public long getSinceId() {
+        return sinceId;
+    }
+
+    /**
+     * @return number of polls attempted
+     */
+    public long getPollCount() {
+        return pollCount.get();
+    }
+
+    /**
+     * @return number of polls skipped because the server reported the sample
+     *         unchanged
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return number of tweets forwarded
+     */
+    public long getTweetCount() {
+        return tweetCount.get();
+    }
+
+    /**
+     * @return number of scheduled polls that failed
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return the failure of the latest failed scheduled poll, or null if none
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+}
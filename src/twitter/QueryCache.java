@@ -0,0 +1,319 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * QueryCache answers Filter and SocialNetwork queries over a corpus of tweets,
+ * remembering recent results so that repeated queries over an unchanged corpus
+ * are not recomputed.
+ *
+ * The corpus is identified by a version number chosen by the caller, which
+ * must change whenever the tweets change; setting a corpus with a new version
+ * discards every cached result. Queries are normalized before lookup, so
+ * containing(["Rivest", "talk"]) and containing(["TALK", "rivest", "talk"])
+ * share a cache entry, as do writtenBy("alyssa") and writtenBy("ALYSSA").
+ *
+ * Results are evicted in least-recently-used order to keep the estimated
+ * memory used by cached results within a budget. The estimate counts the
+ * result lists and keys but not the tweets, which belong to the corpus.
+ * Hit, miss, eviction and invalidation counts are available for monitoring.
+ *
+ * A QueryCache is safe for concurrent use. Results it returns are unmodifiable.
+ */
+public class QueryCache {
+
+    // rough JVM object sizes used to estimate the memory held by an entry
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+    private static final long LIST_OVERHEAD_BYTES = 32;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long STRING_OVERHEAD_BYTES = 48;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private List<Tweet> tweets = Collections.emptyList();
+    private long version = Long.MIN_VALUE;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+    /* Rep invariant:
+     *    bytes == sum of e.bytes over entries, and bytes <= maxBytes
+     *    every key in entries has key.version == version
+     * Thread safety argument:
+     *    all fields except maxBytes are guarded by this object's lock; results
+     *    are computed outside the lock against an immutable snapshot of the
+     *    corpus, and only stored if the corpus version is still current
+     */
+
+    private enum Kind { WRITTEN_BY, IN_TIMESPAN, CONTAINING, INFLUENCERS }
+
+    /*
+     * Immutable cache key: corpus version plus normalized query.
+     */
+    private static class Key {
+        final long version;
+        final Kind kind;
+        final Object query;
+
+        Key(long version, Kind kind, Object query) {
+            this.version = version;
+            this.kind = kind;
+            this.query = query;
+        }
+
+        @Override public boolean equals(Object thatObject) {
+            if (!(thatObject instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) thatObject;
+            return this.version == that.version
+                    && this.kind == that.kind
+                    && this.query.equals(that.query);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(version, kind, query);
+        }
+    }
+
+    private static class Entry {
+        final List<?> result;
+        final long bytes;
+
+        Entry(List<?> result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Make an empty cache over an empty corpus.
+     *
+     * @param maxBytes
+     *            memory budget for cached results, in estimated bytes.
+     *            Requires maxBytes >= 0; 0 disables caching.
+     */
+    public QueryCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("requires maxBytes >= 0");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Set the corpus that queries run against. If version differs from the
+     * current corpus version, all cached results are discarded.
+     *
+     * @param tweets
+     *            tweets with distinct ids; the cache keeps its own copy
+     * @param version
+     *            version of the corpus; callers must use a new version
+     *            whenever the tweets change
+     */
+    public void setCorpus(List<Tweet> tweets, long version) {
+        List<Tweet> copy = Collections.unmodifiableList(new ArrayList<>(tweets));
+        synchronized (this) {
+            if (version != this.version) {
+                if (!entries.isEmpty()) {
+                    invalidations++;
+                }
+                entries.clear();
+                bytes = 0;
+                this.version = version;
+            }
+            this.tweets = copy;
+        }
+    }
+
+    /**
+     * @return the version of the current corpus
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Cached Filter.writtenBy() over the current corpus.
+     *
+     * @param username
+     *            Twitter username, as for Filter.writtenBy()
+     * @return unmodifiable list equal to Filter.writtenBy(corpus, username)
+     */
+    public List<Tweet> writtenBy(String username) {
+        final String normalized = username.toLowerCase();
+        return lookup(Kind.WRITTEN_BY, normalized,
+                corpus -> Filter.writtenBy(corpus, normalized));
+    }
+
+    /**
+     * Cached Filter.inTimespan() over the current corpus.
+     *
+     * @param timespan
+     *            timespan
+     * @return unmodifiable list equal to Filter.inTimespan(corpus, timespan)
+     */
+    public List<Tweet> inTimespan(Timespan timespan) {
+        return lookup(Kind.IN_TIMESPAN, timespan,
+                corpus -> Filter.inTimespan(corpus, timespan));
+    }
+
+    /**
+     * Cached Filter.containing() over the current corpus.
+     *
+     * @param words
+     *            words to search for, as for Filter.containing()
+     * @return unmodifiable list equal to Filter.containing(corpus, words)
+     */
+    public List<Tweet> containing(List<String> words) {
+        TreeSet<String> distinct = new TreeSet<>();
+        for (String word : words) {
+            distinct.add(word.toLowerCase());
+        }
+        final List<String> normalized = Collections.unmodifiableList(new ArrayList<>(distinct));
+        return lookup(Kind.CONTAINING, normalized,
+                corpus -> Filter.containing(corpus, normalized));
+    }
+
+    /**
+     * Cached influencer ranking of the current corpus.
+     *
+     * @return unmodifiable list equal to
+     *         SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(corpus))
+     */
+    public List<String> influencers() {
+        return lookup(Kind.INFLUENCERS, Kind.INFLUENCERS,
+                corpus -> SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(corpus)));
+    }
+
+    /**
+     * @return number of queries answered from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return number of queries that had to be computed
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return fraction of queries answered from the cache, or 0 if there
+     *         have been no queries
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of results evicted to stay within the memory budget
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return number of times cached results were discarded because the
+     *         corpus version changed
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated bytes held by cached results
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /*
+     * Function computing a query result from a corpus.
+     */
+    private interface Query<T> {
+        List<T> apply(List<Tweet> corpus);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> lookup(Kind kind, Object normalizedQuery, Query<T> query) {
+        final List<Tweet> corpus;
+        final Key key;
+        synchronized (this) {
+            key = new Key(version, kind, normalizedQuery);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return (List<T>) entry.result;
+            }
+            misses++;
+            corpus = tweets;
+        }
+
+        List<T> result = Collections.unmodifiableList(query.apply(corpus));
+        long entryBytes = ENTRY_OVERHEAD_BYTES + estimateBytes(normalizedQuery) + estimateBytes(result);
+
+        synchronized (this) {
+            if (key.version == version && entryBytes <= maxBytes) {
+                Entry previous = entries.put(key, new Entry(result, entryBytes));
+                if (previous != null) {
+                    bytes -= previous.bytes;
+                }
+                bytes += entryBytes;
+                evictToBudget();
+            }
+        }
+        return result;
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /*
+     * Estimate the bytes held by a query or result, counting strings it owns
+     * but not the tweets it refers to.
+     */
+    private static long estimateBytes(Object value) {
+        if (value instanceof String) {
+            return STRING_OVERHEAD_BYTES + 2L * ((String) value).length();
+        }
+        if (value instanceof List) {
+            long total = LIST_OVERHEAD_BYTES;
+            for (Object element : (List<?>) value) {
+                total += REFERENCE_BYTES;
+                if (element instanceof String) {
+                    total += estimateBytes(element);
+                }
+            }
+            return total;
+        }
+        return LIST_OVERHEAD_BYTES;
+    }
+}
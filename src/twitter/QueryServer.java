@@ -0,0 +1,392 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * QueryServer answers Filter, Extract and SocialNetwork queries over an
+ * in-memory corpus of tweets through HTTP GET requests, responding in JSON.
+ *
+ * Endpoints, with parameters in the query string:
+ *   /writtenBy?username=U            tweets by U, as Filter.writtenBy()
+ *   /inTimespan?start=S&end=E        tweets in [S, E], as Filter.inTimespan();
+ *                                    S and E are ISO-8601 instants
+ *   /containing?word=W1&word=W2...   tweets containing any word, as
+ *                                    Filter.containing()
+ *   /timespan                        {"start": S, "end": E}, as
+ *                                    Extract.getTimespan(); 404 if no tweets
+ *   /mentionedUsers                  sorted usernames, as
+ *                                    Extract.getMentionedUsers()
+ *   /influencers?n=N                 the top N usernames of
+ *                                    SocialNetwork.influencers() of the
+ *                                    follows graph (default all)
+ * A tweet is {"id": ..., "author": ..., "text": ..., "timestamp": ...}.
+ * Bad parameters get status 400, unknown paths 404 and other methods 405,
+ * each with a body {"error": message}.
+ *
+ * Each request is handled on its own virtual thread. Requests read an
+ * immutable snapshot of a VersionedCorpus, which ingest replaces atomically
+ * without copying the corpus, so queries never wait for ingest or for each
+ * other. The timespan is kept as an incrementally updated derived index;
+ * mentioned users and influencers are computed at most once per snapshot.
+ * Responses are written with a streaming JsonGenerator rather than built in
+ * memory first.
+ *
+ * The JDK HTTP server flushes headers and body separately, so without
+ * TCP_NODELAY, Nagle's algorithm and the client's delayed ACK add about
+ * 40 ms to every small response. Launch the JVM with
+ * -Dsun.net.httpserver.nodelay=true to avoid this; QueryServer does not
+ * set it, since it applies to every HttpServer in the process.
+ *
+ * A QueryServer is safe for concurrent use.
+ */
+public class QueryServer implements Closeable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private static final DerivedIndex<Timespan> TIMESPAN = DerivedIndex.timespan();
+
+    private final VersionedCorpus corpus = new VersionedCorpus();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(corpus.attach(TIMESPAN)));
+    /* Thread safety argument:
+     *    snapshot is only replaced atomically, by a snapshot of a newer
+     *    corpus version, and each Snapshot is immutable
+     *    except for its memoized results, which are computed once and
+     *    published through CompletableFutures. No monitors are held while
+     *    blocking, so virtual threads never pin their carriers.
+     */
+
+    /*
+     * Immutable view of the corpus at one moment, with whole-corpus results
+     * computed by the first request that needs them while concurrent
+     * requests wait for that computation instead of repeating it.
+     */
+    private static class Snapshot {
+        final VersionedCorpus.Snapshot tweets;
+        private final AtomicReference<CompletableFuture<List<String>>> mentionedUsers = new AtomicReference<>();
+        private final AtomicReference<CompletableFuture<List<String>>> influencers = new AtomicReference<>();
+
+        Snapshot(VersionedCorpus.Snapshot tweets) {
+            this.tweets = tweets;
+        }
+
+        Timespan timespan() {
+            return tweets.getIndex(TIMESPAN);
+        }
+
+        List<String> mentionedUsers() {
+            return memoize(mentionedUsers, () -> Collections.unmodifiableList(
+                    new ArrayList<>(new TreeSet<>(Extract.getMentionedUsers(tweets)))));
+        }
+
+        List<String> influencers() {
+            return memoize(influencers, () -> Collections.unmodifiableList(
+                    SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(tweets))));
+        }
+
+        /*
+         * Return the memoized result, computing it if no other thread is.
+         * If the computing thread fails, it clears memo and rethrows, and
+         * threads waiting on it start over, so a failure is never memoized.
+         */
+        private static <T> T memoize(AtomicReference<CompletableFuture<T>> memo, Supplier<T> compute) {
+            while (true) {
+                CompletableFuture<T> current = memo.get();
+                if (current == null) {
+                    CompletableFuture<T> mine = new CompletableFuture<>();
+                    if (!memo.compareAndSet(null, mine)) {
+                        continue;
+                    }
+                    try {
+                        T result = compute.get();
+                        mine.complete(result);
+                        return result;
+                    } catch (RuntimeException e) {
+                        memo.compareAndSet(mine, null);
+                        mine.completeExceptionally(e);
+                        throw e;
+                    }
+                }
+                try {
+                    return current.join();
+                } catch (CompletionException e) {
+                    memo.compareAndSet(current, null);
+                }
+            }
+        }
+    }
+
+    /*
+     * A request that cannot be answered, with its HTTP status.
+     */
+    private static class QueryException extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Make a server with an empty corpus. It does not accept requests until
+     * started.
+     *
+     * @param address
+     *            address to listen on; port 0 picks a free port
+     * @throws IOException if the address cannot be bound
+     */
+    public QueryServer(InetSocketAddress address) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and close open connections.
+     */
+    @Override public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Replace the corpus. Requests already running finish against the old
+     * corpus.
+     *
+     * @param tweets
+     *            the new corpus, not modified by this method
+     */
+    public void setCorpus(List<Tweet> tweets) {
+        publish(corpus.replace(tweets));
+    }
+
+    /**
+     * Add tweets to the corpus. Requests already running finish against the
+     * old corpus.
+     *
+     * @param tweets
+     *            tweets to append
+     */
+    public void addTweets(List<Tweet> tweets) {
+        publish(corpus.append(tweets));
+    }
+
+    /*
+     * Make a corpus snapshot visible to requests, unless concurrent ingest
+     * has already published a newer one.
+     */
+    private void publish(VersionedCorpus.Snapshot tweets) {
+        Snapshot published = new Snapshot(tweets);
+        snapshot.accumulateAndGet(published,
+                (old, candidate) -> candidate.tweets.getVersion() > old.tweets.getVersion() ? candidate : old);
+    }
+
+    /**
+     * @return the current corpus, unmodifiable
+     */
+    public List<Tweet> getCorpus() {
+        return snapshot.get().tweets;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                throw new QueryException(405, "only GET is supported");
+            }
+            Snapshot current = snapshot.get();
+            Map<String, List<String>> parameters = parseQuery(exchange.getRequestURI());
+            switch (exchange.getRequestURI().getPath()) {
+            case "/writtenBy":
+                writeTweets(exchange, Filter.writtenBy(current.tweets, required(parameters, "username")));
+                break;
+            case "/inTimespan":
+                Instant start = instant(parameters, "start");
+                Instant end = instant(parameters, "end");
+                if (start.isAfter(end)) {
+                    throw new QueryException(400, "start must not be after end");
+                }
+                writeTweets(exchange, Filter.inTimespan(current.tweets, new Timespan(start, end)));
+                break;
+            case "/containing":
+                writeTweets(exchange, Filter.containing(current.tweets,
+                        parameters.getOrDefault("word", Collections.emptyList())));
+                break;
+            case "/timespan":
+                if (current.tweets.isEmpty()) {
+                    throw new QueryException(404, "no tweets");
+                }
+                writeTimespan(exchange, current.timespan());
+                break;
+            case "/mentionedUsers":
+                writeStrings(exchange, current.mentionedUsers());
+                break;
+            case "/influencers":
+                List<String> influencers = current.influencers();
+                int n = count(parameters, "n", influencers.size());
+                writeStrings(exchange, influencers.subList(0, Math.min(n, influencers.size())));
+                break;
+            default:
+                throw new QueryException(404, "no such endpoint: " + exchange.getRequestURI().getPath());
+            }
+        } catch (QueryException e) {
+            writeError(exchange, e.status, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static JsonGenerator startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        return Json.createGenerator(new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8)));
+    }
+
+    private static void writeTweets(HttpExchange exchange, List<Tweet> tweets) throws IOException {
+        try (JsonGenerator json = startJson(exchange, 200)) {
+            json.writeStartArray();
+            for (Tweet tweet : tweets) {
+                json.writeStartObject()
+                        .write("id", tweet.getId())
+                        .write("author", tweet.getAuthor())
+                        .write("text", tweet.getText())
+                        .write("timestamp", tweet.getTimestamp().toString())
+                        .writeEnd();
+            }
+            json.writeEnd();
+        }
+    }
+
+    private static void writeStrings(HttpExchange exchange, List<String> strings) throws IOException {
+        try (JsonGenerator json = startJson(exchange, 200)) {
+            json.writeStartArray();
+            for (String string : strings) {
+                json.write(string);
+            }
+            json.writeEnd();
+        }
+    }
+
+    private static void writeTimespan(HttpExchange exchange, Timespan timespan) throws IOException {
+        try (JsonGenerator json = startJson(exchange, 200)) {
+            json.writeStartObject()
+                    .write("start", timespan.getStart().toString())
+                    .write("end", timespan.getEnd().toString())
+                    .writeEnd();
+        }
+    }
+
+    private static void writeError(HttpExchange exchange, int status, String message) throws IOException {
+        try (JsonGenerator json = startJson(exchange, status)) {
+            json.writeStartObject().write("error", message).writeEnd();
+        }
+    }
+
+    /*
+     * Parse a query string into a map from each parameter name to its
+     * values, in order.
+     */
+    private static Map<String, List<String>> parseQuery(URI uri) throws QueryException {
+        Map<String, List<String>> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.computeIfAbsent(decode(name), k -> new ArrayList<>()).add(decode(value));
+        }
+        return parameters;
+    }
+
+    private static String decode(String encoded) throws QueryException {
+        try {
+            return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new QueryException(400, "malformed query string");
+        }
+    }
+
+    private static String required(Map<String, List<String>> parameters, String name) throws QueryException {
+        List<String> values = parameters.get(name);
+        if (values == null || values.size() != 1) {
+            throw new QueryException(400, "requires exactly one " + name + " parameter");
+        }
+        return values.get(0);
+    }
+
+    private static Instant instant(Map<String, List<String>> parameters, String name) throws QueryException {
+        String value = required(parameters, name);
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new QueryException(400, name + " is not an ISO-8601 instant: " + value);
+        }
+    }
+
+    private static int count(Map<String, List<String>> parameters, String name, int defaultValue)
+            throws QueryException {
+        if (!parameters.containsKey(name)) {
+            return defaultValue;
+        }
+        String value = required(parameters, name);
+        try {
+            int n = Integer.parseInt(value);
+            if (n < 0) {
+                throw new QueryException(400, name + " must not be negative");
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new QueryException(400, name + " is not an integer: " + value);
+        }
+    }
+}
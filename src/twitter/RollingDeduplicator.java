@@ -0,0 +1,134 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RollingDeduplicator drops repeated tweet ids from a long-running stream of
+ * batches while remembering only the ids of recent tweets, so that its memory
+ * stays bounded by the number of tweets sent within a time horizon.
+ *
+ * Time is measured by tweet timestamps, not the clock: the newest timestamp
+ * seen so far is the watermark. Ids are kept in LongHashSets, one per slice
+ * of the horizon; when the watermark moves past a slice's window, that slice
+ * is cleared and reused. Since a tweet's timestamp never changes, a repeat of
+ * a tweet always falls in the same slice as the original and only that slice
+ * is probed.
+ *
+ * Every tweet sent within horizon of the watermark is checked against all
+ * earlier tweets. Ids of tweets sent more than horizon plus one slice before
+ * the watermark have been forgotten, so such late tweets cannot be checked;
+ * they are dropped, and counted by getLateCount(). Between the two, a tweet
+ * is checked or dropped depending on slice boundaries.
+ *
+ * A RollingDeduplicator is not safe for concurrent use.
+ */
+public class RollingDeduplicator {
+
+    private final long sliceMillis;
+    // ring of id sets, sets[floorMod(slice, sets.length)] holds ids of slice
+    private final LongHashSet[] sets;
+    private final long[] sliceOf;
+    private long newestSlice = Long.MIN_VALUE;
+    private long lateCount = 0;
+    /* Rep invariant:
+     *    sliceMillis > 0
+     *    sets.length == sliceOf.length >= 2
+     *    for each i with sets[i] nonempty: sets[i] contains only ids of
+     *    tweets whose timestamp is in slice sliceOf[i], sliceOf[i] <= newestSlice,
+     *    and floorMod(sliceOf[i], sets.length) == i
+     */
+
+    /**
+     * Make an empty rolling deduplicator.
+     *
+     * @param horizon
+     *            how long ids are remembered, measured back from the newest
+     *            tweet timestamp seen; requires a positive duration of at
+     *            least slices milliseconds
+     * @param slices
+     *            number of slices the horizon is divided into, requires
+     *            slices >= 1. More slices forget old ids closer to exactly
+     *            horizon, at the cost of more, smaller tables.
+     */
+    public RollingDeduplicator(Duration horizon, int slices) {
+        if (slices < 1 || horizon.toMillis() < slices) {
+            throw new IllegalArgumentException("requires slices >= 1 and horizon >= slices ms");
+        }
+        this.sliceMillis = horizon.toMillis() / slices;
+        this.sets = new LongHashSet[slices + 1];
+        this.sliceOf = new long[slices + 1];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = new LongHashSet();
+        }
+    }
+
+    /**
+     * Filter a batch of tweets, dropping those whose id was already seen and
+     * those too old to check.
+     *
+     * @param batch
+     *            tweets, not modified by this method
+     * @return the tweets of batch whose ids were not seen before and that
+     *         were not too late to check (see above), in the same order as
+     *         batch
+     */
+    public List<Tweet> addBatch(List<Tweet> batch) {
+        List<Tweet> added = new ArrayList<>();
+        for (Tweet tweet : batch) {
+            if (add(tweet)) {
+                added.add(tweet);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add one tweet.
+     *
+     * @param tweet
+     *            tweet
+     * @return true if the tweet's id was not seen before and the tweet is
+     *         recent enough to check; false if it was a repeat or too late
+     */
+    public boolean add(Tweet tweet) {
+        long slice = Math.floorDiv(tweet.getTimestamp().toEpochMilli(), sliceMillis);
+        if (slice > newestSlice) {
+            newestSlice = slice;
+        } else if (slice <= newestSlice - sets.length) {
+            lateCount++;
+            return false;
+        }
+        int i = (int) Math.floorMod(slice, (long) sets.length);
+        if (sliceOf[i] != slice) {
+            // the slot held a slice that is now outside the horizon
+            sets[i].clear();
+            sliceOf[i] = slice;
+        }
+        return sets[i].add(tweet.getId());
+    }
+
+    /**
+     * @return number of tweets dropped because they were too late to check
+     */
+    public long getLateCount() {
+        return lateCount;
+    }
+
+    /**
+     * @return number of ids currently remembered
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < sets.length; i++) {
+            if (sliceOf[i] > newestSlice - sets.length) {
+                size += sets[i].size();
+            }
+        }
+        return size;
+    }
+}
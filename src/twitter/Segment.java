@@ -0,0 +1,671 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Segment is an immutable file of tweets written by SegmentStore, covering
+ * a range of the store's append sequence numbers.
+ *
+ * The file starts with metadata: format version, tweet count, id range,
+ * timestamp range and a dictionary of the distinct authors. The tweets
+ * follow column by column (ids, timestamp seconds, timestamp nanos, author
+ * dictionary indexes, text offsets, then all texts as UTF-8), so a query can
+ * read and test just the column it filters on and build Tweets only for
+ * matching rows.
+ *
+ * Since format version 2, the tweets are also divided into blocks of
+ * BLOCK_ROWS consecutive rows, and a SplitBlockBloomFilter per block, over
+ * the lowercased words (as defined by Filter.containing()) and authors of
+ * its tweets, is stored after the texts. containing() and writtenBy() skip
+ * the blocks whose filter rules out every term.
+ *
+ * The terms are lowercased with Locale.ROOT, so a file means the same in
+ * every locale. Queries compare case like Filter, in the default locale, so
+ * they use the filters only while the default locale lowercases like
+ * Locale.ROOT (not in Turkish, Azeri or Lithuanian, where I and some
+ * accented letters differ), and scan every block otherwise. Version 2
+ * filters were lowercased in the writer's default locale, which was not
+ * recorded, so version 1 and 2 segments are always scanned in full until
+ * compaction rewrites them.
+ *
+ * Opening a segment reads only its metadata; the block filters are read the
+ * first time a query needs them.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x54575347; // "TWSG"
+    private static final int FORMAT_VERSION = 3;
+    private static final int FIRST_VERSION_WITH_ROOT_FILTERS = 3;
+    static final int BLOCK_ROWS = 1024;
+    private static final int BITS_PER_TERM = 10;
+    private static final long WORD_SEED = 0;
+    private static final long AUTHOR_SEED = 0x9e3779b97f4a7c15L;
+    // magic through dictionary byte length, before the dictionary itself
+    private static final int FIXED_METADATA_BYTES = 4 + 4 + 4 + 8 + 8 + 8 + 4 + 8 + 4 + 4 + 4;
+    private static final Pattern NAME = Pattern.compile("segment-(\\d{16})-(\\d{16})\\.seg");
+
+    private final Path file;
+    private final long firstSequence;
+    private final long lastSequence;
+    private final int count;
+    private final long minId;
+    private final long maxId;
+    private final Instant minTimestamp;
+    private final Instant maxTimestamp;
+    private final String[] authors;
+    private final Set<String> lowerAuthors;
+    private final long columnsStart;
+    private final boolean hasFilters;
+    // read on first use; a race may read them twice, harmlessly
+    private volatile SplitBlockBloomFilter[] filters = null;
+    /* Rep invariant:
+     *    firstSequence <= lastSequence, count > 0
+     *    minId <= maxId, !minTimestamp.isAfter(maxTimestamp)
+     *    lowerAuthors is the set of authors, lowercased with Locale.ROOT
+     *    file holds the columns of count tweets starting at columnsStart,
+     *    followed by block filters over terms lowercased with Locale.ROOT
+     *    if hasFilters
+     *    filters is null or has one filter per BLOCK_ROWS rows (rounded up)
+     */
+
+    /**
+     * Counts of blocks examined and bytes read by queries, shared by the
+     * segments of a store.
+     */
+    static final class BlockCounts {
+        // blocks read and tested row by row
+        final AtomicLong scanned = new AtomicLong();
+        // blocks whose filter ruled out every term
+        final AtomicLong skipped = new AtomicLong();
+        // scanned blocks whose filter passed but that had no matching row
+        final AtomicLong falsePositives = new AtomicLong();
+        // bytes of the segment file read, to scan blocks and build tweets
+        final AtomicLong bytesRead = new AtomicLong();
+    }
+
+    private Segment(Path file, long firstSequence, long lastSequence, int count, long minId, long maxId,
+            Instant minTimestamp, Instant maxTimestamp, String[] authors, long columnsStart, boolean hasFilters) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.lastSequence = lastSequence;
+        this.count = count;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.authors = authors;
+        this.lowerAuthors = new HashSet<>();
+        for (String author : authors) {
+            lowerAuthors.add(author.toLowerCase(Locale.ROOT));
+        }
+        this.columnsStart = columnsStart;
+        this.hasFilters = hasFilters;
+    }
+
+    /**
+     * @param firstSequence
+     *            first sequence number covered
+     * @param lastSequence
+     *            last sequence number covered
+     * @return file name of a segment covering that sequence range
+     */
+    static String fileName(long firstSequence, long lastSequence) {
+        return String.format("segment-%016d-%016d.seg", firstSequence, lastSequence);
+    }
+
+    /**
+     * @param fileName
+     *            a file name
+     * @return true iff fileName is the name of a segment file
+     */
+    static boolean isSegmentFile(String fileName) {
+        return NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Write tweets as a new segment in a directory. The file appears under its
+     * final name only once it is complete.
+     *
+     * @param directory
+     *            directory to write to
+     * @param firstSequence
+     *            first sequence number covered
+     * @param lastSequence
+     *            last sequence number covered, >= firstSequence
+     * @param tweets
+     *            tweets to write, in order, nonempty, not modified by this
+     *            method
+     * @return the written segment
+     * @throws IOException if the file cannot be written
+     */
+    static Segment write(Path directory, long firstSequence, long lastSequence, List<Tweet> tweets) throws IOException {
+        int count = tweets.size();
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        Instant minTimestamp = Instant.MAX;
+        Instant maxTimestamp = Instant.MIN;
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] authorIndexes = new int[count];
+        byte[][] texts = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            Tweet tweet = tweets.get(i);
+            minId = Math.min(minId, tweet.getId());
+            maxId = Math.max(maxId, tweet.getId());
+            if (tweet.getTimestamp().isBefore(minTimestamp)) {
+                minTimestamp = tweet.getTimestamp();
+            }
+            if (tweet.getTimestamp().isAfter(maxTimestamp)) {
+                maxTimestamp = tweet.getTimestamp();
+            }
+            authorIndexes[i] = dictionary.computeIfAbsent(tweet.getAuthor(), author -> dictionary.size());
+            texts[i] = tweet.getText().getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(metadataBytes);
+        metadata.writeInt(MAGIC);
+        metadata.writeInt(FORMAT_VERSION);
+        metadata.writeInt(count);
+        metadata.writeLong(minId);
+        metadata.writeLong(maxId);
+        metadata.writeLong(minTimestamp.getEpochSecond());
+        metadata.writeInt(minTimestamp.getNano());
+        metadata.writeLong(maxTimestamp.getEpochSecond());
+        metadata.writeInt(maxTimestamp.getNano());
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        DataOutputStream dictionaryOut = new DataOutputStream(dictionaryBytes);
+        for (String author : dictionary.keySet()) {
+            dictionaryOut.writeUTF(author);
+        }
+        metadata.writeInt(dictionary.size());
+        metadata.writeInt(dictionaryBytes.size());
+        dictionaryBytes.writeTo(metadata);
+        metadata.flush();
+
+        Path target = directory.resolve(fileName(firstSequence, lastSequence));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporary);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            metadataBytes.writeTo(out);
+            for (Tweet tweet : tweets) {
+                out.writeLong(tweet.getId());
+            }
+            for (Tweet tweet : tweets) {
+                out.writeLong(tweet.getTimestamp().getEpochSecond());
+            }
+            for (Tweet tweet : tweets) {
+                out.writeInt(tweet.getTimestamp().getNano());
+            }
+            for (int authorIndex : authorIndexes) {
+                out.writeInt(authorIndex);
+            }
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] text : texts) {
+                offset += text.length;
+                out.writeInt(offset);
+            }
+            for (byte[] text : texts) {
+                out.write(text);
+            }
+            out.writeInt(BLOCK_ROWS);
+            for (int start = 0; start < count; start += BLOCK_ROWS) {
+                blockFilter(tweets.subList(start, Math.min(count, start + BLOCK_ROWS))).writeTo(out);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+        return new Segment(target, firstSequence, lastSequence, count, minId, maxId, minTimestamp, maxTimestamp,
+                dictionary.keySet().toArray(new String[0]), metadataBytes.size(), true);
+    }
+
+    /*
+     * Make the filter of the words and authors of a block of tweets, sized
+     * for its distinct terms.
+     */
+    private static SplitBlockBloomFilter blockFilter(List<Tweet> block) {
+        LongHashSet distinct = new LongHashSet();
+        long[] hashes = new long[64];
+        int size = 0;
+        for (Tweet tweet : block) {
+            String text = tweet.getText();
+            int i = 0;
+            while (i < text.length()) {
+                while (i < text.length() && WordMatcher.isSpace(text.charAt(i))) {
+                    i++;
+                }
+                int start = i;
+                while (i < text.length() && !WordMatcher.isSpace(text.charAt(i))) {
+                    i++;
+                }
+                if (i > start) {
+                    long hash = SplitBlockBloomFilter.hash(text.substring(start, i).toLowerCase(Locale.ROOT),
+                            WORD_SEED);
+                    if (distinct.add(hash)) {
+                        if (size == hashes.length) {
+                            hashes = Arrays.copyOf(hashes, size * 2);
+                        }
+                        hashes[size++] = hash;
+                    }
+                }
+            }
+            long hash = SplitBlockBloomFilter.hash(tweet.getAuthor().toLowerCase(Locale.ROOT), AUTHOR_SEED);
+            if (distinct.add(hash)) {
+                if (size == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, size * 2);
+                }
+                hashes[size++] = hash;
+            }
+        }
+        SplitBlockBloomFilter filter = new SplitBlockBloomFilter(size, BITS_PER_TERM);
+        for (int h = 0; h < size; h++) {
+            filter.add(hashes[h]);
+        }
+        return filter;
+    }
+
+    /**
+     * Open a segment file, reading only its metadata.
+     *
+     * @param file
+     *            a segment file, as named by fileName()
+     * @return the segment
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    static Segment open(Path file) throws IOException {
+        Matcher name = NAME.matcher(file.getFileName().toString());
+        if (!name.matches()) {
+            throw new IOException("not a segment file name: " + file);
+        }
+        try (InputStream stream = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a segment file: " + file);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("unsupported segment format " + version + ": " + file);
+            }
+            int count = in.readInt();
+            long minId = in.readLong();
+            long maxId = in.readLong();
+            Instant minTimestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            Instant maxTimestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            String[] authors = new String[in.readInt()];
+            long columnsStart = FIXED_METADATA_BYTES + in.readInt();
+            for (int i = 0; i < authors.length; i++) {
+                authors[i] = in.readUTF();
+            }
+            return new Segment(file, Long.parseLong(name.group(1)), Long.parseLong(name.group(2)), count,
+                    minId, maxId, minTimestamp, maxTimestamp, authors, columnsStart,
+                    version >= FIRST_VERSION_WITH_ROOT_FILTERS);
+        } catch (EOFException e) {
+            throw new IOException("truncated segment file: " + file, e);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @param timespan
+     *            a timespan
+     * @return false if no tweet in this segment can be in timespan
+     */
+    boolean mayOverlap(Timespan timespan) {
+        return !maxTimestamp.isBefore(timespan.getStart()) && !minTimestamp.isAfter(timespan.getEnd());
+    }
+
+    /**
+     * @param lowerUsername
+     *            a username, lowercase
+     * @return false if no tweet in this segment can be by that user
+     */
+    boolean hasAuthor(String lowerUsername) {
+        return !foldsLikeRoot() || lowerAuthors.contains(lowerUsername);
+    }
+
+    /**
+     * @return all tweets of this segment, in order
+     * @throws IOException if the file cannot be read
+     */
+    List<Tweet> readAll() throws IOException {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        return materialize(rows, null, null);
+    }
+
+    /**
+     * @param timespan
+     *            a timespan
+     * @return tweets of this segment in timespan, in order
+     * @throws IOException if the file cannot be read
+     */
+    List<Tweet> inTimespan(Timespan timespan) throws IOException {
+        long startSecond = timespan.getStart().getEpochSecond();
+        long endSecond = timespan.getEnd().getEpochSecond();
+        ByteBuffer seconds = read(secondsStart(), 8L * count);
+        ByteBuffer nanos = null;
+        int[] rows = new int[count];
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            long second = seconds.getLong(8 * i);
+            if (second < startSecond || second > endSecond) {
+                continue;
+            }
+            if (second == startSecond || second == endSecond) {
+                // only tweets in a boundary second need their nanos compared
+                if (nanos == null) {
+                    nanos = read(nanosStart(), 4L * count);
+                }
+                Instant timestamp = Instant.ofEpochSecond(second, nanos.getInt(4 * i));
+                if (timestamp.isBefore(timespan.getStart()) || timestamp.isAfter(timespan.getEnd())) {
+                    continue;
+                }
+            }
+            rows[matches++] = i;
+        }
+        return materialize(Arrays.copyOf(rows, matches), null, null);
+    }
+
+    /**
+     * @param lowerUsername
+     *            a username, lowercase
+     * @param counts
+     *            counts to add the blocks examined to
+     * @return tweets of this segment by that user, in order
+     * @throws IOException if the file cannot be read
+     */
+    List<Tweet> writtenBy(String lowerUsername, BlockCounts counts) throws IOException {
+        boolean[] matching = new boolean[authors.length];
+        for (int a = 0; a < authors.length; a++) {
+            matching[a] = authors[a].toLowerCase().equals(lowerUsername);
+        }
+        long[] hashes = { SplitBlockBloomFilter.hash(lowerUsername.toLowerCase(Locale.ROOT), AUTHOR_SEED) };
+        SplitBlockBloomFilter[] blockFilters = filters();
+        int[] rows = new int[count];
+        int matches = 0;
+        for (int start = 0; start < count; start += BLOCK_ROWS) {
+            int end = Math.min(count, start + BLOCK_ROWS);
+            if (!mayMatch(blockFilters, start, hashes, counts)) {
+                continue;
+            }
+            ByteBuffer authorColumn = read(authorsStart() + 4L * start, 4L * (end - start), counts);
+            int before = matches;
+            for (int i = start; i < end; i++) {
+                if (matching[authorColumn.getInt(4 * (i - start))]) {
+                    rows[matches++] = i;
+                }
+            }
+            countScanned(blockFilters, matches > before, counts);
+        }
+        return materialize(Arrays.copyOf(rows, matches), null, counts);
+    }
+
+    /**
+     * @param matcher
+     *            matcher for the words searched for
+     * @param lowerWords
+     *            the words searched for, lowercase, nonempty
+     * @param counts
+     *            counts to add the blocks examined to
+     * @return tweets of this segment containing one of the words, as defined
+     *         by Filter.containing(), in order
+     * @throws IOException if the file cannot be read
+     */
+    List<Tweet> containing(WordMatcher matcher, Collection<String> lowerWords, BlockCounts counts) throws IOException {
+        long[] hashes = new long[lowerWords.size()];
+        int h = 0;
+        for (String word : lowerWords) {
+            hashes[h++] = SplitBlockBloomFilter.hash(word.toLowerCase(Locale.ROOT), WORD_SEED);
+        }
+        SplitBlockBloomFilter[] blockFilters = filters();
+        ByteBuffer offsets = null;
+        int[] rows = new int[count];
+        int matches = 0;
+        for (int start = 0; start < count; start += BLOCK_ROWS) {
+            int end = Math.min(count, start + BLOCK_ROWS);
+            if (!mayMatch(blockFilters, start, hashes, counts)) {
+                continue;
+            }
+            if (offsets == null) {
+                offsets = read(offsetsStart(), 4L * (count + 1), counts);
+            }
+            int firstText = offsets.getInt(4 * start);
+            ByteBuffer texts = read(textsStart() + firstText, offsets.getInt(4 * end) - firstText, counts);
+            int before = matches;
+            for (int i = start; i < end; i++) {
+                int textStart = offsets.getInt(4 * i);
+                String text = new String(texts.array(), textStart - firstText,
+                        offsets.getInt(4 * (i + 1)) - textStart, StandardCharsets.UTF_8);
+                if (matcher.matchesAny(text)) {
+                    rows[matches++] = i;
+                }
+            }
+            countScanned(blockFilters, matches > before, counts);
+        }
+        return materialize(Arrays.copyOf(rows, matches), offsets, counts);
+    }
+
+    /*
+     * Test whether the block starting at row start may hold any of the
+     * hashed terms, counting it as skipped if not.
+     */
+    private static boolean mayMatch(SplitBlockBloomFilter[] blockFilters, int start, long[] hashes,
+            BlockCounts counts) {
+        if (blockFilters == null) {
+            return true;
+        }
+        SplitBlockBloomFilter filter = blockFilters[start / BLOCK_ROWS];
+        for (long hash : hashes) {
+            if (filter.mightContain(hash)) {
+                return true;
+            }
+        }
+        counts.skipped.incrementAndGet();
+        return false;
+    }
+
+    private static void countScanned(SplitBlockBloomFilter[] blockFilters, boolean matched, BlockCounts counts) {
+        counts.scanned.incrementAndGet();
+        if (blockFilters != null && !matched) {
+            counts.falsePositives.incrementAndGet();
+        }
+    }
+
+    /*
+     * @return the block filters, or null if this segment has none or the
+     *         default locale lowercases differently from the filters
+     */
+    private SplitBlockBloomFilter[] filters() throws IOException {
+        if (!hasFilters || !foldsLikeRoot()) {
+            return null;
+        }
+        SplitBlockBloomFilter[] loaded = filters;
+        if (loaded != null) {
+            return loaded;
+        }
+        long filtersStart = textsStart() + read(offsetsStart() + 4L * count, 4).getInt(0);
+        long fileSize;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileSize = channel.size();
+        }
+        ByteBuffer in = read(filtersStart, fileSize - filtersStart);
+        try {
+            if (in.getInt() != BLOCK_ROWS) {
+                throw new IOException("unsupported block size in segment file: " + file);
+            }
+            loaded = new SplitBlockBloomFilter[(count + BLOCK_ROWS - 1) / BLOCK_ROWS];
+            for (int b = 0; b < loaded.length; b++) {
+                loaded[b] = SplitBlockBloomFilter.readFrom(in);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("corrupt block filters in segment file: " + file, e);
+        }
+        filters = loaded;
+        return loaded;
+    }
+
+    /*
+     * @return true iff the default locale lowercases like Locale.ROOT: the
+     *         JDK special-cases only Turkish and Azeri dotted and dotless i
+     *         and Lithuanian i with accents, all covered by the probe
+     */
+    private static boolean foldsLikeRoot() {
+        String probe = "I\u0130\u00cc\u00cd\u0128J\u0300\u012e\u0300";
+        return probe.toLowerCase().equals(probe.toLowerCase(Locale.ROOT));
+    }
+
+    private long secondsStart() {
+        return columnsStart + 8L * count;
+    }
+
+    private long nanosStart() {
+        return secondsStart() + 8L * count;
+    }
+
+    private long authorsStart() {
+        return nanosStart() + 4L * count;
+    }
+
+    private long offsetsStart() {
+        return authorsStart() + 4L * count;
+    }
+
+    private long textsStart() {
+        return offsetsStart() + 4L * (count + 1);
+    }
+
+    /*
+     * Build the tweets at the given rows, in increasing order, reading for
+     * each block only its columns and texts from its first to its last
+     * given row. offsets is the whole text offsets column if already read,
+     * else null; counts is where to add the bytes read, or null.
+     */
+    private List<Tweet> materialize(int[] rows, ByteBuffer offsets, BlockCounts counts) throws IOException {
+        if (rows.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Tweet> tweets = new ArrayList<>(rows.length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int r = 0;
+            while (r < rows.length) {
+                int block = rows[r] / BLOCK_ROWS;
+                int last = r;
+                while (last + 1 < rows.length && rows[last + 1] / BLOCK_ROWS == block) {
+                    last++;
+                }
+                int first = rows[r];
+                int span = rows[last] + 1 - first;
+                ByteBuffer ids = read(channel, columnsStart + 8L * first, 8L * span, counts);
+                ByteBuffer seconds = read(channel, secondsStart() + 8L * first, 8L * span, counts);
+                ByteBuffer nanos = read(channel, nanosStart() + 4L * first, 4L * span, counts);
+                ByteBuffer authorIndexes = read(channel, authorsStart() + 4L * first, 4L * span, counts);
+                int[] textOffsets = new int[span + 1];
+                if (offsets != null) {
+                    for (int i = 0; i <= span; i++) {
+                        textOffsets[i] = offsets.getInt(4 * (first + i));
+                    }
+                } else {
+                    ByteBuffer spanOffsets = read(channel, offsetsStart() + 4L * first, 4L * (span + 1), counts);
+                    for (int i = 0; i <= span; i++) {
+                        textOffsets[i] = spanOffsets.getInt(4 * i);
+                    }
+                }
+                ByteBuffer texts = read(channel, textsStart() + textOffsets[0], textOffsets[span] - textOffsets[0],
+                        counts);
+
+                for (; r <= last; r++) {
+                    int i = rows[r] - first;
+                    String text = new String(texts.array(), textOffsets[i] - textOffsets[0],
+                            textOffsets[i + 1] - textOffsets[i], StandardCharsets.UTF_8);
+                    tweets.add(new Tweet(ids.getLong(8 * i),
+                            authors[authorIndexes.getInt(4 * i)],
+                            text,
+                            Instant.ofEpochSecond(seconds.getLong(8 * i), nanos.getInt(4 * i))));
+                }
+            }
+        }
+        return tweets;
+    }
+
+    private ByteBuffer read(long position, long length) throws IOException {
+        return read(position, length, null);
+    }
+
+    private ByteBuffer read(long position, long length, BlockCounts counts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, position, length, counts);
+        }
+    }
+
+    /*
+     * Read length bytes at position, adding them to counts unless it is null.
+     */
+    private ByteBuffer read(FileChannel channel, long position, long length, BlockCounts counts) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("segment too large: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("truncated segment file: " + file);
+            }
+        }
+        if (counts != null) {
+            counts.bytesRead.addAndGet(length);
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,496 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SegmentStore keeps tweets on disk so they need not be reloaded with
+ * TweetReader after a restart.
+ *
+ * Each append writes its batch as a new immutable Segment file, with a
+ * columnar layout and metadata giving its id range, timestamp range and
+ * authors. The store is the concatenation of its segments in append order.
+ * inTimespan(), writtenBy() and containing() give the same results as the
+ * Filter methods of the same names applied to getAll(), but skip segments
+ * whose metadata shows they cannot match, and build Tweets only for
+ * matching rows of the rest. Within a segment, writtenBy() and containing()
+ * also skip each block of rows whose Bloom filter rules out every username
+ * or word searched for, and build tweets from the columns of matching rows
+ * only; getBlockSkipRate(), getFalsePositiveRate() and getBytesRead() report
+ * how well this works.
+ *
+ * Compaction merges runs of consecutive small segments into one, keeping the
+ * order of the tweets; it can be run by compact() or on a schedule with
+ * startCompaction(). A merged segment is named after the range of append
+ * sequence numbers it covers, so if compaction is interrupted, reopening
+ * the store discards whichever files a complete merged segment covers.
+ *
+ * Opening a store reads only segment metadata, not tweets.
+ *
+ * A SegmentStore is safe for concurrent use. Appends are serialized;
+ * queries run concurrently with each other, with appends and with
+ * compaction.
+ */
+public class SegmentStore implements Closeable {
+
+    private static final int DEFAULT_SMALL_SEGMENT_SIZE = 4096;
+
+    private final Path directory;
+    private final int smallSegmentSize;
+
+    // written only while holding this object's lock
+    private volatile List<Segment> segments;
+    // guarded by this
+    private long nextSequence;
+
+    // read-locked while scanning segment files, write-locked to delete them
+    private final ReadWriteLock filesLock = new ReentrantReadWriteLock();
+    // held for a whole compaction, so compactions never overlap
+    private final Object compactionLock = new Object();
+
+    private final AtomicLong segmentsScanned = new AtomicLong();
+    private final AtomicLong segmentsPruned = new AtomicLong();
+    private final Segment.BlockCounts blockCounts = new Segment.BlockCounts();
+    private volatile IOException lastCompactionError = null;
+
+    // guarded by lifecycleLock
+    private final Object lifecycleLock = new Object();
+    private ScheduledExecutorService scheduler = null;
+    private boolean closed = false;
+    /* Rep invariant:
+     *    smallSegmentSize > 0
+     *    segments is unmodifiable, sorted by sequence range, and the ranges
+     *    are disjoint and all below nextSequence
+     *    every segment in segments has a file in directory
+     * Thread safety argument:
+     *    segments is an immutable list replaced (never modified) under this
+     *    object's lock, and published through a volatile field, so queries
+     *    read a consistent list without locking it. Segment files are
+     *    immutable once written; a query holds filesLock's read lock while
+     *    it reads them, and compaction deletes the files it replaced only
+     *    under the write lock, after removing them from segments.
+     *    compactionLock serializes compactions, so the segments a compaction
+     *    merges stay in segments (appends only add after them) until it
+     *    replaces them. scheduler and closed are guarded by lifecycleLock.
+     */
+
+    /**
+     * Open a store, treating segments of fewer than 4096 tweets as small.
+     *
+     * @param directory
+     *            directory of the store; created if it does not exist
+     * @throws IOException if the directory cannot be created or read, or
+     *         holds a segment file that cannot be read
+     */
+    public SegmentStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SMALL_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a store.
+     *
+     * @param directory
+     *            directory of the store; created if it does not exist
+     * @param smallSegmentSize
+     *            segments with fewer tweets are merged by compaction, requires
+     *            smallSegmentSize > 0
+     * @throws IOException if the directory cannot be created or read, or
+     *         holds a segment file that cannot be read
+     */
+    public SegmentStore(Path directory, int smallSegmentSize) throws IOException {
+        if (smallSegmentSize <= 0) {
+            throw new IllegalArgumentException("requires smallSegmentSize > 0");
+        }
+        this.directory = directory;
+        this.smallSegmentSize = smallSegmentSize;
+        Files.createDirectories(directory);
+
+        List<Segment> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // left by an interrupted write
+                } else if (Segment.isSegmentFile(name)) {
+                    found.add(Segment.open(file));
+                }
+            }
+        }
+        // widest range first among equal starts, so covered segments follow
+        // the segment that covers them
+        found.sort(Comparator.comparingLong(Segment::getFirstSequence)
+                .thenComparing(Comparator.comparingLong(Segment::getLastSequence).reversed()));
+        List<Segment> live = new ArrayList<>();
+        for (Segment segment : found) {
+            Segment previous = live.isEmpty() ? null : live.get(live.size() - 1);
+            if (previous != null && segment.getLastSequence() <= previous.getLastSequence()) {
+                Files.delete(segment.getFile()); // already merged by an interrupted compaction
+            } else if (previous != null && segment.getFirstSequence() <= previous.getLastSequence()) {
+                throw new IOException("overlapping segments " + previous.getFile() + " and " + segment.getFile());
+            } else {
+                live.add(segment);
+            }
+        }
+        this.segments = Collections.unmodifiableList(live);
+        this.nextSequence = live.isEmpty() ? 0 : live.get(live.size() - 1).getLastSequence() + 1;
+    }
+
+    /**
+     * Append tweets to the store as a new segment.
+     *
+     * @param tweets
+     *            tweets to append, in order, not modified by this method; an
+     *            empty list changes nothing
+     * @throws IOException if the segment cannot be written, in which case
+     *         the store is unchanged
+     */
+    public synchronized void append(List<Tweet> tweets) throws IOException {
+        if (tweets.isEmpty()) {
+            return;
+        }
+        Segment segment = Segment.write(directory, nextSequence, nextSequence, tweets);
+        nextSequence++;
+        List<Segment> appended = new ArrayList<>(segments);
+        appended.add(segment);
+        segments = Collections.unmodifiableList(appended);
+    }
+
+    /**
+     * @return all tweets in the store, in append order
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Tweet> getAll() throws IOException {
+        List<Tweet> result = new ArrayList<>();
+        filesLock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segmentsScanned.incrementAndGet();
+                result.addAll(segment.readAll());
+            }
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Find tweets in the store that were sent during a timespan.
+     *
+     * @param timespan
+     *            timespan
+     * @return the same as Filter.inTimespan(getAll(), timespan)
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Tweet> inTimespan(Timespan timespan) throws IOException {
+        List<Tweet> result = new ArrayList<>();
+        filesLock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                if (!segment.mayOverlap(timespan)) {
+                    segmentsPruned.incrementAndGet();
+                    continue;
+                }
+                segmentsScanned.incrementAndGet();
+                result.addAll(segment.inTimespan(timespan));
+            }
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Find tweets in the store written by a particular user.
+     *
+     * @param username
+     *            Twitter username, required to be a valid Twitter username as
+     *            defined by Tweet.getAuthor()'s spec
+     * @return the same as Filter.writtenBy(getAll(), username)
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Tweet> writtenBy(String username) throws IOException {
+        String lowerUsername = username.toLowerCase();
+        List<Tweet> result = new ArrayList<>();
+        filesLock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                if (!segment.hasAuthor(lowerUsername)) {
+                    segmentsPruned.incrementAndGet();
+                    continue;
+                }
+                segmentsScanned.incrementAndGet();
+                result.addAll(segment.writtenBy(lowerUsername, blockCounts));
+            }
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Find tweets in the store that contain certain words.
+     *
+     * @param words
+     *            a list of words to search for, each a nonempty sequence of
+     *            nonspace characters
+     * @return the same as Filter.containing(getAll(), words)
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Tweet> containing(List<String> words) throws IOException {
+        List<Tweet> result = new ArrayList<>();
+        if (words.isEmpty()) {
+            return result;
+        }
+        WordMatcher matcher = new WordMatcher(words);
+        Set<String> lowerWords = new HashSet<>();
+        for (String word : words) {
+            lowerWords.add(word.toLowerCase());
+        }
+        filesLock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                segmentsScanned.incrementAndGet();
+                result.addAll(segment.containing(matcher, lowerWords, blockCounts));
+            }
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * @return number of tweets in the store
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return number of segments in the store
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return number of segments read by queries so far
+     */
+    public long getSegmentsScanned() {
+        return segmentsScanned.get();
+    }
+
+    /**
+     * @return number of segments queries skipped using segment metadata
+     */
+    public long getSegmentsPruned() {
+        return segmentsPruned.get();
+    }
+
+    /**
+     * @return number of blocks writtenBy() and containing() read and tested
+     *         row by row so far
+     */
+    public long getBlocksScanned() {
+        return blockCounts.scanned.get();
+    }
+
+    /**
+     * @return number of blocks writtenBy() and containing() skipped because
+     *         their Bloom filter ruled out every term
+     */
+    public long getBlocksSkipped() {
+        return blockCounts.skipped.get();
+    }
+
+    /**
+     * @return number of blocks writtenBy() and containing() scanned because
+     *         their Bloom filter passed, but that held no match
+     */
+    public long getFalsePositiveBlocks() {
+        return blockCounts.falsePositives.get();
+    }
+
+    /**
+     * @return fraction of the blocks examined by writtenBy() and containing()
+     *         that were skipped, or 0 if none were examined
+     */
+    public double getBlockSkipRate() {
+        long skipped = getBlocksSkipped();
+        long examined = skipped + getBlocksScanned();
+        return examined == 0 ? 0 : (double) skipped / examined;
+    }
+
+    /**
+     * @return fraction of the blocks with no match that their Bloom filter
+     *         failed to rule out, or 0 if there were none
+     */
+    public double getFalsePositiveRate() {
+        long falsePositives = getFalsePositiveBlocks();
+        long negatives = falsePositives + getBlocksSkipped();
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    /**
+     * @return number of bytes of segment files writtenBy() and containing()
+     *         read so far, to scan blocks and build the matching tweets
+     */
+    public long getBytesRead() {
+        return blockCounts.bytesRead.get();
+    }
+
+    /**
+     * @return the failure of the latest scheduled compaction that failed, or
+     *         null if none has failed
+     */
+    public IOException getLastCompactionError() {
+        return lastCompactionError;
+    }
+
+    /**
+     * Merge every run of two or more consecutive small segments into a single
+     * segment. Queries may run during compaction and see the store either
+     * before or after each merge; the tweets and their order are unchanged.
+     *
+     * @return number of segments removed by merging
+     * @throws IOException if a segment cannot be read or written; merges
+     *         already completed are kept
+     */
+    public int compact() throws IOException {
+        synchronized (compactionLock) {
+            int removed = 0;
+            List<Segment> run;
+            while ((run = nextRun(segments)) != null) {
+                merge(run);
+                removed += run.size() - 1;
+            }
+            return removed;
+        }
+    }
+
+    /*
+     * Find the first run of two or more consecutive small segments, or null
+     * if there is none.
+     */
+    private List<Segment> nextRun(List<Segment> current) {
+        int start = 0;
+        while (start < current.size()) {
+            int end = start;
+            while (end < current.size() && current.get(end).size() < smallSegmentSize) {
+                end++;
+            }
+            if (end - start >= 2) {
+                return current.subList(start, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    private void merge(List<Segment> run) throws IOException {
+        List<Tweet> tweets = new ArrayList<>();
+        filesLock.readLock().lock();
+        try {
+            for (Segment segment : run) {
+                tweets.addAll(segment.readAll());
+            }
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        Segment merged = Segment.write(directory, run.get(0).getFirstSequence(),
+                run.get(run.size() - 1).getLastSequence(), tweets);
+
+        synchronized (this) {
+            List<Segment> current = segments;
+            int start = current.indexOf(run.get(0));
+            List<Segment> replaced = new ArrayList<>(current.subList(0, start));
+            replaced.add(merged);
+            replaced.addAll(current.subList(start + run.size(), current.size()));
+            segments = Collections.unmodifiableList(replaced);
+        }
+
+        filesLock.writeLock().lock();
+        try {
+            for (Segment segment : run) {
+                Files.delete(segment.getFile());
+            }
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Start compacting in the background, with a fixed delay between the end
+     * of one compaction and the start of the next. Failures are kept in
+     * getLastCompactionError() and compaction continues. Requires that
+     * compaction has not been started and the store is not closed.
+     *
+     * @param interval
+     *            delay between compactions, requires interval > 0
+     */
+    public void startCompaction(Duration interval) {
+        synchronized (lifecycleLock) {
+            if (scheduler != null || closed) {
+                throw new IllegalStateException("already started or closed");
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "SegmentStore compaction " + directory);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::scheduledCompaction,
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledCompaction() {
+        try {
+            compact();
+        } catch (IOException e) {
+            lastCompactionError = e;
+        }
+    }
+
+    /**
+     * Stop background compaction, waiting for a compaction in progress to
+     * finish. The store's tweets stay on disk and it can still be queried
+     * and appended to; compaction cannot be started again.
+     */
+    @Override public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (lifecycleLock) {
+            stopping = scheduler;
+            closed = true;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
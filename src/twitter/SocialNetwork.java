@@ -30,6 +30,9 @@ import java.util.regex.Pattern;
  */
 public class SocialNetwork {
 
+    // Pattern to match @-mentions: @ followed by alphanumeric characters and underscores
+    private static final Pattern MENTION_PATTERN = Pattern.compile("@([A-Za-z0-9_]+)");
+
     /**
      * Guess who might follow whom, from evidence found in tweets.
      *
@@ -46,25 +49,13 @@ public class SocialNetwork {
      *         either authors or @-mentions in the list of tweets.
      */
     public static Map<String, Set<String>> guessFollowsGraph(List<Tweet> tweets) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.GUESS_FOLLOWS_GRAPH);
         Map<String, Set<String>> followsGraph = new HashMap<>();
 
-        // Pattern to match @-mentions: @ followed by alphanumeric characters and underscores
-        Pattern mentionPattern = Pattern.compile("@([A-Za-z0-9_]+)");
-
         for (Tweet tweet : tweets) {
             String author = tweet.getAuthor().toLowerCase();
             Set<String> mentions = new HashSet<>();
-
-            // Extract all @-mentions from the tweet text
-            Matcher matcher = mentionPattern.matcher(tweet.getText());
-            while (matcher.find()) {
-                String mentioned = matcher.group(1).toLowerCase();
-
-                // Users can't follow themselves
-                if (!mentioned.equals(author)) {
-                    mentions.add(mentioned);
-                }
-            }
+            addFollowed(author, tweet.getText(), mentions);
 
             // Add to the graph
             if (!mentions.isEmpty()) {
@@ -76,9 +67,41 @@ public class SocialNetwork {
             }
         }
 
+        if (span != null) {
+            long edges = 0;
+            for (Set<String> followed : followsGraph.values()) {
+                edges += followed.size();
+            }
+            Metrics.count(Metrics.Counter.EDGES_CREATED, edges);
+        }
+        Metrics.finish(span, tweets.size(), followsGraph.size());
         return followsGraph;
     }
 
+    /**
+     * Add the users a tweet is evidence that its author follows, as used by
+     * guessFollowsGraph().
+     *
+     * @param author
+     *            the tweet's author, lowercase
+     * @param text
+     *            the tweet's text
+     * @param followed
+     *            set to add the followed usernames to, lowercase
+     */
+    static void addFollowed(String author, String text, Set<String> followed) {
+        // Extract all @-mentions from the tweet text
+        Matcher matcher = MENTION_PATTERN.matcher(text);
+        while (matcher.find()) {
+            String mentioned = matcher.group(1).toLowerCase();
+
+            // Users can't follow themselves
+            if (!mentioned.equals(author)) {
+                followed.add(mentioned);
+            }
+        }
+    }
+
     /**
      * Find the people in a social network who have the greatest influence, in
      * the sense that they have the most followers.
@@ -89,6 +112,7 @@ public class SocialNetwork {
      *         descending order of follower count.
      */
     public static List<String> influencers(Map<String, Set<String>> followsGraph) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.INFLUENCERS);
         // Count followers for each user
         Map<String, Integer> followerCount = new HashMap<>();
 
@@ -114,6 +138,7 @@ public class SocialNetwork {
             return Integer.compare(count2, count1);
         });
 
+        Metrics.finish(span, followsGraph.size(), influencers.size());
         return influencers;
     }
 
@@ -0,0 +1,257 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * A SpillingAggregator combines values by key, like Map.merge(), using a
+ * bounded amount of heap.
+ *
+ * Partial aggregates are kept in a hash map until its estimated size exceeds
+ * the memory budget; then every entry is written to one of a fixed number of
+ * partition files, chosen by a hash of its key, and the map is cleared. When
+ * all values have been added, each partition is aggregated separately (and
+ * recursively partitioned again with a different hash if it is still too
+ * large), so each key's partial aggregates meet in the same partition.
+ *
+ * After MAX_DEPTH levels of partitioning, a partition is aggregated in memory
+ * even if it exceeds the budget; that only happens when a few keys have
+ * aggregates too large for the budget, which no partitioning can split.
+ *
+ * A SpillingAggregator is not safe for concurrent use.
+ *
+ * @param <V> type of aggregate values, which merge() may modify
+ */
+class SpillingAggregator<V> {
+
+    private static final int MAX_DEPTH = 4;
+    private static final int BUFFER_BYTES = 1 << 13;
+    // HashMap node and table slot, plus the key String and its array
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * How values are merged, sized and stored.
+     *
+     * @param <V> type of aggregate values
+     */
+    interface Codec<V> {
+        /**
+         * @param value
+         *            a value
+         * @return approximate heap bytes of value
+         */
+        long estimateBytes(V value);
+
+        /**
+         * Merge a value into an aggregate.
+         *
+         * @param aggregate
+         *            aggregate to modify
+         * @param value
+         *            value to merge in, not modified
+         * @return approximate number of heap bytes aggregate grew by
+         */
+        long merge(V aggregate, V value);
+
+        /**
+         * Write a value so that read() can read it back.
+         */
+        void write(DataOutput out, V value) throws IOException;
+
+        /**
+         * Read a value written by write().
+         */
+        V read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Counts of spill files written, shared by the aggregators of an
+     * OutOfCore instance.
+     */
+    static final class Stats {
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+    }
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final int partitionCount;
+    private final Codec<V> codec;
+    private final Stats stats;
+    private final int depth;
+
+    private final Map<String, V> aggregates = new HashMap<>();
+    private long estimatedBytes = 0;
+    private Path[] partitions = null;
+    private DataOutputStream[] outputs = null;
+    /* Rep invariant:
+     *    memoryBudget > 0, partitionCount >= 2, 0 <= depth <= MAX_DEPTH
+     *    estimatedBytes approximates the heap used by aggregates
+     *    partitions and outputs are both null (nothing spilled yet) or both
+     *    have partitionCount elements
+     */
+
+    /**
+     * Make an empty aggregator.
+     *
+     * @param directory
+     *            directory for partition files, which are deleted by finish()
+     * @param memoryBudget
+     *            bytes of heap the partial aggregates may use, > 0
+     * @param partitionCount
+     *            number of partition files to spill to, >= 2; each has a
+     *            write buffer of 8 KB once spilling starts
+     * @param codec
+     *            how to merge, size and store values
+     * @param stats
+     *            counts to add spill files to
+     */
+    SpillingAggregator(Path directory, long memoryBudget, int partitionCount, Codec<V> codec, Stats stats) {
+        this(directory, memoryBudget, partitionCount, codec, stats, 0);
+    }
+
+    private SpillingAggregator(Path directory, long memoryBudget, int partitionCount, Codec<V> codec, Stats stats,
+            int depth) {
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+        this.partitionCount = partitionCount;
+        this.codec = codec;
+        this.stats = stats;
+        this.depth = depth;
+    }
+
+    /**
+     * Merge a value into the aggregate for a key.
+     *
+     * @param key
+     *            key
+     * @param value
+     *            value, which the aggregator keeps and may modify
+     * @throws IOException if a partition file cannot be written
+     */
+    void add(String key, V value) throws IOException {
+        V aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            aggregates.put(key, value);
+            estimatedBytes += ENTRY_OVERHEAD + 2L * key.length() + codec.estimateBytes(value);
+        } else {
+            estimatedBytes += codec.merge(aggregate, value);
+        }
+        if (estimatedBytes > memoryBudget && depth < MAX_DEPTH) {
+            spill();
+        }
+    }
+
+    /**
+     * Give every key's aggregate to a sink, once per key in no particular
+     * order, and delete the partition files. The aggregator must not be
+     * used afterwards.
+     *
+     * @param sink
+     *            receives each key and its aggregate
+     * @throws IOException if a partition file cannot be written or read
+     */
+    void finish(BiConsumer<String, V> sink) throws IOException {
+        if (partitions == null) {
+            aggregates.forEach(sink);
+            aggregates.clear();
+            return;
+        }
+        try {
+            spill();
+            closeOutputs();
+            for (Path partition : partitions) {
+                stats.bytes.addAndGet(Files.size(partition));
+            }
+            for (int p = 0; p < partitionCount; p++) {
+                SpillingAggregator<V> partition = new SpillingAggregator<>(directory, memoryBudget, partitionCount,
+                        codec, stats, depth + 1);
+                try (InputStream stream = Files.newInputStream(partitions[p]);
+                        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_BYTES))) {
+                    while (true) {
+                        String key;
+                        try {
+                            key = in.readUTF();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        partition.add(key, codec.read(in));
+                    }
+                }
+                Files.delete(partitions[p]);
+                partition.finish(sink);
+            }
+        } finally {
+            closeOutputs();
+            for (Path partition : partitions) {
+                Files.deleteIfExists(partition);
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        if (partitions == null) {
+            partitions = new Path[partitionCount];
+            outputs = new DataOutputStream[partitionCount];
+            for (int p = 0; p < partitionCount; p++) {
+                partitions[p] = Files.createTempFile(directory, "partition-", ".spill");
+                outputs[p] = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(partitions[p]), BUFFER_BYTES));
+            }
+            stats.files.addAndGet(partitionCount);
+        }
+        for (Map.Entry<String, V> entry : aggregates.entrySet()) {
+            DataOutputStream out = outputs[partition(entry.getKey())];
+            out.writeUTF(entry.getKey());
+            codec.write(out, entry.getValue());
+        }
+        aggregates.clear();
+        estimatedBytes = 0;
+    }
+
+    /*
+     * Choose a partition by a hash of the key that differs at each depth, so
+     * that a partition's keys are spread again when it is repartitioned.
+     */
+    private int partition(String key) {
+        long h = Hashing.mix(key.hashCode() * 0x9e3779b97f4a7c15L + depth * 0xc2b2ae3d27d4eb4fL);
+        return (int) Math.floorMod(h, (long) partitionCount);
+    }
+
+    private void closeOutputs() throws IOException {
+        if (outputs == null) {
+            return;
+        }
+        IOException failure = null;
+        for (int p = 0; p < partitionCount; p++) {
+            if (outputs[p] == null) {
+                continue;
+            }
+            try {
+                outputs[p].close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+            outputs[p] = null;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
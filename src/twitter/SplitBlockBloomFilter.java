@@ -0,0 +1,150 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * SplitBlockBloomFilter is a Bloom filter of 64-bit hashes, laid out as in
+ * Parquet's split block Bloom filters: an array of 256-bit blocks, each made
+ * of eight 32-bit words. A hash selects one block with its upper 32 bits,
+ * and sets (or tests) one bit in each of the block's eight words, chosen by
+ * multiplying its lower 32 bits by eight fixed odd constants. Each add or
+ * test touches a single cache line.
+ *
+ * mightContain() never returns false for a hash that was added; it returns
+ * true for other hashes with a probability that depends on the bits per
+ * element, about 2% at 10 bits.
+ *
+ * A SplitBlockBloomFilter is not safe for concurrent modification, but may
+ * be read concurrently once no more hashes are added.
+ */
+public class SplitBlockBloomFilter {
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int[] SALT = {
+        0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+        0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31,
+    };
+
+    private final int[] words;
+    private final int blockCount;
+    /* Rep invariant:
+     *    blockCount > 0, words.length == blockCount * WORDS_PER_BLOCK
+     */
+
+    /**
+     * Make an empty filter.
+     *
+     * @param expectedElements
+     *            number of distinct hashes expected to be added, >= 0
+     * @param bitsPerElement
+     *            bits of filter per expected element, > 0
+     */
+    public SplitBlockBloomFilter(int expectedElements, int bitsPerElement) {
+        if (expectedElements < 0 || bitsPerElement <= 0) {
+            throw new IllegalArgumentException("requires expectedElements >= 0 and bitsPerElement > 0");
+        }
+        long bits = (long) expectedElements * bitsPerElement;
+        this.blockCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE / WORDS_PER_BLOCK, (bits + 255) / 256));
+        this.words = new int[blockCount * WORDS_PER_BLOCK];
+    }
+
+    private SplitBlockBloomFilter(int[] words) {
+        this.words = words;
+        this.blockCount = words.length / WORDS_PER_BLOCK;
+    }
+
+    /**
+     * Add a hash to this filter.
+     *
+     * @param hash
+     *            hash to add, e.g. from hash()
+     */
+    public void add(long hash) {
+        int block = block(hash) * WORDS_PER_BLOCK;
+        int low = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            words[block + i] |= 1 << ((low * SALT[i]) >>> 27);
+        }
+    }
+
+    /**
+     * Test whether a hash might have been added to this filter.
+     *
+     * @param hash
+     *            hash to test
+     * @return true if hash was added; false only if hash was not added
+     */
+    public boolean mightContain(long hash) {
+        int block = block(hash) * WORDS_PER_BLOCK;
+        int low = (int) hash;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            if ((words[block + i] & (1 << ((low * SALT[i]) >>> 27))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blockCount) >>> 32);
+    }
+
+    /**
+     * @return size of this filter's bit array in bytes
+     */
+    public int getSizeInBytes() {
+        return words.length * 4;
+    }
+
+    /**
+     * Write this filter: its word count, then its words.
+     *
+     * @param out
+     *            where to write
+     * @throws IOException if out fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(words.length);
+        for (int word : words) {
+            out.writeInt(word);
+        }
+    }
+
+    /**
+     * Read a filter written by writeTo(), advancing the buffer past it.
+     *
+     * @param in
+     *            buffer positioned at the filter
+     * @return the filter
+     * @throws IllegalArgumentException if the buffer does not hold a filter
+     */
+    public static SplitBlockBloomFilter readFrom(ByteBuffer in) {
+        int length = in.getInt();
+        if (length <= 0 || length % WORDS_PER_BLOCK != 0 || length > in.remaining() / 4) {
+            throw new IllegalArgumentException("bad filter length " + length);
+        }
+        int[] words = new int[length];
+        in.asIntBuffer().get(words);
+        in.position(in.position() + 4 * length);
+        return new SplitBlockBloomFilter(words);
+    }
+
+    /**
+     * Hash a string to 64 bits, for adding to or testing a filter.
+     *
+     * @param s
+     *            string to hash
+     * @param seed
+     *            seed, so that different kinds of strings (e.g. words and
+     *            usernames) can share a filter without matching each other
+     * @return 64-bit hash of s with seed
+     */
+    public static long hash(String s, long seed) {
+        return Hashing.hash(s, seed);
+    }
+}
@@ -0,0 +1,186 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TimespanBatch answers many Filter.inTimespan() queries over the same list of
+ * tweets at once, such as the per-minute or per-hour windows of a volume chart.
+ *
+ * The tweets are sorted by timestamp once; each timespan, overlapping with
+ * the others or not, is then answered by two binary searches for its
+ * endpoints, so a batch of q timespans over n tweets costs O(n log n + q log n)
+ * plus the size of the results, instead of the O(q n) of calling
+ * Filter.inTimespan() q times.
+ */
+public class TimespanBatch {
+
+    private final List<Tweet> tweets;
+    // indexes into tweets, sorted by timestamp (ties by index)
+    private final int[] byTime;
+    // timestamps of tweets[byTime[i]], split into seconds and nanos
+    private final long[] seconds;
+    private final int[] nanos;
+    /* Rep invariant:
+     *    byTime is a permutation of 0..tweets.size()-1
+     *    tweets.get(byTime[i]).getTimestamp() is nondecreasing in i, and equals
+     *    Instant.ofEpochSecond(seconds[i], nanos[i])
+     */
+
+    /**
+     * Sort a list of tweets by timestamp so that timespan queries can be
+     * answered without scanning it.
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this
+     *            method. The batch keeps its own copy of the list.
+     */
+    public TimespanBatch(List<Tweet> tweets) {
+        this.tweets = Collections.unmodifiableList(new ArrayList<>(tweets));
+        final int n = this.tweets.size();
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> this.tweets.get(a).getTimestamp().compareTo(this.tweets.get(b).getTimestamp()));
+
+        this.byTime = new int[n];
+        this.seconds = new long[n];
+        this.nanos = new int[n];
+        for (int i = 0; i < n; i++) {
+            byTime[i] = order[i];
+            Instant timestamp = this.tweets.get(order[i]).getTimestamp();
+            seconds[i] = timestamp.getEpochSecond();
+            nanos[i] = timestamp.getNano();
+        }
+    }
+
+    /**
+     * Find the tweets sent during each of several timespans.
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this method.
+     * @param timespans
+     *            timespans to query, in any order and possibly overlapping
+     * @return a list with one entry per timespan, in the same order as
+     *         timespans, where entry i equals
+     *         Filter.inTimespan(tweets, timespans.get(i))
+     */
+    public static List<List<Tweet>> inTimespans(List<Tweet> tweets, List<Timespan> timespans) {
+        return new TimespanBatch(tweets).inTimespans(timespans);
+    }
+
+    /**
+     * Count the tweets sent during each of several timespans.
+     *
+     * @param tweets
+     *            a list of tweets with distinct ids, not modified by this method.
+     * @param timespans
+     *            timespans to query, in any order and possibly overlapping
+     * @return an array with one entry per timespan, in the same order as
+     *         timespans, where entry i equals
+     *         Filter.inTimespan(tweets, timespans.get(i)).size()
+     */
+    public static int[] countInTimespans(List<Tweet> tweets, List<Timespan> timespans) {
+        return new TimespanBatch(tweets).countInTimespans(timespans);
+    }
+
+    /**
+     * Find the tweets sent during each of several timespans.
+     *
+     * @param timespans
+     *            timespans to query
+     * @return one list per timespan, in the same order as timespans; list i
+     *         contains all and only the tweets sent during timespans.get(i),
+     *         in the same order as the list given to the constructor
+     */
+    public List<List<Tweet>> inTimespans(List<Timespan> timespans) {
+        List<List<Tweet>> results = new ArrayList<>(timespans.size());
+        for (Timespan timespan : timespans) {
+            results.add(inTimespan(timespan));
+        }
+        return results;
+    }
+
+    /**
+     * Count the tweets sent during each of several timespans.
+     *
+     * @param timespans
+     *            timespans to query
+     * @return one count per timespan, in the same order as timespans
+     */
+    public int[] countInTimespans(List<Timespan> timespans) {
+        int[] counts = new int[timespans.size()];
+        for (int q = 0; q < counts.length; q++) {
+            counts[q] = countInTimespan(timespans.get(q));
+        }
+        return counts;
+    }
+
+    /**
+     * Find the tweets sent during a timespan.
+     *
+     * @param timespan
+     *            timespan
+     * @return all and only the tweets sent during the timespan, in the same
+     *         order as the list given to the constructor
+     */
+    public List<Tweet> inTimespan(Timespan timespan) {
+        int from = firstAtOrAfter(timespan.getStart());
+        int to = firstAfter(timespan.getEnd());
+        int[] indexes = Arrays.copyOfRange(byTime, from, Math.max(from, to));
+        Arrays.sort(indexes);
+        List<Tweet> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            result.add(tweets.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Count the tweets sent during a timespan, in O(log n) time.
+     *
+     * @param timespan
+     *            timespan
+     * @return number of tweets sent during the timespan
+     */
+    public int countInTimespan(Timespan timespan) {
+        return Math.max(0, firstAfter(timespan.getEnd()) - firstAtOrAfter(timespan.getStart()));
+    }
+
+    /*
+     * @return first position in time order whose timestamp is >= instant
+     */
+    private int firstAtOrAfter(Instant instant) {
+        return search(instant.getEpochSecond(), instant.getNano(), false);
+    }
+
+    /*
+     * @return first position in time order whose timestamp is > instant
+     */
+    private int firstAfter(Instant instant) {
+        return search(instant.getEpochSecond(), instant.getNano(), true);
+    }
+
+    private int search(long second, int nano, boolean strictlyAfter) {
+        int lo = 0;
+        int hi = byTime.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = seconds[mid] != second ? Long.compare(seconds[mid], second) : Integer.compare(nanos[mid], nano);
+            if (cmp < 0 || (strictlyAfter && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
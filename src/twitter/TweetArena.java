@@ -0,0 +1,459 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TweetArena holds tweets outside the Java heap, so that a large corpus adds
+ * little to garbage collection work, and runs the scans of Filter and
+ * Extract directly over that memory, creating Tweet objects only for
+ * results.
+ *
+ * Tweets are stored by column in direct ByteBuffers: chunks of 65536 rows
+ * each hold the ids, epoch seconds, nanos, author ids and text locations,
+ * and texts are stored as UTF-8 in separate 1 MB text buffers. Authors are
+ * interned in a small on-heap dictionary and stored by id.
+ *
+ * The arena's lifetime is explicit: close() releases its buffers, after
+ * which every method throws IllegalStateException. (Direct buffers are
+ * returned to the operating system once the garbage collector notices them
+ * unreachable; the arena drops every reference to them on close.)
+ *
+ * A TweetArena is not safe for concurrent modification, but once tweets are
+ * no longer added, any number of threads may scan it concurrently.
+ */
+public class TweetArena implements AutoCloseable {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int TEXT_BUFFER_BYTES = 1 << 20;
+
+    /*
+     * The columns of CHUNK_ROWS rows.
+     */
+    private static final class Chunk {
+        final LongBuffer ids = allocate(8).asLongBuffer();
+        final LongBuffer seconds = allocate(8).asLongBuffer();
+        final IntBuffer nanos = allocate(4).asIntBuffer();
+        final IntBuffer authors = allocate(4).asIntBuffer();
+        // index into texts, offset within that buffer, and length in bytes
+        final IntBuffer textBuffers = allocate(4).asIntBuffer();
+        final IntBuffer textOffsets = allocate(4).asIntBuffer();
+        final IntBuffer textLengths = allocate(4).asIntBuffer();
+
+        private static ByteBuffer allocate(int bytesPerRow) {
+            return ByteBuffer.allocateDirect(bytesPerRow * CHUNK_ROWS).order(ByteOrder.nativeOrder());
+        }
+
+        static long bytes() {
+            return (8 + 8 + 4 + 4 + 4 + 4 + 4) * (long) CHUNK_ROWS;
+        }
+    }
+
+    private List<Chunk> chunks = new ArrayList<>();
+    private List<ByteBuffer> texts = new ArrayList<>();
+    private final List<String> authorNames = new ArrayList<>();
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private int size = 0;
+    private long offHeapBytes = 0;
+    private boolean closed = false;
+    /* Rep invariant:
+     *    if closed, chunks and texts are null; otherwise
+     *    chunks.size() == ceil(size / CHUNK_ROWS)
+     *    for every row i < size, its author id indexes authorNames, and its
+     *    text location lies within texts.get(its text buffer index)
+     *    authorIds maps each authorNames.get(id) to id
+     *    offHeapBytes is the total capacity of the buffers in chunks and texts
+     */
+
+    /**
+     * Make an empty arena.
+     */
+    public TweetArena() {
+    }
+
+    /**
+     * Make an arena holding tweets.
+     *
+     * @param tweets
+     *            tweets to add, in order, not modified by this method
+     */
+    public TweetArena(List<Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            append(tweet);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("arena is closed");
+        }
+    }
+
+    /**
+     * Add a tweet to the end of the arena.
+     *
+     * @param tweet
+     *            tweet to add
+     */
+    public void add(Tweet tweet) {
+        append(tweet);
+    }
+
+    /*
+     * Implementation of add(), private so the constructor can use it without
+     * calling an overridable method.
+     */
+    private void append(Tweet tweet) {
+        checkOpen();
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("arena is full");
+        }
+        if ((size & CHUNK_MASK) == 0) {
+            chunks.add(new Chunk());
+            offHeapBytes += Chunk.bytes();
+        }
+        Chunk chunk = chunks.get(size >>> CHUNK_SHIFT);
+        int row = size & CHUNK_MASK;
+
+        byte[] text = tweet.getText().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer textBuffer = texts.isEmpty() ? null : texts.get(texts.size() - 1);
+        if (textBuffer == null || textBuffer.remaining() < text.length) {
+            textBuffer = ByteBuffer.allocateDirect(Math.max(TEXT_BUFFER_BYTES, text.length));
+            texts.add(textBuffer);
+            offHeapBytes += textBuffer.capacity();
+        }
+
+        Integer author = authorIds.get(tweet.getAuthor());
+        if (author == null) {
+            author = authorNames.size();
+            authorNames.add(tweet.getAuthor());
+            authorIds.put(tweet.getAuthor(), author);
+        }
+
+        chunk.ids.put(row, tweet.getId());
+        chunk.seconds.put(row, tweet.getTimestamp().getEpochSecond());
+        chunk.nanos.put(row, tweet.getTimestamp().getNano());
+        chunk.authors.put(row, author);
+        chunk.textBuffers.put(row, texts.size() - 1);
+        chunk.textOffsets.put(row, textBuffer.position());
+        chunk.textLengths.put(row, text.length);
+        textBuffer.put(text);
+        size++;
+    }
+
+    /**
+     * Add tweets to the end of the arena.
+     *
+     * @param tweets
+     *            tweets to add, in order, not modified by this method
+     */
+    public void addAll(List<Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            append(tweet);
+        }
+    }
+
+    /**
+     * @return number of tweets in the arena
+     */
+    public int size() {
+        checkOpen();
+        return size;
+    }
+
+    /**
+     * @return bytes of off-heap memory held by the arena
+     */
+    public long getOffHeapBytes() {
+        checkOpen();
+        return offHeapBytes;
+    }
+
+    /**
+     * @param index
+     *            index of a tweet, 0 <= index < size()
+     * @return a new Tweet equal in every observable way to the tweet added
+     *         at that index
+     */
+    public Tweet get(int index) {
+        checkOpen();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return materialize(index);
+    }
+
+    private Tweet materialize(int index) {
+        Chunk chunk = chunks.get(index >>> CHUNK_SHIFT);
+        int row = index & CHUNK_MASK;
+        ByteBuffer textBuffer = texts.get(chunk.textBuffers.get(row));
+        byte[] text = new byte[chunk.textLengths.get(row)];
+        textBuffer.get(chunk.textOffsets.get(row), text);
+        return new Tweet(chunk.ids.get(row), authorNames.get(chunk.authors.get(row)),
+                new String(text, StandardCharsets.UTF_8),
+                Instant.ofEpochSecond(chunk.seconds.get(row), chunk.nanos.get(row)));
+    }
+
+    /**
+     * @return the same as Extract.getTimespan() of the arena's tweets
+     * @throws IllegalArgumentException if the arena is empty
+     */
+    public Timespan getTimespan() {
+        checkOpen();
+        if (size == 0) {
+            throw new IllegalArgumentException("tweets list cannot be empty");
+        }
+        long minSecond = Long.MAX_VALUE;
+        int minNano = 0;
+        long maxSecond = Long.MIN_VALUE;
+        int maxNano = 0;
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks.get(i >>> CHUNK_SHIFT);
+            int row = i & CHUNK_MASK;
+            long second = chunk.seconds.get(row);
+            if (second <= minSecond) {
+                int nano = chunk.nanos.get(row);
+                if (second < minSecond || nano < minNano) {
+                    minSecond = second;
+                    minNano = nano;
+                }
+            }
+            if (second >= maxSecond) {
+                int nano = chunk.nanos.get(row);
+                if (second > maxSecond || nano > maxNano) {
+                    maxSecond = second;
+                    maxNano = nano;
+                }
+            }
+        }
+        return new Timespan(Instant.ofEpochSecond(minSecond, minNano), Instant.ofEpochSecond(maxSecond, maxNano));
+    }
+
+    /**
+     * @param timespan
+     *            timespan
+     * @return the same as Filter.inTimespan() of the arena's tweets
+     */
+    public List<Tweet> inTimespan(Timespan timespan) {
+        checkOpen();
+        long startSecond = timespan.getStart().getEpochSecond();
+        int startNano = timespan.getStart().getNano();
+        long endSecond = timespan.getEnd().getEpochSecond();
+        int endNano = timespan.getEnd().getNano();
+        List<Tweet> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks.get(i >>> CHUNK_SHIFT);
+            int row = i & CHUNK_MASK;
+            long second = chunk.seconds.get(row);
+            if (second < startSecond || second > endSecond) {
+                continue;
+            }
+            int nano = chunk.nanos.get(row);
+            if ((second == startSecond && nano < startNano) || (second == endSecond && nano > endNano)) {
+                continue;
+            }
+            result.add(materialize(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param username
+     *            Twitter username, required to be a valid Twitter username as
+     *            defined by Tweet.getAuthor()'s spec
+     * @return the same as Filter.writtenBy() of the arena's tweets
+     */
+    public List<Tweet> writtenBy(String username) {
+        checkOpen();
+        String lowerUsername = username.toLowerCase();
+        boolean[] matching = new boolean[authorNames.size()];
+        boolean any = false;
+        for (int a = 0; a < matching.length; a++) {
+            matching[a] = authorNames.get(a).toLowerCase().equals(lowerUsername);
+            any |= matching[a];
+        }
+        List<Tweet> result = new ArrayList<>();
+        if (!any) {
+            return result;
+        }
+        for (int i = 0; i < size; i++) {
+            if (matching[chunks.get(i >>> CHUNK_SHIFT).authors.get(i & CHUNK_MASK)]) {
+                result.add(materialize(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param words
+     *            a list of words to search for, each a nonempty sequence of
+     *            nonspace characters
+     * @return the same as Filter.containing() of the arena's tweets
+     */
+    public List<Tweet> containing(List<String> words) {
+        checkOpen();
+        List<Tweet> result = new ArrayList<>();
+        if (words.isEmpty()) {
+            return result;
+        }
+        Set<String> lowercaseWords = new HashSet<>();
+        for (String word : words) {
+            lowercaseWords.add(word.toLowerCase());
+        }
+        // ASCII search words as bytes, by length, for matching ASCII text
+        // words in place; if the locale lowercases an ASCII letter to
+        // something else, every word is decoded instead
+        boolean asciiFoldingSafe = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase().equals("abcdefghijklmnopqrstuvwxyz");
+        Map<Integer, List<byte[]>> asciiWords = new HashMap<>();
+        for (String word : lowercaseWords) {
+            if (isAscii(word)) {
+                asciiWords.computeIfAbsent(word.length(), n -> new ArrayList<>())
+                        .add(word.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks.get(i >>> CHUNK_SHIFT);
+            int row = i & CHUNK_MASK;
+            ByteBuffer textBuffer = texts.get(chunk.textBuffers.get(row));
+            int start = chunk.textOffsets.get(row);
+            int end = start + chunk.textLengths.get(row);
+            if (containsAny(textBuffer, start, end, asciiFoldingSafe, asciiWords, lowercaseWords)) {
+                result.add(materialize(i));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Test whether the UTF-8 text in buffer[start..end) has a word (bounded
+     * by \s characters, all ASCII) equal to a search word, ignoring case.
+     */
+    private static boolean containsAny(ByteBuffer buffer, int start, int end, boolean asciiFoldingSafe,
+            Map<Integer, List<byte[]>> asciiWords, Set<String> lowercaseWords) {
+        int i = start;
+        while (i < end) {
+            while (i < end && WordMatcher.isSpace((char) buffer.get(i))) {
+                i++;
+            }
+            int wordStart = i;
+            boolean ascii = true;
+            while (i < end) {
+                byte b = buffer.get(i);
+                if (b >= 0 && WordMatcher.isSpace((char) b)) {
+                    break;
+                }
+                ascii &= b >= 0;
+                i++;
+            }
+            if (i == wordStart) {
+                break;
+            }
+            if (ascii && asciiFoldingSafe) {
+                List<byte[]> candidates = asciiWords.get(i - wordStart);
+                if (candidates != null) {
+                    for (byte[] word : candidates) {
+                        if (equalsFolded(word, buffer, wordStart)) {
+                            return true;
+                        }
+                    }
+                }
+            } else {
+                byte[] bytes = new byte[i - wordStart];
+                buffer.get(wordStart, bytes);
+                if (lowercaseWords.contains(new String(bytes, StandardCharsets.UTF_8).toLowerCase())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsFolded(byte[] word, ByteBuffer buffer, int start) {
+        for (int k = 0; k < word.length; k++) {
+            byte b = buffer.get(start + k);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != word[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the same as Extract.getMentionedUsers() of the arena's tweets,
+     *         with every username in lowercase
+     */
+    public Set<String> getMentionedUsers() {
+        checkOpen();
+        Set<String> mentioned = new HashSet<>();
+        StringBuilder username = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            Chunk chunk = chunks.get(i >>> CHUNK_SHIFT);
+            int row = i & CHUNK_MASK;
+            ByteBuffer textBuffer = texts.get(chunk.textBuffers.get(row));
+            int start = chunk.textOffsets.get(row);
+            int end = start + chunk.textLengths.get(row);
+            // a mention is @ not preceded by a username character, followed
+            // by a maximal run of them; UTF-8 continuation and lead bytes
+            // are never username characters, like the non-ASCII characters
+            // they encode
+            for (int at = start; at < end; at++) {
+                if (textBuffer.get(at) != '@' || (at > start && isUsernameByte(textBuffer.get(at - 1)))) {
+                    continue;
+                }
+                int j = at + 1;
+                username.setLength(0);
+                while (j < end && isUsernameByte(textBuffer.get(j))) {
+                    username.append((char) textBuffer.get(j));
+                    j++;
+                }
+                if (username.length() > 0) {
+                    mentioned.add(username.toString().toLowerCase());
+                }
+                at = j - 1;
+            }
+        }
+        return mentioned;
+    }
+
+    private static boolean isUsernameByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    /**
+     * Release the arena's off-heap memory. Afterwards every method except
+     * close() throws IllegalStateException.
+     */
+    @Override public void close() {
+        closed = true;
+        chunks = null;
+        texts = null;
+    }
+}
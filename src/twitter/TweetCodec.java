@@ -0,0 +1,73 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * TweetCodec writes tweets to and reads them from binary streams, one tweet
+ * after another, for temporary files such as sort runs.
+ *
+ * A tweet is written as its id, author (DataOutput.writeUTF), text (length
+ * then UTF-8 bytes, so texts of any length are allowed) and timestamp
+ * (epoch second then nanos).
+ */
+final class TweetCodec {
+
+    /**
+     * @param tweet
+     *            a tweet
+     * @return approximate number of heap bytes the tweet occupies, including
+     *         its strings and timestamp
+     */
+    static long estimateBytes(Tweet tweet) {
+        // Tweet, Instant and two Strings with their arrays, at 16-byte headers
+        return 128 + 2L * (tweet.getAuthor().length() + tweet.getText().length());
+    }
+
+    /**
+     * Write a tweet.
+     *
+     * @param out
+     *            where to write
+     * @param tweet
+     *            tweet to write
+     * @throws IOException if out fails
+     */
+    static void write(DataOutput out, Tweet tweet) throws IOException {
+        out.writeLong(tweet.getId());
+        out.writeUTF(tweet.getAuthor());
+        byte[] text = tweet.getText().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+        out.writeLong(tweet.getTimestamp().getEpochSecond());
+        out.writeInt(tweet.getTimestamp().getNano());
+    }
+
+    /**
+     * Read a tweet written by write().
+     *
+     * @param in
+     *            where to read
+     * @return the tweet
+     * @throws java.io.EOFException if in is at its end
+     * @throws IOException if in fails or does not hold a tweet
+     */
+    static Tweet read(DataInput in) throws IOException {
+        long id = in.readLong();
+        String author = in.readUTF();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("bad text length " + length);
+        }
+        byte[] text = new byte[length];
+        in.readFully(text);
+        Instant timestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        return new Tweet(id, author, new String(text, StandardCharsets.UTF_8), timestamp);
+    }
+}
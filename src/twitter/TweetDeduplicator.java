@@ -0,0 +1,113 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TweetDeduplicator merges overlapping batches of tweets, such as successive
+ * polls of TweetReader.readTweetsFromWeb(), into one list in which each tweet
+ * id appears once.
+ *
+ * Seen ids are kept in a LongHashSet, so checking a tweet costs one probe of
+ * a primitive table, with no boxing and no calls to Tweet.hashCode() or
+ * Tweet.equals(). Tweets with the same id are taken to be the same tweet, as
+ * Tweet.equals() does; the first one added is kept.
+ *
+ * Memory grows with the number of distinct ids; see RollingDeduplicator for a
+ * variant with bounded memory.
+ *
+ * A TweetDeduplicator is not safe for concurrent use.
+ */
+public class TweetDeduplicator {
+
+    private final LongHashSet seen;
+    private final List<Tweet> tweets = new ArrayList<>();
+    /* Rep invariant:
+     *    seen contains exactly the ids of tweets, which are distinct
+     */
+
+    /**
+     * Make an empty deduplicator.
+     */
+    public TweetDeduplicator() {
+        this.seen = new LongHashSet();
+    }
+
+    /**
+     * Make an empty deduplicator with room for some tweets before growing.
+     *
+     * @param expectedSize
+     *            number of distinct tweets expected, requires expectedSize >= 0
+     */
+    public TweetDeduplicator(int expectedSize) {
+        this.seen = new LongHashSet(expectedSize);
+    }
+
+    /**
+     * Merge batches of tweets, dropping repeated ids.
+     *
+     * @param batches
+     *            batches of tweets, not modified by this method
+     * @return the first tweet with each id, in order of the batches and then
+     *         of the tweets within each batch
+     */
+    public static List<Tweet> merge(List<List<Tweet>> batches) {
+        int total = 0;
+        for (List<Tweet> batch : batches) {
+            total += batch.size();
+        }
+        TweetDeduplicator deduplicator = new TweetDeduplicator(total);
+        for (List<Tweet> batch : batches) {
+            deduplicator.addBatch(batch);
+        }
+        return deduplicator.getTweets();
+    }
+
+    /**
+     * Append a batch of tweets, dropping those whose id was already seen.
+     *
+     * @param batch
+     *            tweets to append, not modified by this method
+     * @return the tweets of batch whose ids were not seen before (in this or
+     *         an earlier batch), in the same order as batch; these have been
+     *         appended to getTweets()
+     */
+    public List<Tweet> addBatch(List<Tweet> batch) {
+        List<Tweet> added = new ArrayList<>();
+        for (Tweet tweet : batch) {
+            if (seen.add(tweet.getId())) {
+                added.add(tweet);
+            }
+        }
+        tweets.addAll(added);
+        return added;
+    }
+
+    /**
+     * @param id
+     *            tweet id
+     * @return true if a tweet with this id has been added
+     */
+    public boolean contains(long id) {
+        return seen.contains(id);
+    }
+
+    /**
+     * @return number of distinct tweets added
+     */
+    public int size() {
+        return tweets.size();
+    }
+
+    /**
+     * @return unmodifiable view of the distinct tweets added so far, in the
+     *         order they were added
+     */
+    public List<Tweet> getTweets() {
+        return Collections.unmodifiableList(tweets);
+    }
+}
@@ -0,0 +1,407 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * TweetGenerator makes synthetic corpora of any size for benchmarks and load
+ * tests, with roughly the shape of real ones:
+ * - author activity is Zipfian: the author of rank r (user0 being the most
+ *   active) writes a share of the tweets proportional to 1/(r+1)^skew;
+ * - mention targets are drawn from the same Zipf distribution, so the
+ *   follower counts of guessFollowsGraph() follow a power law;
+ * - the number of mentions in a tweet is Poisson distributed;
+ * - words are drawn from a Zipfian vocabulary, the word of rank r having a
+ *   frequency proportional to 1/(r+1)^wordSkew (Zipf's law for wordSkew 1),
+ *   the most frequent words being the shortest;
+ * - timestamps come from a bursty process: tweets arrive at a steady rate,
+ *   with occasional bursts many times faster. Timestamps are whole seconds,
+ *   like Twitter's created_at, and never decrease along the corpus.
+ *
+ * The corpus is a function of the seed and parameters only. Tweet i has id i,
+ * and tweets are generated in fixed chunks that each have their own random
+ * stream, so the chunks can be generated in parallel with the same result.
+ *
+ * A TweetGenerator is immutable, so it is safe for concurrent use.
+ */
+public class TweetGenerator {
+
+    static final Instant START = Instant.parse("2016-02-17T10:00:00Z");
+    static final int CHUNK_TWEETS = 1 << 14;
+
+    private static final int DEFAULT_USERS = 10_000;
+    private static final double DEFAULT_MENTIONS_PER_TWEET = 1;
+    private static final double DEFAULT_SKEW = 1;
+    private static final double DEFAULT_WORD_SKEW = 1;
+    private static final double DEFAULT_TWEETS_PER_SECOND = 100;
+
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int MIN_WORDS = 3;
+    private static final int MAX_WORDS = 18;
+    private static final double HASHTAG_CHANCE = 0.05;
+    private static final String[] SYLLABLES = {
+        "ta", "ko", "ri", "ne", "su", "mo", "la", "pi", "de", "gu", "ve", "sho", "an", "bel", "tor", "mi",
+    };
+
+    // arrival process: per-tweet chances of entering and leaving a burst
+    private static final double BURST_START = 0.0005;
+    private static final double BURST_END = 0.005;
+    private static final double BURST_SPEEDUP = 25;
+
+    private static final DateTimeFormatter CREATED_AT_FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss Z yyyy", Locale.US).withZone(ZoneOffset.UTC);
+    private static final int WRITE_BATCH_CHUNKS = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final long seed;
+    private final int users;
+    private final double mentionsPerTweet;
+    private final double tweetsPerSecond;
+    private final ZipfSampler userSampler;
+    private final ZipfSampler wordSampler;
+    private final String[] vocabulary;
+    /* Rep invariant:
+     *    users > 0, mentionsPerTweet >= 0, tweetsPerSecond > 0
+     *    userSampler samples 0..users-1, wordSampler 0..vocabulary.length-1
+     *    vocabulary words are distinct, nonempty and lowercase letters
+     */
+
+    /**
+     * Samples ranks 0..n-1 from a Zipf distribution in constant time with
+     * Vose's alias method.
+     */
+    private static final class ZipfSampler {
+        private final double[] probability;
+        private final int[] alias;
+
+        ZipfSampler(int n, double exponent) {
+            double[] scaled = new double[n];
+            double total = 0;
+            for (int r = 0; r < n; r++) {
+                scaled[r] = 1 / Math.pow(r + 1, exponent);
+                total += scaled[r];
+            }
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int r = 0; r < n; r++) {
+                scaled[r] *= n / total;
+                if (scaled[r] < 1) {
+                    small[smallCount++] = r;
+                } else {
+                    large[largeCount++] = r;
+                }
+            }
+            probability = new double[n];
+            alias = new int[n];
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] -= 1 - scaled[less];
+                if (scaled[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            while (largeCount > 0) {
+                probability[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) { // only left by rounding error
+                probability[small[--smallCount]] = 1;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int i = random.nextInt(probability.length);
+            return random.nextDouble() < probability[i] ? i : alias[i];
+        }
+    }
+
+    /**
+     * Make a generator of 10000 users, one mention per tweet on average,
+     * Zipf exponent 1 for users and words and 100 tweets per second on
+     * average.
+     *
+     * @param seed
+     *            seed of the corpus
+     */
+    public TweetGenerator(long seed) {
+        this(seed, DEFAULT_USERS, DEFAULT_MENTIONS_PER_TWEET, DEFAULT_SKEW, DEFAULT_WORD_SKEW,
+                DEFAULT_TWEETS_PER_SECOND);
+    }
+
+    /**
+     * Make a generator.
+     *
+     * @param seed
+     *            seed of the corpus
+     * @param users
+     *            number of users, named user0 to user(users-1); > 0
+     * @param mentionsPerTweet
+     *            average number of @-mentions per tweet, >= 0
+     * @param skew
+     *            Zipf exponent of author activity and mention targets, >= 0;
+     *            0 is uniform, around 1 is typical
+     * @param wordSkew
+     *            Zipf exponent of word frequencies, >= 0; 0 is uniform, 1 is
+     *            Zipf's law as seen in natural language
+     * @param tweetsPerSecond
+     *            average arrival rate, > 0
+     */
+    public TweetGenerator(long seed, int users, double mentionsPerTweet, double skew, double wordSkew,
+            double tweetsPerSecond) {
+        if (users <= 0 || !(mentionsPerTweet >= 0) || !(skew >= 0) || !(wordSkew >= 0) || !(tweetsPerSecond > 0)) {
+            throw new IllegalArgumentException(
+                    "requires users > 0, mentionsPerTweet >= 0, skew >= 0, wordSkew >= 0, tweetsPerSecond > 0");
+        }
+        this.seed = seed;
+        this.users = users;
+        this.mentionsPerTweet = mentionsPerTweet;
+        this.tweetsPerSecond = tweetsPerSecond;
+        this.userSampler = new ZipfSampler(users, skew);
+        this.wordSampler = new ZipfSampler(VOCABULARY_SIZE, wordSkew);
+        this.vocabulary = new String[VOCABULARY_SIZE];
+        for (int r = 0; r < vocabulary.length; r++) {
+            vocabulary[r] = word(r);
+        }
+    }
+
+    /*
+     * The word of a frequency rank: rank+1 written in base SYLLABLES.length
+     * with syllables for digits, so frequent words are short.
+     */
+    private static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        for (int n = rank + 1; n > 0; n /= SYLLABLES.length) {
+            word.insert(0, SYLLABLES[n % SYLLABLES.length]);
+        }
+        return word.toString();
+    }
+
+    /**
+     * @return number of users
+     */
+    public int getUsers() {
+        return users;
+    }
+
+    /**
+     * @param rank
+     *            frequency rank, 0 being the most frequent word
+     * @return the vocabulary word of that rank
+     * @throws IndexOutOfBoundsException if there is no such word
+     */
+    public String getWord(int rank) {
+        return vocabulary[rank];
+    }
+
+    /**
+     * @return number of words in the vocabulary
+     */
+    public int getVocabularySize() {
+        return vocabulary.length;
+    }
+
+    /**
+     * Generate a corpus in memory, in parallel.
+     *
+     * @param count
+     *            number of tweets, >= 0
+     * @return tweets with ids 0..count-1, in id order
+     */
+    public List<Tweet> generate(int count) {
+        return stream(count).parallel().collect(Collectors.toCollection(() -> new ArrayList<>(count)));
+    }
+
+    /**
+     * Generate a corpus lazily. The stream is sequential; make it parallel
+     * to generate chunks of tweets concurrently.
+     *
+     * @param count
+     *            number of tweets, >= 0
+     * @return ordered stream of tweets with ids 0..count-1, in id order
+     */
+    public Stream<Tweet> stream(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("requires count >= 0");
+        }
+        long chunks = (count + CHUNK_TWEETS - 1) / CHUNK_TWEETS;
+        return LongStream.range(0, chunks).mapToObj(chunk -> chunk(chunk, count)).flatMap(List::stream);
+    }
+
+    /**
+     * Write a corpus as NDJSON: one object per line, with the fields read by
+     * TweetReader and TweetParser ("id", "user.screen_name", "text",
+     * "created_at"). Joining the lines with commas in brackets gives the JSON
+     * array TweetReader reads.
+     *
+     * @param count
+     *            number of tweets, >= 0
+     * @param file
+     *            file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public void writeNdjson(long count, Path file) throws IOException {
+        write(count, file, (tweets, out) -> {
+            StringBuilder line = new StringBuilder();
+            for (Tweet tweet : tweets) {
+                line.setLength(0);
+                // generated authors and texts need no escaping
+                line.append("{\"id\":").append(tweet.getId())
+                    .append(",\"user.screen_name\":\"").append(tweet.getAuthor())
+                    .append("\",\"text\":\"").append(tweet.getText())
+                    .append("\",\"created_at\":\"").append(CREATED_AT_FORMAT.format(tweet.getTimestamp()))
+                    .append("\"}\n");
+                out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    /**
+     * Write a corpus in the binary format read by TweetCodec.read(), one
+     * tweet after another.
+     *
+     * @param count
+     *            number of tweets, >= 0
+     * @param file
+     *            file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(long count, Path file) throws IOException {
+        write(count, file, (tweets, out) -> {
+            DataOutputStream data = new DataOutputStream(out);
+            for (Tweet tweet : tweets) {
+                TweetCodec.write(data, tweet);
+            }
+        });
+    }
+
+    private interface ChunkEncoder {
+        void encode(List<Tweet> tweets, OutputStream out) throws IOException;
+    }
+
+    /*
+     * Generate and encode batches of chunks in parallel, and write them in
+     * order.
+     */
+    private void write(long count, Path file, ChunkEncoder encoder) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("requires count >= 0");
+        }
+        long chunks = (count + CHUNK_TWEETS - 1) / CHUNK_TWEETS;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            for (long first = 0; first < chunks; first += WRITE_BATCH_CHUNKS) {
+                List<byte[]> encoded;
+                try {
+                    encoded = LongStream.range(first, Math.min(chunks, first + WRITE_BATCH_CHUNKS)).parallel()
+                            .mapToObj(chunk -> {
+                                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                                try {
+                                    encoder.encode(chunk(chunk, count), bytes);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                                return bytes.toByteArray();
+                            })
+                            .collect(Collectors.toList());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (byte[] bytes : encoded) {
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    /*
+     * Generate the tweets of one chunk, those with ids chunk*CHUNK_TWEETS up
+     * to count.
+     */
+    private List<Tweet> chunk(long chunk, long count) {
+        SplittableRandom random = new SplittableRandom(Hashing.mix(seed + chunk * 0x9e3779b97f4a7c15L));
+        long firstId = chunk * CHUNK_TWEETS;
+        int size = (int) Math.min(CHUNK_TWEETS, count - firstId);
+
+        // arrival gaps of the whole chunk, scaled to the chunk's share of
+        // time, so chunks line up and bursts stay within a chunk
+        double[] gaps = new double[CHUNK_TWEETS];
+        double total = 0;
+        boolean burst = false;
+        for (int i = 0; i < gaps.length; i++) {
+            burst = burst ? random.nextDouble() >= BURST_END : random.nextDouble() < BURST_START;
+            gaps[i] = -Math.log(1 - random.nextDouble()) / (burst ? BURST_SPEEDUP : 1);
+            total += gaps[i];
+        }
+        double chunkSeconds = CHUNK_TWEETS / tweetsPerSecond;
+        double time = chunk * chunkSeconds;
+
+        List<Tweet> tweets = new ArrayList<>(size);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            text.setLength(0);
+            int words = MIN_WORDS + random.nextInt(MAX_WORDS - MIN_WORDS + 1);
+            int mentions = poisson(mentionsPerTweet, random);
+            int length = words + mentions;
+            for (int w = 0; w < length; w++) {
+                if (w > 0) {
+                    text.append(' ');
+                }
+                // each remaining position is equally likely to hold a mention
+                if (mentions > 0 && random.nextInt(length - w) < mentions) {
+                    mentions--;
+                    text.append(random.nextInt(4) == 0 ? "@User" : "@user").append(userSampler.sample(random));
+                    continue;
+                }
+                if (random.nextDouble() < HASHTAG_CHANCE) {
+                    text.append('#');
+                }
+                text.append(vocabulary[wordSampler.sample(random)]);
+            }
+            Instant timestamp = START.plusSeconds((long) time);
+            tweets.add(new Tweet(firstId + i, "user" + userSampler.sample(random), text.toString(), timestamp));
+            time += gaps[i] / total * chunkSeconds;
+        }
+        return tweets;
+    }
+
+    /*
+     * Sample a Poisson distribution with the given mean, by Knuth's method for
+     * small means and a rounded normal approximation for large ones.
+     */
+    private static int poisson(double mean, SplittableRandom random) {
+        if (mean > 30) {
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * gaussian));
+        }
+        double limit = Math.exp(-mean);
+        int k = 0;
+        for (double p = random.nextDouble(); p > limit; p *= random.nextDouble()) {
+            k++;
+        }
+        return k;
+    }
+}
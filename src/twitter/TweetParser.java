@@ -0,0 +1,274 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+/**
+ * TweetParser reads tweets one at a time from a JSON stream in the format
+ * read by TweetReader: an array of objects with fields "id", "text",
+ * "created_at" (like "Wed Feb 17 10:00:00 +0000 2016") and
+ * "user.screen_name". The author may also be given as a nested object,
+ * "user": {"screen_name": ...}. Other fields are skipped.
+ *
+ * Unlike TweetReader, which builds the whole JSON tree and then the whole list,
+ * TweetParser pulls tokens from the stream, so it can start handing out tweets
+ * before the stream has been fully received, and it holds only the current
+ * tweet's fields in memory. Tweets with ids at or below a given since-id are
+ * skipped without building a Tweet or parsing their timestamps.
+ *
+ * Malformed input, or a tweet missing a required field, causes a
+ * javax.json.JsonException, as in TweetReader.
+ *
+ * A TweetParser is not safe for concurrent use.
+ */
+public class TweetParser implements Iterator<Tweet>, Closeable {
+
+    private static final DateTimeFormatter CREATED_AT_FORMAT =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss Z yyyy", Locale.US);
+
+    private final JsonParser parser;
+    private final long sinceId;
+    private Tweet next = null;
+    private boolean started = false;
+    private boolean finished = false;
+    private long skipped = 0;
+    /* Rep invariant:
+     *    if next != null, next.getId() > sinceId
+     *    if finished, next == null and the parser has consumed the array
+     */
+
+    /**
+     * Make a parser for all tweets in a stream.
+     *
+     * @param reader
+     *            stream holding a JSON array of tweets; closed by close()
+     */
+    public TweetParser(Reader reader) {
+        this(reader, Long.MIN_VALUE);
+    }
+
+    /**
+     * Make a parser for the tweets in a stream newer than a since-id.
+     *
+     * @param reader
+     *            stream holding a JSON array of tweets; closed by close()
+     * @param sinceId
+     *            tweets with id <= sinceId are skipped
+     */
+    public TweetParser(Reader reader, long sinceId) {
+        this.parser = Json.createParser(reader);
+        this.sinceId = sinceId;
+    }
+
+    /**
+     * Parse all tweets in a stream, and close it.
+     *
+     * @param reader
+     *            stream holding a JSON array of tweets
+     * @return the tweets, in stream order; equal to what TweetReader would
+     *         read from the same stream
+     */
+    public static List<Tweet> parse(Reader reader) {
+        Metrics.Span span = Metrics.start(Metrics.Operation.PARSE);
+        List<Tweet> tweets = new ArrayList<>();
+        try (TweetParser parser = new TweetParser(reader)) {
+            while (parser.hasNext()) {
+                tweets.add(parser.next());
+            }
+        }
+        Metrics.finish(span, 0, tweets.size());
+        return tweets;
+    }
+
+    /**
+     * @return true if the stream has another tweet newer than the since-id
+     * @throws JsonException if the stream is malformed
+     */
+    @Override public boolean hasNext() {
+        while (next == null && !finished) {
+            next = readTweet();
+        }
+        return next != null;
+    }
+
+    /**
+     * @return the next tweet in the stream newer than the since-id
+     * @throws NoSuchElementException if there is none
+     * @throws JsonException if the stream is malformed
+     */
+    @Override public Tweet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Tweet tweet = next;
+        next = null;
+        Metrics.count(Metrics.Counter.TWEETS_PARSED, 1);
+        return tweet;
+    }
+
+    /**
+     * @return number of tweets skipped so far because their id was at or
+     *         below the since-id
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Close the parser and its stream.
+     */
+    @Override public void close() {
+        finished = true;
+        next = null;
+        parser.close();
+    }
+
+    /*
+     * Read the next tweet object, or detect the end of the array.
+     *
+     * @return the tweet, or null if it was skipped or the array ended
+     */
+    private Tweet readTweet() {
+        if (!started) {
+            expect(JsonParser.Event.START_ARRAY);
+            started = true;
+        }
+        JsonParser.Event event = nextEvent();
+        if (event == JsonParser.Event.END_ARRAY) {
+            finished = true;
+            return null;
+        }
+        if (event != JsonParser.Event.START_OBJECT) {
+            throw new JsonException("expected a tweet object but found " + event);
+        }
+
+        String id = null;
+        String author = null;
+        String text = null;
+        String createdAt = null;
+        while ((event = nextEvent()) != JsonParser.Event.END_OBJECT) {
+            String key = parser.getString();
+            event = nextEvent();
+            switch (key) {
+            case "id":
+                id = scalar(event);
+                break;
+            case "text":
+                text = scalar(event);
+                break;
+            case "created_at":
+                createdAt = scalar(event);
+                break;
+            case "user.screen_name":
+                author = scalar(event);
+                break;
+            case "user":
+                if (event == JsonParser.Event.START_OBJECT) {
+                    String nested = readScreenName();
+                    if (nested != null) {
+                        author = nested;
+                    }
+                } else {
+                    skipValue(event);
+                }
+                break;
+            default:
+                skipValue(event);
+            }
+        }
+
+        if (id == null || author == null || text == null || createdAt == null) {
+            throw new JsonException("tweet is missing id, user.screen_name, text or created_at");
+        }
+        try {
+            long tweetId = Long.parseLong(id);
+            if (tweetId <= sinceId) {
+                skipped++;
+                return null;
+            }
+            ZonedDateTime timestamp = ZonedDateTime.parse(createdAt, CREATED_AT_FORMAT);
+            return new Tweet(tweetId, author, text, timestamp.toInstant());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new JsonException("malformed id or created_at in tweet " + id, e);
+        }
+    }
+
+    /*
+     * Read the rest of a "user" object, returning its screen_name if present.
+     */
+    private String readScreenName() {
+        String screenName = null;
+        JsonParser.Event event;
+        while ((event = nextEvent()) != JsonParser.Event.END_OBJECT) {
+            String key = parser.getString();
+            event = nextEvent();
+            if (key.equals("screen_name")) {
+                screenName = scalar(event);
+            } else {
+                skipValue(event);
+            }
+        }
+        return screenName;
+    }
+
+    private String scalar(JsonParser.Event event) {
+        switch (event) {
+        case VALUE_STRING:
+        case VALUE_NUMBER:
+            return parser.getString();
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+        case VALUE_NULL:
+            return event.toString();
+        default:
+            throw new JsonException("expected a string or number but found " + event);
+        }
+    }
+
+    /*
+     * Skip the value that starts with event, including any nested values.
+     */
+    private void skipValue(JsonParser.Event event) {
+        int depth = 0;
+        while (true) {
+            if (event == JsonParser.Event.START_OBJECT || event == JsonParser.Event.START_ARRAY) {
+                depth++;
+            } else if (event == JsonParser.Event.END_OBJECT || event == JsonParser.Event.END_ARRAY) {
+                depth--;
+            }
+            if (depth == 0) {
+                return;
+            }
+            event = nextEvent();
+        }
+    }
+
+    private void expect(JsonParser.Event expected) {
+        JsonParser.Event event = nextEvent();
+        if (event != expected) {
+            throw new JsonException("expected " + expected + " but found " + event);
+        }
+    }
+
+    private JsonParser.Event nextEvent() {
+        if (!parser.hasNext()) {
+            throw new JsonException("unexpected end of input");
+        }
+        return parser.next();
+    }
+}
@@ -0,0 +1,193 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TweetPublisher publishes the tweets of a JSON stream, in the format read by
+ * TweetReader, to Flow subscribers as they are parsed, so that downstream
+ * analysis can start before the whole stream has been read.
+ *
+ * The publisher honors demand: it parses a tweet only when a subscriber has
+ * requested one, holding at most one tweet in memory per subscription, so an
+ * unbounded stream can be consumed in constant memory by a subscriber that
+ * keeps up. A subscriber that stops requesting stops the parse.
+ *
+ * The publisher is cold: each subscriber gets its own stream, opened by the
+ * publisher's source when the subscriber first requests a tweet and closed
+ * when the stream ends, fails or the subscription is cancelled. Parsing runs
+ * on the publisher's executor, on one thread at a time per subscription.
+ *
+ * Errors opening or parsing the stream are signalled with onError.
+ */
+public class TweetPublisher implements Flow.Publisher<Tweet> {
+
+    private final Callable<? extends Reader> source;
+    private final Executor executor;
+
+    /**
+     * Make a publisher that parses on virtual threads.
+     *
+     * @param source
+     *            opens a new stream holding a JSON array of tweets for each
+     *            subscriber
+     */
+    public TweetPublisher(Callable<? extends Reader> source) {
+        this(source, task -> Thread.ofVirtual().name("TweetPublisher").start(task));
+    }
+
+    /**
+     * Make a publisher.
+     *
+     * @param source
+     *            opens a new stream holding a JSON array of tweets for each
+     *            subscriber
+     * @param executor
+     *            runs the parsing; should not run tasks on the calling thread
+     */
+    public TweetPublisher(Callable<? extends Reader> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    /**
+     * @param path
+     *            file holding a JSON array of tweets in UTF-8
+     * @return publisher of the tweets in the file
+     */
+    public static TweetPublisher fromPath(Path path) {
+        return new TweetPublisher(() -> Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param url
+     *            URL of a server producing a JSON array of tweets, such as
+     *            Main.SAMPLE_SERVER
+     * @return publisher of the tweets fetched from url, fetched again for
+     *         each subscriber
+     */
+    public static TweetPublisher fromUrl(URL url) {
+        return new TweetPublisher(() -> new InputStreamReader(url.openStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param reader
+     *            stream holding a JSON array of tweets
+     * @return publisher of the tweets in reader, which supports only one
+     *         subscriber since the stream can be read only once
+     */
+    public static TweetPublisher fromReader(Reader reader) {
+        AtomicInteger opened = new AtomicInteger();
+        return new TweetPublisher(() -> {
+            if (opened.getAndIncrement() > 0) {
+                throw new IllegalStateException("a Reader can be published to only one subscriber");
+            }
+            return reader;
+        });
+    }
+
+    @Override public void subscribe(Flow.Subscriber<? super Tweet> subscriber) {
+        TweetSubscription subscription = new TweetSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /*
+     * One subscriber's stream. Signals are sent by drain(), which runs on the
+     * executor and never on two threads at once: schedule() starts it only
+     * when wip goes from 0 to 1, and drain() loops until it has handled every
+     * schedule() call made while it ran.
+     */
+    private class TweetSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super Tweet> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable badRequest = null;
+        // confined to the draining thread
+        private TweetParser parser = null;
+        private boolean done = false;
+
+        TweetSubscription(Flow.Subscriber<? super Tweet> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("non-positive request " + n);
+            } else {
+                demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            }
+            schedule();
+        }
+
+        @Override public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            try {
+                while (!cancelled && badRequest == null && demand.get() > 0) {
+                    if (parser == null) {
+                        parser = new TweetParser(source.call());
+                    }
+                    if (!parser.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    Tweet tweet = parser.next();
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(tweet);
+                }
+                if (cancelled) {
+                    finish();
+                } else if (badRequest != null) {
+                    finish();
+                    subscriber.onError(badRequest);
+                }
+            } catch (Exception e) {
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (parser != null) {
+                parser.close();
+            }
+        }
+    }
+}
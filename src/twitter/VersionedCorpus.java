@@ -0,0 +1,215 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * VersionedCorpus is a growing collection of tweets that can be queried by
+ * Filter, Extract and SocialNetwork while tweets are being appended.
+ *
+ * Each append publishes a new Snapshot: an immutable List<Tweet> of all the
+ * tweets appended so far, with a version number that increases by one per
+ * append. Readers call snapshot() without locking and may hold a snapshot as
+ * long as they like; it never changes, so any method that requires a list
+ * nobody modifies during the call can be given one.
+ *
+ * Tweets are stored in fixed-size chunks, shared by all snapshots. An append
+ * writes only into slots past the end of every published snapshot, so it
+ * costs O(appended tweets), amortized, rather than copying the corpus, and
+ * snapshots cost O(1) memory each.
+ *
+ * Derived indexes attached to the corpus are stored with each snapshot and
+ * updated incrementally by each append, from the previous snapshot's value
+ * and the appended tweets.
+ *
+ * Appends are serialized; snapshot() never blocks.
+ */
+public class VersionedCorpus {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // guarded by this; chunks and spine slots below the published size are
+    // never written again, slots at or past it only by the appending thread
+    private Tweet[][] spine = new Tweet[16][];
+    private volatile Snapshot current = new Snapshot(spine, 0, 0, Collections.emptyMap());
+    /* Rep invariant:
+     *    spine holds current.spine's chunk references, possibly with more
+     *    capacity
+     *    every chunk in spine[0..ceil(current.size / CHUNK_SIZE)) is non-null
+     * Thread safety argument:
+     *    appends hold this object's lock. A snapshot reads only elements
+     *    below its size, which were written before the snapshot was
+     *    published through the volatile field current, and are never
+     *    written again.
+     */
+
+    /**
+     * An immutable list of the tweets in a corpus at one version, with the
+     * values of the corpus's derived indexes for those tweets.
+     */
+    public static final class Snapshot extends AbstractList<Tweet> implements RandomAccess {
+        private final Tweet[][] spine;
+        private final int size;
+        private final long version;
+        private final Map<DerivedIndex<?>, Object> indexes;
+
+        private Snapshot(Tweet[][] spine, int size, long version, Map<DerivedIndex<?>, Object> indexes) {
+            this.spine = spine;
+            this.size = size;
+            this.version = version;
+            this.indexes = indexes;
+        }
+
+        @Override public Tweet get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+            return spine[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override public int size() {
+            return size;
+        }
+
+        /**
+         * @return the version of the corpus this snapshot was taken at; 0 for
+         *         the empty corpus, increasing by one per append
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the value of a derived index for this snapshot.
+         *
+         * @param index
+         *            an index attached to the corpus before this snapshot
+         *            was published
+         * @return the index's value for the tweets of this snapshot
+         * @throws IllegalArgumentException if index was not attached
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getIndex(DerivedIndex<T> index) {
+            if (!indexes.containsKey(index)) {
+                throw new IllegalArgumentException("index not attached to this snapshot");
+            }
+            return (T) indexes.get(index);
+        }
+    }
+
+    /**
+     * Make an empty corpus.
+     */
+    public VersionedCorpus() {
+    }
+
+    /**
+     * @return the latest snapshot; never blocks
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Append tweets and publish a new snapshot.
+     *
+     * @param tweets
+     *            tweets to append, in order, not modified by this method
+     * @return the new snapshot, whose tweets are those of the previous
+     *         snapshot followed by tweets, with every attached index updated
+     */
+    public synchronized Snapshot append(List<Tweet> tweets) {
+        Snapshot next = extend(spine, current, tweets);
+        spine = next.spine;
+        current = next;
+        return current;
+    }
+
+    /**
+     * Attach a derived index, computing its value for the latest snapshot
+     * and publishing a new snapshot (with the same tweets and a new version)
+     * that carries it. Later appends update it incrementally.
+     *
+     * @param index
+     *            index to attach; attaching the same index again has no effect
+     * @return the new snapshot
+     */
+    public synchronized Snapshot attach(DerivedIndex<?> index) {
+        Snapshot previous = current;
+        if (previous.indexes.containsKey(index)) {
+            return previous;
+        }
+        Map<DerivedIndex<?>, Object> indexes = new IdentityHashMap<>(previous.indexes);
+        indexes.put(index, index.create(previous));
+        current = new Snapshot(previous.spine, previous.size, previous.version + 1, Collections.unmodifiableMap(indexes));
+        return current;
+    }
+
+    /**
+     * Replace all tweets, recomputing every attached index, and publish a new
+     * snapshot. Earlier snapshots are unaffected.
+     *
+     * @param tweets
+     *            the new tweets, in order, not modified by this method
+     * @return the new snapshot
+     */
+    public synchronized Snapshot replace(List<Tweet> tweets) {
+        Snapshot previous = current;
+        Map<DerivedIndex<?>, Object> empty = new IdentityHashMap<>();
+        for (DerivedIndex<?> index : previous.indexes.keySet()) {
+            empty.put(index, index.create(Collections.emptyList()));
+        }
+        Tweet[][] fresh = new Tweet[16][];
+        // built aside, so if an index update throws, spine and current are
+        // left as they were
+        Snapshot next = extend(fresh, new Snapshot(fresh, 0, previous.version, empty), tweets);
+        spine = next.spine;
+        current = next;
+        return current;
+    }
+
+    /*
+     * Write tweets into the slots of a spine after base, which must be the
+     * end of that spine, and make (without publishing) the snapshot that
+     * includes them. The snapshot's spine is the given one, or a grown copy.
+     */
+    private static Snapshot extend(Tweet[][] spine, Snapshot base, List<Tweet> tweets) {
+        int size = base.size;
+        if ((long) size + tweets.size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("corpus is full");
+        }
+        for (Tweet tweet : tweets) {
+            int chunk = size >>> CHUNK_SHIFT;
+            if (chunk == spine.length) {
+                Tweet[][] grown = new Tweet[spine.length * 2][];
+                System.arraycopy(spine, 0, grown, 0, spine.length);
+                spine = grown;
+            }
+            if (spine[chunk] == null) {
+                spine[chunk] = new Tweet[CHUNK_SIZE];
+            }
+            spine[chunk][size & CHUNK_MASK] = tweet;
+            size++;
+        }
+
+        Map<DerivedIndex<?>, Object> indexes = new IdentityHashMap<>();
+        for (Map.Entry<DerivedIndex<?>, Object> entry : base.indexes.entrySet()) {
+            indexes.put(entry.getKey(), updated(entry.getKey(), entry.getValue(), tweets));
+        }
+        return new Snapshot(spine, size, base.version + 1, Collections.unmodifiableMap(indexes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T updated(DerivedIndex<T> index, Object previous, List<Tweet> added) {
+        return index.update((T) previous, added);
+    }
+}
@@ -0,0 +1,325 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Vocabulary is an immutable, compact sorted set of terms that maps each term
+ * to a dense integer id and expands prefix and wildcard patterns into ids.
+ *
+ * Term ids are the ranks of the terms in sorted (String.compareTo) order, so
+ * the terms sharing a prefix always have a contiguous range of ids, found by
+ * two binary searches. A second permutation sorts the ids by reversed term,
+ * which does the same for suffixes. All terms are packed into a single char
+ * array, so the vocabulary costs about two chars per term character plus three
+ * ints per term, with no per-term objects, and expanding a prefix takes
+ * O(log size) comparisons before listing the matching ids.
+ */
+public class Vocabulary {
+
+    /** The wildcard character in patterns; matches any sequence of characters. */
+    public static final char WILDCARD = '*';
+
+    private final char[] chars;
+    private final int[] offsets;
+    private final int[] byReversed;
+    /* Rep invariant:
+     *    offsets.length == size() + 1, offsets[0] == 0, offsets ascending,
+     *    offsets[size()] == chars.length
+     *    term(i) == new String(chars, offsets[i], offsets[i+1] - offsets[i])
+     *    term(0) < term(1) < ... < term(size() - 1)
+     *    byReversed is a permutation of 0..size()-1 sorted by reversed term
+     */
+
+    /**
+     * Make a vocabulary.
+     *
+     * @param terms
+     *            terms to include; duplicates are ignored
+     */
+    public Vocabulary(Collection<String> terms) {
+        String[] sorted = new TreeSet<>(terms).toArray(new String[0]);
+        this.offsets = new int[sorted.length + 1];
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            offsets[i] = length;
+            length += sorted[i].length();
+        }
+        offsets[sorted.length] = length;
+        this.chars = new char[length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i].getChars(0, sorted[i].length(), chars, offsets[i]);
+        }
+
+        Integer[] order = new Integer[sorted.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compareReversed(a, b));
+        this.byReversed = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            byReversed[i] = order[i];
+        }
+    }
+
+    /**
+     * @return number of terms in this vocabulary
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param id
+     *            term id, requires 0 <= id < size()
+     * @return the term with that id
+     */
+    public String term(int id) {
+        return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+    /**
+     * @param term
+     *            a term
+     * @return the id of term, or -1 if it is not in this vocabulary
+     */
+    public int id(String term) {
+        int lo = 0;
+        int hi = size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, term, false);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the terms starting with a prefix.
+     *
+     * @param prefix
+     *            a prefix, may be empty
+     * @return the ids of the terms starting with prefix: all ids i with
+     *         from <= i < to, returned as the array {from, to}
+     */
+    public int[] prefixRange(String prefix) {
+        return new int[] { lowerBound(prefix, false), lowerBound(prefix, true) };
+    }
+
+    /**
+     * Find the terms matching a pattern.
+     *
+     * @param pattern
+     *            a term in which each WILDCARD matches any sequence of
+     *            characters, possibly empty; e.g. "rivest*", "*coin" or "b*t".
+     *            A pattern without WILDCARD matches only itself.
+     * @return ids of the matching terms, ascending
+     */
+    public int[] expand(String pattern) {
+        int firstWildcard = pattern.indexOf(WILDCARD);
+        if (firstWildcard < 0) {
+            int id = id(pattern);
+            return id < 0 ? new int[0] : new int[] { id };
+        }
+        int lastWildcard = pattern.lastIndexOf(WILDCARD);
+        String prefix = pattern.substring(0, firstWildcard);
+        String suffix = pattern.substring(lastWildcard + 1);
+        boolean simplePrefix = firstWildcard == pattern.length() - 1;
+        boolean simpleSuffix = lastWildcard == 0;
+
+        if (simplePrefix) {
+            int[] range = prefixRange(prefix);
+            return rangeIds(range[0], range[1]);
+        }
+
+        int[] candidates;
+        if (!prefix.isEmpty() || suffix.isEmpty()) {
+            int[] range = prefixRange(prefix);
+            candidates = rangeIds(range[0], range[1]);
+        } else {
+            candidates = suffixIds(suffix);
+            if (simpleSuffix) {
+                return candidates;
+            }
+        }
+
+        int[] result = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            if (globMatches(pattern, 0, id, offsets[id])) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Find the terms matching a pattern.
+     *
+     * @param pattern
+     *            pattern as for expand()
+     * @return the matching terms, in sorted order
+     */
+    public List<String> expandTerms(String pattern) {
+        List<String> terms = new ArrayList<>();
+        for (int id : expand(pattern)) {
+            terms.add(term(id));
+        }
+        return terms;
+    }
+
+    /*
+     * @return ids of terms ending with suffix, ascending
+     */
+    private int[] suffixIds(String suffix) {
+        int lo = 0;
+        int hi = size();
+        // first position in byReversed whose reversed term is >= reversed suffix
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffix(byReversed[mid], suffix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int from = lo;
+        hi = size();
+        // first position past the terms that end with suffix
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffix(byReversed[mid], suffix) == 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int[] ids = Arrays.copyOfRange(byReversed, from, lo);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static int[] rangeIds(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    /*
+     * @param afterPrefix if true, treat every term starting with key as
+     *                    smaller than key
+     * @return the first id whose term is not smaller than key
+     */
+    private int lowerBound(String key, boolean afterPrefix) {
+        int lo = 0;
+        int hi = size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, key, afterPrefix);
+            if (cmp < 0 || (afterPrefix && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /*
+     * Compare term(id) with key without allocating.
+     *
+     * @param prefixOnly if true, report 0 when term(id) starts with key
+     */
+    private int compare(int id, String key, boolean prefixOnly) {
+        int start = offsets[id];
+        int length = offsets[id + 1] - start;
+        int n = Math.min(length, key.length());
+        for (int i = 0; i < n; i++) {
+            char c = chars[start + i];
+            char k = key.charAt(i);
+            if (c != k) {
+                return c - k;
+            }
+        }
+        if (prefixOnly && length >= key.length()) {
+            return 0;
+        }
+        return length - key.length();
+    }
+
+    /*
+     * Compare the reversed term(id) with the reversed suffix, reporting 0 when
+     * term(id) ends with suffix.
+     */
+    private int compareSuffix(int id, String suffix) {
+        int end = offsets[id + 1];
+        int length = end - offsets[id];
+        int n = Math.min(length, suffix.length());
+        for (int i = 1; i <= n; i++) {
+            char c = chars[end - i];
+            char k = suffix.charAt(suffix.length() - i);
+            if (c != k) {
+                return c - k;
+            }
+        }
+        return length >= suffix.length() ? 0 : -1;
+    }
+
+    private int compareReversed(int a, int b) {
+        int endA = offsets[a + 1];
+        int endB = offsets[b + 1];
+        int lengthA = endA - offsets[a];
+        int lengthB = endB - offsets[b];
+        int n = Math.min(lengthA, lengthB);
+        for (int i = 1; i <= n; i++) {
+            char ca = chars[endA - i];
+            char cb = chars[endB - i];
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    /*
+     * @return true if pattern[p..] matches the chars of term id from index t
+     */
+    private boolean globMatches(String pattern, int p, int id, int t) {
+        final int end = offsets[id + 1];
+        // standard greedy wildcard matching with backtracking to the last '*'
+        int starP = -1;
+        int starT = -1;
+        while (t < end) {
+            if (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+                starP = p++;
+                starT = t;
+            } else if (p < pattern.length() && pattern.charAt(p) == chars[t]) {
+                p++;
+                t++;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                t = ++starT;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
@@ -0,0 +1,479 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * VolumeRollup keeps pre-aggregated per-minute, per-hour and per-day counts of
+ * a stream of tweets, so that volume over any timespan can be found without
+ * looking at the tweets again.
+ *
+ * For each bucket it keeps the number of tweets, a HyperLogLog sketch of the
+ * distinct authors, and the number of tweets mentioning each of a fixed set
+ * of tracked users (mentions as in Extract.getMentionedUsers()). All of these
+ * live in primitive arrays, in pages of 64 consecutive buckets that are
+ * allocated only once a tweet falls in them, so tweets far apart in time
+ * cost one page each rather than every bucket between them. A sketch is
+ * allocated with the first tweet of its bucket, and starts sparse, so a
+ * bucket with few authors, as most minutes are, stays small. A timespan
+ * query combines the
+ * fewest buckets that cover it: minutes up to the first whole hour, hours up
+ * to the first whole day, whole days, then hours and minutes again, so it
+ * touches at most 2 * (59 + 23) buckets plus one per whole day. The
+ * timespan is first clamped to the minutes of the earliest and latest
+ * tweets, and when its whole days outnumber the allocated day buckets, only
+ * those are visited, so even a timespan of all time stays cheap.
+ *
+ * Buckets are aligned to UTC minutes, hours and days, so a query answers for
+ * its timespan widened to whole minutes: [start..end] covers every minute
+ * containing an instant between start and end.
+ *
+ * Distinct-author counts are estimates, with a relative standard error of
+ * about 1.04 / sqrt(2^precision) (3% at the default precision). A bucket's
+ * sketch costs 4 bytes per distinct author up to 2^precision / 4 of them,
+ * then 2^precision bytes. Tweet and mention counts are exact.
+ *
+ * A VolumeRollup is not safe for concurrent use.
+ */
+public class VolumeRollup {
+
+    /** Default HyperLogLog precision: 2^10 registers per bucket. */
+    public static final int DEFAULT_PRECISION = 10;
+
+    /**
+     * Bucket sizes kept by the rollup.
+     */
+    public enum Resolution {
+        MINUTE(60), HOUR(60 * 60), DAY(24 * 60 * 60);
+
+        private final long seconds;
+
+        Resolution(long seconds) {
+            this.seconds = seconds;
+        }
+
+        /**
+         * @return length of one bucket in seconds
+         */
+        public long getSeconds() {
+            return seconds;
+        }
+    }
+
+    private static final int PAGE_BUCKETS = 64;
+    private static final long MINUTES_PER_HOUR = 60;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final int precision;
+    private final int registers;
+    private final Map<String, Integer> trackedUsers = new HashMap<>();
+    private final Level[] levels = new Level[Resolution.values().length];
+    private long tweetCount = 0;
+    // minute bucket indexes of the earliest and latest tweets, if any
+    private long firstMinute = Long.MAX_VALUE;
+    private long lastMinute = Long.MIN_VALUE;
+    private final Set<String> scratch = new HashSet<>();
+    /* Rep invariant:
+     *    4 <= precision <= 16, registers == 2^precision
+     *    trackedUsers maps lowercase usernames to 0..trackedUsers.size()-1
+     *    for each resolution, the sum of the level's tweet counts == tweetCount
+     *    if tweetCount > 0, firstMinute and lastMinute are the least and
+     *      greatest minute buckets with tweets
+     */
+
+    /*
+     * The buckets of one resolution, in pages keyed by
+     * floor(bucket index / PAGE_BUCKETS), where
+     * bucket index = floor(epochSecond / bucketSeconds).
+     */
+    private class Level {
+        final long bucketSeconds;
+        final Map<Long, Page> pages = new HashMap<>();
+        // the page last returned by pageFor(), since tweets tend to be
+        // added in time order
+        long lastKey;
+        Page lastPage = null;
+
+        Level(long bucketSeconds) {
+            this.bucketSeconds = bucketSeconds;
+        }
+
+        /*
+         * @return the page holding a bucket index, made if absent
+         */
+        Page pageFor(long bucket) {
+            long key = Math.floorDiv(bucket, PAGE_BUCKETS);
+            if (lastPage == null || key != lastKey) {
+                lastPage = pages.computeIfAbsent(key, k -> new Page());
+                lastKey = key;
+            }
+            return lastPage;
+        }
+
+        /*
+         * @return the page holding a bucket index, or null if nothing was
+         *         added to it
+         */
+        Page find(long bucket) {
+            return pages.get(Math.floorDiv(bucket, PAGE_BUCKETS));
+        }
+    }
+
+    /*
+     * PAGE_BUCKETS consecutive buckets of a level; a bucket's offset in the
+     * page is floorMod(bucket index, PAGE_BUCKETS).
+     */
+    private class Page {
+        final int[] tweets = new int[PAGE_BUCKETS];
+        // null for a bucket without tweets
+        final Sketch[] sketches = new Sketch[PAGE_BUCKETS];
+        final int[] mentions = new int[PAGE_BUCKETS * trackedUsers.size()];
+    }
+
+    /*
+     * The HyperLogLog sketch of one bucket. It starts sparse, as a sorted
+     * array of (register << 8 | rank) for its nonzero registers, and becomes
+     * a dense array of all the registers' ranks once that would be smaller.
+     */
+    private class Sketch {
+        int[] sparse = new int[4];
+        int sparseSize = 0;
+        byte[] dense = null;
+        /* Rep invariant:
+         *    exactly one of sparse and dense is null
+         *    sparse[0..sparseSize) is sorted, holds at most one entry per
+         *      register, each with rank > 0, and sparseSize <= registers / 4
+         *    dense.length == registers
+         */
+
+        void add(int register, byte rank) {
+            if (dense != null) {
+                if (dense[register] < rank) {
+                    dense[register] = rank;
+                }
+                return;
+            }
+            // ranks are > 0, so no entry equals register << 8
+            int insertion = -Arrays.binarySearch(sparse, 0, sparseSize, register << 8) - 1;
+            if (insertion < sparseSize && sparse[insertion] >>> 8 == register) {
+                if ((sparse[insertion] & 0xff) < rank) {
+                    sparse[insertion] = register << 8 | rank;
+                }
+                return;
+            }
+            if (sparseSize == registers / 4) {
+                byte[] promoted = new byte[registers];
+                mergeInto(promoted);
+                promoted[register] = rank;
+                dense = promoted;
+                sparse = null;
+                return;
+            }
+            if (sparseSize == sparse.length) {
+                sparse = Arrays.copyOf(sparse, Math.min(2 * sparse.length, registers / 4));
+            }
+            System.arraycopy(sparse, insertion, sparse, insertion + 1, sparseSize - insertion);
+            sparse[insertion] = register << 8 | rank;
+            sparseSize++;
+        }
+
+        /*
+         * Raise each register of merged to at least this sketch's rank.
+         */
+        void mergeInto(byte[] merged) {
+            if (dense != null) {
+                for (int j = 0; j < registers; j++) {
+                    if (dense[j] > merged[j]) {
+                        merged[j] = dense[j];
+                    }
+                }
+                return;
+            }
+            for (int i = 0; i < sparseSize; i++) {
+                int register = sparse[i] >>> 8;
+                byte rank = (byte) sparse[i];
+                if (rank > merged[register]) {
+                    merged[register] = rank;
+                }
+            }
+        }
+    }
+
+    private static int offset(long bucket) {
+        return (int) Math.floorMod(bucket, (long) PAGE_BUCKETS);
+    }
+
+    /**
+     * Make an empty rollup with the default sketch precision.
+     *
+     * @param trackedUsers
+     *            usernames whose mention counts are kept, not case-sensitive
+     */
+    public VolumeRollup(Collection<String> trackedUsers) {
+        this(trackedUsers, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Make an empty rollup.
+     *
+     * @param trackedUsers
+     *            usernames whose mention counts are kept, not case-sensitive
+     * @param precision
+     *            HyperLogLog precision for distinct-author sketches, requires
+     *            4 <= precision <= 16
+     */
+    public VolumeRollup(Collection<String> trackedUsers, int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("requires 4 <= precision <= 16");
+        }
+        this.precision = precision;
+        this.registers = 1 << precision;
+        for (String user : trackedUsers) {
+            this.trackedUsers.putIfAbsent(user.toLowerCase(), this.trackedUsers.size());
+        }
+        for (Resolution resolution : Resolution.values()) {
+            levels[resolution.ordinal()] = new Level(resolution.getSeconds());
+        }
+    }
+
+    /**
+     * Add one tweet to the rollup.
+     *
+     * @param tweet
+     *            tweet to count
+     */
+    public void add(Tweet tweet) {
+        long second = tweet.getTimestamp().getEpochSecond();
+        long hash = Hashing.hash(tweet.getAuthor().toLowerCase(), 0);
+        int register = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+
+        scratch.clear();
+        if (!trackedUsers.isEmpty()) {
+            Extract.addMentionedUsers(tweet.getText(), scratch);
+        }
+
+        final int users = trackedUsers.size();
+        for (Level level : levels) {
+            long bucket = Math.floorDiv(second, level.bucketSeconds);
+            Page page = level.pageFor(bucket);
+            int slot = offset(bucket);
+            page.tweets[slot]++;
+            if (page.sketches[slot] == null) {
+                page.sketches[slot] = new Sketch();
+            }
+            page.sketches[slot].add(register, rank);
+            for (String user : scratch) {
+                Integer u = trackedUsers.get(user);
+                if (u != null) {
+                    page.mentions[slot * users + u]++;
+                }
+            }
+        }
+        long minute = Math.floorDiv(second, Resolution.MINUTE.getSeconds());
+        firstMinute = Math.min(firstMinute, minute);
+        lastMinute = Math.max(lastMinute, minute);
+        tweetCount++;
+    }
+
+    /**
+     * Add tweets to the rollup, in order.
+     *
+     * @param tweets
+     *            tweets to count, not modified by this method
+     */
+    public void addAll(List<Tweet> tweets) {
+        for (Tweet tweet : tweets) {
+            add(tweet);
+        }
+    }
+
+    /**
+     * @return total number of tweets added
+     */
+    public long getTweetCount() {
+        return tweetCount;
+    }
+
+    /**
+     * Count tweets sent during a timespan, widened to whole minutes.
+     *
+     * @param timespan
+     *            timespan
+     * @return number of tweets added whose timestamp falls in a minute
+     *         overlapping timespan
+     */
+    public long tweetCount(Timespan timespan) {
+        long total = 0;
+        for (long[] bucket : cover(timespan)) {
+            Page page = levels[(int) bucket[0]].find(bucket[1]);
+            if (page != null) {
+                total += page.tweets[offset(bucket[1])];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimate the number of distinct authors during a timespan, widened to
+     * whole minutes.
+     *
+     * @param timespan
+     *            timespan
+     * @return estimated number of distinct authors (not case-sensitive) of
+     *         the tweets counted by tweetCount(timespan)
+     */
+    public long distinctAuthors(Timespan timespan) {
+        byte[] merged = new byte[registers];
+        for (long[] bucket : cover(timespan)) {
+            Page page = levels[(int) bucket[0]].find(bucket[1]);
+            Sketch sketch = page == null ? null : page.sketches[offset(bucket[1])];
+            if (sketch != null) {
+                sketch.mergeInto(merged);
+            }
+        }
+        return Math.round(estimate(merged));
+    }
+
+    /**
+     * Count tweets mentioning a tracked user during a timespan, widened to
+     * whole minutes.
+     *
+     * @param username
+     *            a tracked username, not case-sensitive
+     * @param timespan
+     *            timespan
+     * @return number of tweets counted by tweetCount(timespan) that mention
+     *         username
+     * @throws IllegalArgumentException if username is not tracked
+     */
+    public long mentionCount(String username, Timespan timespan) {
+        Integer u = trackedUsers.get(username.toLowerCase());
+        if (u == null) {
+            throw new IllegalArgumentException("not a tracked user: " + username);
+        }
+        final int users = trackedUsers.size();
+        long total = 0;
+        for (long[] bucket : cover(timespan)) {
+            Page page = levels[(int) bucket[0]].find(bucket[1]);
+            if (page != null) {
+                total += page.mentions[offset(bucket[1]) * users + u];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get the tweet counts of consecutive buckets, e.g. for a volume chart.
+     *
+     * @param timespan
+     *            timespan
+     * @param resolution
+     *            bucket size
+     * @return counts of the buckets of the given resolution overlapping
+     *         timespan, in time order
+     * @throws IllegalArgumentException if there are too many such buckets
+     *         for an array
+     */
+    public long[] tweetCounts(Timespan timespan, Resolution resolution) {
+        Level level = levels[resolution.ordinal()];
+        long first = Math.floorDiv(timespan.getStart().getEpochSecond(), level.bucketSeconds);
+        long last = Math.floorDiv(timespan.getEnd().getEpochSecond(), level.bucketSeconds);
+        if (last - first >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many buckets: " + (last - first + 1));
+        }
+        long[] counts = new long[(int) (last - first + 1)];
+        for (int i = 0; i < counts.length; i++) {
+            Page page = level.find(first + i);
+            counts[i] = page != null ? page.tweets[offset(first + i)] : 0;
+        }
+        return counts;
+    }
+
+    /*
+     * Cover the minutes overlapping timespan that may hold tweets with the
+     * fewest buckets, leaving out runs of whole days without tweets when
+     * that is cheaper than listing them.
+     *
+     * @return list of {resolution ordinal, bucket index} pairs
+     */
+    private List<long[]> cover(Timespan timespan) {
+        long a = Math.max(firstMinute,
+                Math.floorDiv(timespan.getStart().getEpochSecond(), Resolution.MINUTE.getSeconds()));
+        long b = Math.min(lastMinute,
+                Math.floorDiv(timespan.getEnd().getEpochSecond(), Resolution.MINUTE.getSeconds()));
+        List<long[]> buckets = new ArrayList<>();
+        while (a <= b) {
+            if (Math.floorMod(a, MINUTES_PER_DAY) == 0 && a + MINUTES_PER_DAY - 1 <= b) {
+                long firstDay = a / MINUTES_PER_DAY;
+                long lastDay = Math.floorDiv(b + 1, MINUTES_PER_DAY) - 1;
+                coverDays(firstDay, lastDay, buckets);
+                a = (lastDay + 1) * MINUTES_PER_DAY;
+            } else if (Math.floorMod(a, MINUTES_PER_HOUR) == 0 && a + MINUTES_PER_HOUR - 1 <= b) {
+                buckets.add(new long[] { Resolution.HOUR.ordinal(), a / MINUTES_PER_HOUR });
+                a += MINUTES_PER_HOUR;
+            } else {
+                buckets.add(new long[] { Resolution.MINUTE.ordinal(), a });
+                a++;
+            }
+        }
+        return buckets;
+    }
+
+    /*
+     * Add the day buckets firstDay..lastDay to a cover: all of them if there
+     * are fewer than the allocated day buckets, else just those allocated.
+     */
+    private void coverDays(long firstDay, long lastDay, List<long[]> buckets) {
+        Level days = levels[Resolution.DAY.ordinal()];
+        if (lastDay - firstDay < (long) days.pages.size() * PAGE_BUCKETS) {
+            for (long day = firstDay; day <= lastDay; day++) {
+                buckets.add(new long[] { Resolution.DAY.ordinal(), day });
+            }
+            return;
+        }
+        List<Long> keys = new ArrayList<>(days.pages.keySet());
+        Collections.sort(keys);
+        for (long key : keys) {
+            Page page = days.pages.get(key);
+            for (int slot = 0; slot < PAGE_BUCKETS; slot++) {
+                long day = key * PAGE_BUCKETS + slot;
+                if (page.tweets[slot] > 0 && day >= firstDay && day <= lastDay) {
+                    buckets.add(new long[] { Resolution.DAY.ordinal(), day });
+                }
+            }
+        }
+    }
+
+    /*
+     * HyperLogLog cardinality estimate, with linear counting for small
+     * cardinalities.
+     */
+    private double estimate(byte[] sketch) {
+        double sum = 0;
+        int zeros = 0;
+        for (byte rank : sketch) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double m = registers;
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            return m * Math.log(m / zeros);
+        }
+        return raw;
+    }
+}
@@ -0,0 +1,198 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * WordMatcher tests whether a piece of text contains any of a set of words,
+ * with the word semantics of Filter.containing(): a word is a nonempty
+ * sequence of nonspace characters bounded by space characters (as in the
+ * regex \s) or the ends of the text, and comparison is not case-sensitive.
+ *
+ * The text is walked a character at a time. Each word of the text is hashed
+ * with ASCII case folding as it is scanned and looked up in a precomputed
+ * open-addressing table of the search words, comparing characters in place,
+ * so matching ASCII text allocates nothing. Words containing non-ASCII
+ * characters fall back to String.toLowerCase() and a HashSet, which keeps the
+ * result identical to Filter.containing() for every input.
+ *
+ * A WordMatcher is immutable and safe to share between threads.
+ */
+public class WordMatcher {
+
+    private static final int EMPTY = -1;
+
+    // ASCII lowercase search words, and an open-addressing (linear probing)
+    // table of indexes into them
+    private final char[][] asciiWords;
+    private final int[] table;
+    private final int mask;
+    // every search word, lowercased, for text words with non-ASCII characters
+    private final Set<String> lowercaseWords;
+    // false if the default locale lowercases some ASCII letter to a non-ASCII
+    // character (e.g. Turkish dotless i), in which case only the fallback is used
+    private final boolean asciiFoldingSafe;
+    /* Rep invariant:
+     *    table.length is a power of two, mask == table.length - 1
+     *    table.length >= 2 * asciiWords.length
+     *    each asciiWords[i] is ASCII with no uppercase letters, appears at
+     *    most once, and is reachable by linear probing from hash(asciiWords[i])
+     *    lowercaseWords contains toLowerCase() of every search word
+     */
+
+    /**
+     * Make a matcher for a list of words.
+     *
+     * @param words
+     *            words to search for; each a nonempty sequence of nonspace
+     *            characters. Comparison is not case-sensitive.
+     */
+    public WordMatcher(List<String> words) {
+        this.lowercaseWords = new HashSet<>();
+        for (String word : words) {
+            lowercaseWords.add(word.toLowerCase());
+        }
+        this.asciiFoldingSafe = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase().equals("abcdefghijklmnopqrstuvwxyz");
+
+        int asciiCount = 0;
+        for (String word : lowercaseWords) {
+            if (isAscii(word)) {
+                asciiCount++;
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, asciiCount) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(table, EMPTY);
+        this.asciiWords = new char[asciiCount][];
+
+        int index = 0;
+        for (String word : lowercaseWords) {
+            if (!isAscii(word)) {
+                continue;
+            }
+            char[] chars = word.toCharArray();
+            asciiWords[index] = chars;
+            int slot = hash(chars, 0, chars.length) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index;
+            index++;
+        }
+    }
+
+    /**
+     * Test whether text contains any of the words.
+     *
+     * @param text
+     *            text to scan
+     * @return true if and only if some word of text equals one of the search
+     *         words, ignoring case
+     */
+    public boolean matchesAny(String text) {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isSpace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+
+            int start = i;
+            int h = 0;
+            boolean ascii = true;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (isSpace(c)) {
+                    break;
+                }
+                if (c >= 0x80) {
+                    ascii = false;
+                }
+                h = 31 * h + foldAscii(c);
+                i++;
+            }
+
+            if (ascii && asciiFoldingSafe) {
+                if (lookup(text, start, i, h)) {
+                    return true;
+                }
+            } else if (lowercaseWords.contains(text.substring(start, i).toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * @return true if text[start..end), ASCII, with folded hash h, is an ASCII search word
+     */
+    private boolean lookup(String text, int start, int end, int h) {
+        int slot = spread(h) & mask;
+        while (true) {
+            int index = table[slot];
+            if (index == EMPTY) {
+                return false;
+            }
+            char[] word = asciiWords[index];
+            if (word.length == end - start && equalsFolded(word, text, start)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean equalsFolded(char[] word, String text, int start) {
+        for (int k = 0; k < word.length; k++) {
+            if (word[k] != foldAscii(text.charAt(start + k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + chars[i];
+        }
+        return spread(h);
+    }
+
+    /*
+     * Mix the high bits of a polynomial hash into the low bits used for the slot.
+     */
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private static char foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /*
+     * @return true if c is a space character as in the regex \s
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,175 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class AsyncTweetReaderTest {
+
+    /*
+     * Testing strategy for AsyncTweetReader:
+     *
+     * Partition the inputs as follows:
+     * - number of sources: 0, 1, >1 (more than the concurrency limit)
+     * - source outcome: tweets, empty array, error status, malformed body,
+     *   stalls mid-body past its deadline
+     * - tweets across sources: disjoint, overlapping ids
+     * - call: blocking read(), readAsync()
+     *
+     * Uses a local HttpServer standing in for the sample servers.
+     */
+
+    private static final String TWEET1 = "{\"id\": 1, \"user.screen_name\": \"alyssa\", \"text\": \"first\", "
+            + "\"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+    private static final String TWEET2 = "{\"id\": 2, \"user.screen_name\": \"bbitdiddle\", \"text\": \"second\", "
+            + "\"created_at\": \"Wed Feb 17 11:00:00 +0000 2016\"}";
+    private static final String TWEET3 = "{\"id\": 3, \"user.screen_name\": \"eva\", \"text\": \"third\", "
+            + "\"created_at\": \"Wed Feb 17 12:00:00 +0000 2016\"}";
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        serve("/a", 200, "[" + TWEET1 + "," + TWEET2 + "]");
+        serve("/b", 200, "[" + TWEET2 + "," + TWEET3 + "]");
+        serve("/empty", 200, "[]");
+        serve("/error", 500, "oops");
+        serve("/malformed", 200, "[{\"id\": 1}]");
+        server.createContext("/stall", exchange -> {
+            byte[] start = ("[" + TWEET3 + ",").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(start);
+                out.flush();
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                // server stopping
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                // server stopping
+            }
+            inFlight.decrementAndGet();
+            byte[] bytes = ("[" + TWEET1 + "]").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    private void serve(String path, int status, String body) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testNoSources() throws InterruptedException {
+        AsyncTweetReader.Result result = new AsyncTweetReader().read(new ArrayList<>());
+
+        assertTrue("expected no tweets", result.getTweets().isEmpty());
+        assertTrue("expected no failures", result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testMergesAndDeduplicates() throws InterruptedException {
+        AsyncTweetReader.Result result = new AsyncTweetReader().read(Arrays.asList(uri("/b"), uri("/empty"), uri("/a")));
+
+        List<Long> ids = new ArrayList<>();
+        for (Tweet tweet : result.getTweets()) {
+            ids.add(tweet.getId());
+        }
+        assertEquals("expected source order, first of each id", Arrays.asList(2L, 3L, 1L), ids);
+        assertEquals("expected one duplicate", 1, result.getDuplicateCount());
+        assertTrue("expected no failures", result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void testFailuresAndTimeouts() throws Exception {
+        AsyncTweetReader reader = new AsyncTweetReader(HttpClient.newHttpClient(), 4, Duration.ofMillis(500));
+        List<URI> sources = Arrays.asList(uri("/error"), uri("/stall"), uri("/a"), uri("/malformed"));
+
+        long start = System.nanoTime();
+        AsyncTweetReader.Result result = reader.readAsync(sources).get();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("expected tweets from /a only", 2, result.getTweets().size());
+        assertEquals("expected failed sources in order", Arrays.asList(uri("/error"), uri("/stall"), uri("/malformed")),
+                new ArrayList<>(result.getFailures().keySet()));
+        assertTrue("expected IOException for status", result.getFailures().get(uri("/error")) instanceof IOException);
+        assertTrue("expected timeout for stalled body", result.getFailures().get(uri("/stall")) instanceof HttpTimeoutException);
+        assertTrue("expected IOException for malformed body", result.getFailures().get(uri("/malformed")) instanceof IOException);
+        assertTrue("expected stall abandoned near its deadline, took " + elapsedMillis + " ms", elapsedMillis < 5000);
+    }
+
+    @Test
+    public void testBoundedConcurrency() throws InterruptedException {
+        List<URI> sources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            sources.add(uri("/slow"));
+        }
+        AsyncTweetReader reader = new AsyncTweetReader(HttpClient.newHttpClient(), 3, Duration.ofSeconds(10));
+
+        AsyncTweetReader.Result result = reader.read(sources);
+
+        assertEquals("expected one distinct tweet", 1, result.getTweets().size());
+        assertEquals("expected duplicates", 7, result.getDuplicateCount());
+        assertTrue("expected at most 3 in flight, saw " + maxInFlight.get(), maxInFlight.get() <= 3);
+        assertTrue("expected some concurrency, saw " + maxInFlight.get(), maxInFlight.get() >= 2);
+    }
+
+}
@@ -0,0 +1,159 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class EntityExtractorTest {
+
+    /*
+     * Testing strategy for extract():
+     *
+     * Partition the inputs as follows:
+     * - entity type: mention, hashtag, cashtag, URL
+     * - position: start of text, middle, end of text
+     * - preceded by: start of text, space, punctuation, username character
+     * - invalid forms: bare sigil, email address, cashtag too long or numeric,
+     *   sigils inside a URL
+     * - URL ending: whitespace, end of text, trailing punctuation
+     * - mentions agree with Extract.getMentionedUsers() on URL-free text
+     *
+     * Testing strategy for the corpus aggregates:
+     * - tweets.size(): 0, >1
+     * - same hashtag: different case, repeated in one tweet, across tweets
+     * - parallel and sequential counts agree
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d1);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    // Tests for extract()
+
+    @Test
+    public void testExtractNoEntities() {
+        assertTrue("expected no entities", EntityExtractor.extract(tweet1.getText()).isEmpty());
+    }
+
+    @Test
+    public void testExtractAllTypes() {
+        String text = "@Alice see $GOOG at https://example.com/x #Stocks";
+        List<Entity> entities = EntityExtractor.extract(text);
+
+        assertEquals("expected four entities", Arrays.asList(
+                new Entity(Entity.Type.MENTION, "Alice", 0, 6),
+                new Entity(Entity.Type.CASHTAG, "GOOG", 11, 16),
+                new Entity(Entity.Type.URL, "https://example.com/x", 20, 41),
+                new Entity(Entity.Type.HASHTAG, "Stocks", 42, 49)), entities);
+        assertEquals("expected folded mention", "alice", entities.get(0).getNormalizedValue());
+    }
+
+    @Test
+    public void testExtractBoundaries() {
+        List<Entity> entities = EntityExtractor.extract("mail bitdiddle@mit.edu abc#def US$100 ($ibm) #");
+
+        assertEquals("expected only the cashtag", 1, entities.size());
+        assertEquals("expected ibm", "ibm", entities.get(0).getValue());
+    }
+
+    @Test
+    public void testExtractCashtagTooLong() {
+        assertTrue("expected no cashtag", EntityExtractor.extract("$ABCDEFG").isEmpty());
+    }
+
+    @Test
+    public void testExtractUrlTrailingPunctuation() {
+        List<Entity> entities = EntityExtractor.extract("(see http://mit.edu/6.005).");
+
+        assertEquals("expected one entity", 1, entities.size());
+        assertEquals("expected punctuation trimmed", "http://mit.edu/6.005", entities.get(0).getValue());
+    }
+
+    @Test
+    public void testExtractNoEntitiesInsideUrl() {
+        List<Entity> entities = EntityExtractor.extract("HTTP://example.com/#top?u=@bob");
+
+        assertEquals("expected one entity", 1, entities.size());
+        assertEquals("expected URL", Entity.Type.URL, entities.get(0).getType());
+    }
+
+    @Test
+    public void testExtractMentionsAgreeWithExtract() {
+        List<String> texts = Arrays.asList(
+                "Hi @user123 and (@alice) see @bob!",
+                "@alice and @bob and @alice again",
+                "test@alice is email not mention",
+                "check @alice-bob for updates",
+                "@@double and #@tagged and @a@b");
+        for (String text : texts) {
+            Set<String> mentions = new HashSet<>();
+            for (Entity entity : EntityExtractor.extract(text)) {
+                if (entity.getType() == Entity.Type.MENTION) {
+                    mentions.add(entity.getNormalizedValue());
+                }
+            }
+            Set<String> expected = Extract.getMentionedUsers(Arrays.asList(new Tweet(1, "user", text, d1)));
+            assertEquals("expected same mentions for " + text, expected, mentions);
+        }
+    }
+
+    // Tests for getHashtags(), getHashtagCounts() and getEntityCounts()
+
+    @Test
+    public void testGetHashtagsEmpty() {
+        assertTrue("expected no hashtags", EntityExtractor.getHashtags(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testGetHashtags() {
+        Tweet tweet3 = new Tweet(3, "alyssa", "#HYPE #hype #mit", d1);
+
+        Set<String> hashtags = EntityExtractor.getHashtags(Arrays.asList(tweet1, tweet2, tweet3));
+
+        assertEquals("expected folded distinct hashtags", new HashSet<>(Arrays.asList("hype", "mit")), hashtags);
+    }
+
+    @Test
+    public void testGetHashtagCountsOncePerTweet() {
+        Tweet tweet3 = new Tweet(3, "alyssa", "#HYPE #hype #mit", d1);
+
+        Map<String, Integer> counts = EntityExtractor.getHashtagCounts(Arrays.asList(tweet1, tweet2, tweet3));
+
+        assertEquals("expected hype in two tweets", Integer.valueOf(2), counts.get("hype"));
+        assertEquals("expected mit in one tweet", Integer.valueOf(1), counts.get("mit"));
+    }
+
+    @Test
+    public void testGetEntityCountsParallelAgrees() {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tweets.add(new Tweet(i, "user" + (i % 7), "#tag" + (i % 13) + " @user" + (i % 5)
+                    + " $T" + (char) ('A' + i % 3) + " http://x.com/" + (i % 4), d1));
+        }
+
+        Map<Entity.Type, Map<String, Integer>> sequential = EntityExtractor.getEntityCounts(tweets);
+        Map<Entity.Type, Map<String, Integer>> parallel = EntityExtractor.getEntityCountsParallel(tweets);
+
+        assertEquals("expected same counts", sequential, parallel);
+        assertEquals("expected 13 hashtags", 13, sequential.get(Entity.Type.HASHTAG).size());
+        assertEquals("expected 4 URLs", 4, sequential.get(Entity.Type.URL).size());
+    }
+
+}
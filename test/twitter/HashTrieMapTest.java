@@ -0,0 +1,119 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HashTrieMapTest {
+
+    /*
+     * Testing strategy for HashTrieMap:
+     *
+     * Partition the inputs as follows:
+     * - map: empty, one entry, many entries (several trie levels)
+     * - with: new key, existing key; keys with different hashes, equal
+     *   hashes (collision), hashes sharing low bits
+     * - get, containsKey: present, absent, null
+     * - earlier versions: unchanged by with()
+     * - null key or value, put(): rejected
+     *
+     * Maps are compared with HashMaps holding the same entries.
+     */
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        HashTrieMap<String, Integer> map = HashTrieMap.empty();
+
+        assertEquals("expected empty", Collections.emptyMap(), map);
+        assertEquals("expected size 0", 0, map.size());
+        assertNull("expected no value", map.get("alyssa"));
+        assertFalse("expected no key", map.containsKey("alyssa"));
+        assertFalse("expected no null key", map.containsKey(null));
+    }
+
+    @Test
+    public void testWithAndReplace() {
+        HashTrieMap<String, Integer> empty = HashTrieMap.empty();
+        HashTrieMap<String, Integer> one = empty.with("alyssa", 1);
+        HashTrieMap<String, Integer> replaced = one.with("alyssa", 2);
+
+        assertEquals("expected one entry", Collections.singletonMap("alyssa", 1), one);
+        assertEquals("expected replaced entry", Collections.singletonMap("alyssa", 2), replaced);
+        assertEquals("expected size 1", 1, replaced.size());
+        assertEquals("expected empty unchanged", Collections.emptyMap(), empty);
+    }
+
+    @Test
+    public void testCollisions() {
+        // "Aa" and "BB" have the same hashCode, as do "AaAa", "AaBB", "BBAa" and "BBBB"
+        HashTrieMap<String, Integer> map = HashTrieMap.<String, Integer>empty()
+                .with("Aa", 1).with("BB", 2).with("AaAa", 3).with("AaBB", 4).with("BBAa", 5).with("BBBB", 6);
+        HashTrieMap<String, Integer> replaced = map.with("BB", 20);
+
+        assertEquals("expected six entries", 6, map.size());
+        assertEquals("expected Aa", Integer.valueOf(1), map.get("Aa"));
+        assertEquals("expected BB", Integer.valueOf(2), map.get("BB"));
+        assertEquals("expected BBAa", Integer.valueOf(5), map.get("BBAa"));
+        assertEquals("expected BB replaced", Integer.valueOf(20), replaced.get("BB"));
+        assertEquals("expected size unchanged", 6, replaced.size());
+        assertEquals("expected earlier version unchanged", Integer.valueOf(2), map.get("BB"));
+        assertFalse("expected no AaAaAa", map.containsKey("AaAaAa"));
+    }
+
+    @Test
+    public void testManyEntriesMatchHashMap() {
+        Random random = new Random(6005);
+        HashTrieMap<Integer, Integer> map = HashTrieMap.empty();
+        HashTrieMap<Integer, Integer> half = null;
+        Map<Integer, Integer> expected = new HashMap<>();
+        Map<Integer, Integer> expectedHalf = null;
+        for (int i = 0; i < 20_000; i++) {
+            // keys that are multiples of 1 << 20 share their low bits
+            int key = i % 2 == 0 ? random.nextInt(5000) : random.nextInt(64) << 20;
+            map = map.with(key, i);
+            expected.put(key, i);
+            if (i == 10_000) {
+                half = map;
+                expectedHalf = new HashMap<>(expected);
+            }
+        }
+
+        assertEquals("expected same entries", expected, map);
+        assertEquals("expected same hash code", expected.hashCode(), map.hashCode());
+        assertEquals("expected same size", expected.size(), map.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals("expected value of " + entry.getKey(), entry.getValue(), map.get(entry.getKey()));
+        }
+        assertNull("expected absent key", map.get(-1));
+        assertEquals("expected earlier version unchanged", expectedHalf, half);
+        assertEquals("expected copy", expected, HashTrieMap.copyOf(expected));
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testNullKey() {
+        HashTrieMap.<String, Integer>empty().with(null, 1);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testNullValue() {
+        HashTrieMap.<String, Integer>empty().with("alyssa", null);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testPutUnsupported() {
+        HashTrieMap.<String, Integer>empty().with("alyssa", 1).put("bbitdiddle", 2);
+    }
+}
@@ -0,0 +1,44 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HashingTest {
+
+    /*
+     * Testing strategy for Hashing:
+     *
+     * Partition the inputs as follows:
+     * - string: empty, one char, substring of a longer string
+     * - seed: 0, nonzero
+     * - mix input: 0, nonzero
+     *
+     * Values are pinned to published FNV-1a test vectors, since hashes are
+     * stored in segment files and must never change.
+     */
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testFnv1aVectors() {
+        assertEquals("expected offset basis for empty string", 0xcbf29ce484222325L, Hashing.fnv1a("", 0, 0, 0));
+        assertEquals("expected FNV-1a of \"a\"", 0xaf63dc4c8601ec8cL, Hashing.fnv1a("a", 0, 1, 0));
+        assertEquals("expected substring hashed alone", Hashing.fnv1a("a", 0, 1, 0), Hashing.fnv1a("bab", 1, 2, 0));
+        assertNotEquals("expected seed to change hash", Hashing.fnv1a("a", 0, 1, 0), Hashing.fnv1a("a", 0, 1, 7));
+    }
+
+    @Test
+    public void testMix() {
+        assertEquals("expected 0 fixed", 0, Hashing.mix(0));
+        assertNotEquals("expected nearby inputs spread", Hashing.mix(1) >>> 56, Hashing.mix(2) >>> 56);
+        assertEquals("expected hash = mix of fnv1a", Hashing.mix(Hashing.fnv1a("alyssa", 0, 6, 3)), Hashing.hash("alyssa", 3));
+        assertEquals("expected Bloom filter hash unchanged", Hashing.hash("rivest", 1), SplitBlockBloomFilter.hash("rivest", 1));
+    }
+}
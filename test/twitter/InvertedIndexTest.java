@@ -0,0 +1,149 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InvertedIndexTest {
+
+    /*
+     * Testing strategy for InvertedIndex:
+     *
+     * Partition the inputs as follows:
+     * - number of indexed tweets: 0, >1
+     * - allOf/anyOf: 1 word, >1 words, words missing from the index, different case
+     * - phrase: 1 word, >1 words, words present but not adjacent, adjacent in
+     *   the wrong order, repeated words, phrase across a run of spaces
+     * - search: single word, implicit AND, OR, "-" and NOT, quoted phrase,
+     *   negated phrase, clause of only negations, wildcard word, quoted
+ *   wildcard, malformed queries
+     * - results: in input order; anyOf agrees with Filter.containing()
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d1);
+    private static final Tweet tweet3 = new Tweet(3, "user", "Talk  about RIVEST talk about", d1);
+
+    private static final InvertedIndex index = new InvertedIndex(Arrays.asList(tweet1, tweet2, tweet3));
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        InvertedIndex empty = new InvertedIndex(new ArrayList<>());
+
+        assertTrue("expected no results", empty.search("rivest OR -talk").isEmpty());
+    }
+
+    @Test
+    public void testAllOf() {
+        assertEquals("expected tweets with both words", Arrays.asList(tweet1, tweet3),
+                index.allOf(Arrays.asList("ABOUT", "rivest")));
+        assertTrue("expected no results with missing word",
+                index.allOf(Arrays.asList("rivest", "nonexistent")).isEmpty());
+    }
+
+    @Test
+    public void testAnyOfAgreesWithContaining() {
+        List<String> words = Arrays.asList("#HYPE", "much?", "nonexistent");
+
+        assertEquals("expected same as containing()",
+                Filter.containing(index.getTweets(), words), index.anyOf(words));
+    }
+
+    @Test
+    public void testPhrase() {
+        assertEquals("expected adjacent words", Arrays.asList(tweet1, tweet3),
+                index.phrase(Arrays.asList("talk", "about")));
+        assertEquals("expected wrong order to miss", Arrays.asList(tweet3),
+                index.phrase(Arrays.asList("about", "rivest", "talk")));
+        assertTrue("expected non-adjacent words to miss",
+                index.phrase(Arrays.asList("rivest", "much?")).isEmpty());
+        assertEquals("expected single-word phrase", Arrays.asList(tweet2),
+                index.phrase(Arrays.asList("minutes")));
+    }
+
+    @Test
+    public void testSearchAndOrNot() {
+        assertEquals("expected implicit AND", Arrays.asList(tweet1, tweet3), index.search("talk about"));
+        assertEquals("expected OR", Arrays.asList(tweet1, tweet2), index.search("#hype OR reasonable"));
+        assertEquals("expected minus", Arrays.asList(tweet2, tweet3), index.search("rivest -much?"));
+        assertEquals("expected NOT", Arrays.asList(tweet2, tweet3), index.search("rivest NOT much?"));
+        assertEquals("expected negation-only clause", Arrays.asList(tweet1, tweet3), index.search("-#hype"));
+    }
+
+    @Test
+    public void testSearchPhrase() {
+        assertEquals("expected quoted phrase", Arrays.asList(tweet2, tweet3), index.search("\"rivest  talk\""));
+        assertEquals("expected negated phrase", Arrays.asList(tweet1), index.search("talk -\"rivest talk\""));
+        assertEquals("expected phrase OR word", Arrays.asList(tweet1, tweet2),
+                index.search("\"about rivest so\" OR minutes"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSearchDanglingOr() {
+        index.search("rivest OR");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSearchUnterminatedPhrase() {
+        index.search("\"rivest talk");
+    }
+
+    @Test
+    public void testWildcards() {
+        Tweet wild1 = new Tweet(1, "alyssa", "is it reasonable to talk about Rivest so much?", d1);
+        Tweet wild2 = new Tweet(2, "bbitdiddle", "rivests talk in 30 minutes #hype", d1);
+        Tweet wild3 = new Tweet(3, "user", "buy bitcoin now", d1);
+        InvertedIndex wildIndex = new InvertedIndex(Arrays.asList(wild1, wild2, wild3));
+
+        assertEquals("expected prefix pattern", Arrays.asList(wild1, wild2), wildIndex.matching("RIVEST*"));
+        assertEquals("expected suffix pattern", Arrays.asList(wild3), wildIndex.matching("*coin"));
+        assertEquals("expected pattern in query", Arrays.asList(wild2), wildIndex.search("rivest* -much?"));
+        assertEquals("expected quoted wildcard to be literal", new ArrayList<>(), wildIndex.search("\"rivest*\""));
+    }
+
+    @Test
+    public void testAllOfAgreesWithScan() {
+        Random random = new Random(6005);
+        String[] vocabulary = { "a", "b", "c", "d", "e", "f", "g", "h" };
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder text = new StringBuilder();
+            int words = 1 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                // skew towards early letters so postings lengths differ widely
+                text.append(vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))]).append(' ');
+            }
+            tweets.add(new Tweet(i, "user", text.toString(), d1));
+        }
+        InvertedIndex big = new InvertedIndex(tweets);
+
+        for (int trial = 0; trial < 30; trial++) {
+            List<String> words = Arrays.asList(vocabulary[random.nextInt(8)], vocabulary[random.nextInt(8)]);
+            List<Tweet> expected = new ArrayList<>();
+            for (Tweet tweet : tweets) {
+                List<String> tweetWords = Arrays.asList(tweet.getText().split(" "));
+                if (tweetWords.containsAll(words)) {
+                    expected.add(tweet);
+                }
+            }
+            assertEquals("expected same as scan for " + words, expected, big.allOf(words));
+        }
+    }
+
+}
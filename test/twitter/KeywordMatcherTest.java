@@ -0,0 +1,138 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class KeywordMatcherTest {
+
+    /*
+     * Testing strategy for KeywordMatcher:
+     *
+     * Partition the inputs as follows:
+     * - mode: WHOLE_WORD, SUBSTRING
+     * - number of terms: 1, >1, terms that are prefixes/suffixes of each other
+     * - term shape: single word, phrase with spaces, duplicate terms differing in case
+     * - match position: start, middle, end of text; overlapping matches
+     * - case: same, different
+     * - whitespace in text: single space, runs of mixed space characters
+     * - WHOLE_WORD agrees with Filter.containing() on random single-word inputs
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d1);
+    private static final Tweet tweet3 = new Tweet(3, "user", "talking about stuff", d1);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBlankTerm() {
+        new KeywordMatcher(Arrays.asList("ok", "  "), KeywordMatcher.Mode.SUBSTRING);
+    }
+
+    @Test
+    public void testWholeWordRejectsPartialWord() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("talk"), KeywordMatcher.Mode.WHOLE_WORD);
+
+        List<Tweet> filtered = matcher.filter(Arrays.asList(tweet1, tweet2, tweet3));
+
+        assertEquals("expected tweets with whole word talk", Arrays.asList(tweet1, tweet2), filtered);
+    }
+
+    @Test
+    public void testSubstringMatchesPartialWord() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("TALK"), KeywordMatcher.Mode.SUBSTRING);
+
+        List<Tweet> filtered = matcher.filter(Arrays.asList(tweet3, tweet1));
+
+        assertEquals("expected both tweets in input order", Arrays.asList(tweet3, tweet1), filtered);
+    }
+
+    @Test
+    public void testMatchingTermsOverlapping() {
+        KeywordMatcher matcher = new KeywordMatcher(
+                Arrays.asList("he", "she", "hers", "his", "HE"), KeywordMatcher.Mode.SUBSTRING);
+
+        Set<String> found = matcher.matchingTerms("ushers");
+
+        assertEquals("expected distinct terms", Arrays.asList("he", "she", "hers", "his"), matcher.getTerms());
+        assertEquals("expected overlapping matches in order",
+                new LinkedHashSet<>(Arrays.asList("she", "he", "hers")), found);
+    }
+
+    @Test
+    public void testWholeWordPhrase() {
+        KeywordMatcher matcher = new KeywordMatcher(
+                Arrays.asList("rivest  talk", "so much"), KeywordMatcher.Mode.WHOLE_WORD);
+
+        assertEquals("expected phrase across a run of spaces",
+                new LinkedHashSet<>(Arrays.asList("rivest  talk")), matcher.matchingTerms("RIVEST \t talk now"));
+        assertTrue("expected phrase at end of text", matcher.matches(tweet1.getText().replace("?", "")));
+        assertFalse("expected no match when phrase ends inside a word", matcher.matches("rivest talks"));
+    }
+
+    @Test
+    public void testWholeWordAdjacentMatches() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("a", "b"), KeywordMatcher.Mode.WHOLE_WORD);
+
+        assertEquals("expected both adjacent words",
+                new LinkedHashSet<>(Arrays.asList("a", "b")), matcher.matchingTerms("a b a"));
+    }
+
+    @Test
+    public void testMatchingTermsByTweet() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("rivest", "#hype"), KeywordMatcher.Mode.WHOLE_WORD);
+
+        Map<Tweet, Set<String>> byTweet = matcher.matchingTermsByTweet(Arrays.asList(tweet3, tweet2, tweet1));
+
+        assertEquals("expected two matching tweets in order", Arrays.asList(tweet2, tweet1), new ArrayList<>(byTweet.keySet()));
+        assertEquals("expected both terms for tweet2",
+                new LinkedHashSet<>(Arrays.asList("rivest", "#hype")), byTweet.get(tweet2));
+    }
+
+    @Test
+    public void testWholeWordAgreesWithContaining() {
+        Random random = new Random(2016);
+        String[] vocabulary = { "a", "ab", "abc", "B", "bc", "Rivest", "rivest?", "#hype", "talk", "talking" };
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder();
+            int words = random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                text.append(random.nextBoolean() ? " " : "\t\n");
+                text.append(vocabulary[random.nextInt(vocabulary.length)]);
+            }
+            tweets.add(new Tweet(i, "user", text.toString(), d1));
+        }
+        for (int trial = 0; trial < 50; trial++) {
+            List<String> words = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int w = 0; w < count; w++) {
+                String word = vocabulary[random.nextInt(vocabulary.length)];
+                words.add(random.nextBoolean() ? word.toUpperCase() : word);
+            }
+            KeywordMatcher matcher = new KeywordMatcher(words, KeywordMatcher.Mode.WHOLE_WORD);
+
+            assertEquals("expected same tweets as containing() for " + words,
+                    Filter.containing(tweets, words), matcher.filter(tweets));
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    /*
+     * Testing strategy for LatencyHistogram:
+     *
+     * Partition the inputs as follows:
+     * - values recorded: none, one, many spread over orders of magnitude,
+     *   from several threads
+     * - value: 0, below 256 (exact), bucket boundaries, Long.MAX_VALUE,
+     *   negative
+     * - percentile: 0, 50, 99, 100, out of range
+     * - reset: before and after
+     *
+     * Percentiles are compared with exact percentiles of the sorted values,
+     * within the 1/128 relative precision of the buckets.
+     */
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("expected no values", 0, histogram.getCount());
+        assertEquals("expected mean 0", 0, histogram.getMean(), 0);
+        assertEquals("expected max 0", 0, histogram.getMax());
+        assertEquals("expected percentile 0", 0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 200; value++) {
+            histogram.record(value);
+        }
+        assertEquals("expected count", 200, histogram.getCount());
+        assertEquals("expected mean", 99.5, histogram.getMean(), 1e-9);
+        assertEquals("expected min", 0, histogram.getValueAtPercentile(0));
+        assertEquals("expected median", 99, histogram.getValueAtPercentile(50));
+        assertEquals("expected max", 199, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketsContiguous() {
+        assertEquals("expected first bucket", 0, LatencyHistogram.bucket(0));
+        for (int bucket = 0; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            long highest = LatencyHistogram.highestValue(bucket);
+            assertEquals("expected highest value in bucket", bucket, LatencyHistogram.bucket(highest));
+            assertEquals("expected next value in next bucket", bucket + 1, LatencyHistogram.bucket(highest + 1));
+        }
+        assertEquals("expected last bucket to end at Long.MAX_VALUE", Long.MAX_VALUE,
+                LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        Random random = new Random(6005);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] { 0, 10, 50, 90, 99, 99.9, 100 }) {
+            long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue("expected percentile " + percentile + " >= exact", reported >= exact);
+            assertTrue("expected percentile " + percentile + " within precision", reported <= exact + exact / 128);
+        }
+        assertEquals("expected exact max", values[values.length - 1], histogram.getMax());
+        assertEquals("expected exact max as p100", values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testLargestValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals("expected max", Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecordAndReset() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i * 4 + offset);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("expected every value counted", 200_000, histogram.getCount());
+        assertEquals("expected max", 199_999, histogram.getMax());
+        assertEquals("expected mean", 99_999.5, histogram.getMean(), 1e-6);
+
+        histogram.reset();
+        assertEquals("expected no values", 0, histogram.getCount());
+        assertEquals("expected max 0", 0, histogram.getMax());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new LatencyHistogram().record(-1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadPercentile() {
+        new LatencyHistogram().getValueAtPercentile(101);
+    }
+}
@@ -0,0 +1,128 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class LazyFilterTest {
+
+    /*
+     * Testing strategy for LazyFilter:
+     *
+     * Partition the inputs as follows:
+     * - condition: writtenBy, inTimespan, containing (including no words),
+     *   composed conditions
+     * - access: stream, parallel stream, iterable view, count, parallel count
+     * - number of tweets: 0, >1; number of matches: 0, >1
+     * - consumption: full, limit() that stops early
+     *
+     * Each lazy result must equal the corresponding Filter result, in order.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+    private static final Instant d3 = Instant.parse("2016-02-17T12:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d2);
+    private static final Tweet tweet3 = new Tweet(3, "Alyssa", "talking about stuff", d3);
+    private static final List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testStreamsMatchFilter() {
+        Timespan span = new Timespan(d2, d3);
+        List<String> words = Arrays.asList("TALK");
+
+        assertEquals("expected writtenBy", Filter.writtenBy(tweets, "ALYSSA"),
+                LazyFilter.writtenBy(tweets, "ALYSSA").collect(Collectors.toList()));
+        assertEquals("expected inTimespan", Filter.inTimespan(tweets, span),
+                LazyFilter.inTimespan(tweets, span).collect(Collectors.toList()));
+        assertEquals("expected containing", Filter.containing(tweets, words),
+                LazyFilter.containing(tweets, words).collect(Collectors.toList()));
+        assertEquals("expected no words to match nothing", 0,
+                LazyFilter.containing(tweets, new ArrayList<>()).count());
+    }
+
+    @Test
+    public void testEmptyList() {
+        assertEquals("expected empty stream", 0, LazyFilter.writtenBy(new ArrayList<>(), "alyssa").count());
+        assertFalse("expected empty view", LazyFilter.view(new ArrayList<>(), t -> true).iterator().hasNext());
+    }
+
+    @Test
+    public void testLimitShortCircuits() {
+        List<Tweet> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add(new Tweet(i, "user", "talk " + i, d1));
+        }
+        AtomicInteger tested = new AtomicInteger();
+        Predicate<Tweet> counting = tweet -> {
+            tested.incrementAndGet();
+            return true;
+        };
+
+        List<Tweet> first = LazyFilter.containing(many, Arrays.asList("talk"))
+                .filter(counting).limit(20).collect(Collectors.toList());
+
+        assertEquals("expected first 20 tweets", many.subList(0, 20), first);
+        assertEquals("expected only 20 tweets tested", 20, tested.get());
+    }
+
+    @Test
+    public void testParallelKeepsOrder() {
+        List<Tweet> many = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            many.add(new Tweet(i, i % 3 == 0 ? "alyssa" : "ben", "word" + (i % 7), d1));
+        }
+        Predicate<Tweet> condition = LazyFilter.writtenBy("alyssa").and(LazyFilter.containing(Arrays.asList("word0")));
+
+        List<Tweet> parallel = many.parallelStream().filter(condition).collect(Collectors.toList());
+        List<Tweet> expected = Filter.containing(Filter.writtenBy(many, "alyssa"), Arrays.asList("word0"));
+
+        assertEquals("expected same tweets in same order", expected, parallel);
+        assertEquals("expected parallel count", expected.size(), LazyFilter.countParallel(many, condition));
+    }
+
+    @Test
+    public void testViewComposed() {
+        Predicate<Tweet> condition = LazyFilter.writtenBy("alyssa").and(LazyFilter.containing(Arrays.asList("about")));
+        Iterator<Tweet> iterator = LazyFilter.view(tweets, condition).iterator();
+
+        assertEquals("expected tweet1", tweet1, iterator.next());
+        assertTrue("expected more", iterator.hasNext());
+        assertEquals("expected tweet3", tweet3, iterator.next());
+        assertFalse("expected end", iterator.hasNext());
+        try {
+            iterator.next();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals("expected writtenBy count", 2, LazyFilter.countWrittenBy(tweets, "alyssa"));
+        assertEquals("expected inTimespan count", 2, LazyFilter.countInTimespan(tweets, new Timespan(d1, d2)));
+        assertEquals("expected containing count", 2, LazyFilter.countContaining(tweets, Arrays.asList("rivest")));
+    }
+
+}
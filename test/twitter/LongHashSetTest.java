@@ -0,0 +1,83 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LongHashSetTest {
+
+    /*
+     * Testing strategy for LongHashSet:
+     *
+     * Partition the inputs as follows:
+     * - value: 0, negative, positive, Long.MIN_VALUE/MAX_VALUE
+     * - set: empty, small, grown past its initial capacity, cleared
+     * - add: new value, repeated value
+     * - contains: present, absent
+     */
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue("expected empty", set.isEmpty());
+        assertFalse("expected no 0", set.contains(0));
+        assertFalse("expected no 1", set.contains(1));
+    }
+
+    @Test
+    public void testSpecialValues() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue("expected 0 added", set.add(0));
+        assertFalse("expected 0 repeated", set.add(0));
+        assertTrue("expected min added", set.add(Long.MIN_VALUE));
+        assertTrue("expected max added", set.add(Long.MAX_VALUE));
+        assertTrue("expected -1 added", set.add(-1));
+
+        assertEquals("expected size", 4, set.size());
+        assertTrue("expected 0", set.contains(0));
+        assertTrue("expected min", set.contains(Long.MIN_VALUE));
+        assertTrue("expected -1", set.contains(-1));
+        assertFalse("expected no 1", set.contains(1));
+
+        set.clear();
+        assertTrue("expected empty after clear", set.isEmpty());
+        assertFalse("expected no 0 after clear", set.contains(0));
+        assertFalse("expected no max after clear", set.contains(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testAgreesWithHashSet() {
+        Random random = new Random(6005);
+        LongHashSet set = new LongHashSet(0);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            // sequential-ish ids with repeats, as from overlapping polls
+            long value = random.nextBoolean() ? random.nextInt(50000) : random.nextLong();
+            assertEquals("expected same add result for " + value, expected.add(value), set.add(value));
+        }
+
+        assertEquals("expected same size", expected.size(), set.size());
+        for (long value : expected) {
+            assertTrue("expected " + value, set.contains(value));
+        }
+        for (int i = 50000; i < 60000; i++) {
+            assertEquals("expected same contains for " + i, expected.contains((long) i), set.contains(i));
+        }
+        assertTrue("expected at most 32 bytes per value", set.getTableBytes() <= 32L * set.size());
+    }
+
+}
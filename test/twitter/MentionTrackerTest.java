@@ -0,0 +1,193 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MentionTrackerTest {
+
+    /*
+     * Testing strategy for MentionTracker:
+     *
+     * Partition the inputs as follows:
+     * - distinct mentioned users: fewer than capacity, more than capacity
+     * - mentions per tweet: 0, 1, >1, same user repeated
+     * - mention boundaries and case: as for Extract.getMentionedUsers()
+     * - topK(k): k = 0, k < monitored users, k > monitored users
+     * - merge(): empty tracker, trackers with disjoint and overlapping users,
+     *   trackers that have evicted users
+     *
+     * For streams larger than the capacity, check the Space-Saving bounds
+     * against exact counts: lowerBound <= true count <= count.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        MentionTracker tracker = new MentionTracker(4);
+
+        assertTrue("expected no estimates", tracker.topK(3).isEmpty());
+        assertEquals("expected zero count", 0, tracker.getCount("alice"));
+    }
+
+    @Test
+    public void testExactBelowCapacity() {
+        MentionTracker tracker = new MentionTracker(10);
+        tracker.addAll(Arrays.asList(
+                new Tweet(1, "user", "@alice and @bob and @ALICE again", d1),
+                new Tweet(2, "user", "email bitdiddle@mit.edu, thanks @alice", d1),
+                new Tweet(3, "user", "no mentions here", d1)));
+
+        List<MentionTracker.Estimate> top = tracker.topK(5);
+
+        assertEquals("expected two users", 2, top.size());
+        assertEquals("expected alice first", "alice", top.get(0).getUsername());
+        assertEquals("expected one mention per tweet", 2, top.get(0).getCount());
+        assertEquals("expected no error", 0, top.get(0).getError());
+        assertEquals("expected bob second", "bob", top.get(1).getUsername());
+        assertEquals("expected total mentions", 3, tracker.getTotalMentions());
+        assertEquals("expected case-insensitive lookup", 2, tracker.getCount("Alice"));
+    }
+
+    @Test
+    public void testTopKZero() {
+        MentionTracker tracker = new MentionTracker(2);
+        tracker.add(new Tweet(1, "user", "@alice", d1));
+
+        assertTrue("expected no estimates", tracker.topK(0).isEmpty());
+    }
+
+    @Test
+    public void testBoundsOverCapacity() {
+        Random random = new Random(42);
+        List<Tweet> tweets = makeSkewedStream(random, 5000, 200);
+        MentionTracker tracker = new MentionTracker(20);
+        tracker.addAll(tweets);
+
+        Map<String, Long> exact = exactCounts(tweets);
+        for (MentionTracker.Estimate estimate : tracker.topK(20)) {
+            long trueCount = exact.getOrDefault(estimate.getUsername(), 0L);
+            assertTrue("expected count to be an upper bound", estimate.getCount() >= trueCount);
+            assertTrue("expected lower bound to hold", estimate.getLowerBound() <= trueCount);
+            assertTrue("expected error below N/capacity",
+                    estimate.getError() <= tracker.getTotalMentions() / tracker.getCapacity());
+        }
+    }
+
+    @Test
+    public void testGuaranteedHeavyHitters() {
+        Random random = new Random(7);
+        List<Tweet> tweets = makeSkewedStream(random, 5000, 200);
+        MentionTracker tracker = new MentionTracker(50);
+        tracker.addAll(tweets);
+
+        List<MentionTracker.Estimate> top = tracker.topK(3);
+        List<String> exactTop = exactTopK(exactCounts(tweets), 3);
+        for (MentionTracker.Estimate estimate : top) {
+            if (estimate.isGuaranteed()) {
+                assertTrue("expected guaranteed user in exact top 3: " + estimate,
+                        exactTop.contains(estimate.getUsername()));
+            }
+        }
+        assertTrue("expected the heaviest user to be guaranteed", top.get(0).isGuaranteed());
+    }
+
+    @Test
+    public void testMergeMatchesSingleTracker() {
+        MentionTracker left = new MentionTracker(10);
+        MentionTracker right = new MentionTracker(10);
+        left.add(new Tweet(1, "user", "@alice @bob", d1));
+        right.add(new Tweet(2, "user", "@alice @charlie", d1));
+        right.add(new Tweet(3, "user", "@alice", d1));
+
+        left.merge(right);
+
+        assertEquals("expected merged alice count", 3, left.getCount("alice"));
+        assertEquals("expected merged bob count", 1, left.getCount("bob"));
+        assertEquals("expected merged charlie count", 1, left.getCount("charlie"));
+        assertEquals("expected merged total", 5, left.getTotalMentions());
+        assertEquals("expected right unchanged", 1, right.getCount("charlie"));
+    }
+
+    @Test
+    public void testMergeEmpty() {
+        MentionTracker tracker = new MentionTracker(3);
+        tracker.add(new Tweet(1, "user", "@alice", d1));
+
+        tracker.merge(new MentionTracker(3));
+
+        assertEquals("expected count unchanged", 1, tracker.getCount("alice"));
+    }
+
+    @Test
+    public void testMergeKeepsBoundsOverCapacity() {
+        Random random = new Random(99);
+        List<Tweet> tweets = makeSkewedStream(random, 6000, 300);
+        List<MentionTracker> partials = new ArrayList<>();
+        for (int part = 0; part < 3; part++) {
+            MentionTracker partial = new MentionTracker(25);
+            partial.addAll(tweets.subList(part * 2000, (part + 1) * 2000));
+            partials.add(partial);
+        }
+        MentionTracker merged = partials.get(0);
+        merged.merge(partials.get(1));
+        merged.merge(partials.get(2));
+
+        Map<String, Long> exact = exactCounts(tweets);
+        List<MentionTracker.Estimate> top = merged.topK(25);
+        assertEquals("expected capacity estimates", 25, top.size());
+        for (MentionTracker.Estimate estimate : top) {
+            long trueCount = exact.getOrDefault(estimate.getUsername(), 0L);
+            assertTrue("expected count to be an upper bound", estimate.getCount() >= trueCount);
+            assertTrue("expected lower bound to hold", estimate.getLowerBound() <= trueCount);
+        }
+        assertEquals("expected heaviest user found", exactTopK(exact, 1).get(0), top.get(0).getUsername());
+    }
+
+    /*
+     * Make tweets that each mention one user, drawn with a skewed distribution
+     * so that low-numbered users are mentioned far more often.
+     */
+    private static List<Tweet> makeSkewedStream(Random random, int count, int users) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int user = (int) (users * Math.pow(random.nextDouble(), 3));
+            tweets.add(new Tweet(i, "author", "hello @user" + user, d1));
+        }
+        return tweets;
+    }
+
+    private static Map<String, Long> exactCounts(List<Tweet> tweets) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Tweet tweet : tweets) {
+            for (String user : Extract.getMentionedUsers(Arrays.asList(tweet))) {
+                counts.merge(user.toLowerCase(), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static List<String> exactTopK(Map<String, Long> counts, int k) {
+        List<String> users = new ArrayList<>(counts.keySet());
+        users.sort((u1, u2) -> Long.compare(counts.get(u2), counts.get(u1)));
+        return users.subList(0, Math.min(k, users.size()));
+    }
+
+}
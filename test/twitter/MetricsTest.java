@@ -0,0 +1,172 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    /*
+     * Testing strategy for Metrics:
+     *
+     * Partition the inputs as follows:
+     * - instrumentation: off, on
+     * - operations: Extract, Filter (including containing with no words),
+     *   SocialNetwork, TweetParser
+     * - JFR: recording enables twitter.Operation, no recording
+     * - dumps: on demand, periodic
+     *
+     * Counters are compared with the sizes of the operations' results, except
+     * mentions, which count every match, repeated usernames included.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final List<Tweet> tweets = Arrays.asList(
+            new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much? @bbitdiddle @carol", d1),
+            new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype @Alyssa", d1.plusSeconds(60)),
+            new Tweet(3, "carol", "no mentions", d1.plusSeconds(120)));
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(true);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(Boolean.getBoolean("twitter.metrics"));
+        Metrics.reset();
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        Metrics.setEnabled(false);
+        assertNull("expected no span", Metrics.start(Metrics.Operation.WRITTEN_BY));
+        Filter.writtenBy(tweets, "alyssa");
+        Extract.getMentionedUsers(tweets);
+        Metrics.finish(null, 1, 1);
+
+        assertEquals("expected no latency", 0, Metrics.getHistogram(Metrics.Operation.WRITTEN_BY).getCount());
+        assertEquals("expected no hits", 0, Metrics.getCount(Metrics.Counter.FILTER_HITS));
+        assertEquals("expected no mentions", 0, Metrics.getCount(Metrics.Counter.MENTIONS_EXTRACTED));
+    }
+
+    @Test
+    public void testOperationsRecorded() {
+        Extract.getTimespan(tweets);
+        Set<String> mentioned = Extract.getMentionedUsers(tweets);
+        int hits = Filter.writtenBy(tweets, "ALYSSA").size()
+                + Filter.inTimespan(tweets, new Timespan(d1, d1.plusSeconds(60))).size()
+                + Filter.containing(tweets, Arrays.asList("rivest")).size()
+                + Filter.containing(tweets, Arrays.<String>asList()).size();
+        Map<String, Set<String>> graph = SocialNetwork.guessFollowsGraph(tweets);
+        SocialNetwork.influencers(graph);
+
+        for (Metrics.Operation operation : Metrics.Operation.values()) {
+            long expected = operation == Metrics.Operation.CONTAINING ? 2
+                    : operation == Metrics.Operation.FETCH || operation == Metrics.Operation.PARSE ? 0 : 1;
+            assertEquals("expected latencies of " + operation, expected, Metrics.getHistogram(operation).getCount());
+        }
+        assertEquals("expected distinct users", 3, mentioned.size());
+        assertEquals("expected mentions", 3, Metrics.getCount(Metrics.Counter.MENTIONS_EXTRACTED));
+        assertEquals("expected filter hits", hits, Metrics.getCount(Metrics.Counter.FILTER_HITS));
+        assertEquals("expected edges", 3, Metrics.getCount(Metrics.Counter.EDGES_CREATED));
+
+        String dump = Metrics.dump();
+        assertTrue("expected operation in dump", dump.contains("SocialNetwork.guessFollowsGraph count=1"));
+        assertTrue("expected counter in dump", dump.contains("filter_hits " + hits));
+        assertFalse("expected operations never run left out", dump.contains("fetch"));
+    }
+
+    @Test
+    public void testTweetsParsed() {
+        String json = "[{\"id\":1,\"user.screen_name\":\"alyssa\",\"text\":\"hi\",\"created_at\":\"Wed Feb 17 10:00:00 +0000 2016\"},"
+                + "{\"id\":2,\"user.screen_name\":\"carol\",\"text\":\"yo\",\"created_at\":\"Wed Feb 17 10:01:00 +0000 2016\"}]";
+        assertEquals("expected tweets", 2, TweetParser.parse(new StringReader(json)).size());
+        assertEquals("expected tweets parsed", 2, Metrics.getCount(Metrics.Counter.TWEETS_PARSED));
+        assertEquals("expected a parse", 1, Metrics.getHistogram(Metrics.Operation.PARSE).getCount());
+    }
+
+    @Test
+    public void testJfrEvents() throws IOException {
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("twitter.Operation").withoutThreshold();
+            recording.start();
+            Filter.writtenBy(tweets, "carol");
+            SocialNetwork.guessFollowsGraph(tweets);
+            recording.stop();
+            recording.dump(file);
+
+            boolean found = false;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("twitter.Operation")
+                        && event.getString("operation").equals("Filter.writtenBy")) {
+                    assertEquals("expected input size", 3, event.getLong("inputSize"));
+                    assertEquals("expected result size", 1, event.getLong("resultSize"));
+                    assertFalse("expected duration", event.getDuration().isNegative());
+                    found = true;
+                }
+            }
+            assertTrue("expected writtenBy event", found);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRepeatedMentionsCounted() {
+        Set<String> mentioned = Extract.getMentionedUsers(Arrays.asList(
+                new Tweet(4, "alyssa", "@carol @CAROL and @bbitdiddle", d1),
+                new Tweet(5, "bbitdiddle", "@carol", d1)));
+
+        assertEquals("expected distinct users", 2, mentioned.size());
+        assertEquals("expected every mention", 4, Metrics.getCount(Metrics.Counter.MENTIONS_EXTRACTED));
+    }
+
+    @Test
+    public void testPeriodicDump() throws IOException, InterruptedException {
+        Filter.writtenBy(tweets, "carol");
+        BlockingQueue<String> dumps = new LinkedBlockingQueue<>();
+        Closeable periodic = Metrics.startPeriodicDump(Duration.ofMillis(20), dumps::add);
+        try {
+            for (int i = 0; i < 2; i++) {
+                String dump = dumps.poll(10, TimeUnit.SECONDS);
+                assertNotNull("expected two dumps", dump);
+                assertTrue("expected writtenBy in dump", dump.contains("Filter.writtenBy count=1"));
+            }
+        } finally {
+            periodic.close();
+        }
+    }
+}
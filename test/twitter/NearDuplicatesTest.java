@@ -0,0 +1,117 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NearDuplicatesTest {
+
+    /*
+     * Testing strategy for NearDuplicates:
+     *
+     * Partition the inputs as follows:
+     * - number of tweets: 0, 1, >1
+     * - relationship between texts: identical, retweet of another, differs in
+     *   case/whitespace only, small edit, unrelated, shorter than a shingle,
+     *   empty
+     * - clusters: none, one, several
+     * - results: clusters and deduplicated list in input order; same result
+     *   for repeated calls (parallel signatures are deterministic)
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "bbitdiddle", "rivest talk in 30 minutes #hype", d1);
+    private static final Tweet tweet2 = new Tweet(2, "alyssa", "RT @bbitdiddle: rivest talk in 30 minutes #hype", d1);
+    private static final Tweet tweet3 = new Tweet(3, "ben", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet4 = new Tweet(4, "eva", "Rivest  talk in 30\tMINUTES #hype", d1);
+    private static final Tweet tweet5 = new Tweet(5, "lem", "is it reasonable to talk about rivest so much??", d1);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyAndSingle() {
+        NearDuplicates detector = new NearDuplicates();
+
+        assertTrue("expected no clusters", detector.clusters(new ArrayList<>()).isEmpty());
+        assertTrue("expected no clusters", detector.clusters(Arrays.asList(tweet1)).isEmpty());
+        assertEquals("expected tweet kept", Arrays.asList(tweet1), detector.deduplicate(Arrays.asList(tweet1)));
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("expected prefix removed", "rivest talk", NearDuplicates.normalize("RT @bbitdiddle: Rivest talk"));
+        assertEquals("expected nested prefixes removed", "hi", NearDuplicates.normalize("RT @a: RT @b_c: hi"));
+        assertEquals("expected whitespace collapsed", "a b", NearDuplicates.normalize("  A \t\n B "));
+        assertEquals("expected mid-text RT kept", "great rt @a: x", NearDuplicates.normalize("great RT @a: x"));
+    }
+
+    @Test
+    public void testRetweetsAndCopies() {
+        NearDuplicates detector = new NearDuplicates();
+        List<Tweet> tweets = Arrays.asList(tweet1, tweet2, tweet3, tweet4, tweet5);
+
+        List<List<Tweet>> clusters = detector.clusters(tweets);
+
+        assertEquals("expected two clusters", Arrays.asList(
+                Arrays.asList(tweet1, tweet2, tweet4),
+                Arrays.asList(tweet3, tweet5)), clusters);
+        assertEquals("expected first of each kept", Arrays.asList(tweet1, tweet3), detector.deduplicate(tweets));
+        assertEquals("expected identical normalized text", 1.0, detector.similarity(tweet1.getText(), tweet2.getText()), 0);
+        assertTrue("expected low similarity", detector.similarity(tweet1.getText(), tweet3.getText()) < 0.3);
+    }
+
+    @Test
+    public void testShortAndEmptyTexts() {
+        NearDuplicates detector = new NearDuplicates();
+        Tweet empty1 = new Tweet(6, "a", "", d1);
+        Tweet empty2 = new Tweet(7, "b", "  ", d1);
+        Tweet shortA = new Tweet(8, "c", "hi", d1);
+        Tweet shortB = new Tweet(9, "d", "HI", d1);
+        Tweet shortC = new Tweet(10, "e", "yo", d1);
+
+        assertEquals("expected equal short texts clustered", Arrays.asList(
+                Arrays.asList(empty1, empty2), Arrays.asList(shortA, shortB)),
+                detector.clusters(Arrays.asList(empty1, empty2, shortA, shortB, shortC)));
+    }
+
+    @Test
+    public void testManyTweetsDeterministic() {
+        Random random = new Random(6005);
+        String[] words = { "rivest", "talk", "hype", "minutes", "about", "reasonable", "much", "mit", "6.005", "lecture" };
+        List<Tweet> tweets = new ArrayList<>();
+        List<Tweet> originals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder("tweet" + i);
+            for (int w = 0; w < 12; w++) {
+                text.append(' ').append(words[random.nextInt(words.length)]);
+            }
+            Tweet original = new Tweet(i, "user" + i, text.toString(), d1);
+            originals.add(original);
+            tweets.add(original);
+        }
+        for (int i = 0; i < 500; i++) {
+            Tweet original = originals.get(random.nextInt(originals.size()));
+            tweets.add(new Tweet(10000 + i, "rt" + i, "RT @" + original.getAuthor() + ": " + original.getText(), d1));
+        }
+        NearDuplicates detector = new NearDuplicates();
+
+        List<Tweet> deduplicated = detector.deduplicate(tweets);
+
+        assertEquals("expected retweets removed", originals, deduplicated);
+        assertEquals("expected same clusters again", detector.clusters(tweets), detector.clusters(tweets));
+    }
+
+}
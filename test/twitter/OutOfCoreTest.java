@@ -0,0 +1,212 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OutOfCoreTest {
+
+    /*
+     * Testing strategy for OutOfCore:
+     *
+     * Partition the inputs as follows:
+     * - tweets: none, fit the budget, many times the budget
+     * - budget: large (nothing spilled), small (spilled, merged in one pass),
+     *   tiny (sort merged in several passes, partitions repartitioned)
+     * - timestamps: distinct, equal (stability)
+     * - mentions: none, self-mentions, repeated in a tweet, mixed case,
+     *   inside email addresses (graph and mention semantics differ)
+     * - influencers k: 0, fewer than the users, more than the users
+     *
+     * Every spilling call is also checked to leave the spill directory empty.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * Random tweets by 50 users, at one of 100 seconds, mentioning users in
+     * various ways.
+     */
+    private static List<Tweet> randomTweets(int count, long seed) {
+        Random random = new Random(seed);
+        String[] templates = { "hi @%s and @%s", "@%s @%s @%s", "mail %s@%s.edu", "@%s: rt @%s", "no mentions %s%s" };
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String author = "user" + random.nextInt(50);
+            String[] users = new String[3];
+            for (int u = 0; u < users.length; u++) {
+                int n = random.nextInt(60);
+                users[u] = n >= 50 ? author.toUpperCase() : (n % 2 == 0 ? "User" : "user") + n;
+            }
+            String text = String.format(templates[random.nextInt(templates.length)], (Object[]) users);
+            tweets.add(new Tweet(i, author, text, d1.plusSeconds(random.nextInt(100))));
+        }
+        return tweets;
+    }
+
+    private void assertNoSpillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals("expected spill files deleted", 0, files.count());
+        }
+    }
+
+    @Test
+    public void testSortEmpty() throws IOException {
+        OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), 1 << 20);
+        List<Tweet> sorted = new ArrayList<>();
+        outOfCore.sortByTimestamp(Collections.<Tweet>emptyIterator(), sorted::add);
+
+        assertEquals("expected no tweets", Collections.emptyList(), sorted);
+        assertEquals("expected no spill", 0, outOfCore.getSpillFileCount());
+    }
+
+    @Test
+    public void testSortInMemory() throws IOException {
+        List<Tweet> tweets = randomTweets(500, 1);
+        OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), 1 << 30);
+        List<Tweet> sorted = new ArrayList<>();
+        outOfCore.sortByTimestamp(tweets.iterator(), sorted::add);
+
+        List<Tweet> expected = new ArrayList<>(tweets);
+        expected.sort(Comparator.comparing(Tweet::getTimestamp));
+        assertEquals("expected stable sort", expected, sorted);
+        assertEquals("expected no spill", 0, outOfCore.getSpillFileCount());
+    }
+
+    @Test
+    public void testSortSpilledSinglePassAndMultiPass() throws IOException {
+        List<Tweet> tweets = randomTweets(5000, 2);
+        List<Tweet> expected = new ArrayList<>(tweets);
+        expected.sort(Comparator.comparing(Tweet::getTimestamp));
+
+        for (long budget : new long[] { 1 << 19, 1 << 14 }) {
+            OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), budget);
+            List<Tweet> sorted = new ArrayList<>();
+            outOfCore.sortByTimestamp(tweets.iterator(), sorted::add);
+
+            assertEquals("expected stable sort with budget " + budget, expected, sorted);
+            assertTrue("expected runs spilled", outOfCore.getSpillFileCount() > 1);
+            assertTrue("expected bytes spilled", outOfCore.getSpilledBytes() > 0);
+            assertNoSpillFiles();
+        }
+    }
+
+    @Test
+    public void testSortKeepsTweetContents() throws IOException {
+        List<Tweet> tweets = Arrays.asList(
+                new Tweet(2, "bbitdiddle", "été ☃ \"quoted\"\nline", d1.plusSeconds(1).plusNanos(5)),
+                new Tweet(1, "alyssa", "first", d1.plusNanos(7)));
+        OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), 1);
+        List<Tweet> sorted = new ArrayList<>();
+        outOfCore.sortByTimestamp(tweets.iterator(), sorted::add);
+
+        assertEquals("expected two tweets", 2, sorted.size());
+        assertEquals("expected author", "alyssa", sorted.get(0).getAuthor());
+        assertEquals("expected timestamp", d1.plusNanos(7), sorted.get(0).getTimestamp());
+        assertEquals("expected text", "été ☃ \"quoted\"\nline", sorted.get(1).getText());
+        assertNoSpillFiles();
+    }
+
+    @Test
+    public void testGuessFollowsGraphMatchesSocialNetwork() throws IOException {
+        List<Tweet> tweets = randomTweets(5000, 3);
+        Map<String, Set<String>> expected = SocialNetwork.guessFollowsGraph(tweets);
+
+        for (long budget : new long[] { 1 << 30, 1 << 16, 1 << 10 }) {
+            OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), budget, 4);
+            Map<String, Set<String>> graph = new HashMap<>();
+            outOfCore.guessFollowsGraph(tweets.iterator(),
+                    entry -> assertNull("expected each follower once", graph.put(entry.getKey(), entry.getValue())));
+
+            assertEquals("expected same graph with budget " + budget, expected, graph);
+            assertEquals("expected spill only under small budget", budget < 1 << 30, outOfCore.getSpillFileCount() > 0);
+            assertNoSpillFiles();
+        }
+    }
+
+    private static Map<String, Long> expectedFollowerCounts(List<Tweet> tweets) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : SocialNetwork.guessFollowsGraph(tweets).entrySet()) {
+            counts.putIfAbsent(entry.getKey(), 0L);
+            for (String followed : entry.getValue()) {
+                counts.merge(followed, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void testFollowerCountsAndInfluencers() throws IOException {
+        List<Tweet> tweets = randomTweets(5000, 4);
+        Map<String, Long> expected = expectedFollowerCounts(tweets);
+        List<String> ranked = new ArrayList<>(expected.keySet());
+        ranked.sort(Comparator.comparing((String user) -> -expected.get(user)).thenComparing(user -> user));
+
+        OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), 1 << 12, 4);
+        Map<String, Long> counts = new HashMap<>();
+        outOfCore.followerCounts(tweets.iterator(),
+                (user, count) -> assertNull("expected each user once", counts.put(user, count)));
+        assertEquals("expected same follower counts", expected, counts);
+        assertTrue("expected spill", outOfCore.getSpillFileCount() > 0);
+
+        assertEquals("expected top 10", ranked.subList(0, 10), outOfCore.influencers(tweets.iterator(), 10));
+        assertEquals("expected everybody", ranked, outOfCore.influencers(tweets.iterator(), 1000));
+        assertEquals("expected nobody", Collections.emptyList(), outOfCore.influencers(tweets.iterator(), 0));
+        assertEquals("expected same users as SocialNetwork", ranked.size(),
+                SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(tweets)).size());
+        assertNoSpillFiles();
+    }
+
+    @Test
+    public void testMentionCountsMatchExtract() throws IOException {
+        List<Tweet> tweets = randomTweets(5000, 5);
+        Map<String, Long> expected = new HashMap<>();
+        for (Tweet tweet : tweets) {
+            for (String user : Extract.getMentionedUsers(Collections.singletonList(tweet))) {
+                expected.merge(user.toLowerCase(), 1L, Long::sum);
+            }
+        }
+
+        OutOfCore outOfCore = new OutOfCore(folder.getRoot().toPath(), 1 << 10, 4);
+        Map<String, Long> counts = new HashMap<>();
+        outOfCore.mentionCounts(tweets.iterator(),
+                (user, count) -> assertNull("expected each user once", counts.put(user, count)));
+
+        assertEquals("expected same counts", expected, counts);
+        assertTrue("expected spill", outOfCore.getSpillFileCount() > 0);
+        assertNoSpillFiles();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadBudget() {
+        new OutOfCore(folder.getRoot().toPath(), 0);
+    }
+}
@@ -0,0 +1,177 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PartitionedAnalysisTest {
+
+    /*
+     * Testing strategy for PartitionedAnalysis:
+     *
+     * Partition the inputs as follows:
+     * - tweets: none, many by many authors
+     * - workers: 1, several, more than the authors (empty partitions)
+     * - authors: same author in different case (must land in one partition)
+     * - worker: succeeds, fails (bad JVM option) with a partial output left
+     * - tail of a log: shorter than, longer than the limit
+     *
+     * The merged graph is compared with SocialNetwork.guessFollowsGraph(),
+     * and the follower counts and ranking with counts computed from it.
+     * Every run is checked to leave the work directory empty on success, and
+     * only the worker logs on failure.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<Tweet> randomTweets(int count, long seed) {
+        Random random = new Random(seed);
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int n = random.nextInt(40);
+            String author = (random.nextBoolean() ? "User" : "user") + n;
+            String text = "@user" + random.nextInt(60) + " hi @USER" + random.nextInt(60) + " @user" + n;
+            tweets.add(new Tweet(i, author, text, d1.plusSeconds(i)));
+        }
+        return tweets;
+    }
+
+    private static Map<String, Long> followerCounts(Map<String, Set<String>> graph) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : graph.entrySet()) {
+            counts.putIfAbsent(entry.getKey(), 0L);
+            for (String followed : entry.getValue()) {
+                counts.merge(followed, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private void assertWorkDirectoryEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertEquals("expected work files deleted", 0, files.count());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException, InterruptedException {
+        PartitionedAnalysis.Result result = new PartitionedAnalysis(2, folder.getRoot().toPath())
+                .run(Collections.<Tweet>emptyIterator());
+
+        assertEquals("expected empty graph", Collections.emptyMap(), result.getFollowsGraph());
+        assertEquals("expected no influencers", Collections.emptyList(), result.getInfluencers());
+        assertWorkDirectoryEmpty();
+    }
+
+    @Test
+    public void testMatchesSingleProcess() throws IOException, InterruptedException {
+        List<Tweet> tweets = randomTweets(3000, 1);
+        Map<String, Set<String>> expected = SocialNetwork.guessFollowsGraph(tweets);
+        Map<String, Long> expectedCounts = followerCounts(expected);
+        List<String> ranked = new ArrayList<>(expectedCounts.keySet());
+        ranked.sort(Comparator.comparing((String user) -> -expectedCounts.get(user)).thenComparing(user -> user));
+
+        for (int workers : new int[] { 1, 3 }) {
+            PartitionedAnalysis.Result result = new PartitionedAnalysis(workers, folder.getRoot().toPath())
+                    .run(tweets.iterator());
+
+            assertEquals("expected same graph with " + workers + " workers", expected, result.getFollowsGraph());
+            assertEquals("expected same follower counts", expectedCounts, result.getFollowerCounts());
+            assertEquals("expected ranking", ranked, result.getInfluencers());
+            assertEquals("expected same users as SocialNetwork",
+                    SocialNetwork.influencers(expected).size(), result.getInfluencers().size());
+            assertWorkDirectoryEmpty();
+        }
+    }
+
+    @Test
+    public void testMoreWorkersThanAuthors() throws IOException, InterruptedException {
+        List<Tweet> tweets = Arrays.asList(
+                new Tweet(1, "alyssa", "@bbitdiddle hi", d1),
+                new Tweet(2, "ALYSSA", "@carol", d1),
+                new Tweet(3, "bbitdiddle", "@Alyssa", d1));
+        PartitionedAnalysis.Result result = new PartitionedAnalysis(5, folder.getRoot().toPath())
+                .run(tweets.iterator());
+
+        assertEquals("expected same graph", SocialNetwork.guessFollowsGraph(tweets), result.getFollowsGraph());
+        assertEquals("expected ranking", Arrays.asList("alyssa", "bbitdiddle", "carol"), result.getInfluencers());
+        assertWorkDirectoryEmpty();
+    }
+
+    @Test
+    public void testPartitionIgnoresCase() {
+        for (int workers = 1; workers < 10; workers++) {
+            int partition = PartitionedAnalysis.partition("Alyssa", workers);
+            assertEquals("expected same partition", partition, PartitionedAnalysis.partition("aLYSSA", workers));
+            assertTrue("expected partition in range", partition >= 0 && partition < workers);
+        }
+    }
+
+    @Test
+    public void testWorkerFailure() throws IOException, InterruptedException {
+        Path root = folder.getRoot().toPath();
+        // as if a worker of an earlier run died while writing its output
+        Files.write(PartitionedAnalysis.temporary(root.resolve("output-0.bin")), new byte[] { 1, 2, 3 });
+        PartitionedAnalysis analysis = new PartitionedAnalysis(2, root, Arrays.asList("-XX:NoSuchOption"));
+        try {
+            analysis.run(randomTweets(10, 2).iterator());
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue("expected worker named", e.getMessage().contains("worker"));
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            files.forEach(file -> assertTrue("expected only logs left, found " + file,
+                    file.getFileName().toString().endsWith(".log")));
+        }
+    }
+
+    @Test
+    public void testTail() throws IOException {
+        Path log = folder.newFile("tail.log").toPath();
+        Files.write(log, "short\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("expected whole file", "short\n", PartitionedAnalysis.tail(log, 4096));
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        Files.write(log, text.toString().getBytes(StandardCharsets.UTF_8));
+        String tail = PartitionedAnalysis.tail(log, 100);
+        assertEquals("expected limit", 100, tail.length());
+        assertTrue("expected end of file", tail.endsWith("line 999\n"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNoWorkers() {
+        new PartitionedAnalysis(0, folder.getRoot().toPath());
+    }
+}
@@ -0,0 +1,218 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class PollingIngestorTest {
+
+    /*
+     * Testing strategy for PollingIngestor:
+     *
+     * Partition the inputs as follows:
+     * - server response: 200 with new tweets, 200 with only old tweets,
+     *   304 for a matching ETag, error status, malformed body
+     * - since-id: initial, advanced by earlier polls, given to the constructor
+     * - consumers: none, one, several
+     * - polling: pollOnce(), scheduled with start() then close()
+     * - statistics: read between polls, during a poll
+     *
+     * Uses a local HttpServer standing in for the sample server; it serves
+     * the current sample with an ETag, honoring If-None-Match.
+     */
+
+    private static final String TWEET1 = "{\"id\": 1, \"user.screen_name\": \"alyssa\", \"text\": \"first\", "
+            + "\"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+    private static final String TWEET2 = "{\"id\": 2, \"user.screen_name\": \"bbitdiddle\", \"text\": \"second\", "
+            + "\"created_at\": \"Wed Feb 17 11:00:00 +0000 2016\"}";
+    private static final String TWEET3 = "{\"id\": 3, \"user.screen_name\": \"eva\", \"text\": \"third\", "
+            + "\"created_at\": \"Wed Feb 17 12:00:00 +0000 2016\"}";
+
+    private HttpServer server;
+    private volatile String body;
+    private volatile String etag;
+    private volatile int status = 200;
+    private final List<Integer> responseCodes = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tweets", exchange -> {
+            int code;
+            byte[] bytes = new byte[0];
+            if (status != 200) {
+                code = status;
+            } else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                code = 304;
+            } else {
+                code = 200;
+                bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+            responseCodes.add(code);
+            exchange.sendResponseHeaders(code, code == 304 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/tweets");
+    }
+
+    private void serve(String tag, String... tweets) {
+        body = "[" + String.join(",", tweets) + "]";
+        etag = tag;
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testPollsForwardOnlyNewTweets() throws Exception {
+        List<List<Tweet>> batches = new ArrayList<>();
+        List<List<Tweet>> otherBatches = new ArrayList<>();
+        PollingIngestor ingestor = new PollingIngestor(endpoint());
+        ingestor.addConsumer(batches::add);
+        ingestor.addConsumer(otherBatches::add);
+
+        serve("\"v1\"", TWEET2, TWEET1);
+        assertEquals("expected both tweets", 2, ingestor.pollOnce());
+        assertEquals("expected unchanged sample skipped", 0, ingestor.pollOnce());
+        serve("\"v2\"", TWEET3, TWEET2);
+        assertEquals("expected only the new tweet", 1, ingestor.pollOnce());
+        serve("\"v3\"", TWEET1);
+        assertEquals("expected nothing new", 0, ingestor.pollOnce());
+
+        assertEquals("expected responses", Arrays.asList(200, 304, 200, 200), responseCodes);
+        assertEquals("expected two nonempty batches", 2, batches.size());
+        assertEquals("expected server order", Arrays.asList(2L, 1L),
+                Arrays.asList(batches.get(0).get(0).getId(), batches.get(0).get(1).getId()));
+        assertEquals("expected tweet3", 3, batches.get(1).get(0).getId());
+        assertEquals("expected every consumer called", batches, otherBatches);
+        assertEquals("expected since-id", 3, ingestor.getSinceId());
+        assertEquals("expected poll count", 4, ingestor.getPollCount());
+        assertEquals("expected not-modified count", 1, ingestor.getNotModifiedCount());
+        assertEquals("expected tweet count", 3, ingestor.getTweetCount());
+    }
+
+    @Test
+    public void testSinceIdFromEarlierRun() throws Exception {
+        PollingIngestor ingestor = new PollingIngestor(endpoint(), HttpClient.newHttpClient(), Duration.ofSeconds(5), 2);
+        List<Tweet> received = new ArrayList<>();
+        ingestor.addConsumer(received::addAll);
+
+        serve("\"v1\"", TWEET1, TWEET2, TWEET3);
+        ingestor.pollOnce();
+
+        assertEquals("expected only tweet3", 1, received.size());
+        assertEquals("expected tweet3", "third", received.get(0).getText());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        PollingIngestor ingestor = new PollingIngestor(endpoint());
+
+        status = 500;
+        try {
+            ingestor.pollOnce();
+            fail("expected IOException for status 500");
+        } catch (IOException e) {
+            // expected
+        }
+        status = 200;
+        serve("\"bad\"", "{\"id\": 1}");
+        try {
+            ingestor.pollOnce();
+            fail("expected IOException for malformed body");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("expected since-id unchanged", Long.MIN_VALUE, ingestor.getSinceId());
+    }
+
+    @Test
+    public void testScheduledPolling() throws Exception {
+        CountDownLatch received = new CountDownLatch(3);
+        serve("\"v1\"", TWEET1);
+        try (PollingIngestor ingestor = new PollingIngestor(endpoint())) {
+            ingestor.addConsumer(batch -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    received.countDown();
+                }
+                if (batch.get(0).getId() == 1) {
+                    serve("\"v2\"", TWEET3, TWEET2, TWEET1);
+                }
+            });
+            ingestor.start(Duration.ofMillis(10));
+
+            assertTrue("expected all tweets delivered", received.await(10, TimeUnit.SECONDS));
+            try {
+                ingestor.start(Duration.ofMillis(10));
+                fail("expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertEquals("expected no errors", 0, ingestor.getErrorCount());
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testStatisticsReadDuringPoll() throws Exception {
+        CountDownLatch inConsumer = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        serve("\"v1\"", TWEET2, TWEET1);
+        try (PollingIngestor ingestor = new PollingIngestor(endpoint())) {
+            ingestor.addConsumer(batch -> {
+                inConsumer.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            ingestor.start(Duration.ofSeconds(10));
+            assertTrue("expected a poll in progress", inConsumer.await(10, TimeUnit.SECONDS));
+            try {
+                assertEquals("expected one poll", 1, ingestor.getPollCount());
+                assertEquals("expected tweets counted", 2, ingestor.getTweetCount());
+                assertEquals("expected since-id advanced", 2, ingestor.getSinceId());
+                assertEquals("expected no errors", 0, ingestor.getErrorCount());
+                assertNull("expected no error", ingestor.getLastError());
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class QueryCacheTest {
+
+    /*
+     * Testing strategy for QueryCache:
+     *
+     * Partition the inputs as follows:
+     * - query kind: writtenBy, inTimespan, containing, influencers
+     * - repeat: first query (miss), identical repeat (hit), repeat that differs
+     *   only in case, word order or duplicate words (hit)
+     * - corpus: set again with same version (entries kept), new version
+     *   (entries discarded)
+     * - budget: 0 (nothing cached), smaller than all results (LRU eviction),
+     *   large
+     *
+     * Results must always equal the uncached Filter/SocialNetwork results.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype @alyssa", d2);
+    private static final List<Tweet> tweets = Arrays.asList(tweet1, tweet2);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testResultsMatchUncached() {
+        QueryCache cache = new QueryCache(1 << 20);
+        cache.setCorpus(tweets, 1);
+
+        assertEquals("expected writtenBy", Filter.writtenBy(tweets, "alyssa"), cache.writtenBy("alyssa"));
+        assertEquals("expected inTimespan", Filter.inTimespan(tweets, new Timespan(d1, d1)),
+                cache.inTimespan(new Timespan(d1, d1)));
+        assertEquals("expected containing", Filter.containing(tweets, Arrays.asList("#hype")),
+                cache.containing(Arrays.asList("#hype")));
+        assertEquals("expected influencers",
+                SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(tweets)), cache.influencers());
+        assertEquals("expected four misses", 4, cache.getMissCount());
+    }
+
+    @Test
+    public void testNormalizedQueriesHit() {
+        QueryCache cache = new QueryCache(1 << 20);
+        cache.setCorpus(tweets, 1);
+
+        List<Tweet> first = cache.containing(Arrays.asList("Rivest", "talk"));
+        List<Tweet> second = cache.containing(Arrays.asList("TALK", "rivest", "talk"));
+        cache.writtenBy("alyssa");
+        cache.writtenBy("ALYSSA");
+
+        assertSame("expected cached result", first, second);
+        assertEquals("expected two hits", 2, cache.getHitCount());
+        assertEquals("expected two misses", 2, cache.getMissCount());
+        assertEquals("expected hit rate", 0.5, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testVersionChangeInvalidates() {
+        QueryCache cache = new QueryCache(1 << 20);
+        cache.setCorpus(Arrays.asList(tweet1), 1);
+        assertEquals("expected one tweet", 1, cache.containing(Arrays.asList("rivest")).size());
+
+        cache.setCorpus(Arrays.asList(tweet1), 1);
+        assertEquals("expected same version to keep entries", 1, cache.size());
+
+        cache.setCorpus(tweets, 2);
+        assertEquals("expected entries discarded", 0, cache.size());
+        assertEquals("expected new result", 2, cache.containing(Arrays.asList("rivest")).size());
+        assertEquals("expected one invalidation", 1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testZeroBudgetCachesNothing() {
+        QueryCache cache = new QueryCache(0);
+        cache.setCorpus(tweets, 1);
+
+        cache.writtenBy("alyssa");
+        cache.writtenBy("alyssa");
+
+        assertEquals("expected no entries", 0, cache.size());
+        assertEquals("expected no hits", 0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLruEviction() {
+        QueryCache probe = new QueryCache(1 << 20);
+        probe.setCorpus(tweets, 1);
+        probe.writtenBy("user0");
+        long entryBytes = probe.getEstimatedBytes();
+
+        // room for exactly two single-word entries of this size
+        QueryCache cache = new QueryCache(2 * entryBytes);
+        cache.setCorpus(tweets, 1);
+        cache.writtenBy("user0");
+        cache.writtenBy("user1");
+        cache.writtenBy("user0");  // user0 is now most recently used
+        cache.writtenBy("user2");  // evicts user1
+
+        assertEquals("expected two entries", 2, cache.size());
+        assertEquals("expected one eviction", 1, cache.getEvictionCount());
+        assertTrue("expected within budget", cache.getEstimatedBytes() <= 2 * entryBytes);
+        long hitsBefore = cache.getHitCount();
+        cache.writtenBy("user0");
+        assertEquals("expected user0 still cached", hitsBefore + 1, cache.getHitCount());
+        cache.writtenBy("user1");
+        assertEquals("expected user1 evicted", hitsBefore + 1, cache.getHitCount());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testResultsUnmodifiable() {
+        QueryCache cache = new QueryCache(1 << 20);
+        cache.setCorpus(tweets, 1);
+
+        cache.writtenBy("alyssa").clear();
+    }
+
+}
@@ -0,0 +1,177 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest {
+
+    /*
+     * Testing strategy for QueryServer:
+     *
+     * Partition the inputs as follows:
+     * - endpoint: each of writtenBy, inTimespan, containing, timespan,
+     *   mentionedUsers, influencers; unknown path
+     * - parameters: valid, missing, malformed, repeated (containing words),
+     *   URL-encoded, n larger than the result
+     * - corpus: empty, nonempty, replaced or appended while serving
+     * - method: GET, other (405)
+     * - concurrency: many simultaneous requests
+     *
+     * Responses must equal the corresponding Filter/Extract/SocialNetwork
+     * results over the corpus.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much? @bbitdiddle", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype @alyssa @Eva", d2);
+    private static final Tweet tweet3 = new Tweet(3, "eva", "café talk @alyssa", d2);
+
+    private QueryServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Before
+    public void startServer() throws IOException {
+        server = new QueryServer(new InetSocketAddress("127.0.0.1", 0));
+        server.setCorpus(Arrays.asList(tweet1, tweet2));
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonStructure json(HttpResponse<String> response) {
+        try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+            return reader.read();
+        }
+    }
+
+    private static List<Long> ids(HttpResponse<String> response) {
+        assertEquals("expected OK: " + response.body(), 200, response.statusCode());
+        List<Long> ids = new ArrayList<>();
+        for (JsonValue value : (JsonArray) json(response)) {
+            ids.add(((JsonObject) value).getJsonNumber("id").longValue());
+        }
+        return ids;
+    }
+
+    private static List<String> strings(HttpResponse<String> response) {
+        assertEquals("expected OK: " + response.body(), 200, response.statusCode());
+        List<String> strings = new ArrayList<>();
+        for (JsonValue value : (JsonArray) json(response)) {
+            strings.add(((JsonString) value).getString());
+        }
+        return strings;
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testFilterEndpoints() throws Exception {
+        assertEquals("expected writtenBy", Arrays.asList(1L), ids(get("/writtenBy?username=ALYSSA")));
+        assertEquals("expected inTimespan", Arrays.asList(2L),
+                ids(get("/inTimespan?start=2016-02-17T10:30:00Z&end=2016-02-17T11:00:00Z")));
+        assertEquals("expected containing", Arrays.asList(1L, 2L), ids(get("/containing?word=talk&word=minutes")));
+        assertEquals("expected no words to match nothing", Arrays.asList(), ids(get("/containing")));
+
+        JsonObject tweet = (JsonObject) ((JsonArray) json(get("/writtenBy?username=bbitdiddle"))).get(0);
+        assertEquals("expected author", "bbitdiddle", tweet.getString("author"));
+        assertEquals("expected text", tweet2.getText(), tweet.getString("text"));
+        assertEquals("expected timestamp", d2.toString(), tweet.getString("timestamp"));
+    }
+
+    @Test
+    public void testCorpusEndpoints() throws Exception {
+        JsonObject timespan = (JsonObject) json(get("/timespan"));
+        assertEquals("expected start", d1.toString(), timespan.getString("start"));
+        assertEquals("expected end", d2.toString(), timespan.getString("end"));
+        assertEquals("expected sorted mentions", Arrays.asList("alyssa", "bbitdiddle", "eva"), strings(get("/mentionedUsers")));
+        List<String> influencers = SocialNetwork.influencers(SocialNetwork.guessFollowsGraph(Arrays.asList(tweet1, tweet2)));
+        assertEquals("expected influencers", influencers, strings(get("/influencers")));
+        assertEquals("expected top 1", influencers.subList(0, 1), strings(get("/influencers?n=1")));
+        assertEquals("expected n capped", influencers, strings(get("/influencers?n=100")));
+    }
+
+    @Test
+    public void testCorpusUpdates() throws Exception {
+        server.addTweets(Arrays.asList(tweet3));
+        assertEquals("expected URL-encoded word", Arrays.asList(3L), ids(get("/containing?word=CAF%C3%89")));
+        assertEquals("expected new snapshot mentions", 3, strings(get("/mentionedUsers")).size());
+
+        server.setCorpus(new ArrayList<>());
+        assertEquals("expected no tweets", 404, get("/timespan").statusCode());
+        assertEquals("expected no influencers", Arrays.asList(), strings(get("/influencers")));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals("expected missing username", 400, get("/writtenBy").statusCode());
+        assertEquals("expected repeated username", 400, get("/writtenBy?username=a&username=b").statusCode());
+        assertEquals("expected bad instant", 400, get("/inTimespan?start=yesterday&end=2016-02-17T11:00:00Z").statusCode());
+        assertEquals("expected reversed span", 400,
+                get("/inTimespan?start=2016-02-17T11:00:00Z&end=2016-02-17T10:00:00Z").statusCode());
+        assertEquals("expected bad n", 400, get("/influencers?n=-1").statusCode());
+        HttpResponse<String> notFound = get("/nothing");
+        assertEquals("expected unknown path", 404, notFound.statusCode());
+        assertTrue("expected error body", ((JsonObject) json(notFound)).getString("error").contains("/nothing"));
+
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/timespan");
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString("x")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals("expected method not allowed", 405, post.statusCode());
+    }
+
+    @Test
+    public void testConcurrentRequestsDuringIngest() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/writtenBy?username=alyssa");
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+            server.addTweets(Arrays.asList(new Tweet(100 + i, "alyssa", "more", d2)));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            List<Long> ids = ids(response.get());
+            assertEquals("expected a consistent snapshot prefix", Long.valueOf(1), ids.get(0));
+        }
+        assertEquals("expected all ingested", 201, ids(get("/writtenBy?username=alyssa")).size());
+    }
+
+}
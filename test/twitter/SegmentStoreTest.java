@@ -0,0 +1,347 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentStoreTest {
+
+    /*
+     * Testing strategy for SegmentStore:
+     *
+     * Partition the inputs as follows:
+     * - store: empty, one segment, many segments, reopened
+     * - append: empty batch, nonempty batch
+     * - inTimespan: timespan overlapping no, some, all segments; boundary
+     *   tweets inside a second, at the endpoints
+     * - writtenBy: author in no, some segments, some blocks of a segment;
+     *   different case
+     * - containing: no words, word in no, one block, first and last blocks
+     *   only; different case, separated by other space characters
+     * - text: non-ASCII characters
+     * - default locale: lowercases like Locale.ROOT, differently (Turkish),
+     *   same or different when writing and querying
+     * - compaction: nothing small, runs of small segments separated by a
+     *   large one, scheduled, interrupted (merged and replaced files both
+     *   present on reopen)
+     * - directory: leftover temporary file, corrupt segment file
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /*
+     * count tweets starting at id first, one second apart starting at
+     * d1 + first seconds, by authors chosen from the given ones in turn.
+     */
+    private static List<Tweet> tweets(int first, int count, String... authors) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            tweets.add(new Tweet(i, authors[i % authors.length], "tweet " + i + " été ☃ @alyssa",
+                    d1.plusSeconds(i).plusNanos(i * 1000)));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testEmptyStore() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath().resolve("store"));
+        store.append(Collections.emptyList());
+
+        assertEquals("expected no tweets", Collections.emptyList(), store.getAll());
+        assertEquals("expected no segments", 0, store.getSegmentCount());
+        assertEquals("expected no tweets in timespan", Collections.emptyList(),
+                store.inTimespan(new Timespan(d1, d1.plusSeconds(10))));
+    }
+
+    @Test
+    public void testAppendAndReopen() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Tweet> all = new ArrayList<>();
+        try (SegmentStore store = new SegmentStore(directory)) {
+            for (int b = 0; b < 5; b++) {
+                List<Tweet> batch = tweets(b * 10, 10, "alyssa", "BBitdiddle");
+                store.append(batch);
+                all.addAll(batch);
+            }
+            assertEquals("expected all tweets", all, store.getAll());
+        }
+
+        SegmentStore reopened = new SegmentStore(directory);
+        assertEquals("expected five segments", 5, reopened.getSegmentCount());
+        assertEquals("expected size", 50, reopened.size());
+        assertEquals("expected all tweets after reopen", all, reopened.getAll());
+        assertTweetsIdentical(all, reopened.getAll());
+
+        List<Tweet> more = tweets(50, 3, "alyssa");
+        reopened.append(more);
+        all.addAll(more);
+        assertEquals("expected appended after reopen", all, new SegmentStore(directory).getAll());
+    }
+
+    @Test
+    public void testInTimespanPrunesAndMatchesFilter() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath());
+        List<Tweet> all = new ArrayList<>();
+        for (int b = 0; b < 10; b++) {
+            List<Tweet> batch = tweets(b * 100, 100, "alyssa", "bbitdiddle");
+            store.append(batch);
+            all.addAll(batch);
+        }
+        // tweet 250 is at d1 + 250 s + 250 us: start excludes tweet 250,
+        // end includes tweet 420 exactly
+        Timespan timespan = new Timespan(d1.plusSeconds(250).plusNanos(250_001), d1.plusSeconds(420).plusNanos(420_000));
+        List<Tweet> result = store.inTimespan(timespan);
+
+        assertEquals("expected same as Filter", Filter.inTimespan(all, timespan), result);
+        assertEquals("expected first tweet", 251, result.get(0).getId());
+        assertEquals("expected last tweet", 420, result.get(result.size() - 1).getId());
+        assertEquals("expected segments 2-4 scanned", 3, store.getSegmentsScanned());
+        assertEquals("expected other segments pruned", 7, store.getSegmentsPruned());
+
+        Timespan none = new Timespan(d1.minusSeconds(100), d1.minusSeconds(1));
+        assertEquals("expected nothing before", Collections.emptyList(), store.inTimespan(none));
+        assertEquals("expected all segments pruned", 17, store.getSegmentsPruned());
+    }
+
+    @Test
+    public void testWrittenByPrunesAndMatchesFilter() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath());
+        List<Tweet> all = new ArrayList<>();
+        for (int b = 0; b < 6; b++) {
+            List<Tweet> batch = b % 3 == 0 ? tweets(b * 10, 10, "Alyssa", "bbitdiddle") : tweets(b * 10, 10, "bbitdiddle");
+            store.append(batch);
+            all.addAll(batch);
+        }
+        List<Tweet> result = store.writtenBy("ALYSSA");
+
+        assertEquals("expected same as Filter", Filter.writtenBy(all, "ALYSSA"), result);
+        assertEquals("expected 10 tweets", 10, result.size());
+        assertEquals("expected two segments scanned", 2, store.getSegmentsScanned());
+        assertEquals("expected four segments pruned", 4, store.getSegmentsPruned());
+        assertEquals("expected nothing by unknown", Collections.emptyList(), store.writtenBy("nobody"));
+    }
+
+    @Test
+    public void testCompactionMergesRunsOfSmallSegments() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        SegmentStore store = new SegmentStore(directory, 10);
+        List<Tweet> all = new ArrayList<>();
+        int[] sizes = { 3, 4, 2, 20, 5, 1, 30 };
+        int id = 0;
+        for (int size : sizes) {
+            List<Tweet> batch = tweets(id, size, "alyssa", "bbitdiddle");
+            store.append(batch);
+            all.addAll(batch);
+            id += size;
+        }
+
+        assertEquals("expected three segments removed", 3, store.compact());
+        assertEquals("expected four segments", 4, store.getSegmentCount());
+        assertEquals("expected all tweets in order", all, store.getAll());
+        assertEquals("expected nothing more to compact", 0, store.compact());
+        assertEquals("expected four segment files", 4, segmentFiles(directory).size());
+
+        SegmentStore reopened = new SegmentStore(directory, 10);
+        assertEquals("expected four segments after reopen", 4, reopened.getSegmentCount());
+        assertEquals("expected all tweets after reopen", all, reopened.getAll());
+        Timespan timespan = new Timespan(d1.plusSeconds(5), d1.plusSeconds(40));
+        assertEquals("expected same as Filter", Filter.inTimespan(all, timespan), reopened.inTimespan(timespan));
+    }
+
+    @Test
+    public void testInterruptedCompaction() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("store");
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        SegmentStore store = new SegmentStore(directory, 10);
+        List<Tweet> all = new ArrayList<>();
+        for (int b = 0; b < 3; b++) {
+            List<Tweet> batch = tweets(b * 2, 2, "alyssa");
+            store.append(batch);
+            all.addAll(batch);
+        }
+        Files.createDirectories(copy);
+        for (Path file : segmentFiles(directory)) {
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        store.compact();
+        for (Path file : segmentFiles(directory)) {
+            Files.copy(file, copy.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(copy.resolve("segment-0000000000000009-0000000000000009.seg.tmp"), new byte[] { 1, 2, 3 });
+        assertEquals("expected merged and replaced files", 4, segmentFiles(copy).size());
+
+        SegmentStore reopened = new SegmentStore(copy, 10);
+        assertEquals("expected one segment", 1, reopened.getSegmentCount());
+        assertEquals("expected tweets once", all, reopened.getAll());
+        assertEquals("expected replaced files deleted", 1, segmentFiles(copy).size());
+        try (Stream<Path> files = Files.list(copy)) {
+            assertEquals("expected temporary file deleted", 1, files.count());
+        }
+    }
+
+    @Test
+    public void testScheduledCompaction() throws Exception {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath(), 100);
+        List<Tweet> all = new ArrayList<>();
+        for (int b = 0; b < 20; b++) {
+            List<Tweet> batch = tweets(b * 3, 3, "alyssa");
+            store.append(batch);
+            all.addAll(batch);
+        }
+        store.startCompaction(Duration.ofMillis(10));
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (store.getSegmentCount() > 1 && System.nanoTime() < deadline) {
+            assertEquals("expected all tweets during compaction", all, store.getAll());
+            Thread.sleep(5);
+        }
+        store.close();
+
+        assertEquals("expected one segment", 1, store.getSegmentCount());
+        assertEquals("expected all tweets", all, store.getAll());
+        assertNull("expected no compaction error", store.getLastCompactionError());
+    }
+
+    @Test
+    public void testWrittenBySkipsBlocks() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath());
+        int blocks = 3;
+        List<Tweet> all = tweets(0, blocks * Segment.BLOCK_ROWS, "bbitdiddle");
+        all.set(Segment.BLOCK_ROWS + 5, new Tweet(-1, "Alyssa", "hello", d1));
+        store.append(all);
+
+        assertEquals("expected same as Filter", Filter.writtenBy(all, "alyssa"), store.writtenBy("alyssa"));
+        assertEquals("expected one block scanned", 1, store.getBlocksScanned());
+        assertEquals("expected other blocks skipped or false positives", blocks - 1,
+                store.getBlocksSkipped() + store.getFalsePositiveBlocks());
+    }
+
+    @Test
+    public void testContainingSkipsBlocksAndMatchesFilter() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath());
+        int blocks = 5;
+        List<Tweet> all = new ArrayList<>();
+        for (int i = 0; i < blocks * Segment.BLOCK_ROWS; i++) {
+            all.add(new Tweet(i, "alyssa", "tweet " + i + "\tabout\ntopic" + (i / Segment.BLOCK_ROWS),
+                    d1.plusSeconds(i)));
+        }
+        store.append(all);
+
+        assertEquals("expected nothing for no words", Collections.emptyList(), store.containing(Collections.emptyList()));
+        List<String> words = Arrays.asList("TOPIC3", "nowhere");
+        List<Tweet> result = store.containing(words);
+        assertEquals("expected same as Filter", Filter.containing(all, words), result);
+        assertEquals("expected one block of tweets", Segment.BLOCK_ROWS, result.size());
+        assertEquals("expected matching block scanned", 1,
+                store.getBlocksScanned() - store.getFalsePositiveBlocks());
+        assertEquals("expected every block examined", blocks, store.getBlocksScanned() + store.getBlocksSkipped());
+        assertTrue("expected most blocks skipped", store.getBlockSkipRate() >= 0.6);
+        assertTrue("expected few false positives", store.getFalsePositiveRate() <= 0.25);
+
+        assertEquals("expected same as Filter for common word", all, store.containing(Arrays.asList("About")));
+        assertEquals("expected nothing for absent word", Collections.emptyList(),
+                store.containing(Arrays.asList("nowhere")));
+    }
+
+    @Test
+    public void testSelectiveQueryReadsOnlyMatchingBlocks() throws IOException {
+        SegmentStore store = new SegmentStore(folder.getRoot().toPath());
+        int blocks = 8;
+        String padding = String.join(" ", Collections.nCopies(40, "filler"));
+        List<Tweet> all = new ArrayList<>();
+        for (int i = 0; i < blocks * Segment.BLOCK_ROWS; i++) {
+            all.add(new Tweet(i, "alyssa", "tweet " + i + " " + padding, d1.plusSeconds(i)));
+        }
+        all.set(3, new Tweet(3, "alyssa", "rare word", d1.plusSeconds(3)));
+        all.set(all.size() - 2, new Tweet(all.size() - 2, "alyssa", "another rare", d1.plusSeconds(all.size() - 2)));
+        store.append(all);
+        long fileSize = Files.size(segmentFiles(folder.getRoot().toPath()).get(0));
+
+        List<String> words = Arrays.asList("RARE");
+        assertEquals("expected same as Filter", Filter.containing(all, words), store.containing(words));
+        assertTrue("expected most of the file unread, read " + store.getBytesRead() + " of " + fileSize,
+                store.getBytesRead() < fileSize / 2);
+    }
+
+    @Test
+    public void testDefaultLocaleDoesNotChangeResults() throws IOException {
+        Locale original = Locale.getDefault();
+        Locale turkish = Locale.forLanguageTag("tr");
+        List<Tweet> all = new ArrayList<>();
+        for (int i = 0; i < 2 * Segment.BLOCK_ROWS; i++) {
+            all.add(new Tweet(i, "bbitdiddle", "tweet " + i, d1.plusSeconds(i)));
+        }
+        all.set(5, new Tweet(5, "IVAN", "I LIKE IT", d1.plusSeconds(5)));
+        all.set(Segment.BLOCK_ROWS + 5, new Tweet(-1, "ivan", "i like it", d1));
+        try {
+            for (Locale writing : Arrays.asList(Locale.ROOT, turkish)) {
+                Locale.setDefault(writing);
+                SegmentStore store = new SegmentStore(folder.newFolder().toPath());
+                store.append(all);
+                for (Locale querying : Arrays.asList(Locale.ROOT, turkish)) {
+                    Locale.setDefault(querying);
+                    for (String word : Arrays.asList("i", "\u0131", "I", "\u0130", "like")) {
+                        assertEquals("expected same as Filter for " + word + " written in " + writing
+                                + ", queried in " + querying,
+                                Filter.containing(all, Arrays.asList(word)), store.containing(Arrays.asList(word)));
+                    }
+                    for (String username : Arrays.asList("ivan", "\u0131van", "IVAN")) {
+                        assertEquals("expected same as Filter for " + username + " written in " + writing
+                                + ", queried in " + querying,
+                                Filter.writtenBy(all, username), store.writtenBy(username));
+                    }
+                }
+            }
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testCorruptSegmentFile() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Files.write(directory.resolve("segment-0000000000000000-0000000000000000.seg"), new byte[] { 1, 2, 3, 4, 5 });
+        new SegmentStore(directory);
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return Arrays.asList(files.filter(file -> file.getFileName().toString().endsWith(".seg")).toArray(Path[]::new));
+        }
+    }
+
+    private static void assertTweetsIdentical(List<Tweet> expected, List<Tweet> actual) {
+        assertEquals("expected same size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("expected same id", expected.get(i).getId(), actual.get(i).getId());
+            assertEquals("expected same author", expected.get(i).getAuthor(), actual.get(i).getAuthor());
+            assertEquals("expected same text", expected.get(i).getText(), actual.get(i).getText());
+            assertEquals("expected same timestamp", expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class SplitBlockBloomFilterTest {
+
+    /*
+     * Testing strategy for SplitBlockBloomFilter:
+     *
+     * Partition the inputs as follows:
+     * - filter: empty, one block, many blocks, written and read back
+     * - mightContain: added hash, hash not added
+     * - hash: same string with different seeds, strings differing in case
+     * - readFrom: valid, bad length
+     */
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        SplitBlockBloomFilter filter = new SplitBlockBloomFilter(0, 10);
+
+        assertEquals("expected one block", 32, filter.getSizeInBytes());
+        assertFalse("expected nothing", filter.mightContain(SplitBlockBloomFilter.hash("rivest", 0)));
+    }
+
+    @Test
+    public void testNoFalseNegativesAndFewFalsePositives() {
+        int n = 10_000;
+        SplitBlockBloomFilter filter = new SplitBlockBloomFilter(n, 10);
+        for (int i = 0; i < n; i++) {
+            filter.add(SplitBlockBloomFilter.hash("word" + i, 0));
+        }
+
+        for (int i = 0; i < n; i++) {
+            assertTrue("expected added word " + i, filter.mightContain(SplitBlockBloomFilter.hash("word" + i, 0)));
+        }
+        int falsePositives = 0;
+        for (int i = n; i < 11 * n; i++) {
+            if (filter.mightContain(SplitBlockBloomFilter.hash("word" + i, 0))) {
+                falsePositives++;
+            }
+        }
+        assertTrue("expected false positive rate under 4%, got " + falsePositives / (10.0 * n),
+                falsePositives < 0.04 * 10 * n);
+    }
+
+    @Test
+    public void testHashSeedsAndCase() {
+        assertNotEquals("expected seed to change hash",
+                SplitBlockBloomFilter.hash("alyssa", 0), SplitBlockBloomFilter.hash("alyssa", 1));
+        assertNotEquals("expected case to change hash",
+                SplitBlockBloomFilter.hash("alyssa", 0), SplitBlockBloomFilter.hash("Alyssa", 0));
+        assertEquals("expected deterministic hash",
+                SplitBlockBloomFilter.hash("alyssa", 7), SplitBlockBloomFilter.hash("alyssa", 7));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        SplitBlockBloomFilter filter = new SplitBlockBloomFilter(100, 10);
+        for (int i = 0; i < 100; i++) {
+            filter.add(SplitBlockBloomFilter.hash("word" + i, 0));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(42);
+        filter.writeTo(out);
+        out.writeInt(43);
+
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals("expected leading int", 42, in.getInt());
+        SplitBlockBloomFilter read = SplitBlockBloomFilter.readFrom(in);
+        assertEquals("expected trailing int", 43, in.getInt());
+        assertEquals("expected same size", filter.getSizeInBytes(), read.getSizeInBytes());
+        for (int i = 0; i < 1000; i++) {
+            long hash = SplitBlockBloomFilter.hash("word" + i, 0);
+            assertEquals("expected same answer for word " + i, filter.mightContain(hash), read.mightContain(hash));
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testReadBadLength() {
+        ByteBuffer in = ByteBuffer.allocate(12);
+        in.putInt(0, 7);
+        SplitBlockBloomFilter.readFrom(in);
+    }
+}
@@ -0,0 +1,94 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimespanBatchTest {
+
+    /*
+     * Testing strategy for TimespanBatch:
+     *
+     * Partition the inputs as follows:
+     * - number of tweets: 0, 1, >1, with equal timestamps, unsorted input
+     * - number of timespans: 0, 1, >1, overlapping, nested, disjoint
+     * - tweet timestamps relative to a timespan: before, at start, inside,
+     *   at end, after; timestamps with sub-second precision
+     * - results: lists and counts agree with Filter.inTimespan(), in input order
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+    private static final Instant d2 = Instant.parse("2016-02-17T11:00:00Z");
+    private static final Instant d3 = Instant.parse("2016-02-17T12:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d2);
+    private static final Tweet tweet3 = new Tweet(3, "user", "late tweet", d3);
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        List<List<Tweet>> results = TimespanBatch.inTimespans(new ArrayList<>(), Arrays.asList(new Timespan(d1, d2)));
+
+        assertEquals("expected one result", 1, results.size());
+        assertTrue("expected empty result", results.get(0).isEmpty());
+        assertEquals("expected no counts", 0, TimespanBatch.countInTimespans(Arrays.asList(tweet1), new ArrayList<>()).length);
+    }
+
+    @Test
+    public void testBoundariesAndInputOrder() {
+        List<Tweet> tweets = Arrays.asList(tweet3, tweet1, tweet2);
+        List<Timespan> timespans = Arrays.asList(
+                new Timespan(d1, d2), new Timespan(d2, d3), new Timespan(d2, d2), new Timespan(d3.plusSeconds(1), d3.plusSeconds(2)));
+
+        List<List<Tweet>> results = TimespanBatch.inTimespans(tweets, timespans);
+
+        assertEquals("expected endpoints included, input order", Arrays.asList(tweet1, tweet2), results.get(0));
+        assertEquals("expected input order", Arrays.asList(tweet3, tweet2), results.get(1));
+        assertEquals("expected single instant", Arrays.asList(tweet2), results.get(2));
+        assertTrue("expected nothing after", results.get(3).isEmpty());
+        assertArrayEquals("expected counts", new int[] { 2, 2, 1, 0 }, TimespanBatch.countInTimespans(tweets, timespans));
+    }
+
+    @Test
+    public void testAgreesWithFilter() {
+        Random random = new Random(6005);
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Instant timestamp = d1.plusSeconds(random.nextInt(3600)).plusNanos(random.nextInt(3) * 500_000_000L);
+            tweets.add(new Tweet(i, "user", "tweet " + i, timestamp));
+        }
+        List<Timespan> timespans = new ArrayList<>();
+        for (int minute = 0; minute < 60; minute++) {
+            timespans.add(new Timespan(d1.plusSeconds(60 * minute), d1.plusSeconds(60 * minute + 59)));
+        }
+        for (int q = 0; q < 40; q++) {
+            Instant start = d1.plusSeconds(random.nextInt(3600)).plusMillis(random.nextInt(1000));
+            timespans.add(new Timespan(start, start.plusSeconds(random.nextInt(900))));
+        }
+
+        TimespanBatch batch = new TimespanBatch(tweets);
+        List<List<Tweet>> results = batch.inTimespans(timespans);
+        int[] counts = batch.countInTimespans(timespans);
+
+        for (int q = 0; q < timespans.size(); q++) {
+            List<Tweet> expected = Filter.inTimespan(tweets, timespans.get(q));
+            assertEquals("expected same tweets for " + timespans.get(q), expected, results.get(q));
+            assertEquals("expected same count for " + timespans.get(q), expected.size(), counts[q]);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TweetArenaTest {
+
+    /*
+     * Testing strategy for TweetArena:
+     *
+     * Partition the inputs as follows:
+     * - arena: empty, a few tweets, more than one chunk of rows and one
+     *   text buffer, closed
+     * - text: ASCII, non-ASCII, longer than a text buffer, with tabs and
+     *   newlines between words
+     * - timestamps: equal seconds with different nanos, timespan endpoints
+     *   inside a second
+     * - writtenBy: author present in different case, absent
+     * - containing: no words, ASCII and non-ASCII words, word at start/end,
+     *   partial word
+     * - mentions: at start, after a username character (email), after a
+     *   non-ASCII character, doubled @, mixed case
+     *
+     * Each query is compared with the same Filter or Extract method on the
+     * same tweets.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<Tweet> sample() {
+        return Arrays.asList(
+                new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much? @BBitdiddle", d1),
+                new Tweet(2, "bbitdiddle", "rivest talk\tin 30 minutes\n#hype bbitdiddle@mit.edu", d1.plusNanos(500)),
+                new Tweet(3, "Alyssa", "été ☃ @été @ab_c1 é@nope @@twice", d1.plusSeconds(1)),
+                new Tweet(4, "carol", "", d1.minusSeconds(1).plusNanos(999)),
+                new Tweet(5, "dave", "RIVEST", d1.plusSeconds(2).plusNanos(1)));
+    }
+
+    private static void assertSameTweets(List<Tweet> expected, List<Tweet> actual) {
+        assertEquals("expected same tweets", expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("expected same author", expected.get(i).getAuthor(), actual.get(i).getAuthor());
+            assertEquals("expected same text", expected.get(i).getText(), actual.get(i).getText());
+            assertEquals("expected same timestamp", expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        try (TweetArena arena = new TweetArena()) {
+            assertEquals("expected empty", 0, arena.size());
+            assertEquals("expected no tweets", Collections.emptyList(), arena.containing(Arrays.asList("rivest")));
+            assertEquals("expected no mentions", Collections.emptySet(), arena.getMentionedUsers());
+            assertEquals("expected no off-heap memory", 0, arena.getOffHeapBytes());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyTimespan() {
+        try (TweetArena arena = new TweetArena()) {
+            arena.getTimespan();
+        }
+    }
+
+    @Test
+    public void testGetAndTimespan() {
+        List<Tweet> tweets = sample();
+        try (TweetArena arena = new TweetArena(tweets)) {
+            List<Tweet> all = new ArrayList<>();
+            for (int i = 0; i < arena.size(); i++) {
+                all.add(arena.get(i));
+            }
+            assertSameTweets(tweets, all);
+            assertEquals("expected same timespan", Extract.getTimespan(tweets), arena.getTimespan());
+            assertTrue("expected off-heap memory", arena.getOffHeapBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testFilters() {
+        List<Tweet> tweets = sample();
+        try (TweetArena arena = new TweetArena(tweets)) {
+            Timespan timespan = new Timespan(d1.plusNanos(1), d1.plusSeconds(2).plusNanos(1));
+            assertSameTweets(Filter.inTimespan(tweets, timespan), arena.inTimespan(timespan));
+            assertSameTweets(Filter.writtenBy(tweets, "ALYSSA"), arena.writtenBy("ALYSSA"));
+            assertEquals("expected nobody", Collections.emptyList(), arena.writtenBy("nobody"));
+            for (List<String> words : Arrays.asList(
+                    Collections.<String>emptyList(),
+                    Arrays.asList("RIVEST"),
+                    Arrays.asList("in", "ÉTÉ"),
+                    Arrays.asList("#hype"),
+                    Arrays.asList("reason", "minute"))) {
+                assertSameTweets(Filter.containing(tweets, words), arena.containing(words));
+            }
+        }
+    }
+
+    @Test
+    public void testMentionedUsers() {
+        List<Tweet> tweets = sample();
+        try (TweetArena arena = new TweetArena(tweets)) {
+            assertEquals("expected same mentions", Extract.getMentionedUsers(tweets), arena.getMentionedUsers());
+        }
+    }
+
+    @Test
+    public void testManyChunksAndLongText() {
+        Random random = new Random(6005);
+        String[] words = { "rivest", "Talk", "hype", "été", "@alyssa", "mail@bb", "x" };
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 150_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = random.nextInt(4); w >= 0; w--) {
+                text.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "\t");
+            }
+            tweets.add(new Tweet(i, "user" + random.nextInt(100), text.toString(),
+                    d1.plusSeconds(random.nextInt(1000)).plusNanos(random.nextInt(1000))));
+        }
+        StringBuilder longText = new StringBuilder();
+        while (longText.length() < 3 << 20) {
+            longText.append("long text ");
+        }
+        tweets.add(new Tweet(-1, "writer", longText.toString() + "ending", d1));
+
+        try (TweetArena arena = new TweetArena(tweets)) {
+            assertEquals("expected size", tweets.size(), arena.size());
+            assertSameTweets(Collections.singletonList(tweets.get(tweets.size() - 1)),
+                    Collections.singletonList(arena.get(tweets.size() - 1)));
+            Timespan timespan = new Timespan(d1.plusSeconds(100), d1.plusSeconds(200));
+            assertEquals("expected same timespan filter", Filter.inTimespan(tweets, timespan), arena.inTimespan(timespan));
+            assertEquals("expected same author filter", Filter.writtenBy(tweets, "USER7"), arena.writtenBy("USER7"));
+            List<String> search = Arrays.asList("TALK", "ÉtÉ", "ending");
+            assertEquals("expected same word filter", Filter.containing(tweets, search), arena.containing(search));
+            assertEquals("expected same mentions", Extract.getMentionedUsers(tweets), arena.getMentionedUsers());
+            assertEquals("expected same timespan", Extract.getTimespan(tweets), arena.getTimespan());
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testClosed() {
+        TweetArena arena = new TweetArena(sample());
+        arena.close();
+        arena.writtenBy("alyssa");
+    }
+}
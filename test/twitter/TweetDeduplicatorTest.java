@@ -0,0 +1,115 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TweetDeduplicatorTest {
+
+    /*
+     * Testing strategy for TweetDeduplicator and RollingDeduplicator:
+     *
+     * Partition the inputs as follows:
+     * - batches: none, empty, one, several overlapping, repeats within a batch
+     * - tweets with the same id: identical, different text (first kept)
+     * - merged result: agrees with a LinkedHashSet<Tweet>, in first-seen order
+     * - rolling: repeat within horizon (dropped), tweet older than horizon
+     *   plus a slice (late, dropped), out-of-order timestamps within horizon,
+     *   memory stays bounded as the watermark advances
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?", d1);
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype", d1.plusSeconds(60));
+    private static final Tweet tweet3 = new Tweet(3, "eva", "late tweet", d1.plusSeconds(120));
+    private static final Tweet tweet2Edited = new Tweet(2, "bbitdiddle", "edited", d1.plusSeconds(60));
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testMergeEmpty() {
+        assertTrue("expected empty", TweetDeduplicator.merge(new ArrayList<>()).isEmpty());
+        assertTrue("expected empty", TweetDeduplicator.merge(Arrays.asList(new ArrayList<>())).isEmpty());
+    }
+
+    @Test
+    public void testOverlappingBatches() {
+        TweetDeduplicator deduplicator = new TweetDeduplicator();
+
+        assertEquals("expected all new", Arrays.asList(tweet1, tweet2), deduplicator.addBatch(Arrays.asList(tweet1, tweet2)));
+        assertEquals("expected only tweet3 new", Arrays.asList(tweet3),
+                deduplicator.addBatch(Arrays.asList(tweet2Edited, tweet3, tweet3)));
+        assertEquals("expected merged", Arrays.asList(tweet1, tweet2, tweet3), deduplicator.getTweets());
+        assertEquals("expected first version kept", "rivest talk in 30 minutes #hype", deduplicator.getTweets().get(1).getText());
+        assertTrue("expected id 3", deduplicator.contains(3));
+        assertFalse("expected no id 4", deduplicator.contains(4));
+        assertEquals("expected size", 3, deduplicator.size());
+    }
+
+    @Test
+    public void testMergeAgreesWithHashSet() {
+        Random random = new Random(6005);
+        List<List<Tweet>> batches = new ArrayList<>();
+        LinkedHashSet<Tweet> expected = new LinkedHashSet<>();
+        for (int b = 0; b < 50; b++) {
+            List<Tweet> batch = new ArrayList<>();
+            int newest = 100 * b;
+            for (int i = 0; i < 200; i++) {
+                int id = newest - random.nextInt(300);
+                batch.add(new Tweet(id, "user", "tweet " + id, d1.plusSeconds(id)));
+            }
+            batches.add(batch);
+            expected.addAll(batch);
+        }
+
+        assertEquals("expected same tweets in same order", new ArrayList<>(expected), TweetDeduplicator.merge(batches));
+    }
+
+    @Test
+    public void testRollingDropsRepeatsAndLateTweets() {
+        RollingDeduplicator rolling = new RollingDeduplicator(Duration.ofMinutes(10), 10);
+        Tweet muchLater = new Tweet(4, "ben", "much later", d1.plusSeconds(3600));
+        Tweet recent = new Tweet(5, "ben", "recent", d1.plusSeconds(3600 - 300));
+
+        assertEquals("expected all new", Arrays.asList(tweet2, tweet1, tweet3),
+                rolling.addBatch(Arrays.asList(tweet2, tweet1, tweet3)));
+        assertEquals("expected repeats dropped", Arrays.asList(),
+                rolling.addBatch(Arrays.asList(tweet3, tweet2Edited, tweet1)));
+        assertEquals("expected late tweets dropped", Arrays.asList(muchLater, recent),
+                rolling.addBatch(Arrays.asList(muchLater, tweet1, recent, recent)));
+        assertEquals("expected one late tweet", 1, rolling.getLateCount());
+        assertEquals("expected old ids forgotten", 2, rolling.size());
+    }
+
+    @Test
+    public void testRollingBoundedMemory() {
+        RollingDeduplicator rolling = new RollingDeduplicator(Duration.ofSeconds(100), 4);
+        int added = 0;
+        for (int i = 0; i < 100000; i++) {
+            // one tweet per second, each sent twice, the repeat 50 seconds later
+            added += rolling.addBatch(Arrays.asList(
+                    new Tweet(i, "user", "t", d1.plusSeconds(i)),
+                    new Tweet(Math.max(0, i - 50), "user", "t", d1.plusSeconds(Math.max(0, i - 50))))).size();
+            assertTrue("expected bounded memory", rolling.size() <= 125);
+        }
+
+        assertEquals("expected each tweet once", 100000, added);
+        assertEquals("expected none late", 0, rolling.getLateCount());
+    }
+
+}
@@ -0,0 +1,239 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TweetGeneratorTest {
+
+    /*
+     * Testing strategy for TweetGenerator:
+     *
+     * Partition the inputs as follows:
+     * - count: 0, less than a chunk, several chunks with a partial last one
+     * - seed: same, different
+     * - generation: generate (parallel), sequential stream, NDJSON, binary
+     * - skew: 0 (uniform), 1.2 (skewed)
+     * - wordSkew: 0 (uniform), 1 (Zipf's law), negative (rejected)
+     * - mentionsPerTweet: 0, 3
+     *
+     * Distributions are checked loosely: author activity, mention targets and
+     * word frequencies are heavy-headed under skew and flat without, the
+     * average number of mentions is near the requested one, and the arrival
+     * rate is bursty.
+     */
+
+    private static final int CHUNKS = 3 * TweetGenerator.CHUNK_TWEETS + 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static void assertSameTweets(List<Tweet> expected, List<Tweet> actual) {
+        assertEquals("expected same tweets", expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("expected same author", expected.get(i).getAuthor(), actual.get(i).getAuthor());
+            assertEquals("expected same text", expected.get(i).getText(), actual.get(i).getText());
+            assertEquals("expected same timestamp", expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals("expected no tweets", Collections.emptyList(), new TweetGenerator(1).generate(0));
+    }
+
+    @Test
+    public void testDeterministicAndParallelMatchesSequential() {
+        List<Tweet> tweets = new TweetGenerator(1).generate(CHUNKS);
+        assertEquals("expected count", CHUNKS, tweets.size());
+        for (int i = 0; i < tweets.size(); i++) {
+            assertEquals("expected ids in order", i, tweets.get(i).getId());
+        }
+        assertSameTweets(tweets, new TweetGenerator(1).generate(CHUNKS));
+        assertSameTweets(tweets, new TweetGenerator(1).stream(CHUNKS).collect(Collectors.toList()));
+        assertSameTweets(tweets.subList(0, 100), new TweetGenerator(1).generate(100));
+
+        List<Tweet> other = new TweetGenerator(2).generate(100);
+        assertNotEquals("expected different texts for different seed",
+                tweets.subList(0, 100).stream().map(Tweet::getText).collect(Collectors.toList()),
+                other.stream().map(Tweet::getText).collect(Collectors.toList()));
+    }
+
+    private static Map<String, Integer> counts(List<String> values) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String value : values) {
+            counts.merge(value, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    public void testSkew() {
+        TweetGenerator skewed = new TweetGenerator(3, 1000, 3, 1.2, 1, 100);
+        TweetGenerator uniform = new TweetGenerator(3, 1000, 3, 0, 1, 100);
+        List<Tweet> skewedTweets = skewed.generate(50_000);
+        List<Tweet> uniformTweets = uniform.generate(50_000);
+
+        Map<String, Integer> skewedAuthors = counts(skewedTweets.stream().map(Tweet::getAuthor).collect(Collectors.toList()));
+        Map<String, Integer> uniformAuthors = counts(uniformTweets.stream().map(Tweet::getAuthor).collect(Collectors.toList()));
+        assertTrue("expected most active author to write a large share", skewedAuthors.get("user0") > 50_000 / 10);
+        assertTrue("expected uniform activity", uniformAuthors.get("user0") < 50_000 / 100 * 2);
+
+        Map<String, Integer> mentions = new HashMap<>();
+        long mentionCount = 0;
+        for (Tweet tweet : skewedTweets) {
+            for (String word : tweet.getText().split(" ")) {
+                if (word.startsWith("@")) {
+                    mentions.merge(word.substring(1).toLowerCase(), 1, Integer::sum);
+                    mentionCount++;
+                }
+            }
+        }
+        assertEquals("expected 3 mentions per tweet", 3.0, (double) mentionCount / skewedTweets.size(), 0.1);
+        assertTrue("expected most mentioned user to be the top rank",
+                mentions.get("user0") > mentions.getOrDefault("user10", 0) * 5);
+
+        Map<String, Set<String>> graph = SocialNetwork.guessFollowsGraph(skewedTweets);
+        assertTrue("expected user0 to be the top influencer",
+                SocialNetwork.influencers(graph).subList(0, 3).contains("user0"));
+    }
+
+    @Test
+    public void testWordSkew() {
+        TweetGenerator zipf = new TweetGenerator(10, 100, 0, 1, 1, 100);
+        TweetGenerator uniform = new TweetGenerator(10, 100, 0, 1, 0, 100);
+        String top = zipf.getWord(0);
+        List<String> zipfWords = words(zipf.generate(10_000));
+        int zipfTop = counts(zipfWords).getOrDefault(top, 0);
+        List<String> uniformWords = words(uniform.generate(10_000));
+        int uniformTop = counts(uniformWords).getOrDefault(top, 0);
+
+        assertTrue("expected most frequent word to be common", zipfTop > zipfWords.size() / 20);
+        assertTrue("expected uniform word frequencies",
+                uniformTop < uniformWords.size() / uniform.getVocabularySize() * 5 + 5);
+    }
+
+    /*
+     * The words of tweets, without hashtag marks.
+     */
+    private static List<String> words(List<Tweet> tweets) {
+        List<String> words = new ArrayList<>();
+        for (Tweet tweet : tweets) {
+            for (String word : tweet.getText().split(" ")) {
+                words.add(word.startsWith("#") ? word.substring(1) : word);
+            }
+        }
+        return words;
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadWordSkew() {
+        new TweetGenerator(9, 100, 1, 1, -1, 1);
+    }
+
+    @Test
+    public void testNoMentions() {
+        for (Tweet tweet : new TweetGenerator(4, 100, 0, 1, 1, 100).generate(1000)) {
+            assertFalse("expected no mentions", tweet.getText().contains("@"));
+        }
+    }
+
+    @Test
+    public void testBurstyTimestamps() {
+        List<Tweet> tweets = new TweetGenerator(5, 1000, 1, 1, 1, 10).generate(CHUNKS);
+        Map<Long, Integer> perSecond = new HashMap<>();
+        for (int i = 0; i < tweets.size(); i++) {
+            if (i > 0) {
+                assertFalse("expected nondecreasing timestamps",
+                        tweets.get(i).getTimestamp().isBefore(tweets.get(i - 1).getTimestamp()));
+            }
+            assertEquals("expected whole seconds", 0, tweets.get(i).getTimestamp().getNano());
+            perSecond.merge(tweets.get(i).getTimestamp().getEpochSecond(), 1, Integer::sum);
+        }
+        long seconds = tweets.get(tweets.size() - 1).getTimestamp().getEpochSecond()
+                - tweets.get(0).getTimestamp().getEpochSecond();
+        assertEquals("expected average rate", 10.0, (double) tweets.size() / seconds, 1.0);
+        assertTrue("expected bursts far above the average rate", Collections.max(perSecond.values()) > 50);
+    }
+
+    @Test
+    public void testVocabulary() {
+        TweetGenerator generator = new TweetGenerator(6);
+        Set<String> words = new HashSet<>();
+        for (int r = 0; r < generator.getVocabularySize(); r++) {
+            assertTrue("expected lowercase letters", generator.getWord(r).matches("[a-z]+"));
+            words.add(generator.getWord(r));
+        }
+        assertEquals("expected distinct words", generator.getVocabularySize(), words.size());
+        assertTrue("expected frequent words shorter",
+                generator.getWord(0).length() < generator.getWord(generator.getVocabularySize() - 1).length());
+    }
+
+    @Test
+    public void testNdjsonReadByTweetParser() throws IOException {
+        TweetGenerator generator = new TweetGenerator(7);
+        Path file = folder.newFile().toPath();
+        generator.writeNdjson(CHUNKS, file);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals("expected a line per tweet", CHUNKS, lines.size());
+        List<Tweet> parsed = TweetParser.parse(new StringReader("[" + String.join(",", lines) + "]"));
+        assertSameTweets(generator.generate(CHUNKS), parsed);
+    }
+
+    @Test
+    public void testBinaryReadByTweetCodec() throws IOException {
+        TweetGenerator generator = new TweetGenerator(8);
+        Path file = folder.newFile().toPath();
+        generator.writeBinary(CHUNKS, file);
+
+        List<Tweet> read = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                try {
+                    read.add(TweetCodec.read(in));
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        assertSameTweets(generator.generate(CHUNKS), read);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadUsers() {
+        new TweetGenerator(9, 0, 1, 1, 1, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBadCount() {
+        new TweetGenerator(9).stream(-1);
+    }
+}
@@ -0,0 +1,143 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.json.JsonException;
+
+import org.junit.Test;
+
+public class TweetParserTest {
+
+    /*
+     * Testing strategy for TweetParser:
+     *
+     * Partition the inputs as follows:
+     * - number of tweets: 0, 1, >1
+     * - author field: flat "user.screen_name", nested "user" object
+     * - id: number, string; relative to since-id: below, equal, above
+     * - extra fields: scalars, nested objects and arrays
+     * - input: well-formed, not an array, missing field, bad timestamp,
+     *   truncated
+     * - results: equal to TweetReader on the same input
+     */
+
+    private static final String TWEET1 = "{\"id\": 1, \"user.screen_name\": \"alyssa\", "
+            + "\"text\": \"is it reasonable to talk about rivest so much?\", "
+            + "\"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+    private static final String TWEET2 = "{\"retweeted\": false, \"entities\": {\"urls\": [{\"a\": [1, 2]}]}, "
+            + "\"created_at\": \"Wed Feb 17 11:00:00 +0000 2016\", \"id\": \"2\", "
+            + "\"user\": {\"id\": 7, \"screen_name\": \"bbitdiddle\"}, \"text\": \"rivest talk in 30 minutes #hype\"}";
+
+    private static final Tweet tweet1 = new Tweet(1, "alyssa", "is it reasonable to talk about rivest so much?",
+            Instant.parse("2016-02-17T10:00:00Z"));
+    private static final Tweet tweet2 = new Tweet(2, "bbitdiddle", "rivest talk in 30 minutes #hype",
+            Instant.parse("2016-02-17T11:00:00Z"));
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyArray() {
+        TweetParser parser = new TweetParser(new StringReader(" [ ] "));
+
+        assertFalse("expected no tweets", parser.hasNext());
+        try {
+            parser.next();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFlatAndNestedAuthors() {
+        List<Tweet> tweets = TweetParser.parse(new StringReader("[" + TWEET1 + ", " + TWEET2 + "]"));
+
+        assertEquals("expected both tweets", Arrays.asList(tweet1, tweet2), tweets);
+        assertEquals("expected nested author", "bbitdiddle", tweets.get(1).getAuthor());
+        assertEquals("expected timestamp", tweet2.getTimestamp(), tweets.get(1).getTimestamp());
+        assertEquals("expected text", tweet2.getText(), tweets.get(1).getText());
+    }
+
+    @Test
+    public void testSinceId() {
+        TweetParser parser = new TweetParser(new StringReader("[" + TWEET2 + ", " + TWEET1 + "]"), 1);
+
+        assertEquals("expected tweet2", tweet2, parser.next());
+        assertFalse("expected tweet1 skipped", parser.hasNext());
+        assertEquals("expected one skipped", 1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void testAgreesWithTweetReader() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\": ").append(1000 + i)
+                    .append(", \"user.screen_name\": \"user").append(i % 7)
+                    .append("\", \"text\": \"tweet \\\"number\\\" ").append(i).append(" @user").append(i % 3)
+                    .append("\", \"created_at\": \"Wed Feb 17 10:").append(String.format("%02d", i % 60))
+                    .append(":00 -0500 2016\", \"favorited\": null, \"tags\": [\"a\", {\"b\": true}]}");
+        }
+        json.append("]");
+        Path file = Files.createTempFile("tweets", ".json");
+        try {
+            Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+            List<Tweet> expected = TweetReader.readTweetsFromWeb(file.toUri().toURL());
+            List<Tweet> actual = TweetParser.parse(new StringReader(json.toString()));
+
+            assertEquals("expected same tweets", expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals("expected same id", expected.get(i).getId(), actual.get(i).getId());
+                assertEquals("expected same author", expected.get(i).getAuthor(), actual.get(i).getAuthor());
+                assertEquals("expected same text", expected.get(i).getText(), actual.get(i).getText());
+                assertEquals("expected same timestamp", expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected=JsonException.class)
+    public void testNotAnArray() {
+        new TweetParser(new StringReader(TWEET1)).hasNext();
+    }
+
+    @Test(expected=JsonException.class)
+    public void testMissingField() {
+        TweetParser.parse(new StringReader("[{\"id\": 1, \"text\": \"x\", \"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}]"));
+    }
+
+    @Test(expected=JsonException.class)
+    public void testBadTimestamp() {
+        TweetParser.parse(new StringReader("[{\"id\": 1, \"user.screen_name\": \"a\", \"text\": \"x\", \"created_at\": \"yesterday\"}]"));
+    }
+
+    @Test
+    public void testTruncatedAfterFirstTweet() {
+        TweetParser parser = new TweetParser(new StringReader("[" + TWEET1 + ", {\"id\": 2, \"te"));
+
+        assertEquals("expected first tweet before the error", tweet1, parser.next());
+        try {
+            parser.hasNext();
+            fail("expected JsonException");
+        } catch (JsonException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class TweetPublisherTest {
+
+    /*
+     * Testing strategy for TweetPublisher:
+     *
+     * Partition the inputs as follows:
+     * - source: string Reader, file, unbounded Reader, source that throws,
+     *   malformed stream
+     * - number of tweets: 0, >1, unbounded
+     * - demand: one at a time, bounded batch, Long.MAX_VALUE, non-positive
+     * - subscriber: completes, cancels midway, second subscriber to a
+     *   single-use Reader
+     *
+     * Testing strategy for MentionProcessor and FollowsGraphSubscriber:
+     * - fed by a TweetPublisher; results equal Extract.getMentionedUsers()
+     *   and SocialNetwork.guessFollowsGraph() of the same tweets
+     * - follows graph batch size smaller than and not dividing the stream
+     */
+
+    private static final String TWEET = "{\"id\": %d, \"user.screen_name\": \"user%d\", \"text\": \"hi @user%d\", "
+            + "\"created_at\": \"Wed Feb 17 10:00:00 +0000 2016\"}";
+
+    static String tweets(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append(String.format(TWEET, i, i % 5, (i + 1) % 7));
+        }
+        return json.append("]").toString();
+    }
+
+    /*
+     * Subscriber recording signals, requesting a fixed amount on subscribe
+     * and optionally one more after each tweet.
+     */
+    static class Recorder implements Flow.Subscriber<Tweet> {
+        final List<Tweet> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final long initial;
+        final boolean requestMore;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        Recorder(long initial, boolean requestMore) {
+            this.initial = initial;
+            this.requestMore = requestMore;
+        }
+
+        @Override public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        @Override public void onNext(Tweet tweet) {
+            received.add(tweet);
+            if (requestMore) {
+                subscription.request(1);
+            }
+        }
+
+        @Override public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("expected stream to terminate", terminated.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyStream() throws InterruptedException {
+        Recorder recorder = new Recorder(1, false);
+        TweetPublisher.fromReader(new StringReader("[]")).subscribe(recorder);
+        recorder.await();
+
+        assertTrue("expected completion", recorder.completed);
+        assertTrue("expected no tweets", recorder.received.isEmpty());
+    }
+
+    @Test
+    public void testOneAtATimeMatchesParser() throws InterruptedException {
+        Recorder recorder = new Recorder(1, true);
+        TweetPublisher.fromReader(new StringReader(tweets(100))).subscribe(recorder);
+        recorder.await();
+
+        assertTrue("expected completion", recorder.completed);
+        assertEquals("expected same tweets", TweetParser.parse(new StringReader(tweets(100))), recorder.received);
+    }
+
+    @Test
+    public void testHonorsBoundedDemand() throws InterruptedException {
+        Recorder recorder = new Recorder(3, false);
+        TweetPublisher.fromReader(new StringReader(tweets(10))).subscribe(recorder);
+        Thread.sleep(200);
+
+        assertEquals("expected only requested tweets", 3, recorder.received.size());
+        assertFalse("expected not complete", recorder.completed);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.await();
+        assertEquals("expected the rest", 10, recorder.received.size());
+        assertTrue("expected completion", recorder.completed);
+    }
+
+    @Test
+    public void testFileWithTwoSubscribers() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("tweets", ".json");
+        try {
+            Files.write(file, tweets(20).getBytes(StandardCharsets.UTF_8));
+            TweetPublisher publisher = TweetPublisher.fromPath(file);
+            Recorder first = new Recorder(Long.MAX_VALUE, false);
+            Recorder second = new Recorder(Long.MAX_VALUE, false);
+            publisher.subscribe(first);
+            publisher.subscribe(second);
+            first.await();
+            second.await();
+
+            assertEquals("expected all tweets", 20, first.received.size());
+            assertEquals("expected same tweets for each subscriber", first.received, second.received);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnboundedStreamCancelled() throws InterruptedException {
+        AtomicLong produced = new AtomicLong();
+        AtomicBoolean closed = new AtomicBoolean();
+        Reader endless = new Reader() {
+            private String pending = "[";
+            private int position = 0;
+
+            @Override public int read(char[] buffer, int offset, int length) {
+                if (position == pending.length()) {
+                    long i = produced.getAndIncrement();
+                    pending = (i == 0 ? "" : ",") + String.format(TWEET, i, i % 5, i % 7);
+                    position = 0;
+                }
+                int n = Math.min(length, pending.length() - position);
+                pending.getChars(position, position + n, buffer, offset);
+                position += n;
+                return n;
+            }
+
+            @Override public void close() {
+                closed.set(true);
+            }
+        };
+        CountDownLatch enough = new CountDownLatch(1);
+        Recorder recorder = new Recorder(1, false) {
+            @Override public void onNext(Tweet tweet) {
+                if (received.size() < 20000) {
+                    received.add(tweet);
+                    subscription.request(1);
+                } else {
+                    subscription.cancel();
+                    enough.countDown();
+                }
+            }
+        };
+        TweetPublisher.fromReader(endless).subscribe(recorder);
+
+        assertTrue("expected 20000 tweets", enough.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals("expected no more tweets after cancel", 20000, recorder.received.size());
+        assertTrue("expected reader closed", closed.get());
+        assertTrue("expected parse to stay just ahead of demand", produced.get() < 20100);
+    }
+
+    @Test
+    public void testErrors() throws InterruptedException {
+        Recorder malformed = new Recorder(Long.MAX_VALUE, false);
+        TweetPublisher.fromReader(new StringReader("[" + String.format(TWEET, 1, 1, 1) + ", {\"id\": 2}]")).subscribe(malformed);
+        malformed.await();
+        assertEquals("expected tweet before the error", 1, malformed.received.size());
+        assertNotNull("expected parse error", malformed.error);
+
+        Recorder failing = new Recorder(1, false);
+        new TweetPublisher(() -> {
+            throw new IOException("unreachable");
+        }).subscribe(failing);
+        failing.await();
+        assertTrue("expected open error", failing.error instanceof IOException);
+
+        Recorder badRequest = new Recorder(0, false);
+        TweetPublisher.fromReader(new StringReader(tweets(3))).subscribe(badRequest);
+        badRequest.await();
+        assertTrue("expected rule 3.9 error", badRequest.error instanceof IllegalArgumentException);
+
+        TweetPublisher once = TweetPublisher.fromReader(new StringReader(tweets(3)));
+        once.subscribe(new Recorder(Long.MAX_VALUE, false));
+        Recorder second = new Recorder(1, false);
+        once.subscribe(second);
+        second.await();
+        assertTrue("expected single-use reader error", second.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testPipelineIntoAnalytics() throws Exception {
+        String json = tweets(1000);
+        List<Tweet> expected = TweetParser.parse(new StringReader(json));
+
+        FollowsGraphSubscriber graph = new FollowsGraphSubscriber(64);
+        TweetPublisher.fromReader(new StringReader(json)).subscribe(graph);
+        assertEquals("expected batch follows graph", SocialNetwork.guessFollowsGraph(expected),
+                graph.getResult().get(10, TimeUnit.SECONDS));
+
+        MentionProcessor mentions = new MentionProcessor();
+        List<String> usernames = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        mentions.consume(usernames::add).thenRun(done::countDown);
+        TweetPublisher.fromReader(new StringReader(json)).subscribe(mentions);
+        assertTrue("expected mentions complete", done.await(10, TimeUnit.SECONDS));
+        assertEquals("expected one username per tweet", 1000, usernames.size());
+        assertEquals("expected batch mentioned users", Extract.getMentionedUsers(expected),
+                new HashSet<>(usernames));
+        assertEquals("expected mentions in tweet order", Arrays.asList("user1", "user2"), usernames.subList(0, 2));
+    }
+
+}
@@ -0,0 +1,279 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class VersionedCorpusTest {
+
+    /*
+     * Testing strategy for VersionedCorpus:
+     *
+     * Partition the inputs as follows:
+     * - append: empty batch, one tweet, batch spanning several chunks
+     * - snapshot: empty corpus, taken before later appends, after replace
+     * - indexes: none, attached before appends, attached after appends,
+     *   attached twice, not attached
+     * - replace: smaller corpus than before, with attached indexes
+     * - failing index update: on append and on replace; the corpus stays
+     *   usable afterwards
+     * - concurrency: several writers appending while readers take and
+     *   traverse snapshots
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<Tweet> tweets(int first, int count, String author) {
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            tweets.add(new Tweet(i, author, "tweet " + i, d1.plusSeconds(i)));
+        }
+        return tweets;
+    }
+
+    @Test
+    public void testEmpty() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        VersionedCorpus.Snapshot snapshot = corpus.snapshot();
+
+        assertTrue("expected empty", snapshot.isEmpty());
+        assertEquals("expected version 0", 0, snapshot.getVersion());
+    }
+
+    @Test
+    public void testAppendOneTweet() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        List<Tweet> batch = tweets(1, 1, "alyssa");
+        VersionedCorpus.Snapshot snapshot = corpus.append(batch);
+
+        assertEquals("expected appended tweet", batch, snapshot);
+        assertEquals("expected version 1", 1, snapshot.getVersion());
+        assertSame("expected latest snapshot", snapshot, corpus.snapshot());
+    }
+
+    @Test
+    public void testAppendEmptyBatch() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        corpus.append(tweets(1, 3, "alyssa"));
+        VersionedCorpus.Snapshot snapshot = corpus.append(Collections.emptyList());
+
+        assertEquals("expected same tweets", tweets(1, 3, "alyssa"), snapshot);
+        assertEquals("expected new version", 2, snapshot.getVersion());
+    }
+
+    @Test
+    public void testAppendAcrossChunksKeepsEarlierSnapshots() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        List<Tweet> first = tweets(0, 1500, "alyssa");
+        List<Tweet> second = tweets(1500, 40_000, "bbitdiddle");
+        VersionedCorpus.Snapshot before = corpus.append(first);
+        VersionedCorpus.Snapshot after = corpus.append(second);
+
+        List<Tweet> all = new ArrayList<>(first);
+        all.addAll(second);
+        assertEquals("expected earlier snapshot unchanged", first, before);
+        assertEquals("expected all tweets", all, after);
+        assertEquals("expected last tweet", all.get(all.size() - 1), after.get(after.size() - 1));
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testGetPastSnapshotSize() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        VersionedCorpus.Snapshot before = corpus.append(tweets(0, 3, "alyssa"));
+        corpus.append(tweets(3, 3, "alyssa"));
+
+        before.get(3);
+    }
+
+    @Test
+    public void testIndexAttachedBeforeAppends() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        DerivedIndex<Timespan> timespan = DerivedIndex.timespan();
+        DerivedIndex<Map<String, Integer>> authors = DerivedIndex.authorCounts();
+        corpus.attach(timespan);
+        VersionedCorpus.Snapshot empty = corpus.attach(authors);
+        corpus.append(tweets(5, 2, "Alyssa"));
+        VersionedCorpus.Snapshot snapshot = corpus.append(tweets(1, 3, "bbitdiddle"));
+
+        assertNull("expected no timespan for empty corpus", empty.getIndex(timespan));
+        assertEquals("expected empty counts", Collections.emptyMap(), empty.getIndex(authors));
+        assertEquals("expected timespan", new Timespan(d1.plusSeconds(1), d1.plusSeconds(6)),
+                snapshot.getIndex(timespan));
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("alyssa", 2);
+        expected.put("bbitdiddle", 3);
+        assertEquals("expected counts", expected, snapshot.getIndex(authors));
+    }
+
+    @Test
+    public void testIndexAttachedAfterAppendsAndTwice() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        DerivedIndex<Map<String, Integer>> authors = DerivedIndex.authorCounts();
+        corpus.append(tweets(0, 3, "alyssa"));
+        VersionedCorpus.Snapshot attached = corpus.attach(authors);
+        VersionedCorpus.Snapshot again = corpus.attach(authors);
+
+        assertEquals("expected same tweets", tweets(0, 3, "alyssa"), attached);
+        assertEquals("expected new version", 2, attached.getVersion());
+        assertSame("expected no new snapshot", attached, again);
+        assertEquals("expected counts", Collections.singletonMap("alyssa", 3), attached.getIndex(authors));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testIndexNotAttached() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        VersionedCorpus.Snapshot snapshot = corpus.append(tweets(0, 3, "alyssa"));
+        snapshot.getIndex(DerivedIndex.timespan());
+    }
+
+    @Test
+    public void testReplace() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        DerivedIndex<Map<String, Integer>> authors = DerivedIndex.authorCounts();
+        corpus.attach(authors);
+        VersionedCorpus.Snapshot before = corpus.append(tweets(0, 2000, "alyssa"));
+        VersionedCorpus.Snapshot after = corpus.replace(tweets(10, 2, "bbitdiddle"));
+
+        assertEquals("expected earlier snapshot unchanged", tweets(0, 2000, "alyssa"), before);
+        assertEquals("expected replaced tweets", tweets(10, 2, "bbitdiddle"), after);
+        assertTrue("expected version to increase", after.getVersion() > before.getVersion());
+        assertEquals("expected recomputed counts", Collections.singletonMap("bbitdiddle", 2), after.getIndex(authors));
+    }
+
+    /*
+     * Counts tweets, failing on any tweet by "mallory".
+     */
+    private static final DerivedIndex<Integer> FAILING = new DerivedIndex<Integer>() {
+        @Override public Integer create(List<Tweet> tweets) {
+            return update(0, tweets);
+        }
+
+        @Override public Integer update(Integer previous, List<Tweet> added) {
+            for (Tweet tweet : added) {
+                if (tweet.getAuthor().equals("mallory")) {
+                    throw new IllegalStateException("bad tweet");
+                }
+            }
+            return previous + added.size();
+        }
+    };
+
+    @Test
+    public void testFailingIndexUpdateLeavesCorpusUsable() {
+        VersionedCorpus corpus = new VersionedCorpus();
+        corpus.attach(FAILING);
+        VersionedCorpus.Snapshot before = corpus.append(tweets(0, 2000, "alyssa"));
+
+        for (boolean replace : new boolean[] { true, false }) {
+            try {
+                if (replace) {
+                    corpus.replace(tweets(5000, 10, "mallory"));
+                } else {
+                    corpus.append(tweets(5000, 10, "mallory"));
+                }
+                fail("expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                assertSame("expected snapshot unchanged", before, corpus.snapshot());
+            }
+        }
+
+        VersionedCorpus.Snapshot after = corpus.append(tweets(2000, 5, "bbitdiddle"));
+        List<Tweet> expected = new ArrayList<>(tweets(0, 2000, "alyssa"));
+        expected.addAll(tweets(2000, 5, "bbitdiddle"));
+        assertEquals("expected appended after earlier tweets", expected, after);
+        assertEquals("expected index updated", Integer.valueOf(2005), after.getIndex(FAILING));
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders() throws Exception {
+        final int writers = 4;
+        final int readers = 4;
+        final int batches = 200;
+        final int batchSize = 37;
+        VersionedCorpus corpus = new VersionedCorpus();
+        DerivedIndex<Timespan> timespan = DerivedIndex.timespan();
+        DerivedIndex<Map<String, Integer>> authors = DerivedIndex.authorCounts();
+        corpus.attach(timespan);
+        corpus.attach(authors);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers + readers)) {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final String author = "writer" + w;
+                final int base = w * batches * batchSize;
+                writes.add(executor.submit(() -> {
+                    for (int b = 0; b < batches; b++) {
+                        corpus.append(tweets(base + b * batchSize, batchSize, author));
+                    }
+                }));
+            }
+            List<Future<?>> reads = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                reads.add(executor.submit(() -> {
+                    long lastVersion = -1;
+                    int lastSize = 0;
+                    while (writing.get()) {
+                        VersionedCorpus.Snapshot snapshot = corpus.snapshot();
+                        assertTrue("expected versions not to decrease", snapshot.getVersion() >= lastVersion);
+                        assertTrue("expected sizes not to decrease", snapshot.size() >= lastSize);
+                        List<Tweet> copy = new ArrayList<>(snapshot);
+                        assertEquals("expected stable snapshot", copy, new ArrayList<>(snapshot));
+                        checkSnapshot(snapshot, timespan, authors, batchSize);
+                        lastVersion = snapshot.getVersion();
+                        lastSize = snapshot.size();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            writing.set(false);
+            for (Future<?> read : reads) {
+                read.get();
+            }
+        }
+
+        VersionedCorpus.Snapshot last = corpus.snapshot();
+        assertEquals("expected every tweet", writers * batches * batchSize, last.size());
+        checkSnapshot(last, timespan, authors, batchSize);
+    }
+
+    /*
+     * Check that each writer's tweets appear in order in whole batches, and
+     * that the indexes equal recomputation from scratch.
+     */
+    private static void checkSnapshot(VersionedCorpus.Snapshot snapshot, DerivedIndex<Timespan> timespan,
+            DerivedIndex<Map<String, Integer>> authors, int batchSize) {
+        Map<String, Long> lastId = new HashMap<>();
+        for (Tweet tweet : snapshot) {
+            Long previous = lastId.put(tweet.getAuthor(), tweet.getId());
+            assertTrue("expected writer's tweets in order", previous == null || previous < tweet.getId());
+        }
+        assertEquals("expected counts", DerivedIndex.authorCounts().create(snapshot), snapshot.getIndex(authors));
+        for (int count : snapshot.getIndex(authors).values()) {
+            assertEquals("expected whole batches", 0, count % batchSize);
+        }
+        assertEquals("expected timespan", DerivedIndex.timespan().create(snapshot), snapshot.getIndex(timespan));
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class VocabularyTest {
+
+    /*
+     * Testing strategy for Vocabulary:
+     *
+     * Partition the inputs as follows:
+     * - vocabulary size: 0, 1, >1, with duplicates
+     * - id(): term present, absent, smaller/larger than every term
+     * - expand() pattern: no wildcard, "prefix*", "*suffix", "pre*suf",
+     *   "*infix*", "*", several wildcards
+     * - matches: none, one, many; term equal to the prefix itself; terms that
+     *   are prefixes of each other
+     * - random patterns agree with a brute-force scan
+     */
+
+    private static final Vocabulary vocabulary = new Vocabulary(Arrays.asList(
+            "rivest", "rivest?", "rivests", "river", "bitcoin", "coin", "altcoin", "coins", "b", "rivest"));
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        Vocabulary empty = new Vocabulary(new ArrayList<>());
+
+        assertEquals("expected no terms", 0, empty.size());
+        assertEquals("expected absent", -1, empty.id("a"));
+        assertEquals("expected no matches", 0, empty.expand("a*").length);
+    }
+
+    @Test
+    public void testIdsAreSortedRanks() {
+        assertEquals("expected duplicates removed", 9, vocabulary.size());
+        for (int id = 0; id < vocabulary.size(); id++) {
+            assertEquals("expected id round trip", id, vocabulary.id(vocabulary.term(id)));
+            if (id > 0) {
+                assertTrue("expected sorted", vocabulary.term(id - 1).compareTo(vocabulary.term(id)) < 0);
+            }
+        }
+        assertEquals("expected absent", -1, vocabulary.id("rive"));
+        assertEquals("expected absent before all", -1, vocabulary.id("a"));
+        assertEquals("expected absent after all", -1, vocabulary.id("zzz"));
+    }
+
+    @Test
+    public void testExpandPrefix() {
+        assertEquals("expected prefix matches", Arrays.asList("rivest", "rivest?", "rivests"),
+                vocabulary.expandTerms("rivest*"));
+        assertTrue("expected no matches", vocabulary.expandTerms("rivet*").isEmpty());
+        assertEquals("expected all terms", vocabulary.size(), vocabulary.expand("*").length);
+    }
+
+    @Test
+    public void testExpandSuffix() {
+        assertEquals("expected suffix matches", Arrays.asList("altcoin", "bitcoin", "coin"),
+                vocabulary.expandTerms("*coin"));
+    }
+
+    @Test
+    public void testExpandInfixAndMixed() {
+        assertEquals("expected prefix and suffix", Arrays.asList("bitcoin"), vocabulary.expandTerms("b*n"));
+        assertEquals("expected infix", Arrays.asList("river", "rivest", "rivest?", "rivests"),
+                vocabulary.expandTerms("*ive*"));
+        assertEquals("expected several wildcards", Arrays.asList("altcoin", "bitcoin"),
+                vocabulary.expandTerms("*t*o*n"));
+        assertEquals("expected exact term", Arrays.asList("coin"), vocabulary.expandTerms("coin"));
+    }
+
+    @Test
+    public void testExpandAgreesWithScan() {
+        Random random = new Random(31);
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder term = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                term.append((char) ('a' + random.nextInt(4)));
+            }
+            terms.add(term.toString());
+        }
+        Vocabulary big = new Vocabulary(terms);
+        String[] patterns = { "ab*", "*cd", "a*d", "*bb*", "a*b*c", "dddd*", "*a", "c" };
+
+        for (String pattern : patterns) {
+            String regex = pattern.replace("*", ".*");
+            List<String> expected = new ArrayList<>();
+            for (String term : new TreeSet<>(terms)) {
+                if (term.matches(regex)) {
+                    expected.add(term);
+                }
+            }
+            assertEquals("expected same as scan for " + pattern, expected, big.expandTerms(pattern));
+        }
+    }
+
+}
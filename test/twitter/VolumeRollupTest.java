@@ -0,0 +1,192 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VolumeRollupTest {
+
+    /*
+     * Testing strategy for VolumeRollup:
+     *
+     * Partition the inputs as follows:
+     * - tweets added: none, one, many; in time order, out of order (buckets
+     *   growing in both directions), far apart (epoch 0 beside 2016,
+     *   Instant.MIN and Instant.MAX)
+     * - timespan: within one minute, spanning minute/hour/day boundaries,
+     *   several whole days, before/after all tweets, unaligned endpoints,
+     *   all time (Instant.MIN to Instant.MAX) over few or far-apart tweets
+     * - mentions: tracked user mentioned, mentioned twice in one tweet,
+     *   different case, untracked user (throws)
+     * - distinct authors: few (within 10%), many (within sketch error),
+     *   same author in different case; sketches sparse, dense, promoted
+     *   from sparse to dense, merged across representations
+     *
+     * Tweet and mention counts must equal a scan of the raw tweets over the
+     * timespan widened to whole minutes.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        VolumeRollup rollup = new VolumeRollup(Arrays.asList("alyssa"));
+        Timespan span = new Timespan(d1, d1.plusSeconds(86400 * 3));
+
+        assertEquals("expected no tweets", 0, rollup.tweetCount(span));
+        assertEquals("expected no authors", 0, rollup.distinctAuthors(span));
+        assertEquals("expected no mentions", 0, rollup.mentionCount("alyssa", span));
+        assertArrayEquals("expected zero series", new long[] { 0, 0 },
+                rollup.tweetCounts(new Timespan(d1, d1.plusSeconds(3600)), VolumeRollup.Resolution.HOUR));
+    }
+
+    @Test
+    public void testSmallCountsAndMentions() {
+        VolumeRollup rollup = new VolumeRollup(Arrays.asList("Alyssa", "ben"));
+        rollup.add(new Tweet(1, "ben", "hi @alyssa and @ALYSSA", d1.plusSeconds(30)));
+        rollup.add(new Tweet(2, "BEN", "@ben_bitdiddle talk", d1.plusSeconds(90)));
+        rollup.add(new Tweet(3, "alyssa", "@ben", d1.minusSeconds(10)));
+
+        assertEquals("expected total", 3, rollup.getTweetCount());
+        assertEquals("expected first minute only", 1, rollup.tweetCount(new Timespan(d1.plusSeconds(59), d1.plusSeconds(59))));
+        assertEquals("expected widened to whole minutes", 2, rollup.tweetCount(new Timespan(d1.plusSeconds(45), d1.plusSeconds(61))));
+        assertEquals("expected all", 3, rollup.tweetCount(new Timespan(d1.minusSeconds(86400), d1.plusSeconds(86400))));
+        assertEquals("expected one mention per tweet", 1, rollup.mentionCount("ALYSSA", new Timespan(d1, d1.plusSeconds(3600))));
+        assertEquals("expected only whole-word mention", 1, rollup.mentionCount("ben", new Timespan(d1.minusSeconds(3600), d1.plusSeconds(3600))));
+        assertEquals("expected authors case-insensitive", 2, rollup.distinctAuthors(new Timespan(d1.minusSeconds(60), d1.plusSeconds(120))));
+        assertArrayEquals("expected minute series", new long[] { 1, 1, 1 },
+                rollup.tweetCounts(new Timespan(d1.minusSeconds(1), d1.plusSeconds(60)), VolumeRollup.Resolution.MINUTE));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testUntrackedUser() {
+        new VolumeRollup(Arrays.asList("alyssa")).mentionCount("ben", new Timespan(d1, d1));
+    }
+
+    @Test
+    public void testAgreesWithScan() {
+        Random random = new Random(6005);
+        List<Tweet> tweets = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Instant timestamp = d1.plusSeconds(random.nextInt(5 * 86400) - 86400);
+            String text = random.nextInt(4) == 0 ? "@alyssa look" : "nothing " + i;
+            tweets.add(new Tweet(i, "user" + random.nextInt(50), text, timestamp));
+        }
+        VolumeRollup rollup = new VolumeRollup(Arrays.asList("alyssa"));
+        rollup.addAll(tweets);
+
+        for (int q = 0; q < 200; q++) {
+            Instant start = d1.plusSeconds(random.nextInt(6 * 86400) - 2 * 86400);
+            Timespan span = new Timespan(start, start.plusSeconds(random.nextInt(3 * 86400)));
+            Instant from = Instant.ofEpochSecond(Math.floorDiv(start.getEpochSecond(), 60) * 60);
+            Instant to = Instant.ofEpochSecond(Math.floorDiv(span.getEnd().getEpochSecond(), 60) * 60 + 59);
+            List<Tweet> expected = Filter.inTimespan(tweets, new Timespan(from, to));
+
+            assertEquals("expected tweet count for " + span, expected.size(), rollup.tweetCount(span));
+            assertEquals("expected mention count for " + span,
+                    Filter.containing(expected, Arrays.asList("@alyssa")).size(), rollup.mentionCount("alyssa", span));
+            Set<String> authors = new HashSet<>();
+            for (Tweet tweet : expected) {
+                authors.add(tweet.getAuthor());
+            }
+            assertEquals("expected small cardinality within 10% for " + span,
+                    authors.size(), rollup.distinctAuthors(span), 1 + authors.size() / 10.0);
+        }
+    }
+
+    @Test
+    public void testFarApartTimestamps() {
+        VolumeRollup rollup = new VolumeRollup(Arrays.asList("alyssa"));
+        rollup.add(new Tweet(1, "ben", "@alyssa", d1));
+        rollup.add(new Tweet(2, "carol", "@alyssa", Instant.EPOCH));
+        rollup.add(new Tweet(3, "dave", "early", Instant.MIN));
+        rollup.add(new Tweet(4, "eve", "late", Instant.MAX));
+        rollup.add(new Tweet(5, "ben", "again", d1.plusSeconds(30)));
+
+        assertEquals("expected total", 5, rollup.getTweetCount());
+        assertEquals("expected minute near d1", 2, rollup.tweetCount(new Timespan(d1, d1)));
+        assertEquals("expected minute at epoch", 1, rollup.mentionCount("alyssa", new Timespan(Instant.EPOCH, Instant.EPOCH)));
+        assertEquals("expected minute at MIN", 1, rollup.tweetCount(new Timespan(Instant.MIN, Instant.MIN)));
+        assertEquals("expected minute at MAX", 1, rollup.distinctAuthors(new Timespan(Instant.MAX, Instant.MAX)));
+        assertEquals("expected epoch through d1 by days", 3,
+                rollup.tweetCount(new Timespan(Instant.EPOCH, d1.plusSeconds(3600))));
+        assertArrayEquals("expected day series", new long[] { 2 },
+                rollup.tweetCounts(new Timespan(d1, d1), VolumeRollup.Resolution.DAY));
+    }
+
+    @Test(timeout=10000)
+    public void testAllTime() {
+        Timespan allTime = new Timespan(Instant.MIN, Instant.MAX);
+        VolumeRollup rollup = new VolumeRollup(Arrays.asList("alyssa"));
+        assertEquals("expected nothing in empty rollup", 0, rollup.tweetCount(allTime));
+
+        rollup.add(new Tweet(1, "ben", "@alyssa", d1));
+        rollup.add(new Tweet(2, "carol", "@alyssa", d1.plusSeconds(3 * 24 * 3600)));
+        assertEquals("expected tweets of nearby days", 2, rollup.tweetCount(allTime));
+
+        rollup.add(new Tweet(3, "dave", "early", Instant.MIN));
+        rollup.add(new Tweet(4, "eve", "late", Instant.MAX));
+        rollup.add(new Tweet(5, "ben", "@Alyssa again", Instant.EPOCH));
+        assertEquals("expected every tweet", 5, rollup.tweetCount(allTime));
+        assertEquals("expected every mention", 3, rollup.mentionCount("alyssa", allTime));
+        assertEquals("expected every author", 4, rollup.distinctAuthors(allTime));
+        assertEquals("expected tweets since epoch", 4,
+                rollup.tweetCount(new Timespan(Instant.EPOCH, Instant.MAX)));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testTooManyBucketsForSeries() {
+        new VolumeRollup(Arrays.asList("alyssa")).tweetCounts(
+                new Timespan(Instant.MIN, Instant.MAX), VolumeRollup.Resolution.MINUTE);
+    }
+
+    @Test
+    public void testSparseAndDenseSketchesAgree() {
+        VolumeRollup rollup = new VolumeRollup(new ArrayList<>());
+        Instant hour = Instant.parse("2016-02-17T10:00:00Z");
+        // a few authors in one minute, more than a sparse sketch holds in another
+        for (int i = 0; i < 100; i++) {
+            rollup.add(new Tweet(i, "few" + i, "text", hour.plusSeconds(60)));
+        }
+        for (int i = 0; i < 3000; i++) {
+            rollup.add(new Tweet(i, "many" + i, "text", hour.plusSeconds(120)));
+        }
+        long fewEstimate = rollup.distinctAuthors(new Timespan(hour.plusSeconds(60), hour.plusSeconds(60)));
+        long manyEstimate = rollup.distinctAuthors(new Timespan(hour.plusSeconds(120), hour.plusSeconds(120)));
+        long minutesEstimate = rollup.distinctAuthors(new Timespan(hour.plusSeconds(60), hour.plusSeconds(120)));
+        long hourEstimate = rollup.distinctAuthors(new Timespan(hour, hour.plusSeconds(3599)));
+
+        assertEquals("expected sparse estimate within 10%", 100, fewEstimate, 10);
+        assertEquals("expected dense estimate within 10%", 3000, manyEstimate, 300);
+        assertEquals("expected merged minutes to equal the hour's sketch", hourEstimate, minutesEstimate);
+        assertEquals("expected merged estimate within 10%", 3100, minutesEstimate, 310);
+    }
+
+    @Test
+    public void testManyAuthorsWithinError() {
+        VolumeRollup rollup = new VolumeRollup(new ArrayList<>());
+        for (int i = 0; i < 50000; i++) {
+            rollup.add(new Tweet(i, "author" + (i % 20000), "text", d1.plusSeconds(i % 7200)));
+        }
+        long estimate = rollup.distinctAuthors(new Timespan(d1, d1.plusSeconds(7200)));
+
+        assertEquals("expected estimate within 10%", 20000, estimate, 2000);
+    }
+
+}
@@ -0,0 +1,146 @@
+/* Copyright (c) 2007-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package twitter;
+
+import static org.junit.Assert.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WordMatcherTest {
+
+    /*
+     * Testing strategy for WordMatcher:
+     *
+     * Partition the inputs as follows:
+     * - number of search words: 1, >1, many (table collisions)
+     * - text: empty, only spaces, leading/trailing spaces, runs of mixed
+     *   space characters (space, tab, newline, vertical tab, form feed, CR)
+     * - case: same, different
+     * - characters: ASCII, non-ASCII in text or word, non-ASCII that
+     *   lowercases to ASCII (Kelvin sign), context-dependent folding (final sigma)
+     * - match: none, whole word, prefix/suffix of a text word
+     *
+     * Differential test: Filter.containing(), which uses WordMatcher, must
+     * return exactly what the original split-based implementation returns
+     * (containingReference below) on random inputs drawn from the above.
+     */
+
+    private static final Instant d1 = Instant.parse("2016-02-17T10:00:00Z");
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testMatchesAnyWholeWords() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("Talk", "rivest"));
+
+        assertTrue("expected match", matcher.matchesAny("is it ok to TALK about it?"));
+        assertTrue("expected match after tab", matcher.matchesAny("about\trivest"));
+        assertFalse("expected no match inside word", matcher.matchesAny("talking rivests"));
+        assertFalse("expected no match in empty text", matcher.matchesAny(""));
+        assertFalse("expected no match in spaces", matcher.matchesAny(" \t\n "));
+    }
+
+    @Test
+    public void testMatchesAnyNonAscii() {
+        WordMatcher matcher = new WordMatcher(Arrays.asList("CAFÉ", "k"));
+
+        assertTrue("expected folded non-ASCII match", matcher.matchesAny("un café noir"));
+        assertTrue("expected Kelvin sign to fold to k", matcher.matchesAny("300 K"));
+        assertFalse("expected no partial match", matcher.matchesAny("cafés"));
+    }
+
+    @Test
+    public void testMatchesAnyManyWords() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            words.add("Word" + i);
+        }
+        WordMatcher matcher = new WordMatcher(words);
+
+        for (int i = 0; i < 5000; i += 7) {
+            assertTrue("expected word" + i, matcher.matchesAny("x WORD" + i + " y"));
+        }
+        assertFalse("expected no match", matcher.matchesAny("word5000 word-1 word"));
+    }
+
+    @Test
+    public void testContainingAgreesWithReference() {
+        Random random = new Random(6005);
+        String[] vocabulary = { "talk", "TALK", "Talking", "rivest", "rivest?", "#hype", "café", "CAFÉ",
+                "K", "k", "ΟΔΟΣ", "οδος", "οδοσ", "i", "I", "İ", "a-b", "" };
+        String[] spaces = { " ", "  ", "\t", "\n", "\u000B", "\f", "\r", " \t\r\n", " " };
+
+        for (int trial = 0; trial < 300; trial++) {
+            List<Tweet> tweets = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                StringBuilder text = new StringBuilder();
+                int words = random.nextInt(6);
+                for (int w = 0; w < words; w++) {
+                    text.append(spaces[random.nextInt(spaces.length)]);
+                    text.append(vocabulary[random.nextInt(vocabulary.length)]);
+                }
+                if (random.nextBoolean()) {
+                    text.append(spaces[random.nextInt(spaces.length)]);
+                }
+                tweets.add(new Tweet(i, "user", text.toString(), d1));
+            }
+            List<String> words = new ArrayList<>();
+            int count = random.nextInt(4);
+            for (int w = 0; w < count; w++) {
+                String word = vocabulary[random.nextInt(vocabulary.length - 1)];
+                words.add(word);
+            }
+
+            assertEquals("expected same result for " + words + " in " + tweets,
+                    containingReference(tweets, words), Filter.containing(tweets, words));
+        }
+    }
+
+    /*
+     * The original implementation of Filter.containing(), kept as the
+     * reference for the differential test.
+     */
+    private static List<Tweet> containingReference(List<Tweet> tweets, List<String> words) {
+        List<Tweet> result = new ArrayList<>();
+
+        if (words.isEmpty()) {
+            return result;
+        }
+
+        Set<String> searchWords = new HashSet<>();
+        for (String word : words) {
+            searchWords.add(word.toLowerCase());
+        }
+
+        for (Tweet tweet : tweets) {
+            String[] tweetWords = tweet.getText().split("\\s+");
+
+            boolean foundMatch = false;
+            for (String tweetWord : tweetWords) {
+                if (searchWords.contains(tweetWord.toLowerCase())) {
+                    foundMatch = true;
+                    break;
+                }
+            }
+
+            if (foundMatch) {
+                result.add(tweet);
+            }
+        }
+
+        return result;
+    }
+
+}